@@ -0,0 +1,73 @@
+package za.co.rmb.global.markets.book.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OffHeapOrderBook;
+import za.co.rmb.global.markets.book.loadgen.OrderFlow;
+import za.co.rmb.global.markets.book.loadgen.OrderFlowGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays synthetic order flow through {@link MatchingEngine}: new orders (some aggressive), cancels and
+ * amendments against a deep book. Each invocation applies one command. Run with {@code -prof gc} to see the
+ * allocation rate per command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MatchingEngineBenchmark {
+
+    @Param({"limit", "ladder", "offheap"})
+    public String book;
+
+    @Param({"0.45"})
+    public double cancelRatio;
+
+    @Param({"100000"})
+    public int initialDepth;
+
+    private OrderFlow flow;
+
+    private MatchingEngine[] engines;
+
+    private MatchingEngine engine;
+
+    private OrderPool pool;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateFlow() {
+        this.flow = new OrderFlowGenerator(42, 1, this.cancelRatio, 0.05, 0.1, 5.0)
+                .generate(this.initialDepth, this.initialDepth + 4_000_000);
+    }
+
+    @Setup(Level.Iteration)
+    public void buildBook() {
+        this.pool = new OrderPool(this.initialDepth);
+        this.engine = new MatchingEngine("ladder".equals(this.book)
+                ? new LadderOrderBook(0, OrderFlowGenerator.PRICE_RANGE, this.initialDepth)
+                : "offheap".equals(this.book) ? new OffHeapOrderBook(this.initialDepth) : new LimitOrderBook());
+        this.engine.setOrderPool(this.pool);
+        this.engines = new MatchingEngine[]{this.engine};
+        for (int i = 0; i < this.initialDepth; i++) {
+            this.flow.apply(i, this.engines, this.pool);
+        }
+        this.cursor = this.initialDepth;
+    }
+
+    @Benchmark
+    public void execute() {
+        if (this.cursor == this.flow.length()) {
+            buildBook(); // Only reached if an iteration outruns the stream
+        }
+        this.flow.apply(this.cursor++, this.engines, this.pool);
+    }
+}
@@ -0,0 +1,126 @@
+package za.co.rmb.global.markets.book.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.BookAnalytics;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OffHeapOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+import za.co.rmb.global.markets.book.loadgen.OrderFlowGenerator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the book mutators and a {@link BookAnalytics} sweep on a deep book. Prices are skewed towards the
+ * touch as in {@link OrderFlowGenerator}, so a few levels hold long queues.
+ * <p>
+ * To keep the book the same size across millions of invocations, adds and deletes are measured in pairs:
+ * {@link #addNewOrder} adds an order and deletes the oldest one, and {@link #deleteOrderById} deletes an order
+ * from the middle of a queue and adds it back at the end. Removed orders are reused, so the benchmarks themselves
+ * allocate nothing and {@code -prof gc} shows only what the book allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderBookBenchmark {
+    private static final int RANDOM_MASK = (1 << 16) - 1;
+
+    @Param({"limit", "ladder", "offheap"})
+    public String book;
+
+    @Param({"100000"})
+    public int depth;
+
+    private OrderBook orderBook;
+
+    private BookAnalytics analytics;
+
+    /**
+     * Resting order IDs in the order they were added, used as a ring.
+     */
+    private long[] resting;
+
+    private int oldest;
+
+    private long nextOrderId;
+
+    private long[] randomPrices;
+
+    private int[] randomSlots;
+
+    private int step;
+
+    @Setup(Level.Trial)
+    public void buildBook() {
+        Random random = new Random(42);
+        this.randomPrices = new long[RANDOM_MASK + 1];
+        this.randomSlots = new int[RANDOM_MASK + 1];
+        for (int i = 0; i <= RANDOM_MASK; i++) {
+            this.randomPrices[i] = 1 + (long) (-Math.log(1 - random.nextDouble()) * 5.0);
+            this.randomSlots[i] = random.nextInt(this.depth);
+        }
+
+        this.orderBook = "ladder".equals(this.book)
+                ? new LadderOrderBook(0, OrderFlowGenerator.PRICE_RANGE, this.depth)
+                : "offheap".equals(this.book) ? new OffHeapOrderBook(this.depth) : new LimitOrderBook();
+        this.analytics = new BookAnalytics(this.orderBook);
+        this.resting = new long[this.depth];
+        for (int i = 0; i < this.depth; i++) {
+            Order order = new Order(++this.nextOrderId, 100, 0, Side.BUY);
+            place(order, i);
+            this.resting[i] = order.getOrderId();
+        }
+    }
+
+    @Benchmark
+    public void addNewOrder() {
+        Order order = this.orderBook.deleteOrderById(this.resting[this.oldest]);
+        order.reset(++this.nextOrderId, 100, 0, Side.BUY);
+        place(order, this.step++);
+        this.resting[this.oldest] = order.getOrderId();
+        this.oldest = this.oldest + 1 == this.depth ? 0 : this.oldest + 1;
+    }
+
+    @Benchmark
+    public void deleteOrderById() {
+        Order order = this.orderBook.deleteOrderById(this.resting[this.randomSlots[this.step++ & RANDOM_MASK]]);
+        this.orderBook.addNewOrder(order);
+    }
+
+    @Benchmark
+    public void updateOrderQuantity() {
+        long orderId = this.resting[this.randomSlots[this.step++ & RANDOM_MASK]];
+        // Alternates between a decrease, which keeps priority, and an increase, which moves to the back
+        int quantity = this.orderBook.retrieveOrderById(orderId).getQuantity();
+        this.orderBook.updateOrderQuantity(orderId, quantity % 2 == 0 ? quantity - 1 : quantity + 1);
+    }
+
+    @Benchmark
+    public double vwapToFill() {
+        // Sizes of up to a thousand resting orders, so the sweep touches a handful of deep levels
+        int sequence = this.step++;
+        return this.analytics.vwapToFill((sequence & 1) == 0 ? Side.BUY : Side.SELL,
+                1 + this.randomSlots[sequence & RANDOM_MASK]);
+    }
+
+    /**
+     * Sets a skewed price on a side picked from the sequence number and adds the order to the book.
+     */
+    private void place(Order order, int sequence) {
+        long distance = this.randomPrices[sequence & RANDOM_MASK];
+        if ((sequence & 1) == 0) {
+            order.setSide(Side.BUY);
+            order.setPrice(OrderFlowGenerator.MID_PRICE - distance);
+        } else {
+            order.setSide(Side.SELL);
+            order.setPrice(OrderFlowGenerator.MID_PRICE + distance);
+        }
+        this.orderBook.addNewOrder(order);
+    }
+}
@@ -0,0 +1,57 @@
+package za.co.rmb.global.markets.book.engine;
+
+/**
+ * The outcome of uncrossing an auction book: the single price at which every executed trade takes place, the
+ * volume that executes there and the surplus left on one side.
+ */
+public final class AuctionResult {
+    static final AuctionResult NO_CROSS = new AuctionResult(0, 0, 0);
+
+    private final long price;
+    private final long volume;
+    private final long surplus;
+
+    AuctionResult(long price, long volume, long surplus) {
+        this.price = price;
+        this.volume = volume;
+        this.surplus = surplus;
+    }
+
+    /**
+     * @return true if bids and asks overlap, so there is something to execute
+     */
+    public boolean isCrossed() {
+        return this.volume > 0;
+    }
+
+    /**
+     * @return the equilibrium price in ticks, or 0 if the book is not crossed
+     */
+    public long getPrice() {
+        return this.price;
+    }
+
+    /**
+     * @return the quantity that executes at the equilibrium price
+     */
+    public long getVolume() {
+        return this.volume;
+    }
+
+    /**
+     * @return the bid quantity minus the ask quantity willing to trade at the equilibrium price; positive when
+     * buyers are left over, negative when sellers are
+     */
+    public long getSurplus() {
+        return this.surplus;
+    }
+
+    @Override
+    public String toString() {
+        return "AuctionResult{" +
+                "price=" + price +
+                ", volume=" + volume +
+                ", surplus=" + surplus +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.entities.Order;
+
+/**
+ * Receives every inbound command to a {@link MatchingEngine} before the engine applies it, so the
+ * commands can be persisted and later replayed to rebuild the book deterministically.
+ */
+public interface CommandJournal {
+
+    /**
+     * Records a new order, as submitted and before any matching.
+     *
+     * @param order the new order
+     */
+    void onNewOrder(Order order);
+
+    /**
+     * Records a cancel.
+     *
+     * @param orderId the ID of the order to cancel
+     */
+    void onCancel(long orderId);
+
+    /**
+     * Records a quantity amendment.
+     *
+     * @param orderId     the ID of the order to amend
+     * @param newQuantity the new quantity
+     */
+    void onAmend(long orderId, int newQuantity);
+
+    /**
+     * Records the switch to auction mode.
+     */
+    void onStartAuction();
+
+    /**
+     * Records the uncrossing of an auction and the return to continuous matching.
+     */
+    void onUncross();
+}
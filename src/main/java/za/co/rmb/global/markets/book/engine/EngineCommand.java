@@ -0,0 +1,70 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.entities.Order;
+
+/**
+ * An instruction queued for the worker thread that owns an instrument's engine.
+ */
+final class EngineCommand {
+
+    enum Type {
+        NEW, CANCEL, AMEND, START_AUCTION, UNCROSS
+    }
+
+    final Type type;
+    final MatchingEngine engine;
+    final Order order;
+    final long orderId;
+    final int quantity;
+
+    private EngineCommand(Type type, MatchingEngine engine, Order order, long orderId, int quantity) {
+        this.type = type;
+        this.engine = engine;
+        this.order = order;
+        this.orderId = orderId;
+        this.quantity = quantity;
+    }
+
+    static EngineCommand newOrder(MatchingEngine engine, Order order) {
+        return new EngineCommand(Type.NEW, engine, order, order.getOrderId(), order.getQuantity());
+    }
+
+    static EngineCommand cancel(MatchingEngine engine, long orderId) {
+        return new EngineCommand(Type.CANCEL, engine, null, orderId, 0);
+    }
+
+    static EngineCommand amend(MatchingEngine engine, long orderId, int newQuantity) {
+        return new EngineCommand(Type.AMEND, engine, null, orderId, newQuantity);
+    }
+
+    static EngineCommand startAuction(MatchingEngine engine) {
+        return new EngineCommand(Type.START_AUCTION, engine, null, 0, 0);
+    }
+
+    static EngineCommand uncross(MatchingEngine engine) {
+        return new EngineCommand(Type.UNCROSS, engine, null, 0, 0);
+    }
+
+    /**
+     * Applies the command to its engine. Must only be called from the engine's worker thread.
+     */
+    void apply() {
+        switch (type) {
+            case NEW:
+                engine.execute(order);
+                break;
+            case CANCEL:
+                engine.cancel(orderId);
+                break;
+            case AMEND:
+                engine.amend(orderId, quantity);
+                break;
+            case START_AUCTION:
+                engine.startAuction();
+                break;
+            case UNCROSS:
+                engine.uncross();
+                break;
+        }
+    }
+}
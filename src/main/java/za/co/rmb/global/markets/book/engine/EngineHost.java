@@ -0,0 +1,184 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hosts the matching engines of many instruments across a fixed set of worker threads.
+ * Each instrument is pinned to exactly one worker, which is the only thread that ever touches
+ * the instrument's book (the single-writer principle). Orders, cancels and amends are routed by
+ * symbol to the owning worker through a lock-free queue, so throughput scales with the number of
+ * workers while the matching path itself stays lock-free.
+ * Instruments must be added before the host is started.
+ */
+public class EngineHost implements AutoCloseable {
+    private final List<EngineWorker> workers;
+
+    /**
+     * Routes each symbol to its engine and owning worker. Only written before {@link #start()}.
+     */
+    private final Map<String, Route> routes;
+
+    private boolean started;
+
+    /**
+     * Creates a host that reports failed commands (e.g. cancelling an unknown order) to {@code errorHandler}
+     * on the worker thread.
+     *
+     * @param workerCount  the number of worker threads
+     * @param errorHandler receives exceptions thrown while applying a command
+     */
+    public EngineHost(int workerCount, Consumer<RuntimeException> errorHandler) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive.");
+        }
+        this.workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            this.workers.add(new EngineWorker("engine-worker-" + i, errorHandler));
+        }
+        this.routes = new HashMap<>();
+    }
+
+    /**
+     * Registers an instrument and assigns its book to a worker. Instruments are spread across
+     * workers in registration order.
+     *
+     * @param symbol the instrument's symbol
+     * @param book   the book that will hold the instrument's orders
+     * @return the engine matching the instrument's orders
+     * @throws IllegalStateException    if the host has already been started
+     * @throws IllegalArgumentException if the symbol is already registered
+     */
+    public MatchingEngine addInstrument(String symbol, OrderBook book) {
+        if (this.started) {
+            throw new IllegalStateException("Instruments must be added before the host is started.");
+        }
+        if (this.routes.containsKey(symbol)) {
+            throw new IllegalArgumentException("Instrument " + symbol + " is already registered.");
+        }
+        MatchingEngine engine = new MatchingEngine(book);
+        EngineWorker worker = this.workers.get(this.routes.size() % this.workers.size());
+        this.routes.put(symbol, new Route(engine, worker));
+        return engine;
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    public void start() {
+        this.started = true;
+        this.workers.forEach(EngineWorker::start);
+    }
+
+    /**
+     * Submits a new order to the engine of the order's instrument.
+     *
+     * @param order the order, with its symbol set
+     * @throws IllegalArgumentException if the order's symbol is not registered
+     */
+    public void submit(Order order) {
+        Route route = route(order.getSymbol());
+        route.worker.enqueue(EngineCommand.newOrder(route.engine, order));
+    }
+
+    /**
+     * Submits a cancel for a resting order.
+     *
+     * @param symbol  the order's instrument
+     * @param orderId the unique ID of the order to cancel
+     * @throws IllegalArgumentException if the symbol is not registered
+     */
+    public void cancel(String symbol, long orderId) {
+        Route route = route(symbol);
+        route.worker.enqueue(EngineCommand.cancel(route.engine, orderId));
+    }
+
+    /**
+     * Submits a quantity amendment for a resting order.
+     *
+     * @param symbol      the order's instrument
+     * @param orderId     the unique ID of the order to amend
+     * @param newQuantity the new quantity of the order
+     * @throws IllegalArgumentException if the symbol is not registered
+     */
+    public void amend(String symbol, long orderId, int newQuantity) {
+        Route route = route(symbol);
+        route.worker.enqueue(EngineCommand.amend(route.engine, orderId, newQuantity));
+    }
+
+    /**
+     * Switches an instrument to auction mode, after every command submitted for it so far.
+     *
+     * @param symbol the instrument
+     * @throws IllegalArgumentException if the symbol is not registered
+     * @see MatchingEngine#startAuction()
+     */
+    public void startAuction(String symbol) {
+        Route route = route(symbol);
+        route.worker.enqueue(EngineCommand.startAuction(route.engine));
+    }
+
+    /**
+     * Uncrosses an instrument's auction and returns it to continuous matching, after every command submitted
+     * for it so far. Trades are reported through the engine's execution listener.
+     *
+     * @param symbol the instrument
+     * @throws IllegalArgumentException if the symbol is not registered
+     * @see MatchingEngine#uncross()
+     */
+    public void uncross(String symbol) {
+        Route route = route(symbol);
+        route.worker.enqueue(EngineCommand.uncross(route.engine));
+    }
+
+    /**
+     * Stops all workers after they have applied every command submitted so far. Once this returns,
+     * the books may safely be read from the calling thread. Every worker is told to stop before any is
+     * waited for, and an interrupt does not cut the wait short, so no worker thread is left running;
+     * the interrupt is raised again once all of them have finished.
+     */
+    @Override
+    public void close() {
+        for (EngineWorker worker : this.workers) {
+            worker.halt();
+        }
+        boolean interrupted = false;
+        for (EngineWorker worker : this.workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Route route(String symbol) {
+        Route route = symbol == null ? null : this.routes.get(symbol);
+        if (route == null) {
+            throw new IllegalArgumentException("Instrument " + symbol + " is not registered.");
+        }
+        return route;
+    }
+
+    private static final class Route {
+        private final MatchingEngine engine;
+        private final EngineWorker worker;
+
+        private Route(MatchingEngine engine, EngineWorker worker) {
+            this.engine = engine;
+            this.worker = worker;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package za.co.rmb.global.markets.book.engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A thread that is the single writer for every engine assigned to it. Producers hand it commands
+ * through a lock-free queue, so nothing on the matching path takes a lock.
+ */
+final class EngineWorker implements Runnable {
+    private static final int SPINS_BEFORE_PARKING = 100;
+
+    private static final long PARK_NANOS = 50_000;
+
+    private final Queue<EngineCommand> inbound = new ConcurrentLinkedQueue<>();
+
+    private final Consumer<RuntimeException> errorHandler;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    EngineWorker(String name, Consumer<RuntimeException> errorHandler) {
+        this.errorHandler = errorHandler;
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues a command for this worker. Safe to call from any thread.
+     *
+     * @param command the command to queue
+     */
+    void enqueue(EngineCommand command) {
+        inbound.offer(command);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Tells the worker to stop once every command queued so far has been applied, without waiting for it.
+     */
+    void halt() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits for a halted worker's thread to finish.
+     */
+    void join() throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        int idleSpins = 0;
+        while (running || !inbound.isEmpty()) {
+            EngineCommand command = inbound.poll();
+            if (command == null) {
+                // Spin briefly to stay responsive to bursts, then back off
+                if (++idleSpins < SPINS_BEFORE_PARKING) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            idleSpins = 0;
+            try {
+                command.apply();
+            } catch (RuntimeException e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+
+/**
+ * Flyweight describing something the matching engine did. The engine reuses a single instance for
+ * every event it emits, so a listener must copy out whatever it needs before returning.
+ * <ul>
+ *     <li>{@link Type#ACCEPTED}: a new order entered the engine with {@code quantity}.</li>
+ *     <li>{@link Type#TRADE}: the order traded {@code quantity} at {@code price} against {@code restingOrderId}.</li>
+ *     <li>{@link Type#RESTED}: the unfilled {@code quantity} of the order was added to the book.</li>
+ *     <li>{@link Type#CANCELLED}: {@code quantity} was removed from the book with the order, or was not
+ *     allowed to rest by the order's type or time in force.</li>
+ *     <li>{@link Type#AMENDED}: the order's quantity changed from {@code quantity} to {@code leavesQuantity}.</li>
+ *     <li>{@link Type#REJECTED}: the new order was refused without touching the book for {@code rejectReason},
+ *     e.g. a post-only order that would have traded or an order that failed a risk check.</li>
+ *     <li>{@link Type#TRIGGERED}: a stop order held since it was accepted was released by a trade at or through its
+ *     stop price, and is about to be matched like a new order.</li>
+ * </ul>
+ * For every type, {@code leavesQuantity} is the order's open quantity after the event.
+ */
+public final class ExecutionEvent {
+
+    public enum Type {
+        ACCEPTED, TRADE, RESTED, CANCELLED, AMENDED, REJECTED, TRIGGERED
+    }
+
+    private long sequence;
+    private Type type;
+    private long orderId;
+    private Side side;
+    private long price;
+    private int quantity;
+    private int leavesQuantity;
+    private long restingOrderId;
+    private int restingLeavesQuantity;
+    private RejectReason rejectReason;
+
+    /**
+     * Overwrites every field of this event. Used by the engine to reuse the instance.
+     */
+    void set(long sequence, Type type, long orderId, Side side, long price, int quantity, int leavesQuantity) {
+        this.sequence = sequence;
+        this.type = type;
+        this.orderId = orderId;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.leavesQuantity = leavesQuantity;
+        this.restingOrderId = 0;
+        this.restingLeavesQuantity = 0;
+        this.rejectReason = null;
+    }
+
+    /**
+     * Sets the passive side of a trade.
+     */
+    void setResting(long restingOrderId, int restingLeavesQuantity) {
+        this.restingOrderId = restingOrderId;
+        this.restingLeavesQuantity = restingLeavesQuantity;
+    }
+
+    /**
+     * Sets why a new order was rejected.
+     */
+    void setRejectReason(RejectReason rejectReason) {
+        this.rejectReason = rejectReason;
+    }
+
+    /**
+     * Copies every field of another event into this one, e.g. into a buffer slot.
+     *
+     * @param other the event to copy
+     */
+    public void copyFrom(ExecutionEvent other) {
+        this.sequence = other.sequence;
+        this.type = other.type;
+        this.orderId = other.orderId;
+        this.side = other.side;
+        this.price = other.price;
+        this.quantity = other.quantity;
+        this.leavesQuantity = other.leavesQuantity;
+        this.restingOrderId = other.restingOrderId;
+        this.restingLeavesQuantity = other.restingLeavesQuantity;
+        this.rejectReason = other.rejectReason;
+    }
+
+    /**
+     * @return the engine-wide sequence number of the event, increasing by one per event
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the ID of the order the event is about; for a trade, the incoming (aggressive) order
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    /**
+     * @return the order's limit price, or the traded price for a trade, in ticks
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getLeavesQuantity() {
+        return leavesQuantity;
+    }
+
+    /**
+     * @return for a trade, the ID of the resting (passive) order, otherwise 0
+     */
+    public long getRestingOrderId() {
+        return restingOrderId;
+    }
+
+    /**
+     * @return for a trade, the resting order's open quantity after the trade, otherwise 0
+     */
+    public int getRestingLeavesQuantity() {
+        return restingLeavesQuantity;
+    }
+
+    /**
+     * @return for a rejection, why the order was rejected, otherwise null
+     */
+    public RejectReason getRejectReason() {
+        return rejectReason;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", orderId=" + orderId +
+                ", side=" + side +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", leavesQuantity=" + leavesQuantity +
+                ", restingOrderId=" + restingOrderId +
+                ", restingLeavesQuantity=" + restingLeavesQuantity +
+                ", rejectReason=" + rejectReason +
+                '}';
+    }
+}
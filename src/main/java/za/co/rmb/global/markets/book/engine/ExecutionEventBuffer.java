@@ -0,0 +1,69 @@
+package za.co.rmb.global.markets.book.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer, single-consumer buffer of execution events. Registered as the engine's
+ * listener, it copies each event into a pre-allocated slot, and a downstream thread drains everything
+ * published so far in one batch. Nothing is allocated per event. If the consumer falls a full buffer
+ * behind, the engine thread waits for it to catch up.
+ */
+public class ExecutionEventBuffer implements ExecutionListener {
+    private final ExecutionEvent[] slots;
+
+    private final int mask;
+
+    /**
+     * Number of events published by the engine thread.
+     */
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Number of events drained by the consumer thread.
+     */
+    private final AtomicLong consumed = new AtomicLong();
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    public ExecutionEventBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two.");
+        }
+        this.slots = new ExecutionEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new ExecutionEvent();
+        }
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void onExecutionEvent(ExecutionEvent event) {
+        long sequence = this.published.get();
+        while (sequence - this.consumed.get() >= this.slots.length) {
+            LockSupport.parkNanos(1); // Consumer is a full buffer behind
+        }
+        this.slots[(int) sequence & this.mask].copyFrom(event);
+        this.published.lazySet(sequence + 1);
+    }
+
+    /**
+     * Hands every event published so far to {@code consumer}, in order, then frees their slots.
+     * Must only be called from one consumer thread.
+     *
+     * @param consumer receives each event; the event is only valid for the duration of the call
+     * @return the number of events drained
+     */
+    public int drain(ExecutionListener consumer) {
+        long start = this.consumed.get();
+        long end = this.published.get();
+        for (long sequence = start; sequence < end; sequence++) {
+            consumer.onExecutionEvent(this.slots[(int) sequence & this.mask]);
+        }
+        this.consumed.lazySet(end);
+        return (int) (end - start);
+    }
+}
@@ -0,0 +1,15 @@
+package za.co.rmb.global.markets.book.engine;
+
+/**
+ * Receives every event emitted by a {@link MatchingEngine}, on the engine's thread, in sequence order.
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * Handles one event. The event is a reused flyweight that is only valid for the duration of the call.
+     *
+     * @param event the event
+     */
+    void onExecutionEvent(ExecutionEvent event);
+}
@@ -1,11 +1,21 @@
 package za.co.rmb.global.markets.book.engine;
 
 import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.RejectReason;
 import za.co.rmb.global.markets.book.entities.Side;
-import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.DepthView;
+import za.co.rmb.global.markets.book.limit.LevelVisitor;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+import za.co.rmb.global.markets.book.metrics.EngineMetrics;
+import za.co.rmb.global.markets.book.risk.RiskCheck;
 
-import java.util.Queue;
-import java.util.TreeMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The MatchingEngine is responsible for executing trades by matching incoming orders
@@ -13,72 +23,625 @@ import java.util.TreeMap;
  * matched based on price-time priority and updates the LOB accordingly.
  */
 public class MatchingEngine {
-    private final LimitOrderBook limitOrderBook;
+    private final OrderBook limitOrderBook;
+
+    /**
+     * Optional pool that orders are returned to once they leave the book.
+     */
+    private OrderPool orderPool;
+
+    /**
+     * Optional listener that receives every execution event.
+     */
+    private ExecutionListener executionListener;
+
+    /**
+     * Optional journal that records every inbound command before it is applied.
+     */
+    private CommandJournal commandJournal;
+
+    /**
+     * Optional view of the top levels that is refreshed after every command for lock-free readers.
+     */
+    private DepthView depthView;
+
+    /**
+     * Optional latency histograms and counters; with none set the clock is never read.
+     */
+    private EngineMetrics metrics;
+
+    /**
+     * Optional pre-trade risk checks run on every new order before it touches the book.
+     */
+    private RiskCheck riskCheck;
+
+    /**
+     * Reused to check the liquidity available to fill-or-kill orders without allocating.
+     */
+    private final LiquidityCheck liquidityCheck = new LiquidityCheck();
+
+    /**
+     * Reused to gather the cumulative level quantities an auction is uncrossed from.
+     */
+    private final AuctionLevels auctionLevels = new AuctionLevels();
+
+    /**
+     * True during the call phase of an auction, when orders accumulate in the book without matching.
+     */
+    private boolean auction;
+
+    /**
+     * Stop orders waiting for the last price to reach their stop price.
+     */
+    private final StopOrderIndex stopOrders = new StopOrderIndex();
+
+    /**
+     * Reused to hold the stop orders released by a trade until they are matched.
+     */
+    private final ArrayDeque<Order> triggeredStops = new ArrayDeque<>();
+
+    /**
+     * Price of the last trade in ticks, or 0 before the first trade.
+     */
+    private long lastPrice;
+
+    /**
+     * Flyweight reused for every event, so publishing allocates nothing.
+     */
+    private final ExecutionEvent event = new ExecutionEvent();
+
+    private long eventSequence;
 
     /**
      * Constructs a MatchingEngine with a given Limit Order Book.
      *
      * @param limitOrderBook The limit order book that stores bids and asks.
      */
-    public MatchingEngine(LimitOrderBook limitOrderBook) {
+    public MatchingEngine(OrderBook limitOrderBook) {
         this.limitOrderBook = limitOrderBook;
     }
 
+    /**
+     * Sets the pool that resting orders are returned to once they are fully filled or cancelled, or
+     * as soon as they rest in a book that copies them (see {@link OrderBook#holdsOrders()}).
+     * With a pool set, the engine owns every order that rests in the book, and callers must not
+     * hold on to such orders.
+     *
+     * @param orderPool The pool to recycle orders into, or null to leave retired orders to the GC.
+     */
+    public void setOrderPool(OrderPool orderPool) {
+        this.orderPool = orderPool;
+    }
+
+    /**
+     * Sets the listener that receives an event for every order accepted, trade, order rested,
+     * cancel and amendment, on the thread calling the engine.
+     *
+     * @param executionListener The listener, or null to emit no events.
+     */
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = executionListener;
+    }
+
+    /**
+     * @return the listener that receives the engine's events, or null if none is set
+     */
+    public ExecutionListener getExecutionListener() {
+        return this.executionListener;
+    }
+
+    /**
+     * Sets the journal that records every inbound command before the engine applies it.
+     * Attach the journal only after any recovery replay, so replayed commands are not recorded twice.
+     *
+     * @param commandJournal The journal, or null to stop journaling.
+     */
+    public void setCommandJournal(CommandJournal commandJournal) {
+        this.commandJournal = commandJournal;
+    }
+
+    /**
+     * Sets the view that is refreshed with the top levels of the book after every command, so other threads
+     * can read the book without locking it.
+     *
+     * @param depthView The view, or null to publish none.
+     */
+    public void setDepthView(DepthView depthView) {
+        this.depthView = depthView;
+    }
+
+    /**
+     * Sets the metrics that record the latency of every command and count fills, rests and levels touched.
+     *
+     * @param metrics The metrics, or null to record none.
+     */
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the risk checks that every new order and every quantity increase must pass, and keeps the exposure
+     * they check up to date as orders rest, trade and leave the book. Set the risk check before any recovery
+     * replay, so replayed orders are checked and counted the same way as they were originally.
+     *
+     * @param riskCheck The risk checks, or null to check nothing.
+     */
+    public void setRiskCheck(RiskCheck riskCheck) {
+        this.riskCheck = riskCheck;
+    }
+
+    /**
+     * @return the risk checks set on the engine, or null if there are none
+     */
+    public RiskCheck getRiskCheck() {
+        return this.riskCheck;
+    }
+
     /**
      * Executes an incoming order by attempting to match it with existing orders
-     * in the order book. If no match is found, the order is added to the book.
+     * in the order book. The opposite side is swept from the best price through every
+     * level the order's limit price crosses; a market order crosses every level.
+     * Unfilled quantity of a good-till-cancelled limit order is added to the book, while that of an
+     * immediate-or-cancel or market order is cancelled. A fill-or-kill order is cancelled without trading
+     * unless the crossing levels hold enough quantity to fill it, and a post-only order that would trade
+     * is rejected, as is an order that fails a risk check. Neither touches the book in that case.
+     * A stop order is held, without being checked or matched, until a trade at or through its stop price releases it;
+     * a stop order whose stop price the last trade has already reached is handled at once. Stop orders released by
+     * the trades of an order are matched, in trigger order, before this method returns.
+     * An iceberg order matches with its whole quantity and rests showing at most its display quantity.
+     * On return, the order's quantity is its unfilled remainder shown in the book, which is zero if it did not rest
+     * and is not a held stop order.
      *
      * @param newOrder The incoming order to be processed.
+     * @throws IllegalArgumentException if the order's quantity is not positive, or its ID is that of an order
+     *                                  still resting or held, in which case nothing is journaled or changed
      */
     public void execute(Order newOrder) {
-        boolean isABid = newOrder.getSide() == Side.BUY;
-        TreeMap<Double, Queue<Order>> book = isABid ? this.limitOrderBook.getAsks() : this.limitOrderBook.getBids();
+        match(newOrder);
+        refreshDepthView();
+    }
 
-        Queue<Order> matchingOrders = getMatchingOrders(book, newOrder.getPrice());
+    /**
+     * Executes a burst of incoming orders in one pass, in array order. The result is the same as executing
+     * each order in turn, but the book keeps levels that empty until the end of the batch, so levels that
+     * refill within the burst are reused, and the depth view is refreshed once at the end.
+     * If an order is rejected with an exception, the orders before it have been executed and the rest have not.
+     *
+     * @param orders The incoming orders.
+     * @param offset The index of the first order to execute.
+     * @param length The number of orders to execute.
+     */
+    public void executeBatch(Order[] orders, int offset, int length) {
+        this.limitOrderBook.beginBatch();
+        try {
+            for (int i = offset; i < offset + length; i++) {
+                match(orders[i]);
+            }
+        } finally {
+            this.limitOrderBook.endBatch();
+            refreshDepthView();
+        }
+    }
 
-        if (matchingOrders == null || matchingOrders.isEmpty()) {
-            this.limitOrderBook.addNewOrder(newOrder);
+    /**
+     * Switches to auction mode. Until {@link #uncross()}, new orders are added to the book without matching, so
+     * the book may become crossed. Only good-till-cancelled limit orders can take part; any other new order is
+     * rejected. Cancels and amendments work as usual.
+     */
+    public void startAuction() {
+        if (this.commandJournal != null) {
+            this.commandJournal.onStartAuction();
+        }
+        this.auction = true;
+    }
+
+    /**
+     * @return true while the engine is in the call phase of an auction
+     */
+    public boolean isAuction() {
+        return this.auction;
+    }
+
+    /**
+     * Restores the auction state without journaling it or uncrossing, e.g. when loading a snapshot taken during
+     * the call phase, whose book may be crossed.
+     *
+     * @param auction true to be in the call phase of an auction
+     */
+    public void setAuction(boolean auction) {
+        this.auction = auction;
+    }
+
+    /**
+     * Computes the price an auction would uncross at if it ended now, without executing anything, e.g. to
+     * publish an indicative price during the call phase.
+     *
+     * @return the indicative result, which is not crossed if no bid and ask overlap
+     */
+    public AuctionResult indicativeUncross() {
+        return this.auctionLevels.equilibrium();
+    }
+
+    /**
+     * Ends the auction: every bid at or above the equilibrium price is matched against every ask at or below it,
+     * in price-time priority, with all trades at the equilibrium price. The equilibrium price is the one that
+     * maximises executable volume, then minimises the surplus left over, then is the lowest such price.
+     * The engine then returns to continuous matching, and any stop orders the equilibrium price triggers are
+     * matched. Trade events report the bid as the order and the ask as the resting order.
+     *
+     * @return the result of the uncross
+     */
+    public AuctionResult uncross() {
+        if (this.commandJournal != null) {
+            this.commandJournal.onUncross();
+        }
+        this.auction = false;
+        AuctionResult result = this.auctionLevels.equilibrium();
+        if (result.isCrossed()) {
+            executeAtPrice(result.getPrice());
+            releaseTriggeredStops();
+        }
+        refreshDepthView();
+        return result;
+    }
+
+    /**
+     * Cancels a resting order and removes it from the order book, or cancels a stop order that is still waiting.
+     *
+     * @param orderId The unique ID of the order to cancel.
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    public void cancel(long orderId) {
+        long startTime = this.metrics == null ? 0 : System.nanoTime();
+        if (this.commandJournal != null) {
+            this.commandJournal.onCancel(orderId);
+        }
+        Order cancelledOrder = this.stopOrders.remove(orderId);
+        if (cancelledOrder == null) {
+            cancelledOrder = this.limitOrderBook.deleteOrderById(orderId);
+            if (this.riskCheck != null) {
+                this.riskCheck.onCancelled(cancelledOrder);
+            }
+        }
+        publish(ExecutionEvent.Type.CANCELLED, cancelledOrder, openQuantity(cancelledOrder), 0);
+        recycle(cancelledOrder);
+        refreshDepthView();
+        recordLatency(EngineMetrics.Operation.CANCEL, startTime);
+    }
+
+    /**
+     * Amends the quantity of a resting order. A decrease keeps the order's queue priority,
+     * an increase moves it to the back of its price level. For an iceberg order the new quantity is its total open
+     * quantity, of which at most the display quantity is shown. The quantity of a waiting stop order is simply replaced.
+     *
+     * @param orderId     The unique ID of the order to amend.
+     * @param newQuantity The new quantity of the order, which must be positive; use {@link #cancel} to remove it.
+     * @throws IllegalArgumentException if the quantity is not positive, the order does not exist, or the increase
+     *                                  fails a risk check
+     */
+    public void amend(long orderId, int newQuantity) {
+        if (newQuantity <= 0) {
+            throw new IllegalArgumentException("Quantity " + newQuantity + " for order " + orderId + " must be positive.");
+        }
+        long startTime = this.metrics == null ? 0 : System.nanoTime();
+        if (this.commandJournal != null) {
+            this.commandJournal.onAmend(orderId, newQuantity);
+        }
+        Order stopOrder = this.stopOrders.get(orderId);
+        if (stopOrder != null) {
+            publish(ExecutionEvent.Type.AMENDED, stopOrder, stopOrder.getQuantity(), newQuantity);
+            stopOrder.setQuantity(newQuantity);
+            recordLatency(EngineMetrics.Operation.AMEND, startTime);
+            return;
+        }
+
+        Order order = this.limitOrderBook.retrieveOrderById(orderId);
+        int previousQuantity = order == null ? 0 : openQuantity(order);
+        if (order != null && this.riskCheck != null) {
+            RejectReason rejectReason = this.riskCheck.checkAmend(order, newQuantity);
+            if (rejectReason != null) {
+                throw new IllegalArgumentException("Amendment of order " + orderId + " failed risk check " + rejectReason + ".");
+            }
+        }
+        if (order != null && order.getDisplayQuantity() > 0) {
+            int shownQuantity = Math.min(order.getDisplayQuantity(), newQuantity);
+            this.limitOrderBook.updateOrderQuantity(orderId, shownQuantity, newQuantity - shownQuantity);
+            order.setHiddenQuantity(newQuantity - shownQuantity);
+            order.setQuantity(shownQuantity);
+        } else {
+            this.limitOrderBook.updateOrderQuantity(orderId, newQuantity);
+            if (order != null) {
+                order.setQuantity(newQuantity); // In case the book returned a copy
+            }
+        }
+        if (this.riskCheck != null) {
+            this.riskCheck.onAmended(order, previousQuantity);
+        }
+        publish(ExecutionEvent.Type.AMENDED, order, previousQuantity, newQuantity);
+        refreshDepthView();
+        recordLatency(EngineMetrics.Operation.AMEND, startTime);
+    }
+
+    /**
+     * @return the price of the last trade in ticks, or 0 if there has been none
+     */
+    public long getLastPrice() {
+        return this.lastPrice;
+    }
+
+    /**
+     * Restores the price of the last trade, which decides when stop orders trigger, e.g. when loading a snapshot.
+     *
+     * @param lastPrice the price in ticks, or 0 for none
+     */
+    public void setLastPrice(long lastPrice) {
+        this.lastPrice = lastPrice;
+    }
+
+    /**
+     * Holds a stop order until its stop price is reached, without journaling, checking or triggering it, e.g. when
+     * loading a snapshot.
+     *
+     * @param stopOrder the stop order
+     */
+    public void addStopOrder(Order stopOrder) {
+        this.stopOrders.add(stopOrder);
+    }
+
+    /**
+     * Visits every stop order waiting for its stop price, in the order each side would trigger.
+     *
+     * @param action the action to perform on each order; it must not modify the engine
+     */
+    public void forEachStopOrder(Consumer<Order> action) {
+        this.stopOrders.forEach(action);
+    }
+
+    /**
+     * Retrieves the order book this engine matches against.
+     *
+     * @return the order book
+     */
+    public OrderBook getOrderBook() {
+        return this.limitOrderBook;
+    }
+
+    /**
+     * Matches an incoming order against the book and rests any remainder, or holds it if it is a stop order that
+     * has not triggered, and then matches the stop orders its trades release.
+     *
+     * @param newOrder The incoming order to be processed.
+     */
+    private void match(Order newOrder) {
+        checkEntry(newOrder);
+        long startTime = this.metrics == null ? 0 : System.nanoTime();
+        if (this.commandJournal != null) {
+            this.commandJournal.onNewOrder(newOrder);
+        }
+        if (newOrder.getStopPrice() > 0 && !stopReached(newOrder)) {
+            publish(ExecutionEvent.Type.ACCEPTED, newOrder, newOrder.getQuantity(), newOrder.getQuantity());
+            this.stopOrders.add(newOrder);
+        } else {
+            process(newOrder, ExecutionEvent.Type.ACCEPTED);
+            releaseTriggeredStops();
+        }
+        recordLatency(EngineMetrics.Operation.NEW_ORDER, startTime);
+    }
+
+    /**
+     * Matches the stop orders released by the last price, in trigger order, until no more are released. Their own
+     * trades may move the last price and release further stop orders.
+     */
+    private void releaseTriggeredStops() {
+        if (this.stopOrders.size() == 0 || this.lastPrice == 0) {
             return;
         }
+        while (this.stopOrders.release(this.lastPrice, this.triggeredStops) > 0) {
+            Order stopOrder;
+            while ((stopOrder = this.triggeredStops.poll()) != null) {
+                process(stopOrder, ExecutionEvent.Type.TRIGGERED);
+                if (stopOrder.getQuantity() == 0) {
+                    recycle(stopOrder); // The engine owns released stop orders that did not rest
+                }
+            }
+        }
+    }
+
+    /**
+     * Refuses a new order that could corrupt the book: one with nothing to trade, or one reusing the ID of an order
+     * that is still live, whose index entry it would replace.
+     *
+     * @param newOrder The incoming order.
+     * @throws IllegalArgumentException if the order must not enter the engine
+     */
+    private void checkEntry(Order newOrder) {
+        if (newOrder.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Quantity " + newOrder.getQuantity() + " for order "
+                    + newOrder.getOrderId() + " must be positive.");
+        }
+        long orderId = newOrder.getOrderId();
+        if (this.limitOrderBook.containsOrder(orderId) || this.stopOrders.get(orderId) != null) {
+            throw new IllegalArgumentException("Order with ID " + orderId + " is already live.");
+        }
+    }
+
+    /**
+     * Determines whether the last trade has reached a stop order's stop price.
+     */
+    private boolean stopReached(Order stopOrder) {
+        if (this.lastPrice == 0) {
+            return false;
+        }
+        return stopOrder.getSide() == Side.BUY ? this.lastPrice >= stopOrder.getStopPrice() : this.lastPrice <= stopOrder.getStopPrice();
+    }
+
+    /**
+     * Checks, matches and rests an order that enters the book.
+     *
+     * @param newOrder  The order.
+     * @param entryType The event announcing the order: ACCEPTED for a new order, TRIGGERED for a released stop order.
+     */
+    private void process(Order newOrder, ExecutionEvent.Type entryType) {
+        Side restingSide = newOrder.getSide() == Side.BUY ? Side.SELL : Side.BUY;
+        RejectReason rejectReason = this.riskCheck == null ? null : this.riskCheck.check(newOrder, this.limitOrderBook);
+
+        if (rejectReason != null) {
+            reject(newOrder, rejectReason);
+        } else if (mayRest(newOrder) && !this.limitOrderBook.acceptsPrice(newOrder.getPrice())) {
+            reject(newOrder, RejectReason.PRICE_RANGE); // Before it trades, as the book could not take its remainder
+        } else if (this.auction) {
+            if (!mayRest(newOrder)) {
+                reject(newOrder, RejectReason.AUCTION);
+            } else {
+                publish(entryType, newOrder, newOrder.getQuantity(), newOrder.getQuantity());
+                addRemainingOrderToBook(newOrder, newOrder.getQuantity());
+            }
+        } else if (newOrder.isPostOnly() && wouldTrade(newOrder, restingSide)) {
+            reject(newOrder, RejectReason.POST_ONLY);
+        } else {
+            publish(entryType, newOrder, newOrder.getQuantity(), newOrder.getQuantity());
+            if (newOrder.getTimeInForce() == TimeInForce.FOK && !this.liquidityCheck.canFill(newOrder, restingSide)) {
+                cancelRemainder(newOrder, newOrder.getQuantity());
+            } else {
+                int remainingQuantity = sweepCrossingLevels(restingSide, newOrder);
+                newOrder.setQuantity(remainingQuantity);
+                if (!mayRest(newOrder)) {
+                    cancelRemainder(newOrder, remainingQuantity);
+                } else {
+                    addRemainingOrderToBook(newOrder, remainingQuantity);
+                }
+            }
+        }
+    }
 
-        int remainingQuantity = processMatchingOrders(matchingOrders, newOrder.getQuantity());
+    /**
+     * Determines whether an order may rest any unfilled quantity: only limit orders that are good till cancelled.
+     */
+    private static boolean mayRest(Order order) {
+        return order.getOrderType() != OrderType.MARKET && order.getTimeInForce() == TimeInForce.GTC;
+    }
+
+    /**
+     * Matches the best bid against the best ask at a single price until one of them no longer crosses it.
+     * Levels that empty are cleaned up once at the end.
+     *
+     * @param price The equilibrium price, in ticks.
+     */
+    private void executeAtPrice(long price) {
+        this.limitOrderBook.beginBatch();
+        try {
+            while (true) {
+                Order bid = this.limitOrderBook.bestOrder(Side.BUY);
+                Order ask = this.limitOrderBook.bestOrder(Side.SELL);
+                if (bid == null || ask == null || bid.getPrice() < price || ask.getPrice() > price) {
+                    break;
+                }
+                int fillQuantity = Math.min(bid.getQuantity(), ask.getQuantity());
+                this.limitOrderBook.fillOrder(bid, fillQuantity);
+                this.limitOrderBook.fillOrder(ask, fillQuantity);
+                this.lastPrice = price;
+                if (this.riskCheck != null) {
+                    this.riskCheck.onFilled(bid, fillQuantity);
+                    this.riskCheck.onFilled(ask, fillQuantity);
+                }
+                if (this.executionListener != null) {
+                    this.event.set(++this.eventSequence, ExecutionEvent.Type.TRADE, bid.getOrderId(), Side.BUY, price,
+                            fillQuantity, openQuantity(bid));
+                    this.event.setResting(ask.getOrderId(), openQuantity(ask));
+                    this.executionListener.onExecutionEvent(this.event);
+                }
+                if (bid.getQuantity() == 0) {
+                    recycleFilled(bid);
+                }
+                if (ask.getQuantity() == 0) {
+                    recycleFilled(ask);
+                }
+            }
+        } finally {
+            this.limitOrderBook.endBatch();
+        }
+    }
 
-        removeEmptyPriceLevel(book, newOrder.getPrice());
+    /**
+     * Determines whether an incoming order would trade against the best order on the opposite side.
+     *
+     * @param newOrder    The incoming order.
+     * @param restingSide The side of the book holding the orders it would match against.
+     * @return true if the order crosses the best opposite price.
+     */
+    private boolean wouldTrade(Order newOrder, Side restingSide) {
+        Order bestOrder = this.limitOrderBook.bestOrder(restingSide);
+        return bestOrder != null && crosses(newOrder, bestOrder.getPrice());
+    }
 
-        addRemainingOrderToBook(newOrder, remainingQuantity);
+    /**
+     * Rejects a new order without touching the book, leaving the order with nothing open.
+     *
+     * @param newOrder     The incoming order.
+     * @param rejectReason Why it is rejected.
+     */
+    private void reject(Order newOrder, RejectReason rejectReason) {
+        if (this.executionListener != null) {
+            this.event.set(++this.eventSequence, ExecutionEvent.Type.REJECTED, newOrder.getOrderId(), newOrder.getSide(),
+                    newOrder.getPrice(), newOrder.getQuantity(), 0);
+            this.event.setRejectReason(rejectReason);
+            this.executionListener.onExecutionEvent(this.event);
+        }
+        newOrder.setQuantity(0);
     }
 
     /**
-     * Retrieves the queue of matching orders at the given price level.
+     * Cancels the unfilled quantity of an order that may not rest, leaving the order with nothing open.
      *
-     * @param book  The order book (either bids or asks).
-     * @param price The price level to search for matching orders.
-     * @return The queue of orders at the specified price level, or null if none exist.
+     * @param newOrder          The incoming order.
+     * @param remainingQuantity Its unfilled quantity.
      */
-    private Queue<Order> getMatchingOrders(TreeMap<Double, Queue<Order>> book, double price) {
-        return book.get(price);
+    private void cancelRemainder(Order newOrder, int remainingQuantity) {
+        newOrder.setQuantity(0);
+        if (remainingQuantity > 0) {
+            publish(ExecutionEvent.Type.CANCELLED, newOrder, remainingQuantity, 0);
+        }
     }
 
     /**
-     * Processes matching orders and determines how much of the new order remains unfilled.
-     * Trades are executed in a FIFO (first-in, first-out) manner.
+     * Walks the opposite side of the book from the best price outwards, filling against the order
+     * with the highest priority until the new order is filled or the best price no longer crosses.
+     * Each step is a best-order lookup on the book, so no intermediate collections are created.
+     * Fully filled orders are removed from the book and its index, and emptied levels are cleaned up
+     * as their last order is taken off.
+     * Trades are executed in a FIFO (first-in, first-out) manner within each level.
      *
-     * @param matchingOrders The queue of orders at the matching price level.
-     * @param orderQuantity  The quantity of the new incoming order.
+     * @param restingSide The side of the book holding the orders to match against.
+     * @param newOrder    The incoming order to be matched.
      * @return The remaining unfilled quantity of the new order.
      */
-    private int processMatchingOrders(Queue<Order> matchingOrders, int orderQuantity) {
-        int remainingQuantity = orderQuantity;
+    private int sweepCrossingLevels(Side restingSide, Order newOrder) {
+        int remainingQuantity = newOrder.getQuantity();
+        boolean firstFill = true;
+        long lastFillPrice = 0;
 
-        while (!matchingOrders.isEmpty() && remainingQuantity > 0) {
-            Order matchingOrder = matchingOrders.peek();
+        while (remainingQuantity > 0) {
+            Order matchingOrder = this.limitOrderBook.bestOrder(restingSide);
+            if (matchingOrder == null || !crosses(newOrder, matchingOrder.getPrice())) {
+                break; // Levels are sorted best first, so no further level can cross
+            }
 
             int fillQuantity = Math.min(matchingOrder.getQuantity(), remainingQuantity);
             remainingQuantity -= fillQuantity;
-            matchingOrder.setQuantity(matchingOrder.getQuantity() - fillQuantity);
+            this.limitOrderBook.fillOrder(matchingOrder, fillQuantity);
+            this.lastPrice = matchingOrder.getPrice();
+            if (this.riskCheck != null) {
+                this.riskCheck.onFilled(matchingOrder, fillQuantity);
+            }
+            publishTrade(newOrder, matchingOrder, fillQuantity, remainingQuantity);
+            if (this.metrics != null) {
+                this.metrics.recordFill(firstFill || matchingOrder.getPrice() != lastFillPrice);
+                firstFill = false;
+                lastFillPrice = matchingOrder.getPrice();
+            }
 
             if (matchingOrder.getQuantity() == 0) {
-                matchingOrders.poll(); // Remove fully filled order
+                recycleFilled(matchingOrder);
             }
         }
 
@@ -86,27 +649,283 @@ public class MatchingEngine {
     }
 
     /**
-     * Removes a price level from the order book if no orders remain at that price.
+     * Determines whether the new order's limit price crosses a resting price level.
+     * A buy crosses any ask at or below its price, a sell crosses any bid at or above its price,
+     * and a market order crosses every level.
      *
-     * @param book  The order book (either bids or asks).
-     * @param price The price level to be removed if empty.
+     * @param newOrder   The incoming order.
+     * @param levelPrice The price of the resting level on the opposite side, in ticks.
+     * @return true if the order can trade at the given level.
      */
-    private void removeEmptyPriceLevel(TreeMap<Double, Queue<Order>> book, double price) {
-        if (book.containsKey(price) && book.get(price).isEmpty()) {
-            book.remove(price);
+    private boolean crosses(Order newOrder, long levelPrice) {
+        if (newOrder.getOrderType() == OrderType.MARKET) {
+            return true;
         }
+        return newOrder.getSide() == Side.BUY ? levelPrice <= newOrder.getPrice() : levelPrice >= newOrder.getPrice();
     }
 
     /**
-     * If the new order is not fully filled, the remaining quantity is added to the order book.
+     * If the new order is not fully filled, the remaining quantity is added to the order book. An iceberg order
+     * shows at most its display quantity and keeps the rest hidden.
      *
      * @param newOrder          The incoming order that was partially filled.
      * @param remainingQuantity The remaining quantity of the order.
      */
     private void addRemainingOrderToBook(Order newOrder, int remainingQuantity) {
         if (remainingQuantity > 0) {
-            newOrder.setQuantity(remainingQuantity);
+            if (newOrder.getDisplayQuantity() > 0 && remainingQuantity > newOrder.getDisplayQuantity()) {
+                newOrder.setQuantity(newOrder.getDisplayQuantity());
+                newOrder.setHiddenQuantity(remainingQuantity - newOrder.getDisplayQuantity());
+            }
             this.limitOrderBook.addNewOrder(newOrder);
+            publish(ExecutionEvent.Type.RESTED, newOrder, remainingQuantity, remainingQuantity);
+            if (this.riskCheck != null) {
+                this.riskCheck.onRested(newOrder, remainingQuantity);
+            }
+            if (this.metrics != null) {
+                this.metrics.recordRest();
+            }
+            if (!this.limitOrderBook.holdsOrders()) {
+                recycle(newOrder); // The book keeps a copy
+            }
+        }
+    }
+
+    /**
+     * Emits an event about a single order to the listener, if one is set.
+     *
+     * @param type           The type of event.
+     * @param order          The order the event is about.
+     * @param quantity       The quantity the event is about.
+     * @param leavesQuantity The order's open quantity after the event.
+     */
+    private void publish(ExecutionEvent.Type type, Order order, int quantity, int leavesQuantity) {
+        if (this.executionListener != null) {
+            this.event.set(++this.eventSequence, type, order.getOrderId(), order.getSide(), order.getPrice(), quantity, leavesQuantity);
+            this.executionListener.onExecutionEvent(this.event);
+        }
+    }
+
+    /**
+     * Emits a trade event to the listener, if one is set. Trades happen at the resting order's price.
+     *
+     * @param newOrder          The incoming (aggressive) order.
+     * @param matchingOrder     The resting (passive) order.
+     * @param fillQuantity      The traded quantity.
+     * @param remainingQuantity The incoming order's unfilled quantity after the trade.
+     */
+    private void publishTrade(Order newOrder, Order matchingOrder, int fillQuantity, int remainingQuantity) {
+        if (this.executionListener != null) {
+            this.event.set(++this.eventSequence, ExecutionEvent.Type.TRADE, newOrder.getOrderId(), newOrder.getSide(),
+                    matchingOrder.getPrice(), fillQuantity, remainingQuantity);
+            this.event.setResting(matchingOrder.getOrderId(), openQuantity(matchingOrder));
+            this.executionListener.onExecutionEvent(this.event);
+        }
+    }
+
+    /**
+     * @return the open quantity of an order, including the hidden quantity of an iceberg order
+     */
+    private static int openQuantity(Order order) {
+        return order.getQuantity() + order.getHiddenQuantity();
+    }
+
+    /**
+     * Publishes the book's top levels to the depth view, if one is set.
+     */
+    private void refreshDepthView() {
+        if (this.depthView != null) {
+            this.depthView.update(this.limitOrderBook);
+        }
+    }
+
+    /**
+     * Records the latency of an operation, if metrics are set.
+     *
+     * @param operation The operation that completed.
+     * @param startTime The {@link System#nanoTime()} at which it started.
+     */
+    private void recordLatency(EngineMetrics.Operation operation, long startTime) {
+        if (this.metrics != null) {
+            this.metrics.recordLatency(operation, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns an order that has left the book to the order pool, if one is set.
+     *
+     * @param order The order that was fully filled or cancelled.
+     */
+    private void recycle(Order order) {
+        if (this.orderPool != null) {
+            this.orderPool.release(order);
+        }
+    }
+
+    /**
+     * Returns a resting order that was fully filled to the order pool, unless the book returned a copy or view of
+     * it rather than the order it was given.
+     *
+     * @param order The order the book returned as its best order.
+     */
+    private void recycleFilled(Order order) {
+        if (this.limitOrderBook.holdsOrders()) {
+            recycle(order);
+        }
+    }
+
+    /**
+     * Adds up the quantity of the levels an order crosses, from the best price outwards, stopping as soon as
+     * there is enough to fill the order. Only level totals are read at first, so the check never walks a queue
+     * when the displayed quantity is enough. Level totals leave out the hidden quantity of iceberg orders, which
+     * the sweep replenishes from in the same pass, so when they fall short the crossed orders are walked to count
+     * it before the order is killed.
+     */
+    private final class LiquidityCheck implements LevelVisitor, Predicate<Order> {
+        private Order order;
+        private long availableQuantity;
+
+        boolean canFill(Order order, Side restingSide) {
+            this.order = order;
+            this.availableQuantity = 0;
+            MatchingEngine.this.limitOrderBook.forEachLevel(restingSide, this);
+            if (this.availableQuantity < order.getQuantity()) {
+                this.availableQuantity = 0;
+                MatchingEngine.this.limitOrderBook.forEachOrder(restingSide, this);
+            }
+            this.order = null;
+            return this.availableQuantity >= order.getQuantity();
+        }
+
+        @Override
+        public boolean onLevel(Side side, long price, long totalQuantity, int orderCount) {
+            if (!crosses(this.order, price)) {
+                return false;
+            }
+            this.availableQuantity += totalQuantity;
+            return this.availableQuantity < this.order.getQuantity();
+        }
+
+        @Override
+        public boolean test(Order resting) {
+            if (!crosses(this.order, resting.getPrice())) {
+                return false;
+            }
+            this.availableQuantity += openQuantity(resting);
+            return this.availableQuantity < this.order.getQuantity();
+        }
+    }
+
+    /**
+     * Gathers each side's levels with their cumulative quantity, best price first, into reusable arrays, and
+     * finds the equilibrium price in one merged pass over both sides. Level totals leave out the hidden quantity of
+     * iceberg orders, which the uncross trades as it refills them, so the levels are built from the orders
+     * themselves. Only the orders in the crossed range are walked, bids down to the best ask and asks up to the
+     * best bid, as no other order can trade.
+     */
+    private final class AuctionLevels implements Predicate<Order> {
+        private long[] bidPrices = new long[64];
+        private long[] bidCumulative = new long[64];
+        private long[] askPrices = new long[64];
+        private long[] askCumulative = new long[64];
+        private int bidCount;
+        private int askCount;
+        private long limitPrice;
+
+        AuctionResult equilibrium() {
+            OrderBook book = MatchingEngine.this.limitOrderBook;
+            Order bestBid = book.bestOrder(Side.BUY);
+            Order bestAsk = book.bestOrder(Side.SELL);
+            if (bestBid == null || bestAsk == null || bestBid.getPrice() < bestAsk.getPrice()) {
+                return AuctionResult.NO_CROSS;
+            }
+            long bestBidPrice = bestBid.getPrice();
+            this.bidCount = 0;
+            this.askCount = 0;
+            this.limitPrice = bestAsk.getPrice();
+            book.forEachOrder(Side.BUY, this);
+            this.limitPrice = bestBidPrice;
+            book.forEachOrder(Side.SELL, this);
+
+            // Candidate prices run upwards from the best ask to the best bid. At each one, the sell quantity is
+            // that of every ask at or below it and the buy quantity that of every bid at or above it.
+            long highestBid = this.bidPrices[0];
+            int ask = 0;
+            int bid = this.bidCount - 1;
+            long price = this.askPrices[0];
+            long bestPrice = 0;
+            long bestVolume = 0;
+            long bestSurplus = 0;
+            while (true) {
+                while (ask < this.askCount && this.askPrices[ask] <= price) {
+                    ask++;
+                }
+                while (this.bidPrices[bid] < price) {
+                    bid--;
+                }
+                long buyQuantity = this.bidCumulative[bid];
+                long sellQuantity = this.askCumulative[ask - 1];
+                long volume = Math.min(buyQuantity, sellQuantity);
+                long surplus = buyQuantity - sellQuantity;
+                if (volume > bestVolume || (volume == bestVolume && Math.abs(surplus) < Math.abs(bestSurplus))) {
+                    bestPrice = price;
+                    bestVolume = volume;
+                    bestSurplus = surplus;
+                }
+
+                long nextPrice = ask < this.askCount ? this.askPrices[ask] : Long.MAX_VALUE;
+                int higherBid = this.bidPrices[bid] > price ? bid : bid - 1;
+                if (higherBid >= 0) {
+                    nextPrice = Math.min(nextPrice, this.bidPrices[higherBid]);
+                }
+                if (nextPrice > highestBid) {
+                    break;
+                }
+                price = nextPrice;
+            }
+            return new AuctionResult(bestPrice, bestVolume, bestSurplus);
+        }
+
+        @Override
+        public boolean test(Order order) {
+            long price = order.getPrice();
+            int quantity = openQuantity(order);
+            if (order.getSide() == Side.BUY) {
+                if (price < this.limitPrice) {
+                    return false;
+                }
+                if (this.bidCount > 0 && this.bidPrices[this.bidCount - 1] == price) {
+                    this.bidCumulative[this.bidCount - 1] += quantity;
+                } else {
+                    ensureCapacity(this.bidCount);
+                    this.bidPrices[this.bidCount] = price;
+                    this.bidCumulative[this.bidCount] = quantity + (this.bidCount == 0 ? 0 : this.bidCumulative[this.bidCount - 1]);
+                    this.bidCount++;
+                }
+            } else {
+                if (price > this.limitPrice) {
+                    return false;
+                }
+                if (this.askCount > 0 && this.askPrices[this.askCount - 1] == price) {
+                    this.askCumulative[this.askCount - 1] += quantity;
+                } else {
+                    ensureCapacity(this.askCount);
+                    this.askPrices[this.askCount] = price;
+                    this.askCumulative[this.askCount] = quantity + (this.askCount == 0 ? 0 : this.askCumulative[this.askCount - 1]);
+                    this.askCount++;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int count) {
+            if (count == this.bidPrices.length || count == this.askPrices.length) {
+                int capacity = Math.max(this.bidPrices.length, this.askPrices.length) * 2;
+                this.bidPrices = Arrays.copyOf(this.bidPrices, capacity);
+                this.bidCumulative = Arrays.copyOf(this.bidCumulative, capacity);
+                this.askPrices = Arrays.copyOf(this.askPrices, capacity);
+                this.askCumulative = Arrays.copyOf(this.askCumulative, capacity);
+            }
         }
     }
 }
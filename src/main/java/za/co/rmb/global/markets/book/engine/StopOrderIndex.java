@@ -0,0 +1,107 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Holds the stop orders waiting for their stop price, in two trigger indexes sorted by stop price in the order they
+ * trigger: buy stops lowest first, since a rising price reaches them in that order, and sell stops highest first.
+ * The orders triggered by a last price are therefore always a prefix of each index, so releasing them touches only
+ * triggered orders and never scans the ones still waiting. Orders with the same stop price are released in arrival
+ * order, and any order can be removed by its ID in O(1).
+ */
+final class StopOrderIndex {
+
+    private final TreeMap<Long, Map<Long, Order>> buyStops = new TreeMap<>();
+
+    private final TreeMap<Long, Map<Long, Order>> sellStops = new TreeMap<>(Collections.reverseOrder());
+
+    private final Map<Long, Order> ordersById = new HashMap<>();
+
+    void add(Order order) {
+        TreeMap<Long, Map<Long, Order>> stops = order.getSide() == Side.BUY ? this.buyStops : this.sellStops;
+        Map<Long, Order> orders = stops.get(order.getStopPrice());
+        if (orders == null) {
+            orders = new LinkedHashMap<>();
+            stops.put(order.getStopPrice(), orders);
+        }
+        orders.put(order.getOrderId(), order);
+        this.ordersById.put(order.getOrderId(), order);
+    }
+
+    /**
+     * @return the waiting stop order with the given ID, or null if there is none
+     */
+    Order get(long orderId) {
+        return this.ordersById.get(orderId);
+    }
+
+    /**
+     * Removes a waiting stop order.
+     *
+     * @return the removed order, or null if no stop order with the given ID is waiting
+     */
+    Order remove(long orderId) {
+        Order order = this.ordersById.remove(orderId);
+        if (order != null) {
+            TreeMap<Long, Map<Long, Order>> stops = order.getSide() == Side.BUY ? this.buyStops : this.sellStops;
+            Map<Long, Order> orders = stops.get(order.getStopPrice());
+            orders.remove(orderId);
+            if (orders.isEmpty()) {
+                stops.remove(order.getStopPrice());
+            }
+        }
+        return order;
+    }
+
+    int size() {
+        return this.ordersById.size();
+    }
+
+    /**
+     * Moves every stop order triggered by a last price into a queue: buy stops at or below the price, lowest stop
+     * price first, then sell stops at or above it, highest stop price first.
+     *
+     * @param lastPrice the last traded price, in ticks
+     * @param triggered receives the triggered orders
+     * @return the number of orders released
+     */
+    int release(long lastPrice, Queue<Order> triggered) {
+        int released = 0;
+        while (!this.buyStops.isEmpty() && this.buyStops.firstKey() <= lastPrice) {
+            released += drain(this.buyStops.pollFirstEntry().getValue(), triggered);
+        }
+        while (!this.sellStops.isEmpty() && this.sellStops.firstKey() >= lastPrice) {
+            released += drain(this.sellStops.pollFirstEntry().getValue(), triggered);
+        }
+        return released;
+    }
+
+    /**
+     * Visits every waiting stop order: buy stops, then sell stops, each in the order they would trigger.
+     */
+    void forEach(Consumer<Order> action) {
+        for (Map<Long, Order> orders : this.buyStops.values()) {
+            orders.values().forEach(action);
+        }
+        for (Map<Long, Order> orders : this.sellStops.values()) {
+            orders.values().forEach(action);
+        }
+    }
+
+    private int drain(Map<Long, Order> orders, Queue<Order> triggered) {
+        for (Order order : orders.values()) {
+            this.ordersById.remove(order.getOrderId());
+            triggered.add(order);
+        }
+        return orders.size();
+    }
+}
@@ -0,0 +1,78 @@
+package za.co.rmb.global.markets.book.entities;
+
+import java.util.Objects;
+
+/**
+ * A tradable instrument and its tick size. Orders and books hold prices as a whole number of ticks,
+ * so every price level has an exact identity; this class converts between ticks and decimal prices
+ * at the edges of the system.
+ */
+public class Instrument {
+    private static final double TICK_TOLERANCE = 1e-6;
+
+    private final String symbol;
+    private final double tickSize;
+
+    public Instrument(String symbol, double tickSize) {
+        if (!(tickSize > 0)) {
+            throw new IllegalArgumentException("Tick size must be positive.");
+        }
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    /**
+     * Converts a decimal price to a number of ticks.
+     *
+     * @param price the decimal price
+     * @return the price in ticks
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size
+     */
+    public long toTicks(double price) {
+        double ticks = price / tickSize;
+        long rounded = Math.round(ticks);
+        if (Math.abs(ticks - rounded) > TICK_TOLERANCE) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of the tick size " + tickSize + ".");
+        }
+        return rounded;
+    }
+
+    /**
+     * Converts a number of ticks to a decimal price.
+     *
+     * @param ticks the price in ticks
+     * @return the decimal price
+     */
+    public double toPrice(long ticks) {
+        return ticks * tickSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Instrument that = (Instrument) o;
+        return Double.compare(that.tickSize, tickSize) == 0 && Objects.equals(symbol, that.symbol);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, tickSize);
+    }
+
+    @Override
+    public String toString() {
+        return "Instrument{" +
+                "symbol='" + symbol + '\'' +
+                ", tickSize=" + tickSize +
+                '}';
+    }
+}
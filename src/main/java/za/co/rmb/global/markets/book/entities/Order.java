@@ -2,25 +2,91 @@ package za.co.rmb.global.markets.book.entities;
 
 import java.io.Serializable;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Order implements Serializable {
-    private final String orderId;
+    private static final OrderIdGenerator DEFAULT_ID_GENERATOR = new SequentialOrderIdGenerator();
+
+    private long orderId;
+    private String clientOrderId;
+    private String symbol;
     private int quantity;
-    private double price;
+    /**
+     * Price as a whole number of ticks of the instrument's tick size.
+     */
+    private long price;
     private Side side;
+    private OrderType orderType = OrderType.LIMIT;
+    private TimeInForce timeInForce = TimeInForce.GTC;
+    private boolean postOnly;
+    private int accountId;
+    private int displayQuantity;
+    private int hiddenQuantity;
+    /**
+     * Stop price in ticks, or 0 if the order is not a stop order.
+     */
+    private long stopPrice;
+
+    public Order(int quantity, long price, Side side) {
+        this(DEFAULT_ID_GENERATOR, quantity, price, side);
+    }
+
+    public Order(OrderIdGenerator idGenerator, int quantity, long price, Side side) {
+        this(idGenerator.nextId(), quantity, price, side);
+    }
+
+    public Order(long orderId, int quantity, long price, Side side) {
+        this.orderId = orderId;
+        this.quantity = quantity;
+        this.price = price;
+        this.side = side;
+    }
 
-    public Order(int quantity, double price, Side side) {
-        this.orderId = UUID.randomUUID().toString();
+    /**
+     * Re-initialises a recycled order so it can be reused for a new order. Must only be called on
+     * an order that is no longer held by any book.
+     */
+    public void reset(long orderId, int quantity, long price, Side side) {
+        this.orderId = orderId;
+        this.clientOrderId = null;
+        this.symbol = null;
         this.quantity = quantity;
         this.price = price;
         this.side = side;
+        this.orderType = OrderType.LIMIT;
+        this.timeInForce = TimeInForce.GTC;
+        this.postOnly = false;
+        this.accountId = 0;
+        this.displayQuantity = 0;
+        this.hiddenQuantity = 0;
+        this.stopPrice = 0;
     }
 
-    public String getOrderId() {
+    public long getOrderId() {
         return orderId;
     }
 
+    /**
+     * Optional ID assigned by the client that submitted the order, or null if none was given.
+     */
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public void setClientOrderId(String clientOrderId) {
+        this.clientOrderId = clientOrderId;
+    }
+
+    /**
+     * Symbol of the instrument the order is for, used to route it to the instrument's book.
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
     public int getQuantity() {
         return quantity;
     }
@@ -29,11 +95,11 @@ public class Order implements Serializable {
         this.quantity = quantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -45,26 +111,117 @@ public class Order implements Serializable {
         this.side = side;
     }
 
+    /**
+     * Whether the order is a limit or a market order, {@link OrderType#LIMIT} unless set.
+     */
+    public OrderType getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(OrderType orderType) {
+        this.orderType = orderType;
+    }
+
+    /**
+     * What happens to quantity that does not trade on arrival, {@link TimeInForce#GTC} unless set.
+     */
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public void setTimeInForce(TimeInForce timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+
+    /**
+     * Whether the order may only add liquidity. A post-only order that would trade on arrival is rejected.
+     */
+    public boolean isPostOnly() {
+        return postOnly;
+    }
+
+    public void setPostOnly(boolean postOnly) {
+        this.postOnly = postOnly;
+    }
+
+    /**
+     * Account that owns the order, used by pre-trade risk checks, or 0 if the order is not tagged with one.
+     */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    /**
+     * For an iceberg order, the most quantity shown in the book at a time, or 0 if the whole order is shown.
+     * When an iceberg order rests, the engine shows up to this quantity as the order's {@link #getQuantity() quantity}
+     * and keeps the rest as its {@link #getHiddenQuantity() hidden quantity}.
+     */
+    public int getDisplayQuantity() {
+        return displayQuantity;
+    }
+
+    public void setDisplayQuantity(int displayQuantity) {
+        this.displayQuantity = displayQuantity;
+    }
+
+    /**
+     * For a resting iceberg order, the reserve not shown in the book. Each time the shown quantity trades away, the book
+     * refills it from the reserve and moves the order to the back of its queue.
+     */
+    public int getHiddenQuantity() {
+        return hiddenQuantity;
+    }
+
+    public void setHiddenQuantity(int hiddenQuantity) {
+        this.hiddenQuantity = hiddenQuantity;
+    }
+
+    /**
+     * For a stop order, the last traded price in ticks at which it is released into the book: at or above it for a
+     * buy, at or below it for a sell. A released stop order is handled as its {@link #getOrderType() order type}, so a
+     * market stop order becomes a market order and a limit one a limit order. 0 if the order is not a stop order.
+     */
+    public long getStopPrice() {
+        return stopPrice;
+    }
+
+    public void setStopPrice(long stopPrice) {
+        this.stopPrice = stopPrice;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Order order = (Order) o;
-        return quantity == order.quantity && Double.compare(order.price, price) == 0 && orderId.equals(order.orderId) && side == order.side;
+        return orderId == order.orderId && quantity == order.quantity && price == order.price && side == order.side && orderType == order.orderType && timeInForce == order.timeInForce && postOnly == order.postOnly && accountId == order.accountId && displayQuantity == order.displayQuantity && hiddenQuantity == order.hiddenQuantity && stopPrice == order.stopPrice && Objects.equals(clientOrderId, order.clientOrderId) && Objects.equals(symbol, order.symbol);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(orderId, quantity, price, side);
+        return Objects.hash(orderId, clientOrderId, symbol, quantity, price, side, orderType, timeInForce, postOnly, accountId, displayQuantity, hiddenQuantity, stopPrice);
     }
 
     @Override
     public String toString() {
         return "Order{" +
-                "orderId='" + orderId + '\'' +
+                "orderId=" + orderId +
+                ", clientOrderId='" + clientOrderId + '\'' +
+                ", symbol='" + symbol + '\'' +
                 ", quantity=" + quantity +
                 ", price=" + price +
                 ", side=" + side +
+                ", orderType=" + orderType +
+                ", timeInForce=" + timeInForce +
+                ", postOnly=" + postOnly +
+                ", accountId=" + accountId +
+                ", displayQuantity=" + displayQuantity +
+                ", hiddenQuantity=" + hiddenQuantity +
+                ", stopPrice=" + stopPrice +
                 '}';
     }
 }
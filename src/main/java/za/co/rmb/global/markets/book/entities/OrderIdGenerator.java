@@ -0,0 +1,14 @@
+package za.co.rmb.global.markets.book.entities;
+
+/**
+ * Source of unique numeric order IDs.
+ */
+public interface OrderIdGenerator {
+
+    /**
+     * Generates the next order ID.
+     *
+     * @return a positive ID that this generator has not returned before
+     */
+    long nextId();
+}
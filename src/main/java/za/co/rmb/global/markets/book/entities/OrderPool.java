@@ -0,0 +1,58 @@
+package za.co.rmb.global.markets.book.entities;
+
+import java.util.Arrays;
+
+/**
+ * Pool of reusable {@link Order} objects, so the hot path does not allocate an order per message.
+ * Not thread-safe: a pool belongs to the thread that owns the book its orders rest in.
+ */
+public class OrderPool {
+    private Order[] free;
+    private int size;
+
+    /**
+     * Creates a pool with {@code initialSize} pre-allocated orders.
+     *
+     * @param initialSize the number of orders to pre-allocate
+     */
+    public OrderPool(int initialSize) {
+        this.free = new Order[Math.max(initialSize, 1)];
+        for (int i = 0; i < initialSize; i++) {
+            this.free[this.size++] = new Order(0L, 0, 0, Side.BUY);
+        }
+    }
+
+    /**
+     * Takes an order from the pool and initialises it, allocating only if the pool is exhausted.
+     *
+     * @return an order holding the given values
+     */
+    public Order acquire(long orderId, int quantity, long price, Side side) {
+        if (this.size == 0) {
+            return new Order(orderId, quantity, price, side);
+        }
+        Order order = this.free[--this.size];
+        this.free[this.size] = null;
+        order.reset(orderId, quantity, price, side);
+        return order;
+    }
+
+    /**
+     * Returns an order to the pool. The order must no longer be referenced by any book.
+     *
+     * @param order the order to recycle
+     */
+    public void release(Order order) {
+        if (this.size == this.free.length) {
+            this.free = Arrays.copyOf(this.free, this.size << 1);
+        }
+        this.free[this.size++] = order;
+    }
+
+    /**
+     * @return the number of orders currently available for reuse
+     */
+    public int available() {
+        return this.size;
+    }
+}
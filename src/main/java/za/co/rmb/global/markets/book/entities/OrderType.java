@@ -0,0 +1,12 @@
+package za.co.rmb.global.markets.book.entities;
+
+public enum OrderType {
+    /**
+     * Trades at its limit price or better; any remainder is handled according to its time in force.
+     */
+    LIMIT,
+    /**
+     * Trades at any price against whatever is in the book and never rests.
+     */
+    MARKET
+}
@@ -0,0 +1,32 @@
+package za.co.rmb.global.markets.book.entities;
+
+public enum RejectReason {
+    /**
+     * The order's type or time in force cannot take part in an auction.
+     */
+    AUCTION,
+    /**
+     * A post-only order would have traded on arrival.
+     */
+    POST_ONLY,
+    /**
+     * The order's price is too far from the current best bid or ask, e.g. a fat-fingered price.
+     */
+    PRICE_BAND,
+    /**
+     * The order would take its account's open quantity over the account's limit.
+     */
+    OPEN_QUANTITY_LIMIT,
+    /**
+     * The order would take its account's open notional over the account's limit.
+     */
+    NOTIONAL_LIMIT,
+    /**
+     * The order would have traded against a resting order of its own account.
+     */
+    SELF_TRADE,
+    /**
+     * The order could rest at a price the book cannot hold, e.g. outside the range of a ladder.
+     */
+    PRICE_RANGE
+}
@@ -0,0 +1,31 @@
+package za.co.rmb.global.markets.book.entities;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates consecutive order IDs. Safe to share between threads.
+ */
+public class SequentialOrderIdGenerator implements OrderIdGenerator {
+    private final AtomicLong lastId;
+
+    /**
+     * Creates a generator whose first ID is 1.
+     */
+    public SequentialOrderIdGenerator() {
+        this(0);
+    }
+
+    /**
+     * Creates a generator that continues after a previously issued ID, e.g. after a restart.
+     *
+     * @param lastId the last ID that was issued
+     */
+    public SequentialOrderIdGenerator(long lastId) {
+        this.lastId = new AtomicLong(lastId);
+    }
+
+    @Override
+    public long nextId() {
+        return this.lastId.incrementAndGet();
+    }
+}
@@ -0,0 +1,49 @@
+package za.co.rmb.global.markets.book.entities;
+
+/**
+ * Generates order IDs that are unique across shards without coordination. The shard number is placed
+ * in the high bits of the ID and a per-shard sequence in the low 48 bits. Each instance is meant to be
+ * used by the single thread that owns its shard.
+ */
+public class ShardedOrderIdGenerator implements OrderIdGenerator {
+    public static final int MAX_SHARD = (1 << 15) - 1;
+
+    private static final int SEQUENCE_BITS = 48;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long shardPrefix;
+
+    private long sequence;
+
+    /**
+     * Creates a generator for one shard.
+     *
+     * @param shard the shard number, between 0 and {@link #MAX_SHARD}
+     * @throws IllegalArgumentException if the shard number is out of range
+     */
+    public ShardedOrderIdGenerator(int shard) {
+        if (shard < 0 || shard > MAX_SHARD) {
+            throw new IllegalArgumentException("Shard " + shard + " is out of range.");
+        }
+        this.shardPrefix = (long) shard << SEQUENCE_BITS;
+    }
+
+    @Override
+    public long nextId() {
+        if (this.sequence == SEQUENCE_MASK) {
+            throw new IllegalStateException("Order ID sequence exhausted.");
+        }
+        return this.shardPrefix | ++this.sequence;
+    }
+
+    /**
+     * Extracts the shard number an ID was generated for.
+     *
+     * @param orderId an ID produced by a sharded generator
+     * @return the shard number
+     */
+    public static int shardOf(long orderId) {
+        return (int) (orderId >>> SEQUENCE_BITS);
+    }
+}
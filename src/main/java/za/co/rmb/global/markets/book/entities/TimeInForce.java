@@ -0,0 +1,16 @@
+package za.co.rmb.global.markets.book.entities;
+
+public enum TimeInForce {
+    /**
+     * Good till cancelled: any unfilled quantity rests in the book.
+     */
+    GTC,
+    /**
+     * Immediate or cancel: trades what it can straight away and cancels the remainder.
+     */
+    IOC,
+    /**
+     * Fill or kill: trades its whole quantity straight away or is cancelled without trading at all.
+     */
+    FOK
+}
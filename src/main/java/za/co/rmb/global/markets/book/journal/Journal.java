@@ -0,0 +1,238 @@
+package za.co.rmb.global.markets.book.journal;
+
+import za.co.rmb.global.markets.book.engine.CommandJournal;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static za.co.rmb.global.markets.book.journal.JournalFormat.*;
+
+/**
+ * Append-only, memory-mapped journal of the commands applied to a {@link za.co.rmb.global.markets.book.engine.MatchingEngine}.
+ * Attached as the engine's {@link CommandJournal}, it writes each command as a compact fixed-layout binary
+ * record (see {@link JournalFormat}) straight into a mapped segment of the file, so appending is a handful of
+ * stores with no system call and no allocation. The file grows one segment at a time.
+ * <p>
+ * Durability is traded against throughput with the sync batch size: the mapped segment is forced to disk
+ * every that many records, or only on {@link #flush()} and {@link #close()} when it is 0. Whatever the batch
+ * size, a full segment is forced before it is unmapped at roll-over, so no record is left unsynced in a segment
+ * the journal can no longer reach.
+ * Unforced records still survive a crash of the process, as the operating system owns the mapped pages, but
+ * not a crash of the machine.
+ * <p>
+ * Reopening an existing journal appends after its last record, continuing its sequence numbers.
+ * A journal is written by the engine's thread only and is not thread-safe.
+ */
+public class Journal implements CommandJournal, AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MIN_SEGMENT_SIZE = 4096;
+
+    private final FileChannel channel;
+
+    private final int segmentSize;
+
+    private final int syncBatchSize;
+
+    private MappedByteBuffer segment;
+
+    private long segmentStart;
+
+    private int offset;
+
+    private long sequence;
+
+    private int unsyncedRecords;
+
+    /**
+     * The file position up to which every record has been forced to disk.
+     */
+    private long syncedPosition;
+
+    /**
+     * Opens a journal with the default segment size, leaving syncing to {@link #flush()}.
+     *
+     * @param path the journal file, created if it does not exist
+     * @throws IOException if the file cannot be opened
+     */
+    public Journal(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE, 0);
+    }
+
+    /**
+     * Opens a journal. An existing journal keeps the segment size it was created with.
+     *
+     * @param path          the journal file, created if it does not exist
+     * @param segmentSize   the size of each mapped segment in bytes, a multiple of 8 of at least 4096
+     * @param syncBatchSize the number of records between syncs to disk, or 0 to sync only on flush
+     * @throws IOException if the file cannot be opened
+     */
+    public Journal(Path path, int segmentSize, int syncBatchSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize % ALIGNMENT != 0) {
+            throw new IllegalArgumentException("Segment size must be a multiple of " + ALIGNMENT
+                    + " of at least " + MIN_SEGMENT_SIZE + " bytes.");
+        }
+        if (syncBatchSize < 0) {
+            throw new IllegalArgumentException("Sync batch size must not be negative.");
+        }
+        this.syncBatchSize = syncBatchSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (this.channel.size() == 0) {
+            this.segmentSize = segmentSize;
+            mapSegment(0);
+            this.segment.putInt(0, MAGIC);
+            this.segment.putInt(4, VERSION);
+            this.segment.putInt(8, segmentSize);
+            this.offset = FILE_HEADER_LENGTH;
+        } else {
+            try (JournalReader reader = new JournalReader(path)) {
+                reader.scan();
+                this.segmentSize = reader.getSegmentSize();
+                this.sequence = reader.getLastSequence();
+                long endPosition = reader.getEndPosition();
+                mapSegment(endPosition - endPosition % this.segmentSize);
+                this.offset = (int) (endPosition - this.segmentStart);
+                this.syncedPosition = endPosition;
+            }
+        }
+    }
+
+    @Override
+    public void onNewOrder(Order order) {
+        int at = append(NEW_ORDER, order.getSide(), order.getOrderId(), order.getPrice(), order.getQuantity(),
+                order.getClientOrderId());
+        this.segment.put(at + ORDER_TYPE_OFFSET, (byte) order.getOrderType().ordinal());
+        this.segment.put(at + TIME_IN_FORCE_OFFSET, (byte) order.getTimeInForce().ordinal());
+        this.segment.put(at + FLAGS_OFFSET, order.isPostOnly() ? POST_ONLY_FLAG : 0);
+        this.segment.putInt(at + ACCOUNT_ID_OFFSET, order.getAccountId());
+        this.segment.putInt(at + DISPLAY_QUANTITY_OFFSET, order.getDisplayQuantity());
+        this.segment.putLong(at + STOP_PRICE_OFFSET, order.getStopPrice());
+        commit(at);
+    }
+
+    @Override
+    public void onCancel(long orderId) {
+        commit(append(CANCEL, Side.BUY, orderId, 0, 0, null));
+    }
+
+    @Override
+    public void onAmend(long orderId, int newQuantity) {
+        commit(append(AMEND, Side.BUY, orderId, 0, newQuantity, null));
+    }
+
+    @Override
+    public void onStartAuction() {
+        commit(append(START_AUCTION, Side.BUY, 0, 0, 0, null));
+    }
+
+    @Override
+    public void onUncross() {
+        commit(append(UNCROSS, Side.BUY, 0, 0, 0, null));
+    }
+
+    /**
+     * @return the sequence number of the last record appended, or 0 if the journal is empty
+     */
+    public long getLastSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public void flush() {
+        this.segment.force();
+        this.unsyncedRecords = 0;
+        this.syncedPosition = this.segmentStart + this.offset;
+    }
+
+    /**
+     * @return the file position up to which every record has been forced to disk
+     */
+    long getSyncedPosition() {
+        return this.syncedPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.channel.close();
+    }
+
+    /**
+     * Writes the body of a record, leaving its length unset until {@link #commit}.
+     *
+     * @return the offset of the record in the current segment
+     */
+    private int append(byte type, Side side, long orderId, long price, int quantity, String clientOrderId) {
+        int clientOrderIdLength = clientOrderId == null ? 0 : clientOrderId.length();
+        int length = align(RECORD_HEADER_LENGTH + clientOrderIdLength);
+        if (length > this.segmentSize || clientOrderIdLength > 0xFFFF) {
+            throw new IllegalArgumentException("Client order ID " + clientOrderId + " is too long to journal.");
+        }
+        if (this.offset + length > this.segmentSize) {
+            rollSegment();
+        }
+
+        MappedByteBuffer buffer = this.segment;
+        int at = this.offset;
+        buffer.put(at + TYPE_OFFSET, type);
+        buffer.put(at + SIDE_OFFSET, (byte) side.ordinal());
+        buffer.putShort(at + CLIENT_ORDER_ID_LENGTH_OFFSET, (short) clientOrderIdLength);
+        buffer.putLong(at + SEQUENCE_OFFSET, ++this.sequence);
+        buffer.putLong(at + ORDER_ID_OFFSET, orderId);
+        buffer.putLong(at + PRICE_OFFSET, price);
+        buffer.putInt(at + QUANTITY_OFFSET, quantity);
+        buffer.putInt(at + ORDER_TYPE_OFFSET, 0); // Order type, time in force and flags default to LIMIT, GTC and none
+        buffer.putLong(at + ACCOUNT_ID_OFFSET, 0);
+        buffer.putLong(at + STOP_PRICE_OFFSET, 0);
+        for (int i = 0; i < clientOrderIdLength; i++) {
+            buffer.put(at + RECORD_HEADER_LENGTH + i, (byte) clientOrderId.charAt(i));
+        }
+        this.offset += length;
+        return at;
+    }
+
+    /**
+     * Completes a record by writing its length.
+     *
+     * @param at the offset of the record in the current segment
+     */
+    private void commit(int at) {
+        // The length goes in last, so a reader tailing the file never sees a partly written record
+        VarHandle.releaseFence();
+        this.segment.putInt(at + LENGTH_OFFSET, this.offset - at);
+
+        if (this.syncBatchSize > 0 && ++this.unsyncedRecords >= this.syncBatchSize) {
+            flush();
+        }
+    }
+
+    private void rollSegment() {
+        if (this.offset + Integer.BYTES <= this.segmentSize) {
+            this.segment.putInt(this.offset + LENGTH_OFFSET, PADDING);
+        }
+        // Forced whatever the batch size, as flush() only reaches the segment that is mapped
+        flush();
+        this.syncedPosition = this.segmentStart + this.segmentSize;
+        try {
+            mapSegment(this.segmentStart + this.segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.offset = 0;
+    }
+
+    private void mapSegment(long position) throws IOException {
+        this.segment = (MappedByteBuffer) order(this.channel.map(FileChannel.MapMode.READ_WRITE, position, this.segmentSize));
+        this.segmentStart = position;
+    }
+}
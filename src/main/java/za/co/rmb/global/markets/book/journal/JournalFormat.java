@@ -0,0 +1,82 @@
+package za.co.rmb.global.markets.book.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of a journal file, shared by {@link Journal} and {@link JournalReader}.
+ * <p>
+ * The file is a sequence of fixed-size segments that are memory-mapped one at a time. The first
+ * {@value #FILE_HEADER_LENGTH} bytes of the file hold a header with a magic number, the format version and
+ * the segment size. Records never span two segments; a record that does not fit in the rest of a segment is
+ * preceded by a {@link #PADDING} marker and written at the start of the next segment.
+ * <p>
+ * Each record starts with its total length, aligned to {@value #ALIGNMENT} bytes, followed by:
+ * <pre>
+ *  offset  size  field
+ *       0     4  record length, written last so a torn record reads as the end of the journal
+ *       4     1  command type
+ *       5     1  side (0 = BUY, 1 = SELL)
+ *       6     2  client order ID length in bytes
+ *       8     8  sequence number
+ *      16     8  order ID
+ *      24     8  price in ticks
+ *      32     4  quantity (new quantity for amendments)
+ *      36     1  order type (0 = LIMIT, 1 = MARKET)
+ *      37     1  time in force (0 = GTC, 1 = IOC, 2 = FOK)
+ *      38     1  flags (bit 0 = post-only)
+ *      39     1  reserved
+ *      40     4  account ID
+ *      44     4  display quantity of an iceberg order (0 = not an iceberg)
+ *      48     8  stop price in ticks (0 = not a stop order)
+ *      56     n  client order ID, US-ASCII
+ * </pre>
+ * Readers skip any bytes beyond the fields they know, so fields can be appended to the record later.
+ */
+final class JournalFormat {
+    static final int MAGIC = 0x4F424A4C; // "OBJL"
+    static final int VERSION = 3;
+
+    static final int FILE_HEADER_LENGTH = 64;
+    static final int ALIGNMENT = 8;
+
+    static final int LENGTH_OFFSET = 0;
+    static final int TYPE_OFFSET = 4;
+    static final int SIDE_OFFSET = 5;
+    static final int CLIENT_ORDER_ID_LENGTH_OFFSET = 6;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int ORDER_ID_OFFSET = 16;
+    static final int PRICE_OFFSET = 24;
+    static final int QUANTITY_OFFSET = 32;
+    static final int ORDER_TYPE_OFFSET = 36;
+    static final int TIME_IN_FORCE_OFFSET = 37;
+    static final int FLAGS_OFFSET = 38;
+    static final int ACCOUNT_ID_OFFSET = 40;
+    static final int DISPLAY_QUANTITY_OFFSET = 44;
+    static final int STOP_PRICE_OFFSET = 48;
+    static final int RECORD_HEADER_LENGTH = 56;
+
+    /**
+     * Record length marking the rest of the segment as unused.
+     */
+    static final int PADDING = -1;
+
+    static final byte NEW_ORDER = 1;
+    static final byte CANCEL = 2;
+    static final byte AMEND = 3;
+    static final byte START_AUCTION = 4;
+    static final byte UNCROSS = 5;
+
+    static final byte POST_ONLY_FLAG = 1;
+
+    private JournalFormat() {
+    }
+
+    static ByteBuffer order(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,197 @@
+package za.co.rmb.global.markets.book.journal;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static za.co.rmb.global.markets.book.journal.JournalFormat.*;
+
+/**
+ * Reads a journal written by {@link Journal} and replays its commands into a {@link MatchingEngine}.
+ * Matching is deterministic, so replaying the same commands in the same order into an empty book rebuilds
+ * exactly the book, queue priority included, that the journaled engine held.
+ */
+public class JournalReader implements AutoCloseable {
+    private final FileChannel channel;
+
+    private final int segmentSize;
+
+    private long lastSequence;
+
+    private long lastOrderId;
+
+    private long endPosition;
+
+    /**
+     * Opens a journal for reading.
+     *
+     * @param path the journal file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a journal
+     */
+    public JournalReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer header = map(0, FILE_HEADER_LENGTH);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            this.channel.close();
+            throw new IllegalArgumentException("File " + path + " is not a journal.");
+        }
+        this.segmentSize = header.getInt(8);
+        this.endPosition = FILE_HEADER_LENGTH;
+    }
+
+    /**
+     * Replays every command in the journal.
+     *
+     * @param engine the engine to replay into, normally over an empty book
+     * @return the sequence number of the last command in the journal
+     * @throws IOException if the journal cannot be read
+     */
+    public long replay(MatchingEngine engine) throws IOException {
+        return replay(engine, 0);
+    }
+
+    /**
+     * Replays the commands recorded after a given sequence number, e.g. the journal tail after a snapshot.
+     * Commands that failed when they were first applied, such as cancels of unknown orders, fail again
+     * the same way and are skipped.
+     *
+     * @param engine        the engine to replay into
+     * @param afterSequence commands up to and including this sequence number are skipped
+     * @return the sequence number of the last command in the journal
+     * @throws IOException if the journal cannot be read
+     */
+    public long replay(MatchingEngine engine, long afterSequence) throws IOException {
+        long segmentStart = 0;
+        int offset = FILE_HEADER_LENGTH;
+        long fileSize = this.channel.size();
+
+        while (segmentStart < fileSize) {
+            MappedByteBuffer segment = map(segmentStart, (int) Math.min(this.segmentSize, fileSize - segmentStart));
+            while (offset + RECORD_HEADER_LENGTH <= segment.limit()) {
+                int length = segment.getInt(offset + LENGTH_OFFSET);
+                if (length == 0) {
+                    this.endPosition = segmentStart + offset;
+                    return this.lastSequence;
+                }
+                if (length == PADDING) {
+                    break;
+                }
+                long sequence = segment.getLong(offset + SEQUENCE_OFFSET);
+                if (segment.get(offset + TYPE_OFFSET) == NEW_ORDER) {
+                    this.lastOrderId = Math.max(this.lastOrderId, segment.getLong(offset + ORDER_ID_OFFSET));
+                }
+                if (engine != null && sequence > afterSequence) {
+                    apply(engine, segment, offset);
+                }
+                this.lastSequence = sequence;
+                offset += length;
+            }
+            segmentStart += this.segmentSize;
+            offset = 0;
+        }
+        this.endPosition = segmentStart;
+        return this.lastSequence;
+    }
+
+    /**
+     * @return the sequence number of the last command read, or 0 if none was read
+     */
+    public long getLastSequence() {
+        return this.lastSequence;
+    }
+
+    /**
+     * Retrieves the highest order ID of any new order read, so an ID generator can resume after it.
+     *
+     * @return the highest order ID read, or 0 if no new order was read
+     */
+    public long getLastOrderId() {
+        return this.lastOrderId;
+    }
+
+    /**
+     * Reads to the end of the journal without replaying anything.
+     */
+    void scan() throws IOException {
+        replay(null, Long.MAX_VALUE);
+    }
+
+    int getSegmentSize() {
+        return this.segmentSize;
+    }
+
+    /**
+     * @return the file position just past the last record read
+     */
+    long getEndPosition() {
+        return this.endPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private void apply(MatchingEngine engine, MappedByteBuffer segment, int offset) {
+        long orderId = segment.getLong(offset + ORDER_ID_OFFSET);
+        int quantity = segment.getInt(offset + QUANTITY_OFFSET);
+        byte type = segment.get(offset + TYPE_OFFSET);
+        try {
+            switch (type) {
+                case NEW_ORDER:
+                    Side side = segment.get(offset + SIDE_OFFSET) == 0 ? Side.BUY : Side.SELL;
+                    Order order = new Order(orderId, quantity, segment.getLong(offset + PRICE_OFFSET), side);
+                    order.setClientOrderId(readClientOrderId(segment, offset));
+                    order.setOrderType(OrderType.values()[segment.get(offset + ORDER_TYPE_OFFSET)]);
+                    order.setTimeInForce(TimeInForce.values()[segment.get(offset + TIME_IN_FORCE_OFFSET)]);
+                    order.setPostOnly((segment.get(offset + FLAGS_OFFSET) & POST_ONLY_FLAG) != 0);
+                    order.setAccountId(segment.getInt(offset + ACCOUNT_ID_OFFSET));
+                    order.setDisplayQuantity(segment.getInt(offset + DISPLAY_QUANTITY_OFFSET));
+                    order.setStopPrice(segment.getLong(offset + STOP_PRICE_OFFSET));
+                    engine.execute(order);
+                    break;
+                case CANCEL:
+                    engine.cancel(orderId);
+                    break;
+                case AMEND:
+                    engine.amend(orderId, quantity);
+                    break;
+                case START_AUCTION:
+                    engine.startAuction();
+                    break;
+                case UNCROSS:
+                    engine.uncross();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journal record type " + type + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            // The command was rejected the same way when it was first applied
+        }
+    }
+
+    private static String readClientOrderId(MappedByteBuffer segment, int offset) {
+        int length = Short.toUnsignedInt(segment.getShort(offset + CLIENT_ORDER_ID_LENGTH_OFFSET));
+        if (length == 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) segment.get(offset + RECORD_HEADER_LENGTH + i);
+        }
+        return new String(chars);
+    }
+
+    private MappedByteBuffer map(long position, int size) throws IOException {
+        return (MappedByteBuffer) order(this.channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+}
@@ -0,0 +1,168 @@
+package za.co.rmb.global.markets.book.journal;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Restores an engine's book on startup: the latest snapshot, if there is one, is loaded straight into the
+ * book and the engine's stop orders, and then only the journal records after the snapshot are replayed through the engine.
+ */
+public class Recovery {
+    private final Path snapshotDirectory;
+
+    private final Path journalPath;
+
+    private long lastSequence;
+
+    private long lastOrderId;
+
+    /**
+     * @param snapshotDirectory the directory {@link SnapshotWriter} writes to
+     * @param journalPath       the journal file
+     */
+    public Recovery(Path snapshotDirectory, Path journalPath) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.journalPath = journalPath;
+    }
+
+    /**
+     * Restores the book of an engine. Attach the journal to the engine only once this returns, but set any risk
+     * check before, so its exposure is restored along with the book.
+     *
+     * @param engine the engine to restore, over an empty book
+     * @return the sequence number of the last journaled command applied
+     * @throws IOException if a snapshot or the journal cannot be read
+     */
+    public long recover(MatchingEngine engine) throws IOException {
+        Path snapshot = findLatestSnapshot(this.snapshotDirectory);
+        if (snapshot != null) {
+            this.lastSequence = loadSnapshot(snapshot, engine);
+            if (engine.getRiskCheck() != null) {
+                engine.getRiskCheck().rebuild(engine.getOrderBook());
+            }
+        }
+        if (Files.exists(this.journalPath)) {
+            try (JournalReader reader = new JournalReader(this.journalPath)) {
+                this.lastSequence = Math.max(this.lastSequence, reader.replay(engine, this.lastSequence));
+                this.lastOrderId = Math.max(this.lastOrderId, reader.getLastOrderId());
+            }
+        }
+        return this.lastSequence;
+    }
+
+    /**
+     * @return the sequence number of the last journaled command applied by {@link #recover}
+     */
+    public long getLastSequence() {
+        return this.lastSequence;
+    }
+
+    /**
+     * Retrieves the highest order ID seen while recovering, so an ID generator can resume after it.
+     *
+     * @return the highest order ID seen, or 0 if none was seen
+     */
+    public long getLastOrderId() {
+        return this.lastOrderId;
+    }
+
+    /**
+     * Finds the snapshot covering the most journaled commands.
+     *
+     * @param directory the snapshot directory
+     * @return the latest snapshot, or null if there is none
+     * @throws IOException if the directory cannot be listed
+     */
+    public static Path findLatestSnapshot(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // Sequence numbers are zero-padded, so the names sort in sequence order
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SnapshotWriter.FILE_PREFIX) && name.endsWith(SnapshotWriter.FILE_SUFFIX);
+            }).max(Path::compareTo).orElse(null);
+        }
+    }
+
+    /**
+     * Adds every resting order in a snapshot to an engine's book, and restores its stop orders, last price and auction
+     * state on the engine.
+     * Orders are stored in priority order, so adding them in turn restores each level's queue.
+     *
+     * @param snapshot the snapshot file
+     * @param engine   the engine to load into
+     * @return the journal sequence number the snapshot was taken at
+     * @throws IOException if the snapshot cannot be read
+     */
+    long loadSnapshot(Path snapshot, MatchingEngine engine) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < SnapshotWriter.HEADER_LENGTH || buffer.getInt() != SnapshotWriter.MAGIC
+                || buffer.getInt() != SnapshotWriter.VERSION) {
+            throw new IllegalArgumentException("File " + snapshot + " is not a snapshot.");
+        }
+        long journalSequence = buffer.getLong();
+        long lastPrice = buffer.getLong();
+        long orderCount = buffer.getLong();
+        long stopOrderCount = buffer.getLong();
+        int snapshotFlags = buffer.getInt();
+        buffer.getInt();
+
+        for (long i = 0; i < orderCount + stopOrderCount; i++) {
+            long orderId = buffer.getLong();
+            long price = buffer.getLong();
+            long stopPrice = buffer.getLong();
+            int quantity = buffer.getInt();
+            int hiddenQuantity = buffer.getInt();
+            int displayQuantity = buffer.getInt();
+            int accountId = buffer.getInt();
+            Side side = buffer.get() == 0 ? Side.BUY : Side.SELL;
+            OrderType orderType = OrderType.values()[buffer.get()];
+            TimeInForce timeInForce = TimeInForce.values()[buffer.get()];
+            byte flags = buffer.get();
+            int clientOrderIdLength = Short.toUnsignedInt(buffer.getShort());
+
+            Order order = new Order(orderId, quantity, price, side);
+            order.setStopPrice(stopPrice);
+            order.setHiddenQuantity(hiddenQuantity);
+            order.setDisplayQuantity(displayQuantity);
+            order.setAccountId(accountId);
+            order.setOrderType(orderType);
+            order.setTimeInForce(timeInForce);
+            order.setPostOnly((flags & SnapshotWriter.POST_ONLY_FLAG) != 0);
+            if (clientOrderIdLength > 0) {
+                char[] chars = new char[clientOrderIdLength];
+                for (int c = 0; c < clientOrderIdLength; c++) {
+                    chars[c] = (char) buffer.get();
+                }
+                order.setClientOrderId(new String(chars));
+            }
+            if (i < orderCount) {
+                engine.getOrderBook().addNewOrder(order);
+            } else {
+                engine.addStopOrder(order);
+            }
+            this.lastOrderId = Math.max(this.lastOrderId, orderId);
+        }
+        engine.setLastPrice(lastPrice);
+        engine.setAuction((snapshotFlags & SnapshotWriter.AUCTION_FLAG) != 0);
+        return journalSequence;
+    }
+}
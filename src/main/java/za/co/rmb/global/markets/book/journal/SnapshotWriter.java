@@ -0,0 +1,205 @@
+package za.co.rmb.global.markets.book.journal;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Takes binary snapshots of an order book, and of the stop orders, last price and auction state of its engine, for
+ * fast restarts.
+ * <p>
+ * A snapshot is captured on the book's single writer between commands, by encoding every resting order into
+ * a buffer in priority order. That costs one sequential pass over the book and no lock, so the writer is only
+ * held up for about as long as copying the orders takes. Writing the buffer to disk and syncing it happen on a
+ * background thread while the writer carries on matching. Files are written under a temporary name and then
+ * moved into place, so a crash never leaves a partial snapshot behind.
+ * <p>
+ * Each snapshot records the sequence number of the last journaled command it contains; recovery loads the
+ * latest snapshot and replays only the journal records after it (see {@link Recovery}).
+ *
+ * <pre>
+ * header:  int magic, int version, long journal sequence, long last price, long order count, long stop order count,
+ *          int flags (bit 0 = in the call phase of an auction), int reserved
+ * order:   long order ID, long price, long stop price, int quantity, int hidden quantity, int display quantity,
+ *          int account ID, byte side, byte order type, byte time in force, byte flags (bit 0 = post-only),
+ *          short client order ID length, client order ID bytes (US-ASCII)
+ * </pre>
+ * The resting orders come first, in priority order, followed by the waiting stop orders in trigger order.
+ */
+public class SnapshotWriter implements AutoCloseable {
+    static final int MAGIC = 0x4F42534E; // "OBSN"
+    static final int VERSION = 4;
+    static final int ORDER_COUNT_OFFSET = 24;
+    static final int STOP_ORDER_COUNT_OFFSET = 32;
+    static final int HEADER_LENGTH = STOP_ORDER_COUNT_OFFSET + Long.BYTES + 2 * Integer.BYTES;
+    /**
+     * Length of an order record before its client order ID: three longs, four ints, four bytes and a short.
+     */
+    static final int ORDER_LENGTH = 3 * Long.BYTES + 4 * Integer.BYTES + 4 * Byte.BYTES + Short.BYTES;
+    static final byte POST_ONLY_FLAG = 1;
+    static final int AUCTION_FLAG = 1;
+
+    static final String FILE_PREFIX = "snapshot-";
+    static final String FILE_SUFFIX = ".snap";
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final Path directory;
+
+    private final ExecutorService flusher;
+
+    /**
+     * Size of the last snapshot, used to size the next capture buffer so it rarely has to grow.
+     */
+    private int lastSize = INITIAL_CAPACITY;
+
+    /**
+     * Creates a writer that puts snapshots into a directory.
+     *
+     * @param directory the snapshot directory, created if it does not exist
+     */
+    public SnapshotWriter(Path directory) {
+        this.directory = directory;
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Captures the book and writes it to disk in the background. Must be called on the book's writer thread,
+     * between commands. Use {@link #snapshot(MatchingEngine, long)} to capture an engine's stop orders as well.
+     *
+     * @param book             the book to capture
+     * @param journalSequence  the sequence number of the last journaled command applied to the book
+     * @return the path of the snapshot, once it has been written
+     */
+    public Future<Path> snapshot(OrderBook book, long journalSequence) {
+        Encoder encoder = new Encoder(this.lastSize);
+        encoder.buffer.putInt(MAGIC).putInt(VERSION).putLong(journalSequence).putLong(0).putLong(0).putLong(0)
+                .putInt(0).putInt(0);
+        book.forEachOrder(encoder);
+        ByteBuffer buffer = encoder.buffer;
+        buffer.putLong(ORDER_COUNT_OFFSET, encoder.orderCount).flip();
+        return submit(buffer, journalSequence);
+    }
+
+    /**
+     * Captures an engine's book, its waiting stop orders, its last price and whether it is in auction, and writes them to disk in the
+     * background. Must be called on the engine's writer thread, between commands.
+     *
+     * @param engine          the engine to capture
+     * @param journalSequence the sequence number of the last journaled command applied to the engine
+     * @return the path of the snapshot, once it has been written
+     */
+    public Future<Path> snapshot(MatchingEngine engine, long journalSequence) {
+        Encoder encoder = new Encoder(this.lastSize);
+        encoder.buffer.putInt(MAGIC).putInt(VERSION).putLong(journalSequence).putLong(engine.getLastPrice())
+                .putLong(0).putLong(0).putInt(engine.isAuction() ? AUCTION_FLAG : 0).putInt(0);
+        engine.getOrderBook().forEachOrder(encoder);
+        long orderCount = encoder.orderCount;
+        engine.forEachStopOrder(encoder);
+        ByteBuffer buffer = encoder.buffer;
+        buffer.putLong(ORDER_COUNT_OFFSET, orderCount).putLong(STOP_ORDER_COUNT_OFFSET, encoder.orderCount - orderCount).flip();
+        return submit(buffer, journalSequence);
+    }
+
+    private Future<Path> submit(ByteBuffer buffer, long journalSequence) {
+        this.lastSize = buffer.limit();
+
+        Path target = this.directory.resolve(fileName(journalSequence));
+        return this.flusher.submit(() -> write(buffer, target));
+    }
+
+    /**
+     * Accepts no more snapshots and waits until those already taken are on disk, so a clean shutdown keeps its
+     * latest snapshot. An interrupt gives up the wait and is passed on to the caller; snapshots still queued are
+     * then written only if the process outlives them, and the journal still holds their commands.
+     */
+    @Override
+    public void close() {
+        this.flusher.shutdown();
+        try {
+            this.flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String fileName(long journalSequence) {
+        return FILE_PREFIX + String.format("%020d", journalSequence) + FILE_SUFFIX;
+    }
+
+    private Path write(ByteBuffer buffer, Path target) throws IOException {
+        Files.createDirectories(this.directory);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Appends each visited order to a growable buffer.
+     */
+    private static final class Encoder implements Consumer<Order> {
+        private ByteBuffer buffer;
+        private long orderCount;
+
+        Encoder(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public void accept(Order order) {
+            String clientOrderId = order.getClientOrderId();
+            int clientOrderIdLength = clientOrderId == null ? 0 : clientOrderId.length();
+            ensureRemaining(ORDER_LENGTH + clientOrderIdLength);
+            this.buffer.putLong(order.getOrderId())
+                    .putLong(order.getPrice())
+                    .putLong(order.getStopPrice())
+                    .putInt(order.getQuantity())
+                    .putInt(order.getHiddenQuantity())
+                    .putInt(order.getDisplayQuantity())
+                    .putInt(order.getAccountId())
+                    .put((byte) order.getSide().ordinal())
+                    .put((byte) order.getOrderType().ordinal())
+                    .put((byte) order.getTimeInForce().ordinal())
+                    .put(order.isPostOnly() ? POST_ONLY_FLAG : 0)
+                    .putShort((short) clientOrderIdLength);
+            for (int i = 0; i < clientOrderIdLength; i++) {
+                this.buffer.put((byte) clientOrderId.charAt(i));
+            }
+            this.orderCount++;
+        }
+
+        private void ensureRemaining(int length) {
+            if (this.buffer.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + length))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                this.buffer.flip();
+                grown.put(this.buffer);
+                this.buffer = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Side;
+
+/**
+ * Read-only analytics computed straight from the price levels of a book, e.g. for a router estimating the cost of
+ * an order: the VWAP and slippage of filling a quantity, the cumulative depth to a price and the imbalance between
+ * the two sides.
+ * <p>
+ * Every query walks the levels' running totals with {@link OrderBook#forEachLevel}, from the touch outwards, and
+ * stops at the last level it needs, so it costs O(levels touched) and allocates nothing. Only displayed quantity is
+ * counted, as the hidden quantity of iceberg orders is not known to the market.
+ * <p>
+ * Like the book, an instance must only be used on the book's writer thread; readers on other threads can use a
+ * {@link DepthSnapshot} instead.
+ */
+public final class BookAnalytics {
+    private final OrderBook book;
+
+    private final FillVisitor fill = new FillVisitor();
+
+    private final DepthVisitor depth = new DepthVisitor();
+
+    /**
+     * Creates analytics over a book.
+     *
+     * @param book the book to analyse
+     */
+    public BookAnalytics(OrderBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Estimates the volume-weighted average price of filling a quantity by sweeping the opposite side of the book.
+     * If the book holds less than the quantity, the average covers what is available; see
+     * {@link #fillableQuantity}.
+     *
+     * @param side     the side of the order to fill: a buy sweeps the asks, a sell the bids
+     * @param quantity the quantity to fill
+     * @return the average price in ticks, or NaN if the opposite side is empty
+     */
+    public double vwapToFill(Side side, long quantity) {
+        FillVisitor visitor = sweep(side, quantity);
+        return visitor.filled == 0 ? Double.NaN : (double) visitor.notional / visitor.filled;
+    }
+
+    /**
+     * Estimates the slippage of filling a quantity: the distance from the best opposite price to the
+     * {@link #vwapToFill VWAP}, positive when the average is worse than the touch.
+     *
+     * @param side     the side of the order to fill
+     * @param quantity the quantity to fill
+     * @return the slippage in ticks, or NaN if the opposite side is empty
+     */
+    public double slippage(Side side, long quantity) {
+        FillVisitor visitor = sweep(side, quantity);
+        if (visitor.filled == 0) {
+            return Double.NaN;
+        }
+        double vwap = (double) visitor.notional / visitor.filled;
+        return side == Side.BUY ? vwap - visitor.bestPrice : visitor.bestPrice - vwap;
+    }
+
+    /**
+     * @param side     the side of the order to fill
+     * @param quantity the quantity to fill
+     * @return how much of the quantity the opposite side of the book can fill
+     */
+    public long fillableQuantity(Side side, long quantity) {
+        return sweep(side, quantity).filled;
+    }
+
+    /**
+     * Totals the quantity resting on one side of the book at prices at least as good as a given price: bids at or
+     * above it, or asks at or below it.
+     *
+     * @param side  the side of the book
+     * @param price the price in ticks
+     * @return the cumulative quantity
+     */
+    public long cumulativeDepth(Side side, long price) {
+        return walk(side, price, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Measures the imbalance of the top levels of the book, {@code (bids - asks) / (bids + asks)} by quantity:
+     * 1 when there are only bids, -1 when there are only asks.
+     *
+     * @param levels the number of levels to count on each side
+     * @return the imbalance, or NaN if the book is empty
+     */
+    public double imbalance(int levels) {
+        long bids = walk(Side.BUY, Long.MIN_VALUE, levels);
+        long asks = walk(Side.SELL, Long.MAX_VALUE, levels);
+        return bids + asks == 0 ? Double.NaN : (double) (bids - asks) / (bids + asks);
+    }
+
+    private FillVisitor sweep(Side side, long quantity) {
+        FillVisitor visitor = this.fill;
+        visitor.remaining = quantity;
+        visitor.filled = 0;
+        visitor.notional = 0;
+        visitor.bestPrice = 0;
+        if (quantity > 0) {
+            this.book.forEachLevel(side == Side.BUY ? Side.SELL : Side.BUY, visitor);
+        }
+        return visitor;
+    }
+
+    private long walk(Side side, long limitPrice, int levels) {
+        DepthVisitor visitor = this.depth;
+        visitor.limitPrice = limitPrice;
+        visitor.levels = levels;
+        visitor.quantity = 0;
+        if (levels > 0) {
+            this.book.forEachLevel(side, visitor);
+        }
+        return visitor.quantity;
+    }
+
+    /**
+     * Takes quantity level by level until the order is filled.
+     */
+    private static final class FillVisitor implements LevelVisitor {
+        long remaining;
+        long filled;
+        long notional;
+        long bestPrice;
+
+        @Override
+        public boolean onLevel(Side side, long price, long totalQuantity, int orderCount) {
+            if (this.filled == 0) {
+                this.bestPrice = price;
+            }
+            long take = Math.min(this.remaining, totalQuantity);
+            this.filled += take;
+            this.notional += take * price;
+            this.remaining -= take;
+            return this.remaining > 0;
+        }
+    }
+
+    /**
+     * Totals the quantity of a number of levels up to a limit price.
+     */
+    private static final class DepthVisitor implements LevelVisitor {
+        long limitPrice;
+        int levels;
+        long quantity;
+
+        @Override
+        public boolean onLevel(Side side, long price, long totalQuantity, int orderCount) {
+            if (side == Side.BUY ? price < this.limitPrice : price > this.limitPrice) {
+                return false;
+            }
+            this.quantity += totalQuantity;
+            return --this.levels > 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Side;
+
+/**
+ * A reader's private copy of a {@link DepthView}. A reader thread creates one snapshot and reuses it for
+ * every read, so reading allocates nothing. Levels are numbered from 0, the best price.
+ */
+public final class DepthSnapshot {
+    final long[] bidPrices;
+    final long[] bidQuantities;
+    final int[] bidOrderCounts;
+    final long[] askPrices;
+    final long[] askQuantities;
+    final int[] askOrderCounts;
+
+    int bidLevels;
+    int askLevels;
+    long version;
+
+    /**
+     * @param levels the number of levels per side to hold, at least the number published by the view
+     */
+    public DepthSnapshot(int levels) {
+        this.bidPrices = new long[levels];
+        this.bidQuantities = new long[levels];
+        this.bidOrderCounts = new int[levels];
+        this.askPrices = new long[levels];
+        this.askQuantities = new long[levels];
+        this.askOrderCounts = new int[levels];
+    }
+
+    /**
+     * @return the number of updates the view had received when this snapshot was read
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    public int getLevelCount(Side side) {
+        return side == Side.BUY ? this.bidLevels : this.askLevels;
+    }
+
+    public long getPrice(Side side, int level) {
+        return (side == Side.BUY ? this.bidPrices : this.askPrices)[checkLevel(side, level)];
+    }
+
+    public long getQuantity(Side side, int level) {
+        return (side == Side.BUY ? this.bidQuantities : this.askQuantities)[checkLevel(side, level)];
+    }
+
+    public int getOrderCount(Side side, int level) {
+        return (side == Side.BUY ? this.bidOrderCounts : this.askOrderCounts)[checkLevel(side, level)];
+    }
+
+    private int checkLevel(Side side, int level) {
+        if (level < 0 || level >= getLevelCount(side)) {
+            throw new IndexOutOfBoundsException("Level " + level + " is not in the snapshot.");
+        }
+        return level;
+    }
+}
@@ -0,0 +1,109 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A copy of the top levels of a book that any number of reader threads can read while the book's single
+ * writer keeps matching. The writer refreshes the view after each command (see
+ * {@link za.co.rmb.global.markets.book.engine.MatchingEngine#setDepthView}) and readers copy it into their
+ * own {@link DepthSnapshot}.
+ * <p>
+ * The view is guarded by a sequence lock: the writer makes the version odd while it writes and even again
+ * when it is done, and a reader retries its copy if the version was odd or changed underneath it. Readers
+ * never take a lock and never write shared state, so they cannot block or slow the writer; the writer
+ * never waits for readers.
+ */
+public final class DepthView {
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(DepthView.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int levels;
+
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final int[] bidOrderCounts;
+    private final long[] askPrices;
+    private final long[] askQuantities;
+    private final int[] askOrderCounts;
+
+    private int bidLevels;
+    private int askLevels;
+
+    @SuppressWarnings("unused") // Accessed through VERSION
+    private long version;
+
+    /**
+     * Creates an empty view.
+     *
+     * @param levels the number of levels to publish per side, 1 for top of book only
+     */
+    public DepthView(int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("Number of levels must be positive.");
+        }
+        this.levels = levels;
+        this.bidPrices = new long[levels];
+        this.bidQuantities = new long[levels];
+        this.bidOrderCounts = new int[levels];
+        this.askPrices = new long[levels];
+        this.askQuantities = new long[levels];
+        this.askOrderCounts = new int[levels];
+    }
+
+    public int getLevels() {
+        return this.levels;
+    }
+
+    /**
+     * Refreshes the view from the book. Must only be called by the book's writer thread.
+     *
+     * @param book the book to publish
+     */
+    public void update(OrderBook book) {
+        long current = (long) VERSION.get(this);
+        VERSION.setOpaque(this, current + 1);
+        VarHandle.storeStoreFence(); // The odd version must be visible before any of the new levels
+        this.bidLevels = book.depth(Side.BUY, this.bidPrices, this.bidQuantities, this.bidOrderCounts);
+        this.askLevels = book.depth(Side.SELL, this.askPrices, this.askQuantities, this.askOrderCounts);
+        VERSION.setRelease(this, current + 2);
+    }
+
+    /**
+     * Copies a consistent view of the book into a snapshot, retrying while the writer is mid-update.
+     *
+     * @param snapshot the snapshot to copy into, created with at least as many levels as this view
+     */
+    public void read(DepthSnapshot snapshot) {
+        while (true) {
+            long before = (long) VERSION.getAcquire(this);
+            if ((before & 1) == 0) {
+                int bids = this.bidLevels;
+                int asks = this.askLevels;
+                System.arraycopy(this.bidPrices, 0, snapshot.bidPrices, 0, bids);
+                System.arraycopy(this.bidQuantities, 0, snapshot.bidQuantities, 0, bids);
+                System.arraycopy(this.bidOrderCounts, 0, snapshot.bidOrderCounts, 0, bids);
+                System.arraycopy(this.askPrices, 0, snapshot.askPrices, 0, asks);
+                System.arraycopy(this.askQuantities, 0, snapshot.askQuantities, 0, asks);
+                System.arraycopy(this.askOrderCounts, 0, snapshot.askOrderCounts, 0, asks);
+                VarHandle.loadLoadFence(); // The copy must complete before the version is checked again
+                if ((long) VERSION.getOpaque(this) == before) {
+                    snapshot.bidLevels = bids;
+                    snapshot.askLevels = asks;
+                    snapshot.version = before >>> 1;
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An array-indexed Limit Order Book. Each tick price within a fixed range maps directly to a
+ * pre-allocated {@link PriceLevel}. Occupied levels are tracked in a
+ * bitmap per side, so best bid/ask lookups never walk empty levels, and resting orders are held in
+ * pooled intrusive nodes. Adding, removing and best-price lookups allocate nothing in steady state.
+ */
+public class LadderOrderBook implements OrderBook {
+
+    private static final int DEFAULT_POOL_SIZE = 1024;
+
+    private final long lowestPrice;
+
+    /**
+     * Bid levels indexed by tick offset from the lowest price of the ladder.
+     */
+    private final PriceLevel[] bids;
+
+    /**
+     * Ask levels indexed by tick offset from the lowest price of the ladder.
+     */
+    private final PriceLevel[] asks;
+
+    /**
+     * One bit per bid level, set while the level holds at least one order.
+     */
+    private final BitSet occupiedBids;
+
+    /**
+     * One bit per ask level, set while the level holds at least one order.
+     */
+    private final BitSet occupiedAsks;
+
+    /**
+     * Direct lookup index for resting order nodes by their unique order ID.
+     */
+    private final OrderIndex orderIndex;
+
+    /**
+     * Lookup of orders that were submitted with a client order ID.
+     */
+    private final Map<String, Order> clientOrderIndex;
+
+    private final OrderNodePool nodePool;
+
+    private final LevelChanges levelChanges;
+
+    private int bestBidIndex = -1;
+
+    private int bestAskIndex = -1;
+
+    /**
+     * Initializes an empty ladder covering {@code numberOfLevels} ticks starting at {@code lowestPrice}.
+     *
+     * @param lowestPrice    the lowest price the ladder can hold, in ticks
+     * @param numberOfLevels the number of ticks in the ladder
+     */
+    public LadderOrderBook(long lowestPrice, int numberOfLevels) {
+        this(lowestPrice, numberOfLevels, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Initializes an empty ladder covering {@code numberOfLevels} ticks starting at {@code lowestPrice}.
+     *
+     * @param lowestPrice    the lowest price the ladder can hold, in ticks
+     * @param numberOfLevels the number of ticks in the ladder
+     * @param poolSize       the number of order nodes to pre-allocate
+     */
+    public LadderOrderBook(long lowestPrice, int numberOfLevels, int poolSize) {
+        if (numberOfLevels <= 0) {
+            throw new IllegalArgumentException("Number of levels must be positive.");
+        }
+        this.lowestPrice = lowestPrice;
+        this.bids = new PriceLevel[numberOfLevels];
+        this.asks = new PriceLevel[numberOfLevels];
+        for (int i = 0; i < numberOfLevels; i++) {
+            this.bids[i] = new PriceLevel(Side.BUY, lowestPrice + i);
+            this.asks[i] = new PriceLevel(Side.SELL, lowestPrice + i);
+        }
+        this.occupiedBids = new BitSet(numberOfLevels);
+        this.occupiedAsks = new BitSet(numberOfLevels);
+        this.orderIndex = new OrderIndex();
+        this.clientOrderIndex = new HashMap<>();
+        this.nodePool = new OrderNodePool(poolSize);
+        this.levelChanges = new LevelChanges();
+    }
+
+    @Override
+    public Order retrieveOrderById(long orderId) {
+        OrderNode node = this.orderIndex.get(orderId);
+        return node == null ? null : node.order;
+    }
+
+    @Override
+    public boolean acceptsPrice(long price) {
+        long index = price - this.lowestPrice;
+        return index >= 0 && index < this.bids.length;
+    }
+
+    @Override
+    public Order retrieveOrderByClientOrderId(String clientOrderId) {
+        return this.clientOrderIndex.get(clientOrderId);
+    }
+
+    @Override
+    public List<Order> retrieveAllOrders() {
+        List<Order> allOrders = new ArrayList<>();
+        for (int i = this.bestBidIndex; i >= 0; i = this.occupiedBids.previousSetBit(i - 1)) {
+            collectOrders(this.bids[i], allOrders);
+        }
+        for (int i = this.bestAskIndex; i >= 0; i = this.occupiedAsks.nextSetBit(i + 1)) {
+            collectOrders(this.asks[i], allOrders);
+        }
+        return allOrders;
+    }
+
+    @Override
+    public void forEachOrder(Consumer<Order> action) {
+        for (int i = this.bestBidIndex; i >= 0; i = this.occupiedBids.previousSetBit(i - 1)) {
+            visitOrders(this.bids[i], action);
+        }
+        for (int i = this.bestAskIndex; i >= 0; i = this.occupiedAsks.nextSetBit(i + 1)) {
+            visitOrders(this.asks[i], action);
+        }
+    }
+
+    @Override
+    public void forEachOrder(Side side, Predicate<Order> visitor) {
+        if (side == Side.BUY) {
+            for (int i = this.bestBidIndex; i >= 0; i = this.occupiedBids.previousSetBit(i - 1)) {
+                if (!visitOrdersWhile(this.bids[i], visitor)) {
+                    return;
+                }
+            }
+        } else {
+            for (int i = this.bestAskIndex; i >= 0; i = this.occupiedAsks.nextSetBit(i + 1)) {
+                if (!visitOrdersWhile(this.asks[i], visitor)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Order> retrieveBidsByPrice(long price) {
+        return retrieveOrdersByPrice(this.bids, price);
+    }
+
+    @Override
+    public List<Order> retrieveAsksByPrice(long price) {
+        return retrieveOrdersByPrice(this.asks, price);
+    }
+
+    @Override
+    public void addNewOrder(Order order) {
+        int index = toIndex(order.getPrice());
+        OrderNode node = this.nodePool.acquire(order);
+        PriceLevel level;
+
+        if (order.getSide() == Side.BUY) {
+            level = this.bids[index];
+            level.append(node);
+            this.occupiedBids.set(index);
+            if (index > this.bestBidIndex) {
+                this.bestBidIndex = index;
+            }
+        } else {
+            level = this.asks[index];
+            level.append(node);
+            this.occupiedAsks.set(index);
+            if (this.bestAskIndex < 0 || index < this.bestAskIndex) {
+                this.bestAskIndex = index;
+            }
+        }
+        this.levelChanges.mark(level);
+        this.orderIndex.put(node);
+        if (order.getClientOrderId() != null) {
+            this.clientOrderIndex.put(order.getClientOrderId(), order);
+        }
+    }
+
+    @Override
+    public void removeOrderFromBook(Order order) {
+        OrderNode node = this.orderIndex.remove(order.getOrderId());
+        if (node != null) {
+            discard(node);
+        }
+    }
+
+    @Override
+    public void fillOrder(Order order, int quantity) {
+        OrderNode node = this.orderIndex.get(order.getOrderId());
+        if (node != null) {
+            node.level.adjustQuantity(-quantity);
+            this.levelChanges.mark(node.level);
+        }
+        order.setQuantity(order.getQuantity() - quantity);
+        if (order.getQuantity() <= 0 && order.getHiddenQuantity() > 0 && node != null) {
+            node.level.replenish(node); // Refill an iceberg order from its hidden quantity
+        } else if (order.getQuantity() <= 0) {
+            removeOrderFromBook(order); // Remove fully filled order
+        }
+    }
+
+    @Override
+    public Order deleteOrderById(long orderId) {
+        OrderNode node = this.orderIndex.remove(orderId);
+        if (node == null) {
+            throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
+        }
+        Order order = node.order;
+        discard(node);
+        return order;
+    }
+
+    /**
+     * Updates the quantity of an existing order. A decrease keeps the order's place in the queue,
+     * while an increase moves it to the back of the queue to reflect the priority change.
+     *
+     * @param orderId     the unique ID of the order to update
+     * @param newQuantity the new quantity of the order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    @Override
+    public void updateOrderQuantity(long orderId, int newQuantity) {
+        OrderNode node = this.orderIndex.get(orderId);
+        if (node == null) {
+            throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
+        }
+        Order order = node.order;
+        if (newQuantity > order.getQuantity()) {
+            node.level.moveToBack(node);
+        }
+        node.level.adjustQuantity((long) newQuantity - order.getQuantity());
+        this.levelChanges.mark(node.level);
+        order.setQuantity(newQuantity);
+    }
+
+    @Override
+    public Order bestOrder(Side side) {
+        if (side == Side.BUY) {
+            return this.bestBidIndex < 0 ? null : this.bids[this.bestBidIndex].head().order;
+        }
+        return this.bestAskIndex < 0 ? null : this.asks[this.bestAskIndex].head().order;
+    }
+
+    @Override
+    public void forEachLevel(Side side, LevelVisitor visitor) {
+        if (side == Side.BUY) {
+            for (int i = this.bestBidIndex; i >= 0; i = this.occupiedBids.previousSetBit(i - 1)) {
+                PriceLevel level = this.bids[i];
+                if (!visitor.onLevel(side, level.getPrice(), level.getTotalQuantity(), level.getOrderCount())) {
+                    return;
+                }
+            }
+        } else {
+            for (int i = this.bestAskIndex; i >= 0; i = this.occupiedAsks.nextSetBit(i + 1)) {
+                PriceLevel level = this.asks[i];
+                if (!visitor.onLevel(side, level.getPrice(), level.getTotalQuantity(), level.getOrderCount())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int depth(Side side, long[] prices, long[] quantities, int[] orderCounts) {
+        int count = 0;
+        if (side == Side.BUY) {
+            for (int i = this.bestBidIndex; i >= 0 && count < prices.length; i = this.occupiedBids.previousSetBit(i - 1)) {
+                copyLevel(this.bids[i], count++, prices, quantities, orderCounts);
+            }
+        } else {
+            for (int i = this.bestAskIndex; i >= 0 && count < prices.length; i = this.occupiedAsks.nextSetBit(i + 1)) {
+                copyLevel(this.asks[i], count++, prices, quantities, orderCounts);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void setLevelChangeTracking(boolean enabled) {
+        this.levelChanges.setEnabled(enabled);
+    }
+
+    @Override
+    public int drainChangedLevels(LevelVisitor visitor) {
+        return this.levelChanges.drain(visitor);
+    }
+
+    private static void copyLevel(PriceLevel level, int slot, long[] prices, long[] quantities, int[] orderCounts) {
+        prices[slot] = level.getPrice();
+        quantities[slot] = level.getTotalQuantity();
+        orderCounts[slot] = level.getOrderCount();
+    }
+
+    /**
+     * Takes an order that has already been dropped from the index off the book for good.
+     *
+     * @param node the node of the order being removed
+     */
+    private void discard(OrderNode node) {
+        unlink(node);
+        if (node.order.getClientOrderId() != null) {
+            this.clientOrderIndex.remove(node.order.getClientOrderId());
+        }
+        this.nodePool.release(node);
+    }
+
+    /**
+     * Unlinks a node from its price level and, if the level became empty, clears its occupancy bit and
+     * advances the best price to the next occupied level.
+     *
+     * @param node the node to unlink
+     */
+    private void unlink(OrderNode node) {
+        PriceLevel level = node.level;
+        level.remove(node);
+        this.levelChanges.mark(level);
+        if (!level.isEmpty()) {
+            return;
+        }
+
+        int index = toIndex(level.getPrice());
+        if (node.order.getSide() == Side.BUY) {
+            this.occupiedBids.clear(index);
+            if (index == this.bestBidIndex) {
+                this.bestBidIndex = this.occupiedBids.previousSetBit(index);
+            }
+        } else {
+            this.occupiedAsks.clear(index);
+            if (index == this.bestAskIndex) {
+                this.bestAskIndex = this.occupiedAsks.nextSetBit(index);
+            }
+        }
+    }
+
+    private List<Order> retrieveOrdersByPrice(PriceLevel[] levels, long price) {
+        long index = price - this.lowestPrice;
+        if (index < 0 || index >= levels.length || levels[(int) index].isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Order> orders = new ArrayList<>(levels[(int) index].getOrderCount());
+        collectOrders(levels[(int) index], orders);
+        return orders;
+    }
+
+    private void collectOrders(PriceLevel level, List<Order> orders) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            orders.add(node.order);
+        }
+    }
+
+    private void visitOrders(PriceLevel level, Consumer<Order> action) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            action.accept(node.order);
+        }
+    }
+
+    /**
+     * @return false if the visitor stopped the walk
+     */
+    private boolean visitOrdersWhile(PriceLevel level, Predicate<Order> visitor) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            if (!visitor.test(node.order)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a price to its slot in the ladder.
+     *
+     * @param price the price to convert, in ticks
+     * @return the index of the price level
+     * @throws IllegalArgumentException if the price falls outside the ladder
+     */
+    private int toIndex(long price) {
+        if (!acceptsPrice(price)) {
+            throw new IllegalArgumentException("Price " + price + " is outside the range of the ladder.");
+        }
+        return (int) (price - this.lowestPrice);
+    }
+}
@@ -0,0 +1,66 @@
+package za.co.rmb.global.markets.book.limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The price levels of a book that changed since they were last drained, each queued once no matter how
+ * often it changed. Draining reports every changed level's current state, so a market-data publisher sees
+ * the net change per level rather than every individual order event. Nothing is tracked until enabled.
+ */
+final class LevelChanges {
+    private final List<PriceLevel> levels = new ArrayList<>();
+
+    private boolean enabled;
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear(this.levels.size());
+        }
+    }
+
+    /**
+     * Queues a level whose quantity or order count changed.
+     *
+     * @param level the changed level
+     */
+    void mark(PriceLevel level) {
+        if (this.enabled && !level.changed) {
+            level.changed = true;
+            this.levels.add(level);
+        }
+    }
+
+    /**
+     * Reports the changed levels in the order they first changed. Levels that have since been emptied are
+     * reported with no quantity and no orders.
+     *
+     * @param visitor receives each changed level; returning false leaves the remaining levels queued
+     * @return the number of levels reported
+     */
+    int drain(LevelVisitor visitor) {
+        int count = 0;
+        int size = this.levels.size();
+        while (count < size) {
+            PriceLevel level = this.levels.get(count);
+            count++;
+            if (!visitor.onLevel(level.getSide(), level.getPrice(), level.getTotalQuantity(), level.getOrderCount())) {
+                break;
+            }
+        }
+        clear(count);
+        return count;
+    }
+
+    private void clear(int count) {
+        for (int i = 0; i < count; i++) {
+            this.levels.get(i).changed = false;
+        }
+        if (count == this.levels.size()) {
+            this.levels.clear();
+        } else {
+            this.levels.subList(0, count).clear();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Side;
+
+/**
+ * Receives aggregated price levels, one call per level, without any per-level objects being created.
+ */
+@FunctionalInterface
+public interface LevelVisitor {
+
+    /**
+     * Visits a price level.
+     *
+     * @param side          the side of the book the level is on
+     * @param price         the level's price in ticks
+     * @param totalQuantity the total open quantity at the level, 0 if the level has been emptied
+     * @param orderCount    the number of orders at the level
+     * @return true to keep visiting levels, false to stop
+     */
+    boolean onLevel(Side side, long price, long totalQuantity, int orderCount);
+}
@@ -4,27 +4,60 @@ import za.co.rmb.global.markets.book.entities.Order;
 import za.co.rmb.global.markets.book.entities.Side;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Represents a Limit Order Book (LOB) that maintains and processes bid and ask orders.
  * It supports adding, modifying, retrieving, and deleting orders while preserving price-time priority.
  */
-public class LimitOrderBook {
+public class LimitOrderBook implements OrderBook {
+
+    private static final int DEFAULT_POOL_SIZE = 1024;
+
+    /**
+     * Stores bid levels keyed on their price in ticks, sorted in descending order (highest price first).
+     */
+    private final TreeMap<Long, PriceLevel> bids;
+
+    /**
+     * Stores ask levels keyed on their price in ticks, sorted in ascending order (lowest price first).
+     */
+    private final TreeMap<Long, PriceLevel> asks;
+
+    /**
+     * Direct lookup index from order ID to the order's queue node, so an order can be unlinked
+     * from its price level without scanning the queue.
+     */
+    private final OrderIndex orderIndex;
+
+    /**
+     * Lookup of orders that were submitted with a client order ID.
+     */
+    private final Map<String, Order> clientOrderIndex;
+
+    private final OrderNodePool nodePool;
+
+    private final LevelChanges levelChanges;
 
     /**
-     * Stores bid orders, sorted by price in descending order (highest price first).
+     * Levels that emptied during the current batch and have not been removed yet.
      */
-    private final TreeMap<Double, Queue<Order>> bids;
+    private final List<PriceLevel> emptiedLevels;
+
+    private boolean batching;
 
     /**
-     * Stores ask orders, sorted by price in ascending order (lowest price first).
+     * During a batch, the best bid level found last, or null if it must be looked up again.
+     * Every level ahead of it is empty.
      */
-    private final TreeMap<Double, Queue<Order>> asks;
+    private PriceLevel bestBidLevel;
 
     /**
-     * Direct lookup index for orders by their unique order ID.
+     * During a batch, the best ask level found last, or null if it must be looked up again.
+     * Every level ahead of it is empty.
      */
-    private final Map<String, Order> orderIndex;
+    private PriceLevel bestAskLevel;
 
     /**
      * Initializes an empty Limit Order Book.
@@ -32,7 +65,11 @@ public class LimitOrderBook {
     public LimitOrderBook() {
         this.bids = new TreeMap<>(Collections.reverseOrder()); // Highest bid first
         this.asks = new TreeMap<>(); // Lowest ask first
-        this.orderIndex = new HashMap<>();
+        this.orderIndex = new OrderIndex();
+        this.clientOrderIndex = new HashMap<>();
+        this.nodePool = new OrderNodePool(DEFAULT_POOL_SIZE);
+        this.levelChanges = new LevelChanges();
+        this.emptiedLevels = new ArrayList<>();
     }
 
     /**
@@ -41,8 +78,19 @@ public class LimitOrderBook {
      * @param orderId the unique order ID
      * @return the Order object if found, otherwise null
      */
-    public Order retrieveOrderById(String orderId) {
-        return this.orderIndex.get(orderId);
+    public Order retrieveOrderById(long orderId) {
+        OrderNode node = this.orderIndex.get(orderId);
+        return node == null ? null : node.order;
+    }
+
+    /**
+     * Retrieves an order by the client order ID it was submitted with.
+     *
+     * @param clientOrderId the ID assigned by the client
+     * @return the Order object if found, otherwise null
+     */
+    public Order retrieveOrderByClientOrderId(String clientOrderId) {
+        return this.clientOrderIndex.get(clientOrderId);
     }
 
     /**
@@ -52,29 +100,48 @@ public class LimitOrderBook {
      */
     public List<Order> retrieveAllOrders() {
         List<Order> allOrders = new ArrayList<>();
-        this.bids.values().forEach(allOrders::addAll);
-        this.asks.values().forEach(allOrders::addAll);
+        this.bids.values().forEach(level -> collectOrders(level, allOrders));
+        this.asks.values().forEach(level -> collectOrders(level, allOrders));
         return allOrders;
     }
 
+    @Override
+    public void forEachOrder(Consumer<Order> action) {
+        for (PriceLevel level : this.bids.values()) {
+            visitOrders(level, action);
+        }
+        for (PriceLevel level : this.asks.values()) {
+            visitOrders(level, action);
+        }
+    }
+
+    @Override
+    public void forEachOrder(Side side, Predicate<Order> visitor) {
+        for (PriceLevel level = firstLevel(side); level != null; level = level.worse) {
+            if (!visitOrdersWhile(level, visitor)) {
+                return;
+            }
+        }
+    }
+
     /**
      * Retrieves all bid orders at a specific price level.
      *
-     * @param price the bid price level to search for
+     * @param price the bid price level to search for, in ticks
      * @return a list of bid orders at the given price, or an empty list if none exist
      */
-    public List<Order> retrieveBidsByPrice(Double price) {
-        return this.bids.containsKey(price) ? new ArrayList<>(this.bids.get(price)) : Collections.emptyList();
+    public List<Order> retrieveBidsByPrice(long price) {
+        return retrieveOrdersByPrice(this.bids.get(price));
     }
 
     /**
      * Retrieves all ask orders at a specific price level.
      *
-     * @param price the ask price level to search for
+     * @param price the ask price level to search for, in ticks
      * @return a list of ask orders at the given price, or an empty list if none exist
      */
-    public List<Order> retrieveAsksByPrice(Double price) {
-        return this.asks.containsKey(price) ? new ArrayList<>(this.asks.get(price)) : Collections.emptyList();
+    public List<Order> retrieveAsksByPrice(long price) {
+        return retrieveOrdersByPrice(this.asks.get(price));
     }
 
     /**
@@ -83,25 +150,55 @@ public class LimitOrderBook {
      * @param order the new order to be added
      */
     public void addNewOrder(Order order) {
-        TreeMap<Double, Queue<Order>> book = order.getSide() == Side.BUY ? bids : asks;
-        book.computeIfAbsent(order.getPrice(), price -> new LinkedList<>()).add(order);
-        this.orderIndex.put(order.getOrderId(), order);
+        TreeMap<Long, PriceLevel> book = order.getSide() == Side.BUY ? bids : asks;
+        OrderNode node = this.nodePool.acquire(order);
+        PriceLevel level = book.get(order.getPrice());
+        if (level == null) {
+            level = new PriceLevel(order.getSide(), order.getPrice());
+            book.put(order.getPrice(), level);
+            linkLevel(book, level);
+        }
+        level.append(node);
+        this.levelChanges.mark(level);
+        this.orderIndex.put(node);
+        if (this.batching) {
+            invalidateBestLevel(order.getSide(), order.getPrice());
+        }
+        if (order.getClientOrderId() != null) {
+            this.clientOrderIndex.put(order.getClientOrderId(), order);
+        }
     }
 
     /**
      * Removes a specific order from the book and cleans up empty price levels.
+     * The order's queue node is taken out of the index and unlinked in O(1).
      *
      * @param order the order to be removed
      */
     public void removeOrderFromBook(Order order) {
-        TreeMap<Double, Queue<Order>> book = order.getSide() == Side.BUY ? bids : asks;
-        Queue<Order> queue = book.get(order.getPrice());
+        OrderNode node = this.orderIndex.remove(order.getOrderId());
+        if (node != null) {
+            discard(node);
+        }
+    }
 
-        if (queue != null) {
-            queue.remove(order);
-            if (queue.isEmpty()) {
-                book.remove(order.getPrice()); // Remove empty price level
-            }
+    /**
+     * Reduces the quantity of a resting order by a traded amount, removing it once fully filled.
+     *
+     * @param order    the resting order that traded
+     * @param quantity the traded quantity
+     */
+    public void fillOrder(Order order, int quantity) {
+        OrderNode node = this.orderIndex.get(order.getOrderId());
+        if (node != null) {
+            node.level.adjustQuantity(-quantity);
+            this.levelChanges.mark(node.level);
+        }
+        order.setQuantity(order.getQuantity() - quantity);
+        if (order.getQuantity() <= 0 && order.getHiddenQuantity() > 0 && node != null) {
+            node.level.replenish(node); // Refill an iceberg order from its hidden quantity
+        } else if (order.getQuantity() <= 0) {
+            removeOrderFromBook(order); // Remove fully filled order
         }
     }
 
@@ -109,49 +206,273 @@ public class LimitOrderBook {
      * Deletes an order from the order book by its ID.
      *
      * @param orderId the unique ID of the order to be deleted
+     * @return the deleted order
      * @throws IllegalArgumentException if the order does not exist
      */
-    public void deleteOrderById(String orderId) {
-        Order order = retrieveOrderById(orderId);
-        if (order == null) {
+    public Order deleteOrderById(long orderId) {
+        OrderNode node = this.orderIndex.remove(orderId);
+        if (node == null) {
             throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
         }
-        removeOrderFromBook(order);
-        this.orderIndex.remove(order.getOrderId());
+        Order order = node.order;
+        discard(node);
+        return order;
     }
 
     /**
-     * Updates the quantity of an existing order and moves it to the back of the queue to reflect the priority change.
+     * Updates the quantity of an existing order. A decrease keeps the order's place in the queue,
+     * while an increase moves it to the back of the queue to reflect the priority change.
      *
      * @param orderId     the unique ID of the order to update
      * @param newQuantity the new quantity of the order
      * @throws IllegalArgumentException if the order does not exist
      */
-    public void updateOrderQuantity(String orderId, int newQuantity) {
-        Order order = this.orderIndex.get(orderId);
-        if (order == null) {
+    public void updateOrderQuantity(long orderId, int newQuantity) {
+        OrderNode node = this.orderIndex.get(orderId);
+        if (node == null) {
             throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
         }
-        removeOrderFromBook(order);
+        Order order = node.order;
+        if (newQuantity > order.getQuantity()) {
+            node.level.moveToBack(node);
+        }
+        node.level.adjustQuantity((long) newQuantity - order.getQuantity());
+        this.levelChanges.mark(node.level);
         order.setQuantity(newQuantity);
-        addNewOrder(order);
     }
 
     /**
-     * Retrieves the ask order book.
+     * Retrieves the first order at the best price on one side of the book.
      *
-     * @return the ask order book (TreeMap of price levels with queues of orders)
+     * @param side the side of the book to inspect
+     * @return the first order at the best price, or null if that side is empty
      */
-    public TreeMap<Double, Queue<Order>> getAsks() {
+    public Order bestOrder(Side side) {
+        if (this.batching) {
+            PriceLevel bestLevel = bestLevelInBatch(side);
+            return bestLevel == null ? null : bestLevel.head().order;
+        }
+        Map.Entry<Long, PriceLevel> bestLevel = (side == Side.BUY ? bids : asks).firstEntry();
+        return bestLevel == null ? null : bestLevel.getValue().head().order;
+    }
+
+    @Override
+    public void forEachLevel(Side side, LevelVisitor visitor) {
+        // Follow the links between levels rather than an iterator, so the walk creates no objects
+        for (PriceLevel level = firstLevel(side); level != null; level = level.worse) {
+            if (level.isEmpty()) {
+                continue; // Left behind by a batch
+            }
+            if (!visitor.onLevel(side, level.getPrice(), level.getTotalQuantity(), level.getOrderCount())) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int depth(Side side, long[] prices, long[] quantities, int[] orderCounts) {
+        int count = 0;
+        for (PriceLevel level = firstLevel(side); level != null && count < prices.length; level = level.worse) {
+            if (level.isEmpty()) {
+                continue; // Left behind by a batch
+            }
+            prices[count] = level.getPrice();
+            quantities[count] = level.getTotalQuantity();
+            orderCounts[count] = level.getOrderCount();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Starts a batch. Levels that empty during the batch stay in the book, so a level that refills is reused
+     * rather than removed and inserted again, and the best level found on each side is remembered so that
+     * matching does not have to look past emptied levels more than once.
+     */
+    @Override
+    public void beginBatch() {
+        this.batching = true;
+    }
+
+    @Override
+    public void endBatch() {
+        this.batching = false;
+        this.bestBidLevel = null;
+        this.bestAskLevel = null;
+        for (PriceLevel level : this.emptiedLevels) {
+            TreeMap<Long, PriceLevel> book = level.getSide() == Side.BUY ? bids : asks;
+            // A level can be listed twice if it emptied, refilled and emptied again
+            if (level.isEmpty() && book.get(level.getPrice()) == level) {
+                removeLevel(book, level);
+            }
+        }
+        this.emptiedLevels.clear();
+    }
+
+    @Override
+    public void setLevelChangeTracking(boolean enabled) {
+        this.levelChanges.setEnabled(enabled);
+    }
+
+    @Override
+    public int drainChangedLevels(LevelVisitor visitor) {
+        return this.levelChanges.drain(visitor);
+    }
+
+    /**
+     * Retrieves the ask order book. The map is live and not thread-safe, so it must only be used on the
+     * book's writer thread; other threads should read the book through a {@link DepthView}.
+     *
+     * @return the ask order book (TreeMap of price levels, each holding a queue of orders)
+     */
+    public TreeMap<Long, PriceLevel> getAsks() {
         return this.asks;
     }
 
     /**
-     * Retrieves the bid order book.
+     * Retrieves the bid order book. The map is live and not thread-safe, so it must only be used on the
+     * book's writer thread; other threads should read the book through a {@link DepthView}.
      *
-     * @return the bid order book (TreeMap of price levels with queues of orders)
+     * @return the bid order book (TreeMap of price levels, each holding a queue of orders)
      */
-    public TreeMap<Double, Queue<Order>> getBids() {
+    public TreeMap<Long, PriceLevel> getBids() {
         return this.bids;
     }
+
+    /**
+     * Takes an order that has already been dropped from the index off the book for good.
+     *
+     * @param node the node of the order being removed
+     */
+    private void discard(OrderNode node) {
+        unlink(node);
+        if (node.order.getClientOrderId() != null) {
+            this.clientOrderIndex.remove(node.order.getClientOrderId());
+        }
+        this.nodePool.release(node);
+    }
+
+    /**
+     * Unlinks a node from its price level and removes the level once it is empty.
+     *
+     * @param node the node to unlink
+     */
+    private void unlink(OrderNode node) {
+        PriceLevel level = node.level;
+        level.remove(node);
+        this.levelChanges.mark(level);
+        if (level.isEmpty() && this.batching) {
+            this.emptiedLevels.add(level);
+        } else if (level.isEmpty()) {
+            removeLevel(node.order.getSide() == Side.BUY ? bids : asks, level);
+        }
+    }
+
+    /**
+     * @return the best level of one side, which may be empty during a batch, or null if the side has no levels
+     */
+    private PriceLevel firstLevel(Side side) {
+        TreeMap<Long, PriceLevel> book = side == Side.BUY ? bids : asks;
+        return book.isEmpty() ? null : book.get(book.firstKey());
+    }
+
+    /**
+     * Links a level just put into its book between its better and worse neighbours.
+     */
+    private static void linkLevel(TreeMap<Long, PriceLevel> book, PriceLevel level) {
+        // Keys sort best first on both sides, so lower keys are better prices
+        Long betterPrice = book.lowerKey(level.getPrice());
+        Long worsePrice = book.higherKey(level.getPrice());
+        level.better = betterPrice == null ? null : book.get(betterPrice);
+        level.worse = worsePrice == null ? null : book.get(worsePrice);
+        if (level.better != null) {
+            level.better.worse = level;
+        }
+        if (level.worse != null) {
+            level.worse.better = level;
+        }
+    }
+
+    /**
+     * Removes an empty level from its book and closes the gap between its neighbours.
+     */
+    private static void removeLevel(TreeMap<Long, PriceLevel> book, PriceLevel level) {
+        book.remove(level.getPrice());
+        if (level.better != null) {
+            level.better.worse = level.worse;
+        }
+        if (level.worse != null) {
+            level.worse.better = level.better;
+        }
+        level.better = null;
+        level.worse = null;
+    }
+
+    /**
+     * Finds the best non-empty level of one side during a batch, starting from the best level found last.
+     *
+     * @param side the side of the book to inspect
+     * @return the best level holding orders, or null if that side is empty
+     */
+    private PriceLevel bestLevelInBatch(Side side) {
+        PriceLevel level = side == Side.BUY ? this.bestBidLevel : this.bestAskLevel;
+        if (level == null) {
+            level = firstLevel(side);
+        }
+        while (level != null && level.isEmpty()) {
+            level = level.worse;
+        }
+        if (side == Side.BUY) {
+            this.bestBidLevel = level;
+        } else {
+            this.bestAskLevel = level;
+        }
+        return level;
+    }
+
+    /**
+     * Forgets the remembered best level of a side if an order was added ahead of it.
+     */
+    private void invalidateBestLevel(Side side, long price) {
+        if (side == Side.BUY) {
+            if (this.bestBidLevel != null && price > this.bestBidLevel.getPrice()) {
+                this.bestBidLevel = null;
+            }
+        } else if (this.bestAskLevel != null && price < this.bestAskLevel.getPrice()) {
+            this.bestAskLevel = null;
+        }
+    }
+
+    private List<Order> retrieveOrdersByPrice(PriceLevel level) {
+        if (level == null || level.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Order> orders = new ArrayList<>(level.getOrderCount());
+        collectOrders(level, orders);
+        return orders;
+    }
+
+    private void collectOrders(PriceLevel level, List<Order> orders) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            orders.add(node.order);
+        }
+    }
+
+    private void visitOrders(PriceLevel level, Consumer<Order> action) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            action.accept(node.order);
+        }
+    }
+
+    /**
+     * @return false if the visitor stopped the walk
+     */
+    private boolean visitOrdersWhile(PriceLevel level, Predicate<Order> visitor) {
+        for (OrderNode node = level.head(); node != null; node = node.next) {
+            if (!visitor.test(node.order)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
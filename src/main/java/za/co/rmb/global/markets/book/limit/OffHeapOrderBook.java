@@ -0,0 +1,649 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An order book that keeps its resting orders off the heap, for venues with very deep books.
+ * <p>
+ * Every resting order is a fixed-size slot in a direct {@link ByteBuffer}, and each price level's queue is a
+ * doubly-linked list of slot numbers stored in the slots themselves. The order ID index maps IDs to slot numbers
+ * in primitive arrays, and freed slots are chained into a free list and reused. The only heap objects are the
+ * price levels and, for orders that have one, the client order ID, so the heap and the work the garbage collector
+ * does to mark it stay flat however many orders rest. The buffer doubles when it runs out of slots.
+ * <p>
+ * Orders are copied into a slot when they are added, and the book never holds on to an {@link Order} object, so
+ * changing one does not change the book; resting orders change only through the book's methods, which also update
+ * the order passed to them. Lookups and lists return new copies of the slots. The hot paths do not allocate:
+ * {@link #bestOrder} fills a view kept for each side, and {@link #forEachOrder} passes one view along the walk,
+ * each refilled from its slot on the next call, so such an order must be copied if it is to be kept.
+ * <pre>
+ * slot:  long order ID, long price, long stop price, int quantity, int hidden quantity, int display quantity,
+ *        int account ID, int previous slot, int next slot, int level ID, byte side, byte order type,
+ *        byte time in force, byte flags (bit 0 = post-only), short symbol code, 6 bytes reserved
+ * </pre>
+ */
+public class OffHeapOrderBook implements OrderBook {
+    static final int SLOT_LENGTH = 64;
+
+    private static final int ORDER_ID_OFFSET = 0;
+    private static final int PRICE_OFFSET = 8;
+    private static final int STOP_PRICE_OFFSET = 16;
+    private static final int QUANTITY_OFFSET = 24;
+    private static final int HIDDEN_QUANTITY_OFFSET = 28;
+    private static final int DISPLAY_QUANTITY_OFFSET = 32;
+    private static final int ACCOUNT_ID_OFFSET = 36;
+    private static final int PREV_OFFSET = 40;
+    private static final int NEXT_OFFSET = 44;
+    private static final int LEVEL_OFFSET = 48;
+    private static final int SIDE_OFFSET = 52;
+    private static final int ORDER_TYPE_OFFSET = 53;
+    private static final int TIME_IN_FORCE_OFFSET = 54;
+    private static final int FLAGS_OFFSET = 55;
+    private static final int SYMBOL_OFFSET = 56;
+
+    private static final byte POST_ONLY_FLAG = 1;
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private ByteBuffer slots;
+
+    private int capacity;
+
+    /**
+     * Number of slots ever handed out; slots below it are in use or on the free list.
+     */
+    private int highWaterMark;
+
+    /**
+     * First slot of the free list, chained through the next-slot field, or {@link #NONE}.
+     */
+    private int freeSlot = NONE;
+
+    private final SlotIndex orderIndex = new SlotIndex();
+
+    /**
+     * Client order IDs by slot, null for orders without one.
+     */
+    private String[] clientOrderIds;
+
+    private final Map<String, Integer> clientOrderIndex = new HashMap<>();
+
+    /**
+     * Symbols seen by the book; a slot holds the index of its order's symbol plus one, or 0 for none.
+     */
+    private final List<String> symbols = new ArrayList<>();
+
+    /**
+     * Bid levels keyed on price, highest first.
+     */
+    private final TreeMap<Long, Level> bids = new TreeMap<>(Collections.reverseOrder());
+
+    /**
+     * Ask levels keyed on price, lowest first.
+     */
+    private final TreeMap<Long, Level> asks = new TreeMap<>();
+
+    /**
+     * Levels by the ID stored in their orders' slots, so a slot finds its level without a map lookup.
+     */
+    private Level[] levels = new Level[16];
+
+    private int[] freeLevelIds = new int[16];
+
+    private int freeLevelCount;
+
+    private int levelCount;
+
+    private final List<Level> changedLevels = new ArrayList<>();
+
+    private boolean trackLevelChanges;
+
+    private final Order bestBid = new Order(0L, 0, 0, Side.BUY);
+
+    private final Order bestAsk = new Order(0L, 0, 0, Side.SELL);
+
+    /**
+     * The view passed to order visitors.
+     */
+    private final Order visited = new Order(0L, 0, 0, Side.BUY);
+
+    /**
+     * Initializes an empty book with room for 1024 orders before it first grows.
+     */
+    public OffHeapOrderBook() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty book.
+     *
+     * @param initialCapacity the number of orders the book can hold before it first grows
+     */
+    public OffHeapOrderBook(int initialCapacity) {
+        this.capacity = Math.max(initialCapacity, 1);
+        this.slots = ByteBuffer.allocateDirect(this.capacity * SLOT_LENGTH).order(ByteOrder.nativeOrder());
+        this.clientOrderIds = new String[this.capacity];
+    }
+
+    /**
+     * @return the number of orders resting in the book
+     */
+    public int size() {
+        return this.orderIndex.size();
+    }
+
+    /**
+     * @return the number of orders the book can hold before it grows
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public Order retrieveOrderById(long orderId) {
+        int slot = this.orderIndex.get(orderId);
+        return slot == NONE ? null : read(slot);
+    }
+
+    @Override
+    public boolean containsOrder(long orderId) {
+        return this.orderIndex.get(orderId) != NONE;
+    }
+
+    @Override
+    public Order retrieveOrderByClientOrderId(String clientOrderId) {
+        Integer slot = this.clientOrderIndex.get(clientOrderId);
+        return slot == null ? null : read(slot);
+    }
+
+    @Override
+    public List<Order> retrieveAllOrders() {
+        List<Order> allOrders = new ArrayList<>(size());
+        for (Level level : this.bids.values()) {
+            collectOrders(level, allOrders);
+        }
+        for (Level level : this.asks.values()) {
+            collectOrders(level, allOrders);
+        }
+        return allOrders;
+    }
+
+    @Override
+    public void forEachOrder(Consumer<Order> action) {
+        for (Level level : this.bids.values()) {
+            for (int slot = level.head; slot != NONE; slot = next(slot)) {
+                action.accept(read(slot, this.visited));
+            }
+        }
+        for (Level level : this.asks.values()) {
+            for (int slot = level.head; slot != NONE; slot = next(slot)) {
+                action.accept(read(slot, this.visited));
+            }
+        }
+    }
+
+    @Override
+    public void forEachOrder(Side side, Predicate<Order> visitor) {
+        for (Level level : (side == Side.BUY ? this.bids : this.asks).values()) {
+            for (int slot = level.head; slot != NONE; slot = next(slot)) {
+                if (!visitor.test(read(slot, this.visited))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Order> retrieveBidsByPrice(long price) {
+        return retrieveOrdersByPrice(this.bids.get(price));
+    }
+
+    @Override
+    public List<Order> retrieveAsksByPrice(long price) {
+        return retrieveOrdersByPrice(this.asks.get(price));
+    }
+
+    /**
+     * Copies a new order into a free slot at the back of its price level.
+     *
+     * @param order the new order to be added
+     */
+    @Override
+    public void addNewOrder(Order order) {
+        int slot = allocateSlot();
+        int at = slot * SLOT_LENGTH;
+        this.slots.putLong(at + ORDER_ID_OFFSET, order.getOrderId());
+        this.slots.putLong(at + PRICE_OFFSET, order.getPrice());
+        this.slots.putLong(at + STOP_PRICE_OFFSET, order.getStopPrice());
+        this.slots.putInt(at + QUANTITY_OFFSET, order.getQuantity());
+        this.slots.putInt(at + HIDDEN_QUANTITY_OFFSET, order.getHiddenQuantity());
+        this.slots.putInt(at + DISPLAY_QUANTITY_OFFSET, order.getDisplayQuantity());
+        this.slots.putInt(at + ACCOUNT_ID_OFFSET, order.getAccountId());
+        this.slots.put(at + SIDE_OFFSET, (byte) order.getSide().ordinal());
+        this.slots.put(at + ORDER_TYPE_OFFSET, (byte) order.getOrderType().ordinal());
+        this.slots.put(at + TIME_IN_FORCE_OFFSET, (byte) order.getTimeInForce().ordinal());
+        this.slots.put(at + FLAGS_OFFSET, order.isPostOnly() ? POST_ONLY_FLAG : 0);
+        this.slots.putShort(at + SYMBOL_OFFSET, symbolCode(order.getSymbol()));
+
+        TreeMap<Long, Level> book = order.getSide() == Side.BUY ? this.bids : this.asks;
+        Level level = book.get(order.getPrice());
+        if (level == null) {
+            level = newLevel(order.getSide(), order.getPrice());
+            book.put(order.getPrice(), level);
+            linkLevel(book, level);
+        }
+        append(level, slot);
+        markChanged(level);
+        this.orderIndex.put(order.getOrderId(), slot);
+        if (order.getClientOrderId() != null) {
+            this.clientOrderIds[slot] = order.getClientOrderId();
+            this.clientOrderIndex.put(order.getClientOrderId(), slot);
+        }
+    }
+
+    @Override
+    public void removeOrderFromBook(Order order) {
+        int slot = this.orderIndex.remove(order.getOrderId());
+        if (slot != NONE) {
+            discard(slot);
+        }
+    }
+
+    /**
+     * Reduces the quantity of a resting order by a traded amount, removing it once fully filled or refilling it
+     * from its hidden quantity if it is an iceberg order. The order passed in is updated to match its slot.
+     *
+     * @param order    the resting order that traded
+     * @param quantity the traded quantity
+     */
+    @Override
+    public void fillOrder(Order order, int quantity) {
+        int slot = this.orderIndex.get(order.getOrderId());
+        if (slot == NONE) {
+            order.setQuantity(order.getQuantity() - quantity);
+            return;
+        }
+        int at = slot * SLOT_LENGTH;
+        Level level = this.levels[this.slots.getInt(at + LEVEL_OFFSET)];
+        int remaining = this.slots.getInt(at + QUANTITY_OFFSET) - quantity;
+        level.totalQuantity -= quantity;
+        markChanged(level);
+        int hidden = this.slots.getInt(at + HIDDEN_QUANTITY_OFFSET);
+        if (remaining <= 0 && hidden > 0) {
+            // Refill an iceberg order from its hidden quantity at the back of the queue
+            remaining = Math.min(this.slots.getInt(at + DISPLAY_QUANTITY_OFFSET), hidden);
+            hidden -= remaining;
+            this.slots.putInt(at + HIDDEN_QUANTITY_OFFSET, hidden);
+            this.slots.putInt(at + QUANTITY_OFFSET, remaining);
+            level.totalQuantity += remaining;
+            moveToBack(level, slot);
+        } else {
+            this.slots.putInt(at + QUANTITY_OFFSET, remaining);
+        }
+        order.setQuantity(remaining);
+        order.setHiddenQuantity(hidden);
+        if (remaining <= 0) {
+            this.orderIndex.remove(order.getOrderId());
+            discard(slot);
+        }
+    }
+
+    @Override
+    public Order deleteOrderById(long orderId) {
+        int slot = this.orderIndex.remove(orderId);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
+        }
+        Order order = read(slot);
+        discard(slot);
+        return order;
+    }
+
+    @Override
+    public void updateOrderQuantity(long orderId, int newQuantity) {
+        updateOrderQuantity(findSlot(orderId), newQuantity);
+    }
+
+    @Override
+    public void updateOrderQuantity(long orderId, int newQuantity, int hiddenQuantity) {
+        int slot = findSlot(orderId);
+        this.slots.putInt(slot * SLOT_LENGTH + HIDDEN_QUANTITY_OFFSET, hiddenQuantity);
+        updateOrderQuantity(slot, newQuantity);
+    }
+
+    /**
+     * Fills the view of the side's best order, which the next call for the same side refills.
+     *
+     * @param side the side of the book to inspect
+     * @return the view of the first order at the best price, or null if that side is empty
+     */
+    @Override
+    public Order bestOrder(Side side) {
+        Map.Entry<Long, Level> bestLevel = (side == Side.BUY ? this.bids : this.asks).firstEntry();
+        return bestLevel == null ? null : read(bestLevel.getValue().head, side == Side.BUY ? this.bestBid : this.bestAsk);
+    }
+
+    @Override
+    public boolean holdsOrders() {
+        return false;
+    }
+
+    @Override
+    public void forEachLevel(Side side, LevelVisitor visitor) {
+        for (Level level = firstLevel(side); level != null; level = level.worse) {
+            if (!visitor.onLevel(side, level.price, level.totalQuantity, level.orderCount)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int depth(Side side, long[] prices, long[] quantities, int[] orderCounts) {
+        int count = 0;
+        for (Level level = firstLevel(side); level != null && count < prices.length; level = level.worse) {
+            prices[count] = level.price;
+            quantities[count] = level.totalQuantity;
+            orderCounts[count] = level.orderCount;
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void setLevelChangeTracking(boolean enabled) {
+        this.trackLevelChanges = enabled;
+        if (!enabled) {
+            clearChangedLevels(this.changedLevels.size());
+        }
+    }
+
+    @Override
+    public int drainChangedLevels(LevelVisitor visitor) {
+        int count = 0;
+        int size = this.changedLevels.size();
+        while (count < size) {
+            Level level = this.changedLevels.get(count);
+            count++;
+            if (!visitor.onLevel(level.side, level.price, level.totalQuantity, level.orderCount)) {
+                break;
+            }
+        }
+        clearChangedLevels(count);
+        return count;
+    }
+
+    private int findSlot(long orderId) {
+        int slot = this.orderIndex.get(orderId);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Order with ID " + orderId + " not found.");
+        }
+        return slot;
+    }
+
+    /**
+     * Sets the quantity of a resting order, moving it to the back of its queue if the quantity increases.
+     */
+    private void updateOrderQuantity(int slot, int newQuantity) {
+        int at = slot * SLOT_LENGTH;
+        Level level = this.levels[this.slots.getInt(at + LEVEL_OFFSET)];
+        int quantity = this.slots.getInt(at + QUANTITY_OFFSET);
+        if (newQuantity > quantity) {
+            moveToBack(level, slot);
+        }
+        level.totalQuantity += (long) newQuantity - quantity;
+        markChanged(level);
+        this.slots.putInt(at + QUANTITY_OFFSET, newQuantity);
+    }
+
+    /**
+     * Copies a slot into a new order object.
+     */
+    private Order read(int slot) {
+        return read(slot, new Order(0L, 0, 0, Side.BUY));
+    }
+
+    /**
+     * Copies a slot into an existing order object, overwriting all of its fields.
+     */
+    private Order read(int slot, Order order) {
+        int at = slot * SLOT_LENGTH;
+        Side side = this.slots.get(at + SIDE_OFFSET) == 0 ? Side.BUY : Side.SELL;
+        order.reset(this.slots.getLong(at + ORDER_ID_OFFSET), this.slots.getInt(at + QUANTITY_OFFSET),
+                this.slots.getLong(at + PRICE_OFFSET), side);
+        order.setStopPrice(this.slots.getLong(at + STOP_PRICE_OFFSET));
+        order.setHiddenQuantity(this.slots.getInt(at + HIDDEN_QUANTITY_OFFSET));
+        order.setDisplayQuantity(this.slots.getInt(at + DISPLAY_QUANTITY_OFFSET));
+        order.setAccountId(this.slots.getInt(at + ACCOUNT_ID_OFFSET));
+        order.setOrderType(ORDER_TYPES[this.slots.get(at + ORDER_TYPE_OFFSET)]);
+        order.setTimeInForce(TIMES_IN_FORCE[this.slots.get(at + TIME_IN_FORCE_OFFSET)]);
+        order.setPostOnly((this.slots.get(at + FLAGS_OFFSET) & POST_ONLY_FLAG) != 0);
+        int symbolCode = this.slots.getShort(at + SYMBOL_OFFSET);
+        order.setSymbol(symbolCode == 0 ? null : this.symbols.get(symbolCode - 1));
+        order.setClientOrderId(this.clientOrderIds[slot]);
+        return order;
+    }
+
+    private short symbolCode(String symbol) {
+        if (symbol == null) {
+            return 0;
+        }
+        int index = this.symbols.indexOf(symbol);
+        if (index < 0) {
+            index = this.symbols.size();
+            this.symbols.add(symbol);
+        }
+        return (short) (index + 1);
+    }
+
+    private int next(int slot) {
+        return this.slots.getInt(slot * SLOT_LENGTH + NEXT_OFFSET);
+    }
+
+    private int allocateSlot() {
+        if (this.freeSlot != NONE) {
+            int slot = this.freeSlot;
+            this.freeSlot = next(slot);
+            return slot;
+        }
+        if (this.highWaterMark == this.capacity) {
+            grow();
+        }
+        return this.highWaterMark++;
+    }
+
+    /**
+     * Doubles the number of slots, copying the existing slots into a new buffer.
+     */
+    private void grow() {
+        int grownCapacity = this.capacity << 1;
+        ByteBuffer grown = ByteBuffer.allocateDirect(grownCapacity * SLOT_LENGTH).order(ByteOrder.nativeOrder());
+        this.slots.clear();
+        grown.put(this.slots).clear();
+        this.slots = grown;
+        this.clientOrderIds = Arrays.copyOf(this.clientOrderIds, grownCapacity);
+        this.capacity = grownCapacity;
+    }
+
+    /**
+     * Unlinks an order that has already been dropped from the index and returns its slot to the free list.
+     */
+    private void discard(int slot) {
+        int at = slot * SLOT_LENGTH;
+        Level level = this.levels[this.slots.getInt(at + LEVEL_OFFSET)];
+        unlink(level, slot);
+        level.totalQuantity -= this.slots.getInt(at + QUANTITY_OFFSET);
+        markChanged(level);
+        if (level.head == NONE) {
+            (level.side == Side.BUY ? this.bids : this.asks).remove(level.price);
+            if (level.better != null) {
+                level.better.worse = level.worse;
+            }
+            if (level.worse != null) {
+                level.worse.better = level.better;
+            }
+            releaseLevel(level);
+        }
+        String clientOrderId = this.clientOrderIds[slot];
+        if (clientOrderId != null) {
+            this.clientOrderIndex.remove(clientOrderId);
+            this.clientOrderIds[slot] = null;
+        }
+        this.slots.putInt(at + NEXT_OFFSET, this.freeSlot);
+        this.freeSlot = slot;
+    }
+
+    private void append(Level level, int slot) {
+        int at = slot * SLOT_LENGTH;
+        this.slots.putInt(at + LEVEL_OFFSET, level.id);
+        this.slots.putInt(at + PREV_OFFSET, level.tail);
+        this.slots.putInt(at + NEXT_OFFSET, NONE);
+        if (level.tail == NONE) {
+            level.head = slot;
+        } else {
+            this.slots.putInt(level.tail * SLOT_LENGTH + NEXT_OFFSET, slot);
+        }
+        level.tail = slot;
+        level.orderCount++;
+        level.totalQuantity += this.slots.getInt(at + QUANTITY_OFFSET);
+    }
+
+    /**
+     * Unlinks a slot from its level's queue. The level's total quantity is left to the caller.
+     */
+    private void unlink(Level level, int slot) {
+        int at = slot * SLOT_LENGTH;
+        int prev = this.slots.getInt(at + PREV_OFFSET);
+        int next = this.slots.getInt(at + NEXT_OFFSET);
+        if (prev == NONE) {
+            level.head = next;
+        } else {
+            this.slots.putInt(prev * SLOT_LENGTH + NEXT_OFFSET, next);
+        }
+        if (next == NONE) {
+            level.tail = prev;
+        } else {
+            this.slots.putInt(next * SLOT_LENGTH + PREV_OFFSET, prev);
+        }
+        level.orderCount--;
+    }
+
+    private void moveToBack(Level level, int slot) {
+        if (slot != level.tail) {
+            unlink(level, slot);
+            level.totalQuantity -= this.slots.getInt(slot * SLOT_LENGTH + QUANTITY_OFFSET);
+            append(level, slot);
+        }
+    }
+
+    private Level newLevel(Side side, long price) {
+        int id;
+        if (this.freeLevelCount > 0) {
+            id = this.freeLevelIds[--this.freeLevelCount];
+        } else {
+            if (this.levelCount == this.levels.length) {
+                this.levels = Arrays.copyOf(this.levels, this.levelCount << 1);
+                this.freeLevelIds = Arrays.copyOf(this.freeLevelIds, this.levelCount << 1);
+            }
+            id = this.levelCount++;
+        }
+        Level level = new Level(id, side, price);
+        this.levels[id] = level;
+        return level;
+    }
+
+    private Level firstLevel(Side side) {
+        TreeMap<Long, Level> book = side == Side.BUY ? this.bids : this.asks;
+        return book.isEmpty() ? null : book.get(book.firstKey());
+    }
+
+    /**
+     * Links a level just put into its book between its better and worse neighbours, which sort before and after it.
+     */
+    private static void linkLevel(TreeMap<Long, Level> book, Level level) {
+        Long betterPrice = book.lowerKey(level.price);
+        Long worsePrice = book.higherKey(level.price);
+        level.better = betterPrice == null ? null : book.get(betterPrice);
+        level.worse = worsePrice == null ? null : book.get(worsePrice);
+        if (level.better != null) {
+            level.better.worse = level;
+        }
+        if (level.worse != null) {
+            level.worse.better = level;
+        }
+    }
+
+    private void releaseLevel(Level level) {
+        this.levels[level.id] = null;
+        this.freeLevelIds[this.freeLevelCount++] = level.id;
+    }
+
+    private void markChanged(Level level) {
+        if (this.trackLevelChanges && !level.changed) {
+            level.changed = true;
+            this.changedLevels.add(level);
+        }
+    }
+
+    private void clearChangedLevels(int count) {
+        for (int i = 0; i < count; i++) {
+            this.changedLevels.get(i).changed = false;
+        }
+        this.changedLevels.subList(0, count).clear();
+    }
+
+    private List<Order> retrieveOrdersByPrice(Level level) {
+        if (level == null) {
+            return Collections.emptyList();
+        }
+        List<Order> orders = new ArrayList<>(level.orderCount);
+        collectOrders(level, orders);
+        return orders;
+    }
+
+    private void collectOrders(Level level, List<Order> orders) {
+        for (int slot = level.head; slot != NONE; slot = next(slot)) {
+            orders.add(read(slot));
+        }
+    }
+
+    /**
+     * A price level: the ends of its queue of slots, its totals for depth, and its neighbours on the same side
+     * so that levels can be walked without looking each one up.
+     */
+    private static final class Level {
+        private final int id;
+        private final Side side;
+        private final long price;
+        private int head = NONE;
+        private int tail = NONE;
+        private int orderCount;
+        private long totalQuantity;
+        private boolean changed;
+        private Level better;
+        private Level worse;
+
+        Level(int id, Side side, long price) {
+            this.id = id;
+            this.side = side;
+            this.price = price;
+        }
+    }
+}
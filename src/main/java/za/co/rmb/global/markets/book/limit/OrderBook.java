@@ -0,0 +1,265 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Common contract for limit order book implementations. A book keeps bids and asks separately,
+ * grouped by price level, and preserves price-time priority within each level.
+ * <p>
+ * Books on the heap hold the order objects added to them and return those same objects, while
+ * {@link OffHeapOrderBook} copies orders in and out. Resting orders should therefore only be changed through
+ * the book's methods, which keep the order passed to them in step with the book either way.
+ */
+public interface OrderBook {
+
+    /**
+     * Retrieves an order by its unique ID.
+     *
+     * @param orderId the unique order ID
+     * @return the Order object if found, otherwise null
+     */
+    Order retrieveOrderById(long orderId);
+
+    /**
+     * Tells whether an order with the given ID is resting in the book, without copying it.
+     *
+     * @param orderId the unique order ID
+     * @return true if the order is in the book
+     */
+    default boolean containsOrder(long orderId) {
+        return retrieveOrderById(orderId) != null;
+    }
+
+    /**
+     * Tells whether the book can hold an order at the given price. A book that covers a fixed range of prices,
+     * such as {@link LadderOrderBook}, refuses prices outside it, so an order that may rest there must be turned
+     * away before it trades.
+     *
+     * @param price the price to check, in ticks
+     * @return true if an order can rest at the price
+     */
+    default boolean acceptsPrice(long price) {
+        return true;
+    }
+
+    /**
+     * Retrieves an order by the client order ID it was submitted with.
+     *
+     * @param clientOrderId the ID assigned by the client
+     * @return the Order object if found, otherwise null
+     */
+    Order retrieveOrderByClientOrderId(String clientOrderId);
+
+    /**
+     * Retrieves all orders from both the bid and ask books.
+     *
+     * @return a list containing all orders in the book
+     */
+    List<Order> retrieveAllOrders();
+
+    /**
+     * Visits every order in the book without building a list: bids from the best price down, then asks
+     * from the best price up, and orders within a level in queue order. A book that does not
+     * {@link #holdsOrders() hold its orders} may pass a view it refills for the next order.
+     *
+     * @param action the action to perform on each order; it must not modify the book
+     */
+    void forEachOrder(Consumer<Order> action);
+
+    /**
+     * Visits the orders of one side of the book in priority order: from the best price outwards, and in queue
+     * order within a level. A book that does not {@link #holdsOrders() hold its orders} may pass a view it refills
+     * for the next order.
+     *
+     * @param side    the side of the book to walk
+     * @param visitor receives each order; returning false stops the walk. It must not modify the book
+     */
+    void forEachOrder(Side side, Predicate<Order> visitor);
+
+    /**
+     * Retrieves all bid orders at a specific price level.
+     *
+     * @param price the bid price level to search for, in ticks
+     * @return a list of bid orders at the given price, or an empty list if none exist
+     */
+    List<Order> retrieveBidsByPrice(long price);
+
+    /**
+     * Retrieves all ask orders at a specific price level.
+     *
+     * @param price the ask price level to search for, in ticks
+     * @return a list of ask orders at the given price, or an empty list if none exist
+     */
+    List<Order> retrieveAsksByPrice(long price);
+
+    /**
+     * Adds a new order to the order book while maintaining price-time priority.
+     *
+     * @param order the new order to be added
+     */
+    void addNewOrder(Order order);
+
+    /**
+     * Removes a specific order from the book, drops it from the order index and cleans up empty price levels.
+     *
+     * @param order the order to be removed
+     */
+    void removeOrderFromBook(Order order);
+
+    /**
+     * Reduces the quantity of a resting order by a traded amount. Once the order is fully filled it is
+     * removed from the book and the order index, so it can no longer be retrieved by its ID. An iceberg order
+     * whose shown quantity is filled is instead refilled from its hidden quantity and moved to the back of its queue.
+     *
+     * @param order    the resting order that traded
+     * @param quantity the traded quantity
+     */
+    void fillOrder(Order order, int quantity);
+
+    /**
+     * Deletes an order from the order book by its ID.
+     *
+     * @param orderId the unique ID of the order to be deleted
+     * @return the deleted order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    Order deleteOrderById(long orderId);
+
+    /**
+     * Deletes an order from the order book by the client order ID it was submitted with.
+     *
+     * @param clientOrderId the ID assigned by the client
+     * @return the deleted order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    default Order deleteOrderById(String clientOrderId) {
+        return deleteOrderById(resolveClientOrderId(clientOrderId));
+    }
+
+    /**
+     * Updates the quantity of an existing order in O(1). A decrease keeps the order's place in the
+     * queue, while an increase moves it to the back of the queue to reflect the priority change.
+     *
+     * @param orderId     the unique ID of the order to update
+     * @param newQuantity the new quantity of the order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    void updateOrderQuantity(long orderId, int newQuantity);
+
+    /**
+     * Updates the shown and hidden quantity of an existing iceberg order. The shown quantity is updated as by
+     * {@link #updateOrderQuantity(long, int)}.
+     *
+     * @param orderId        the unique ID of the order to update
+     * @param newQuantity    the new shown quantity of the order
+     * @param hiddenQuantity the new hidden quantity of the order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    default void updateOrderQuantity(long orderId, int newQuantity, int hiddenQuantity) {
+        Order order = retrieveOrderById(orderId);
+        if (order != null) {
+            order.setHiddenQuantity(hiddenQuantity);
+        }
+        updateOrderQuantity(orderId, newQuantity);
+    }
+
+    /**
+     * Updates the quantity of an existing order identified by the client order ID it was submitted with.
+     *
+     * @param clientOrderId the ID assigned by the client
+     * @param newQuantity   the new quantity of the order
+     * @throws IllegalArgumentException if the order does not exist
+     */
+    default void updateOrderQuantity(String clientOrderId, int newQuantity) {
+        updateOrderQuantity(resolveClientOrderId(clientOrderId), newQuantity);
+    }
+
+    /**
+     * Retrieves the order with the highest priority on one side of the book, i.e. the first order
+     * in the queue at the best bid (for {@link Side#BUY}) or best ask (for {@link Side#SELL}).
+     * A book that does not {@link #holdsOrders() hold its orders} may return a view it refills on the next call
+     * for the same side.
+     *
+     * @param side the side of the book to inspect
+     * @return the first order at the best price, or null if that side is empty
+     */
+    Order bestOrder(Side side);
+
+    /**
+     * Tells whether the orders the book returns are the ones that were added to it, so that an order taken off
+     * the book belongs to the caller again, e.g. to recycle into a pool. A book that copies orders into its own
+     * storage returns copies or reused views instead, which must not be recycled, and the orders added to it
+     * are not referenced once added.
+     *
+     * @return true if the book holds on to the orders added to it
+     */
+    default boolean holdsOrders() {
+        return true;
+    }
+
+    /**
+     * Starts a batch of mutations made in one pass, such as a burst of orders matched by the engine.
+     * Until {@link #endBatch()}, the book may keep levels that empty around, so that a level that fills up again
+     * within the batch is reused, and clean them up at the end. Queries skip such levels, so a book reads the
+     * same inside a batch as outside.
+     */
+    default void beginBatch() {
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()}, removing the levels that were left empty.
+     */
+    default void endBatch() {
+    }
+
+    /**
+     * Visits the aggregated levels of one side of the book from the best price outwards.
+     *
+     * @param side    the side of the book to walk
+     * @param visitor receives each level; returning false stops the walk
+     */
+    void forEachLevel(Side side, LevelVisitor visitor);
+
+    /**
+     * Copies the top levels of one side of the book, best price first, into caller-supplied arrays.
+     * At most {@code prices.length} levels are copied and nothing is allocated.
+     *
+     * @param side          the side of the book to read
+     * @param prices        receives the price of each level, in ticks
+     * @param quantities    receives the total open quantity of each level
+     * @param orderCounts   receives the number of orders at each level
+     * @return the number of levels copied
+     */
+    int depth(Side side, long[] prices, long[] quantities, int[] orderCounts);
+
+    /**
+     * Starts or stops tracking which levels change, for {@link #drainChangedLevels}. Stopping discards
+     * any changes not yet drained.
+     *
+     * @param enabled true to track level changes
+     */
+    void setLevelChangeTracking(boolean enabled);
+
+    /**
+     * Reports every level whose quantity or order count changed since the last drain, once each and with
+     * its current state, in the order the levels first changed. Levels that have emptied are reported with
+     * no quantity and no orders.
+     *
+     * @param visitor receives each changed level; returning false leaves the remaining changes for the next drain
+     * @return the number of levels reported
+     */
+    int drainChangedLevels(LevelVisitor visitor);
+
+    private long resolveClientOrderId(String clientOrderId) {
+        Order order = retrieveOrderByClientOrderId(clientOrderId);
+        if (order == null) {
+            throw new IllegalArgumentException("Order with ID " + clientOrderId + " not found.");
+        }
+        return order.getOrderId();
+    }
+}
@@ -0,0 +1,137 @@
+package za.co.rmb.global.markets.book.limit;
+
+/**
+ * Open-addressing hash index from numeric order ID to the resting order's queue node. Entries live
+ * directly in two parallel arrays (primitive keys and nodes) probed linearly, so there are no
+ * per-entry objects and no boxing. Deletion uses backward shifting instead of tombstones, and the
+ * table shrinks as orders leave the book, keeping its memory proportional to the number of live orders.
+ */
+final class OrderIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private OrderNode[] nodes;
+    private int mask;
+    private int size;
+
+    OrderIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    OrderIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the node of a live order.
+     *
+     * @param orderId the unique order ID
+     * @return the order's node, or null if the order is not in the index
+     */
+    OrderNode get(long orderId) {
+        for (int i = slot(orderId); nodes[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                return nodes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indexes a node under its order's ID, replacing any node already indexed under that ID.
+     *
+     * @param node the node to index
+     */
+    void put(OrderNode node) {
+        long orderId = node.order.getOrderId();
+        int i = slot(orderId);
+        for (; nodes[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                nodes[i] = node;
+                return;
+            }
+        }
+        keys[i] = orderId;
+        nodes[i] = node;
+        if (++size > nodes.length >> 1) {
+            rehash(nodes.length << 1);
+        }
+    }
+
+    /**
+     * Removes an order from the index.
+     *
+     * @param orderId the unique order ID
+     * @return the removed node, or null if the order was not in the index
+     */
+    OrderNode remove(long orderId) {
+        for (int i = slot(orderId); nodes[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                OrderNode removed = nodes[i];
+                shiftBack(i);
+                if (--size < nodes.length >> 3 && nodes.length > MIN_CAPACITY) {
+                    rehash(nodes.length >> 1);
+                }
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the gap left at {@code slot} by moving later entries of the same probe run back,
+     * so lookups never have to skip over deleted slots.
+     */
+    private void shiftBack(int slot) {
+        int gap = slot;
+        for (int i = (gap + 1) & mask; nodes[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            // Move the entry only if its home slot does not lie cyclically in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                nodes[gap] = nodes[i];
+                gap = i;
+            }
+        }
+        nodes[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        OrderNode[] oldNodes = nodes;
+        allocate(capacity);
+        for (int i = 0; i < oldNodes.length; i++) {
+            if (oldNodes[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (nodes[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                nodes[slot] = oldNodes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.nodes = new OrderNode[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private int slot(long orderId) {
+        // Fibonacci hashing spreads sequential IDs across the table
+        return (int) ((orderId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity >> 1 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
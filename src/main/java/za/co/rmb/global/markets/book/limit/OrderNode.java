@@ -0,0 +1,24 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+
+/**
+ * Intrusive doubly-linked queue node holding a resting order. Nodes are owned by a
+ * {@link PriceLevel} while the order rests and are recycled through an {@link OrderNodePool}.
+ */
+final class OrderNode {
+    Order order;
+    PriceLevel level;
+    OrderNode prev;
+    OrderNode next;
+
+    /**
+     * Clears all references so the node can be returned to its pool.
+     */
+    void clear() {
+        this.order = null;
+        this.level = null;
+        this.prev = null;
+        this.next = null;
+    }
+}
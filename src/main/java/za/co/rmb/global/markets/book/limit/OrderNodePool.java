@@ -0,0 +1,46 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+
+/**
+ * Free list of {@link OrderNode}s. Nodes are pre-allocated up front and reused, so the book only
+ * allocates when more orders rest at once than the pool was sized for.
+ */
+final class OrderNodePool {
+    private OrderNode free;
+
+    OrderNodePool(int initialSize) {
+        for (int i = 0; i < initialSize; i++) {
+            release(new OrderNode());
+        }
+    }
+
+    /**
+     * Takes a node from the pool, allocating a new one only if the pool is exhausted.
+     *
+     * @param order the order the node will hold
+     * @return a node holding the order
+     */
+    OrderNode acquire(Order order) {
+        OrderNode node = free;
+        if (node == null) {
+            node = new OrderNode();
+        } else {
+            free = node.next;
+            node.next = null;
+        }
+        node.order = order;
+        return node;
+    }
+
+    /**
+     * Returns a node to the pool. The node must already be unlinked from its price level.
+     *
+     * @param node the node to recycle
+     */
+    void release(OrderNode node) {
+        node.clear();
+        node.next = free;
+        free = node;
+    }
+}
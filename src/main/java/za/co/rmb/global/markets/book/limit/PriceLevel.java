@@ -0,0 +1,139 @@
+package za.co.rmb.global.markets.book.limit;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+/**
+ * A FIFO queue of resting orders at a single price, implemented as an intrusive doubly-linked
+ * list of {@link OrderNode}s. Appending and unlinking are O(1) and allocate nothing.
+ * The level also keeps the total open quantity of its orders, so depth can be read without walking the queue.
+ * The queue can only be modified through its owning book.
+ */
+public final class PriceLevel {
+    private final Side side;
+    private final long price;
+    private OrderNode head;
+    private OrderNode tail;
+    private int orderCount;
+    private long totalQuantity;
+
+    /**
+     * Set while the level is queued in its book's {@link LevelChanges}.
+     */
+    boolean changed;
+
+    /**
+     * The neighbouring levels on the same side while the level is in its book: the next better and next worse
+     * price. Kept by the owning book so that walking levels needs no map lookups.
+     */
+    PriceLevel better;
+    PriceLevel worse;
+
+    PriceLevel(Side side, long price) {
+        this.side = side;
+        this.price = price;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    OrderNode head() {
+        return head;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * Appends a node to the back of the queue, giving it the lowest time priority.
+     *
+     * @param node the node to append
+     */
+    void append(OrderNode node) {
+        node.level = this;
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        orderCount++;
+        totalQuantity += node.order.getQuantity();
+    }
+
+    /**
+     * Moves a node to the back of the queue, giving it the lowest time priority.
+     *
+     * @param node the node to move, which must belong to this level
+     */
+    void moveToBack(OrderNode node) {
+        if (node != tail) {
+            remove(node);
+            append(node);
+        }
+    }
+
+    /**
+     * Unlinks a node from anywhere in the queue.
+     *
+     * @param node the node to unlink, which must belong to this level
+     */
+    void remove(OrderNode node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.level = null;
+        orderCount--;
+        totalQuantity -= node.order.getQuantity();
+    }
+
+    /**
+     * Refills an iceberg order whose shown quantity has traded away from its hidden quantity, and moves it to the
+     * back of the queue.
+     *
+     * @param node the node of the order, which must belong to this level
+     */
+    void replenish(OrderNode node) {
+        Order order = node.order;
+        int shown = Math.min(order.getDisplayQuantity(), order.getHiddenQuantity());
+        order.setHiddenQuantity(order.getHiddenQuantity() - shown);
+        order.setQuantity(shown);
+        totalQuantity += shown;
+        moveToBack(node);
+    }
+
+    /**
+     * Accounts for a change in the quantity of one of the level's orders. Must be called whenever the
+     * quantity of a queued order changes.
+     *
+     * @param delta the change in quantity
+     */
+    void adjustQuantity(long delta) {
+        totalQuantity += delta;
+    }
+}
@@ -0,0 +1,116 @@
+package za.co.rmb.global.markets.book.limit;
+
+/**
+ * Open-addressing hash index from numeric order ID to the slot holding the order in an {@link OffHeapOrderBook}.
+ * It works like {@link OrderIndex}, with primitive keys and values in two parallel arrays, so the index adds no
+ * objects per order either.
+ */
+final class SlotIndex {
+    static final int NOT_FOUND = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    /**
+     * Slot numbers plus one, so that 0 marks an empty entry.
+     */
+    private int[] values;
+    private int mask;
+    private int size;
+
+    SlotIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot of a live order, or {@link #NOT_FOUND} if the order is not in the index
+     */
+    int get(long orderId) {
+        for (int i = slot(orderId); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                return values[i] - 1;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Indexes a slot under an order ID, replacing any slot already indexed under that ID.
+     */
+    void put(long orderId, int orderSlot) {
+        int i = slot(orderId);
+        for (; values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                values[i] = orderSlot + 1;
+                return;
+            }
+        }
+        keys[i] = orderId;
+        values[i] = orderSlot + 1;
+        if (++size > values.length >> 1) {
+            rehash(values.length << 1);
+        }
+    }
+
+    /**
+     * Removes an order from the index.
+     *
+     * @return the removed slot, or {@link #NOT_FOUND} if the order was not in the index
+     */
+    int remove(long orderId) {
+        for (int i = slot(orderId); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == orderId) {
+                int removed = values[i] - 1;
+                shiftBack(i);
+                if (--size < values.length >> 3 && values.length > MIN_CAPACITY) {
+                    rehash(values.length >> 1);
+                }
+                return removed;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        for (int i = (gap + 1) & mask; values[i] != 0; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private int slot(long orderId) {
+        return (int) ((orderId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,76 @@
+package za.co.rmb.global.markets.book.loadgen;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.metrics.LatencyHistogram;
+
+/**
+ * Drives engines with an {@link OrderFlow} in open loop: each command is due at a fixed time set by the target
+ * rate, whether or not the commands before it have finished, and the driver sends it as soon as it can after
+ * that. When the engines keep up the driver spins until each command is due; when they fall behind it sends
+ * back to back until it has caught up, and the lag shows in the response times instead of silently lowering
+ * the offered load.
+ * <p>
+ * The driver calls the engines on its own thread, so it measures the engines themselves, without a queue or
+ * a network in between.
+ */
+public final class LoadDriver {
+    private final MatchingEngine[] engines;
+    private final OrderPool pool;
+
+    /**
+     * @param engines the engines, indexed by instrument
+     * @param pool    the pool the engines recycle orders into
+     */
+    public LoadDriver(MatchingEngine[] engines, OrderPool pool) {
+        this.engines = engines;
+        this.pool = pool;
+    }
+
+    /**
+     * Applies a flow as fast as possible, e.g. to build the books before a measured run.
+     *
+     * @param flow the flow
+     * @param from the index of the first command to apply
+     * @param to   the index after the last command to apply
+     */
+    public void apply(OrderFlow flow, int from, int to) {
+        for (int i = from; i < to; i++) {
+            flow.apply(i, this.engines, this.pool);
+        }
+    }
+
+    /**
+     * Applies part of a flow at a target rate and measures every command.
+     *
+     * @param flow       the flow
+     * @param from       the index of the first command to apply
+     * @param to         the index after the last command to apply
+     * @param targetRate the rate to offer commands at, per second, or 0 to send them back to back
+     * @return the response and service times and the sustained throughput
+     */
+    public LoadResult run(OrderFlow flow, int from, int to, long targetRate) {
+        if (targetRate < 0) {
+            throw new IllegalArgumentException("The target rate must not be negative.");
+        }
+        LatencyHistogram responseTimes = new LatencyHistogram();
+        LatencyHistogram serviceTimes = new LatencyHistogram();
+        double interval = targetRate == 0 ? 0 : 1e9 / targetRate;
+
+        long start = System.nanoTime();
+        long end = start;
+        for (int i = from; i < to; i++) {
+            long intended = start + (long) ((i - from) * interval);
+            long sent = System.nanoTime();
+            while (sent < intended) {
+                Thread.onSpinWait();
+                sent = System.nanoTime();
+            }
+            flow.apply(i, this.engines, this.pool);
+            end = System.nanoTime();
+            responseTimes.record(end - intended);
+            serviceTimes.record(end - sent);
+        }
+        return new LoadResult(to - from, end - start, targetRate, responseTimes, serviceTimes);
+    }
+}
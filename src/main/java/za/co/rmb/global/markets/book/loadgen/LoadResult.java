@@ -0,0 +1,75 @@
+package za.co.rmb.global.markets.book.loadgen;
+
+import za.co.rmb.global.markets.book.metrics.LatencyHistogram;
+
+/**
+ * The outcome of one {@link LoadDriver} run.
+ * <p>
+ * Response times are measured from the moment each command was due under the target rate, not from the moment
+ * the driver got round to sending it, so a stall is charged to every command queued behind it, as it would be for
+ * a client sending at that rate. Service times are measured from the actual send and show the cost of the
+ * commands themselves.
+ */
+public final class LoadResult {
+    private final int commands;
+    private final long elapsedNanos;
+    private final long targetRate;
+    private final LatencyHistogram responseTimes;
+    private final LatencyHistogram serviceTimes;
+
+    LoadResult(int commands, long elapsedNanos, long targetRate, LatencyHistogram responseTimes,
+               LatencyHistogram serviceTimes) {
+        this.commands = commands;
+        this.elapsedNanos = elapsedNanos;
+        this.targetRate = targetRate;
+        this.responseTimes = responseTimes;
+        this.serviceTimes = serviceTimes;
+    }
+
+    public int getCommands() {
+        return this.commands;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * @return the target rate in commands per second, or 0 if the run was not paced
+     */
+    public long getTargetRate() {
+        return this.targetRate;
+    }
+
+    /**
+     * @return the rate actually sustained over the run, in commands per second
+     */
+    public double getThroughput() {
+        return this.elapsedNanos == 0 ? 0 : this.commands * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * @return the coordinated-omission-corrected response times, from when each command was due to when it was done
+     */
+    public LatencyHistogram getResponseTimes() {
+        return this.responseTimes;
+    }
+
+    /**
+     * @return the service times, from when each command was sent to when it was done
+     */
+    public LatencyHistogram getServiceTimes() {
+        return this.serviceTimes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commands at %.0f/s (target %d/s); response p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns;"
+                        + " service p50 %d ns, p99 %d ns, max %d ns",
+                this.commands, getThroughput(), this.targetRate,
+                this.responseTimes.getValueAtPercentile(50), this.responseTimes.getValueAtPercentile(99),
+                this.responseTimes.getValueAtPercentile(99.9), this.responseTimes.getMax(),
+                this.serviceTimes.getValueAtPercentile(50), this.serviceTimes.getValueAtPercentile(99),
+                this.serviceTimes.getMax());
+    }
+}
@@ -0,0 +1,315 @@
+package za.co.rmb.global.markets.book.loadgen;
+
+import za.co.rmb.global.markets.book.engine.CommandJournal;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A stream of engine commands across one or more instruments, held in flat arrays so that applying it costs
+ * nothing but the engine calls.
+ * <p>
+ * A flow is either generated by an {@link OrderFlowGenerator} or captured from live engines through
+ * {@link #recorder(int)}, and can be written to a file and read back, so competing book implementations can be
+ * driven with exactly the same input. Matching is deterministic, so applying a flow to empty books always ends
+ * in the same books.
+ * <pre>
+ * file:    int magic, int version, int command count, int reserved, then one record per command
+ * record:  byte type, byte side, byte order type, byte time in force, byte flags (bit 0 = post-only), 3 bytes
+ *          reserved, int instrument, int quantity, long order ID, long price, long stop price, int display
+ *          quantity, int account ID
+ * </pre>
+ * Client order IDs and symbols are not captured.
+ */
+public final class OrderFlow {
+    public static final byte NEW = 0;
+    public static final byte CANCEL = 1;
+    public static final byte AMEND = 2;
+    public static final byte START_AUCTION = 3;
+    public static final byte UNCROSS = 4;
+
+    static final int MAGIC = 0x4F424C46; // "OBLF"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    static final int RECORD_LENGTH = 48;
+
+    private static final byte POST_ONLY_FLAG = 1;
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private byte[] types;
+    private int[] instruments;
+    private long[] orderIds;
+    private long[] prices;
+    private int[] quantities;
+    private byte[] sides;
+    private byte[] orderTypes;
+    private byte[] timesInForce;
+    private byte[] flags;
+    private long[] stopPrices;
+    private int[] displayQuantities;
+    private int[] accountIds;
+    private int length;
+
+    /**
+     * Creates an empty flow.
+     *
+     * @param initialCapacity the number of commands the flow holds before it first grows
+     */
+    public OrderFlow(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public byte getType(int index) {
+        return this.types[index];
+    }
+
+    public int getInstrument(int index) {
+        return this.instruments[index];
+    }
+
+    public long getOrderId(int index) {
+        return this.orderIds[index];
+    }
+
+    public int getQuantity(int index) {
+        return this.quantities[index];
+    }
+
+    /**
+     * Appends a new order, with its fields as submitted.
+     */
+    public void addNewOrder(int instrument, Order order) {
+        int index = append(NEW, instrument, order.getOrderId(), order.getQuantity());
+        this.prices[index] = order.getPrice();
+        this.sides[index] = (byte) order.getSide().ordinal();
+        this.orderTypes[index] = (byte) order.getOrderType().ordinal();
+        this.timesInForce[index] = (byte) order.getTimeInForce().ordinal();
+        this.flags[index] = order.isPostOnly() ? POST_ONLY_FLAG : 0;
+        this.stopPrices[index] = order.getStopPrice();
+        this.displayQuantities[index] = order.getDisplayQuantity();
+        this.accountIds[index] = order.getAccountId();
+    }
+
+    public void addCancel(int instrument, long orderId) {
+        append(CANCEL, instrument, orderId, 0);
+    }
+
+    public void addAmend(int instrument, long orderId, int newQuantity) {
+        append(AMEND, instrument, orderId, newQuantity);
+    }
+
+    /**
+     * Returns a journal that appends every command applied to an engine to this flow, tagged with an instrument,
+     * e.g. to capture live flow with {@link MatchingEngine#setCommandJournal}. The journals of several engines
+     * may record into one flow as long as they are all used by the same thread.
+     *
+     * @param instrument the index of the engine's instrument
+     * @return the journal
+     */
+    public CommandJournal recorder(int instrument) {
+        return new CommandJournal() {
+            @Override
+            public void onNewOrder(Order order) {
+                addNewOrder(instrument, order);
+            }
+
+            @Override
+            public void onCancel(long orderId) {
+                addCancel(instrument, orderId);
+            }
+
+            @Override
+            public void onAmend(long orderId, int newQuantity) {
+                addAmend(instrument, orderId, newQuantity);
+            }
+
+            @Override
+            public void onStartAuction() {
+                append(START_AUCTION, instrument, 0, 0);
+            }
+
+            @Override
+            public void onUncross() {
+                append(UNCROSS, instrument, 0, 0);
+            }
+        };
+    }
+
+    /**
+     * Applies one command to the engine of its instrument, taking new orders from a pool. New orders that do not
+     * rest are returned to the pool here, as the engine only recycles orders it took off the book. A command the
+     * engine refuses, such as a cancel of an order that has already traded, is skipped, as it was when the flow
+     * was first applied.
+     *
+     * @param index   the index of the command
+     * @param engines the engines, indexed by instrument
+     * @param pool    the pool the engines recycle orders into
+     */
+    public void apply(int index, MatchingEngine[] engines, OrderPool pool) {
+        MatchingEngine engine = engines[this.instruments[index]];
+        try {
+            switch (this.types[index]) {
+                case NEW:
+                    Order order = pool.acquire(this.orderIds[index], this.quantities[index], this.prices[index],
+                            this.sides[index] == 0 ? Side.BUY : Side.SELL);
+                    order.setOrderType(ORDER_TYPES[this.orderTypes[index]]);
+                    order.setTimeInForce(TIMES_IN_FORCE[this.timesInForce[index]]);
+                    order.setPostOnly((this.flags[index] & POST_ONLY_FLAG) != 0);
+                    order.setStopPrice(this.stopPrices[index]);
+                    order.setDisplayQuantity(this.displayQuantities[index]);
+                    order.setAccountId(this.accountIds[index]);
+                    engine.execute(order);
+                    if (order.getQuantity() == 0) {
+                        pool.release(order);
+                    }
+                    break;
+                case CANCEL:
+                    engine.cancel(this.orderIds[index]);
+                    break;
+                case AMEND:
+                    engine.amend(this.orderIds[index], this.quantities[index]);
+                    break;
+                case START_AUCTION:
+                    engine.startAuction();
+                    break;
+                case UNCROSS:
+                    engine.uncross();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown command type " + this.types[index] + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            // The command was rejected the same way when the flow was first applied
+        }
+    }
+
+    /**
+     * Writes the flow to a file, replacing it if it exists.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + this.length * RECORD_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(this.length).putInt(0);
+        for (int i = 0; i < this.length; i++) {
+            buffer.put(this.types[i])
+                    .put(this.sides[i])
+                    .put(this.orderTypes[i])
+                    .put(this.timesInForce[i])
+                    .put(this.flags[i])
+                    .put((byte) 0).putShort((short) 0)
+                    .putInt(this.instruments[i])
+                    .putInt(this.quantities[i])
+                    .putLong(this.orderIds[i])
+                    .putLong(this.prices[i])
+                    .putLong(this.stopPrices[i])
+                    .putInt(this.displayQuantities[i])
+                    .putInt(this.accountIds[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a flow written by {@link #write(Path)}.
+     *
+     * @param path the file
+     * @return the flow
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not an order flow
+     */
+    public static OrderFlow read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("File " + path + " is not an order flow.");
+        }
+        int length = buffer.getInt();
+        buffer.getInt();
+        OrderFlow flow = new OrderFlow(length);
+        for (int i = 0; i < length; i++) {
+            flow.types[i] = buffer.get();
+            flow.sides[i] = buffer.get();
+            flow.orderTypes[i] = buffer.get();
+            flow.timesInForce[i] = buffer.get();
+            flow.flags[i] = buffer.get();
+            buffer.get();
+            buffer.getShort();
+            flow.instruments[i] = buffer.getInt();
+            flow.quantities[i] = buffer.getInt();
+            flow.orderIds[i] = buffer.getLong();
+            flow.prices[i] = buffer.getLong();
+            flow.stopPrices[i] = buffer.getLong();
+            flow.displayQuantities[i] = buffer.getInt();
+            flow.accountIds[i] = buffer.getInt();
+        }
+        flow.length = length;
+        return flow;
+    }
+
+    private int append(byte type, int instrument, long orderId, int quantity) {
+        if (this.length == this.types.length) {
+            grow(this.length << 1);
+        }
+        int index = this.length++;
+        this.types[index] = type;
+        this.instruments[index] = instrument;
+        this.orderIds[index] = orderId;
+        this.quantities[index] = quantity;
+        return index;
+    }
+
+    private void allocate(int capacity) {
+        this.types = new byte[capacity];
+        this.instruments = new int[capacity];
+        this.orderIds = new long[capacity];
+        this.prices = new long[capacity];
+        this.quantities = new int[capacity];
+        this.sides = new byte[capacity];
+        this.orderTypes = new byte[capacity];
+        this.timesInForce = new byte[capacity];
+        this.flags = new byte[capacity];
+        this.stopPrices = new long[capacity];
+        this.displayQuantities = new int[capacity];
+        this.accountIds = new int[capacity];
+    }
+
+    private void grow(int capacity) {
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.instruments = Arrays.copyOf(this.instruments, capacity);
+        this.orderIds = Arrays.copyOf(this.orderIds, capacity);
+        this.prices = Arrays.copyOf(this.prices, capacity);
+        this.quantities = Arrays.copyOf(this.quantities, capacity);
+        this.sides = Arrays.copyOf(this.sides, capacity);
+        this.orderTypes = Arrays.copyOf(this.orderTypes, capacity);
+        this.timesInForce = Arrays.copyOf(this.timesInForce, capacity);
+        this.flags = Arrays.copyOf(this.flags, capacity);
+        this.stopPrices = Arrays.copyOf(this.stopPrices, capacity);
+        this.displayQuantities = Arrays.copyOf(this.displayQuantities, capacity);
+        this.accountIds = Arrays.copyOf(this.accountIds, capacity);
+    }
+}
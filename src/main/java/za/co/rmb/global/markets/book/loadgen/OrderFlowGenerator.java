@@ -0,0 +1,132 @@
+package za.co.rmb.global.markets.book.loadgen;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic order flow shaped like real flow, across any number of instruments.
+ * <p>
+ * A flow starts with {@code initialDepth} passive orders that build deep books, followed by a mix of new orders,
+ * cancels and amendments. Each command goes to an instrument picked uniformly at random. Passive prices are drawn
+ * from an exponential distribution of distances from the mid price, so most orders land in a few levels near the
+ * touch and queues get deep. A fraction of new orders is aggressive and crosses the spread. Cancels and
+ * amendments always target an order that is live at that point of the flow: the flow is generated by running it
+ * through one engine per instrument, and because matching is deterministic, applying it to empty books
+ * reproduces exactly the same books.
+ */
+public final class OrderFlowGenerator {
+    public static final long MID_PRICE = 10_000;
+    public static final int PRICE_RANGE = 2 * (int) MID_PRICE;
+
+    private final long seed;
+    private final int instruments;
+    private final double cancelRatio;
+    private final double amendRatio;
+    private final double aggressiveRatio;
+    private final double meanDistance;
+
+    /**
+     * @param seed            seeds the random choices, so the same generator always gives the same flow
+     * @param instruments     the number of instruments, numbered from 0
+     * @param cancelRatio     the fraction of mixed commands that are cancels
+     * @param amendRatio      the fraction of mixed commands that are amendments
+     * @param aggressiveRatio the fraction of new orders that cross the spread
+     * @param meanDistance    the mean distance of passive orders from the mid price, in ticks
+     */
+    public OrderFlowGenerator(long seed, int instruments, double cancelRatio, double amendRatio, double aggressiveRatio,
+                              double meanDistance) {
+        if (instruments < 1) {
+            throw new IllegalArgumentException("The number of instruments must be positive.");
+        }
+        if (cancelRatio < 0 || amendRatio < 0 || cancelRatio + amendRatio > 1) {
+            throw new IllegalArgumentException("The cancel and amend ratios must add up to at most 1.");
+        }
+        this.seed = seed;
+        this.instruments = instruments;
+        this.cancelRatio = cancelRatio;
+        this.amendRatio = amendRatio;
+        this.aggressiveRatio = aggressiveRatio;
+        this.meanDistance = meanDistance;
+    }
+
+    public int getInstruments() {
+        return this.instruments;
+    }
+
+    /**
+     * Generates a flow.
+     *
+     * @param initialDepth the number of passive orders that build the books before the mixed flow starts
+     * @param length       the total number of commands
+     * @return the flow
+     */
+    public OrderFlow generate(int initialDepth, int length) {
+        OrderFlow flow = new OrderFlow(length);
+        Random random = new Random(this.seed);
+        OrderBook[] books = new OrderBook[this.instruments];
+        MatchingEngine[] engines = new MatchingEngine[this.instruments];
+        long[][] live = new long[this.instruments][];
+        int[] liveCounts = new int[this.instruments];
+        for (int i = 0; i < this.instruments; i++) {
+            books[i] = new LimitOrderBook();
+            engines[i] = new MatchingEngine(books[i]);
+            engines[i].setCommandJournal(flow.recorder(i));
+            live[i] = new long[16];
+        }
+        long nextOrderId = 1;
+
+        for (int i = 0; i < length; i++) {
+            int instrument = this.instruments == 1 ? 0 : random.nextInt(this.instruments);
+            OrderBook book = books[instrument];
+            MatchingEngine engine = engines[instrument];
+            long[] liveOrders = live[instrument];
+
+            double choice = i < initialDepth ? 1.0 : random.nextDouble();
+            if (choice < this.cancelRatio + this.amendRatio) {
+                // Pick a random order that is still resting, dropping any that have traded away since
+                long orderId = 0;
+                while (liveCounts[instrument] > 0 && orderId == 0) {
+                    int index = random.nextInt(liveCounts[instrument]);
+                    long candidate = liveOrders[index];
+                    if (book.retrieveOrderById(candidate) == null) {
+                        liveOrders[index] = liveOrders[--liveCounts[instrument]];
+                    } else {
+                        orderId = candidate;
+                        if (choice < this.cancelRatio) {
+                            liveOrders[index] = liveOrders[--liveCounts[instrument]];
+                        }
+                    }
+                }
+                if (orderId != 0) {
+                    if (choice < this.cancelRatio) {
+                        engine.cancel(orderId);
+                    } else {
+                        engine.amend(orderId, 1 + random.nextInt(100));
+                    }
+                    continue;
+                }
+            }
+
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            boolean aggressive = i >= initialDepth && random.nextDouble() < this.aggressiveRatio;
+            long distance = Math.min(MID_PRICE - 1, 1 + (long) (-Math.log(1 - random.nextDouble()) * this.meanDistance));
+            long price = aggressive == (side == Side.BUY) ? MID_PRICE + distance : MID_PRICE - distance;
+
+            engine.execute(new Order(nextOrderId, 1 + random.nextInt(100), price, side));
+            if (book.retrieveOrderById(nextOrderId) != null) {
+                if (liveCounts[instrument] == liveOrders.length) {
+                    liveOrders = live[instrument] = Arrays.copyOf(liveOrders, liveOrders.length << 1);
+                }
+                liveOrders[liveCounts[instrument]++] = nextOrderId;
+            }
+            nextOrderId++;
+        }
+        return flow;
+    }
+}
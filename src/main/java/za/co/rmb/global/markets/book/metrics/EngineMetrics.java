@@ -0,0 +1,133 @@
+package za.co.rmb.global.markets.book.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency histograms and activity counters for one {@link za.co.rmb.global.markets.book.engine.MatchingEngine},
+ * i.e. one instrument. The engine records into them on its own thread without allocating; other threads can pull
+ * the figures through the getters or over JMX after {@link #register}. An engine without metrics does not read
+ * the clock at all.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+
+    /**
+     * The operations whose latency is recorded.
+     */
+    public enum Operation {
+        NEW_ORDER, CANCEL, AMEND
+    }
+
+    private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p99.9"};
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+
+    private long fills;
+
+    private long rests;
+
+    private long levelsTouched;
+
+    public EngineMetrics() {
+        for (int i = 0; i < this.latencies.length; i++) {
+            this.latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param operation the operation
+     * @param nanos     the time it took, in nanoseconds
+     */
+    public void recordLatency(Operation operation, long nanos) {
+        this.latencies[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts a fill against a resting order.
+     *
+     * @param newLevel true if the fill is the first at its price level for the incoming order
+     */
+    public void recordFill(boolean newLevel) {
+        this.fills++;
+        if (newLevel) {
+            this.levelsTouched++;
+        }
+    }
+
+    /**
+     * Counts an order that rested in the book after matching.
+     */
+    public void recordRest() {
+        this.rests++;
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return this.latencies[operation.ordinal()];
+    }
+
+    @Override
+    public long getNewOrders() {
+        return getLatency(Operation.NEW_ORDER).getTotalCount();
+    }
+
+    @Override
+    public long getCancels() {
+        return getLatency(Operation.CANCEL).getTotalCount();
+    }
+
+    @Override
+    public long getAmends() {
+        return getLatency(Operation.AMEND).getTotalCount();
+    }
+
+    @Override
+    public long getFills() {
+        return this.fills;
+    }
+
+    @Override
+    public long getRests() {
+        return this.rests;
+    }
+
+    /**
+     * @return the number of price levels incoming orders have traded at, counting each level once per order
+     */
+    @Override
+    public long getLevelsTouched() {
+        return this.levelsTouched;
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        Map<String, Long> latencies = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = getLatency(operation);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                latencies.put(operation + "." + PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+            }
+            latencies.put(operation + ".max", histogram.getMax());
+        }
+        return latencies;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under
+     * {@code za.co.rmb.global.markets.book:type=EngineMetrics,instrument=<symbol>}.
+     *
+     * @param symbol the instrument the engine trades
+     * @return the name the metrics were registered under
+     * @throws JMException if the metrics cannot be registered, e.g. because the name is taken
+     */
+    public ObjectName register(String symbol) throws JMException {
+        ObjectName name = new ObjectName("za.co.rmb.global.markets.book:type=EngineMetrics,instrument=" + ObjectName.quote(symbol));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+}
@@ -0,0 +1,26 @@
+package za.co.rmb.global.markets.book.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one engine's {@link EngineMetrics}.
+ */
+public interface EngineMetricsMXBean {
+
+    long getNewOrders();
+
+    long getCancels();
+
+    long getAmends();
+
+    long getFills();
+
+    long getRests();
+
+    long getLevelsTouched();
+
+    /**
+     * @return the p50, p99, p99.9 and max latency in nanoseconds of each operation, keyed like {@code NEW_ORDER.p99}
+     */
+    Map<String, Long> getLatencies();
+}
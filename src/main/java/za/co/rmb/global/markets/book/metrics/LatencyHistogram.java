@@ -0,0 +1,103 @@
+package za.co.rmb.global.markets.book.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, bucketed like HdrHistogram: values below 256 are counted
+ * exactly, and above that each power of two is split into 128 linear buckets, so every recorded value is
+ * accurate to within 1%. Recording is a few shifts and an array increment and never allocates.
+ * <p>
+ * A histogram is written by a single thread. Other threads may read it while it is being written; they see
+ * counts that are at most a few recordings stale, which is accurate enough for monitoring.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    /**
+     * The largest value that can be told apart from larger ones, about 73 minutes. Larger values are
+     * recorded as this value.
+     */
+    public static final long HIGHEST_TRACKABLE_VALUE = (1L << 42) - 1;
+
+    private final long[] counts = new long[bucketIndex(HIGHEST_TRACKABLE_VALUE) + 1];
+
+    private long totalCount;
+
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_VALUE);
+        this.counts[bucketIndex(value)]++;
+        this.totalCount++;
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    /**
+     * @return the largest latency recorded, exactly
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Retrieves the latency at or below which a given percentage of recordings fall.
+     *
+     * @param percentile the percentile, from 0 to 100, e.g. 99.9
+     * @return the highest value in the bucket holding that percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = this.totalCount;
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Clears every recording. Must be called by the writing thread.
+     */
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.max = 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // value >>> shift lies in [128, 256), so each shift adds another 128 buckets
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = index - (long) shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,123 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs one pipeline stage on its own thread. The stage waits until events are available, either
+ * published to the ring buffer or processed by the stages it depends on, and then hands the whole
+ * available batch to its handler before publishing its own progress once.
+ *
+ * @param <E> the type of event held by the ring buffer
+ */
+public final class BatchEventProcessor<E> implements Runnable {
+    private static final int SPINS_BEFORE_YIELDING = 100;
+
+    private static final int YIELDS_BEFORE_PARKING = 100;
+
+    private static final long PARK_NANOS = 50_000;
+
+    private final RingBuffer<E> ringBuffer;
+
+    private final Sequence[] dependencies;
+
+    private final EventHandler<? super E> handler;
+
+    private final Consumer<RuntimeException> errorHandler;
+
+    private final Sequence sequence = new Sequence();
+
+    private volatile boolean running = true;
+
+    /**
+     * The last sequence claimed when the stage was halted; it stops only once it has processed everything up to it.
+     */
+    private long haltSequence;
+
+    /**
+     * Creates a stage.
+     *
+     * @param ringBuffer   the ring buffer holding the events
+     * @param dependencies the sequences of the stages that must process an event first, or none for the first stage
+     * @param handler      processes each event
+     * @param errorHandler receives exceptions thrown by the handler, after which processing continues
+     */
+    public BatchEventProcessor(RingBuffer<E> ringBuffer, Sequence[] dependencies, EventHandler<? super E> handler,
+                               Consumer<RuntimeException> errorHandler) {
+        this.ringBuffer = ringBuffer;
+        this.dependencies = dependencies.clone();
+        this.handler = handler;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * @return the sequence of the last event this stage has processed
+     */
+    public Sequence getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Stops the stage once it has processed every event claimed so far, however far behind its upstream stages
+     * are, so that every stage can be halted at once. Producers must have published every slot they claimed.
+     */
+    public void halt() {
+        this.haltSequence = this.ringBuffer.getCursor();
+        this.running = false;
+    }
+
+    @Override
+    public void run() {
+        long nextSequence = this.sequence.get() + 1;
+        while (true) {
+            long availableSequence = waitFor(nextSequence);
+            if (availableSequence < nextSequence) {
+                return; // Halted with nothing left to process
+            }
+
+            for (long current = nextSequence; current <= availableSequence; current++) {
+                try {
+                    this.handler.onEvent(this.ringBuffer.get(current), current, current == availableSequence);
+                } catch (RuntimeException e) {
+                    this.errorHandler.accept(e);
+                }
+            }
+
+            this.sequence.set(availableSequence);
+            nextSequence = availableSequence + 1;
+        }
+    }
+
+    /**
+     * Waits until at least {@code nextSequence} is available to this stage, spinning, then yielding,
+     * then parking while idle.
+     *
+     * @return the highest available sequence, or less than {@code nextSequence} if the stage was halted and has
+     * processed every event up to its halt sequence
+     */
+    private long waitFor(long nextSequence) {
+        int idleCount = 0;
+        while (true) {
+            long available = availableSequence(nextSequence);
+            if (available >= nextSequence || !this.running && nextSequence > this.haltSequence) {
+                return available;
+            }
+            if (idleCount < SPINS_BEFORE_YIELDING) {
+                Thread.onSpinWait();
+            } else if (idleCount < SPINS_BEFORE_YIELDING + YIELDS_BEFORE_PARKING) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            idleCount++;
+        }
+    }
+
+    private long availableSequence(long nextSequence) {
+        if (this.dependencies.length == 0) {
+            return this.ringBuffer.getHighestPublishedSequence(nextSequence, this.ringBuffer.getCursor());
+        }
+        // Upstream stages only advance over published events
+        return Sequence.minimumOf(this.dependencies, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,20 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+/**
+ * Callback for one stage of a pipeline. Events are delivered in sequence order, in batches of
+ * whatever has been published since the stage last caught up.
+ *
+ * @param <E> the type of event held by the ring buffer
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /**
+     * Processes one event.
+     *
+     * @param event      the reusable event in its ring buffer slot
+     * @param sequence   the sequence of the event
+     * @param endOfBatch true if this is the last event currently available, e.g. a good point to flush output
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch);
+}
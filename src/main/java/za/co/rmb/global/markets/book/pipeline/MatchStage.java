@@ -0,0 +1,104 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.ExecutionListener;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+
+/**
+ * The stage that applies decoded, risk-checked commands to the matching engine. It is the single
+ * writer of the engine's book. New orders are taken from a pool rather than allocated: orders that
+ * do not rest go straight back to the pool, and the engine recycles resting orders once they are
+ * filled or cancelled.
+ * <p>
+ * The stage listens to the engine's events to learn what happened to a new order: its fills are added up from the
+ * trades it takes part in, and an order the engine rejects, e.g. in its risk check, is marked rejected on the event.
+ * Events are passed on to the listener the engine had when the stage was created.
+ */
+final class MatchStage implements EventHandler<OrderEvent>, ExecutionListener {
+    private final MatchingEngine engine;
+    private final OrderPool orderPool;
+    private final ExecutionListener downstream;
+
+    /**
+     * The new order being executed, and what has happened to it so far.
+     */
+    private long orderId;
+    private int filledQuantity;
+    private RejectReason rejectReason;
+
+    MatchStage(MatchingEngine engine, OrderPool orderPool) {
+        this.engine = engine;
+        this.orderPool = orderPool;
+        this.downstream = engine.getExecutionListener();
+        engine.setOrderPool(orderPool);
+        engine.setExecutionListener(this);
+    }
+
+    @Override
+    public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+        if (event.isRejected()) {
+            return;
+        }
+        if (event.getType() == null) {
+            event.reject("Message could not be decoded.");
+            return;
+        }
+
+        try {
+            switch (event.getType()) {
+                case NEW:
+                    executeNewOrder(event);
+                    break;
+                case CANCEL:
+                    this.engine.cancel(event.getOrderId());
+                    break;
+                case AMEND:
+                    this.engine.amend(event.getOrderId(), event.getQuantity());
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            event.reject(e.getMessage());
+        }
+    }
+
+    @Override
+    public void onExecutionEvent(ExecutionEvent executionEvent) {
+        if (executionEvent.getType() == ExecutionEvent.Type.TRADE && (executionEvent.getOrderId() == this.orderId
+                || executionEvent.getRestingOrderId() == this.orderId)) {
+            this.filledQuantity += executionEvent.getQuantity();
+        } else if (executionEvent.getType() == ExecutionEvent.Type.REJECTED && executionEvent.getOrderId() == this.orderId) {
+            this.rejectReason = executionEvent.getRejectReason();
+        }
+        if (this.downstream != null) {
+            this.downstream.onExecutionEvent(executionEvent);
+        }
+    }
+
+    private void executeNewOrder(OrderEvent event) {
+        Order order = this.orderPool.acquire(event.getOrderId(), event.getQuantity(), event.getPrice(), event.getSide());
+        this.orderId = event.getOrderId();
+        this.filledQuantity = 0;
+        this.rejectReason = null;
+        try {
+            this.engine.execute(order);
+        } catch (IllegalArgumentException e) {
+            this.orderPool.release(order);
+            throw e;
+        } finally {
+            this.orderId = 0;
+        }
+
+        if (this.rejectReason != null) {
+            event.reject("Rejected by the engine: " + this.rejectReason + ".");
+        } else {
+            event.setLeavesQuantity(order.getQuantity());
+            event.setFilledQuantity(this.filledQuantity);
+        }
+        if (order.getQuantity() == 0) {
+            this.orderPool.release(order); // Fully filled, cancelled or rejected, never rested
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mutable, reusable message that lives in a ring buffer slot and is passed from stage to stage.
+ * Producers either fill in the command fields directly or copy a raw message into
+ * {@link #getRawMessage()} for the decode stage. Later stages write their results into the same event.
+ */
+public final class OrderEvent {
+
+    public enum Type {
+        NEW, CANCEL, AMEND
+    }
+
+    private final ByteBuffer rawMessage;
+
+    private Type type;
+    private long orderId;
+    private Side side;
+    private long price;
+    private int quantity;
+
+    private boolean rejected;
+    private String rejectReason;
+    private int filledQuantity;
+    private int leavesQuantity;
+
+    /**
+     * Creates an event with room for a raw message of up to {@code maxMessageLength} bytes.
+     *
+     * @param maxMessageLength the capacity of the raw message buffer
+     */
+    public OrderEvent(int maxMessageLength) {
+        this.rawMessage = ByteBuffer.allocateDirect(maxMessageLength);
+    }
+
+    /**
+     * Clears every field so the slot can carry a new message.
+     */
+    void clear() {
+        this.rawMessage.clear().limit(0);
+        this.type = null;
+        this.orderId = 0;
+        this.side = null;
+        this.price = 0;
+        this.quantity = 0;
+        this.rejected = false;
+        this.rejectReason = null;
+        this.filledQuantity = 0;
+        this.leavesQuantity = 0;
+    }
+
+    /**
+     * Sets the command fields for a new order.
+     */
+    public void setNewOrder(long orderId, Side side, long price, int quantity) {
+        this.type = Type.NEW;
+        this.orderId = orderId;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Sets the command fields for a cancel.
+     */
+    public void setCancel(long orderId) {
+        this.type = Type.CANCEL;
+        this.orderId = orderId;
+    }
+
+    /**
+     * Sets the command fields for a quantity amendment.
+     */
+    public void setAmend(long orderId, int newQuantity) {
+        this.type = Type.AMEND;
+        this.orderId = orderId;
+        this.quantity = newQuantity;
+    }
+
+    /**
+     * Marks the event as rejected, so later stages skip it.
+     *
+     * @param reason why the event was rejected
+     */
+    public void reject(String reason) {
+        this.rejected = true;
+        this.rejectReason = reason;
+    }
+
+    /**
+     * @return the raw inbound message, positioned for reading, or an empty buffer if the producer set the fields directly
+     */
+    public ByteBuffer getRawMessage() {
+        return rawMessage;
+    }
+
+    /**
+     * @return true if the event still carries an undecoded raw message
+     */
+    public boolean isRaw() {
+        return type == null && rawMessage.hasRemaining();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    public String getRejectReason() {
+        return rejectReason;
+    }
+
+    /**
+     * @return the quantity that traded while matching a new order
+     */
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    void setFilledQuantity(int filledQuantity) {
+        this.filledQuantity = filledQuantity;
+    }
+
+    /**
+     * @return the quantity of a new order left resting in the book after matching
+     */
+    public int getLeavesQuantity() {
+        return leavesQuantity;
+    }
+
+    void setLeavesQuantity(int leavesQuantity) {
+        this.leavesQuantity = leavesQuantity;
+    }
+}
@@ -0,0 +1,187 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.OrderIdGenerator;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Ingress pipeline in front of a {@link MatchingEngine}. Commands are written into a pre-allocated
+ * ring buffer of reusable {@link OrderEvent}s and flow through four stages, each on its own thread:
+ * decode, risk check, match and publish. Stages consume whole batches of available events, and
+ * producers block (or fail fast with the {@code try} variants) once the ring is full, which gives the
+ * pipeline back-pressure. Only the match stage touches the book.
+ */
+public class OrderPipeline implements AutoCloseable {
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 256;
+
+    private final RingBuffer<OrderEvent> ringBuffer;
+
+    private final OrderIdGenerator idGenerator;
+
+    private final List<BatchEventProcessor<OrderEvent>> stages = new ArrayList<>();
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * Creates a pipeline. Each handler runs on its own thread; pass a no-op handler for a stage that is not needed.
+     *
+     * @param bufferSize   the number of ring buffer slots, a power of two
+     * @param engine       the engine to match against; it must not be used from any other thread. Its execution
+     *                     listener, if it needs one, must be set before the pipeline is created
+     * @param idGenerator  assigns IDs to new orders as they are submitted
+     * @param decoder      decodes raw messages into event fields
+     * @param riskCheck    rejects events that fail pre-trade checks
+     * @param publisher    receives every event after matching, e.g. to send execution reports
+     * @param errorHandler receives exceptions thrown by any stage
+     */
+    public OrderPipeline(int bufferSize, MatchingEngine engine, OrderIdGenerator idGenerator,
+                         EventHandler<OrderEvent> decoder, EventHandler<OrderEvent> riskCheck,
+                         EventHandler<OrderEvent> publisher, Consumer<RuntimeException> errorHandler) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, () -> new OrderEvent(DEFAULT_MAX_MESSAGE_LENGTH));
+        this.idGenerator = idGenerator;
+
+        Sequence[] upstream = new Sequence[0];
+        upstream = addStage(upstream, decoder, errorHandler);
+        upstream = addStage(upstream, riskCheck, errorHandler);
+        upstream = addStage(upstream, new MatchStage(engine, new OrderPool(bufferSize)), errorHandler);
+        upstream = addStage(upstream, publisher, errorHandler);
+        this.ringBuffer.setGatingSequences(upstream);
+    }
+
+    /**
+     * Starts a thread per stage.
+     */
+    public void start() {
+        String[] names = {"pipeline-decode", "pipeline-risk", "pipeline-match", "pipeline-publish"};
+        for (int i = 0; i < this.stages.size(); i++) {
+            Thread thread = new Thread(this.stages.get(i), names[i]);
+            this.threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Submits a new order, waiting for a free slot if the ring is full.
+     *
+     * @return the ID assigned to the order
+     */
+    public long submitNewOrder(Side side, long price, int quantity) {
+        long orderId = this.idGenerator.nextId();
+        long sequence = this.ringBuffer.next();
+        OrderEvent event = claim(sequence);
+        event.setNewOrder(orderId, side, price, quantity);
+        this.ringBuffer.publish(sequence);
+        return orderId;
+    }
+
+    /**
+     * Submits a cancel, waiting for a free slot if the ring is full.
+     */
+    public void submitCancel(long orderId) {
+        long sequence = this.ringBuffer.next();
+        claim(sequence).setCancel(orderId);
+        this.ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Submits a quantity amendment, waiting for a free slot if the ring is full.
+     */
+    public void submitAmend(long orderId, int newQuantity) {
+        long sequence = this.ringBuffer.next();
+        claim(sequence).setAmend(orderId, newQuantity);
+        this.ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Copies a raw message into the next slot for the decode stage, waiting for a free slot if the ring is full.
+     *
+     * @param message the message, between its position and limit
+     * @throws IllegalArgumentException if the message is longer than {@link #DEFAULT_MAX_MESSAGE_LENGTH}
+     */
+    public void submitRawMessage(ByteBuffer message) {
+        checkLength(message);
+        publishRaw(this.ringBuffer.next(), message);
+    }
+
+    /**
+     * Copies a raw message into the next slot for the decode stage, unless the ring is full.
+     *
+     * @param message the message, between its position and limit
+     * @return false if the ring was full and the message was not accepted
+     * @throws IllegalArgumentException if the message is longer than {@link #DEFAULT_MAX_MESSAGE_LENGTH}
+     */
+    public boolean trySubmitRawMessage(ByteBuffer message) {
+        checkLength(message);
+        long sequence = this.ringBuffer.tryNext();
+        if (sequence < 0) {
+            return false;
+        }
+        publishRaw(sequence, message);
+        return true;
+    }
+
+    /**
+     * Stops every stage once all events published so far have passed through the whole pipeline.
+     * Producers must have stopped submitting before this is called. All stages are halted together and each
+     * drains up to the last event submitted, so a downstream stage keeps going until its upstream stages have
+     * handed it everything. An interrupt while waiting for the stage threads is raised again once all four have
+     * finished.
+     */
+    @Override
+    public void close() {
+        for (BatchEventProcessor<OrderEvent> stage : this.stages) {
+            stage.halt();
+        }
+        boolean interrupted = false;
+        for (Thread thread : this.threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Sequence[] addStage(Sequence[] upstream, EventHandler<OrderEvent> handler, Consumer<RuntimeException> errorHandler) {
+        BatchEventProcessor<OrderEvent> stage = new BatchEventProcessor<>(this.ringBuffer, upstream, handler, errorHandler);
+        this.stages.add(stage);
+        return new Sequence[]{stage.getSequence()};
+    }
+
+    private OrderEvent claim(long sequence) {
+        OrderEvent event = this.ringBuffer.get(sequence);
+        event.clear();
+        return event;
+    }
+
+    private void publishRaw(long sequence, ByteBuffer message) {
+        OrderEvent event = claim(sequence);
+        try {
+            ByteBuffer rawMessage = event.getRawMessage();
+            rawMessage.clear();
+            rawMessage.put(message);
+            rawMessage.flip();
+        } finally {
+            this.ringBuffer.publish(sequence); // A claimed slot must always be published
+        }
+    }
+
+    private static void checkLength(ByteBuffer message) {
+        if (message.remaining() > DEFAULT_MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("Message of " + message.remaining() + " bytes exceeds the maximum of "
+                    + DEFAULT_MAX_MESSAGE_LENGTH + ".");
+        }
+    }
+}
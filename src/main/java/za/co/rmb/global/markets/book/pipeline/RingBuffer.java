@@ -0,0 +1,168 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Pre-allocated ring of reusable events shared by a chain of pipeline stages, in the style of the
+ * LMAX Disruptor. Producers claim a slot, fill in the event that already lives there and publish it;
+ * nothing is allocated per message. Several producer threads may claim slots concurrently. A producer
+ * cannot wrap past the slowest gating stage, which gives the pipeline back-pressure.
+ *
+ * @param <E> the type of event held by the ring buffer
+ */
+public final class RingBuffer<E> {
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+
+    private final int mask;
+
+    private final int indexShift;
+
+    /**
+     * Highest sequence claimed by any producer.
+     */
+    private final Sequence cursor = new Sequence();
+
+    /**
+     * Cached minimum of the gating sequences, so producers rarely have to read every stage's sequence.
+     */
+    private final Sequence gatingSequenceCache = new Sequence();
+
+    /**
+     * For each slot, the lap of the ring in which it was last published.
+     */
+    private final int[] availableBuffer;
+
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * Creates a ring buffer and fills every slot with an event from {@code eventFactory}.
+     *
+     * @param bufferSize   the number of slots, which must be a power of two
+     * @param eventFactory creates the reusable events
+     */
+    public RingBuffer(int bufferSize, Supplier<E> eventFactory) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of two.");
+        }
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            this.entries[i] = eventFactory.get();
+        }
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.availableBuffer = new int[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            AVAILABLE.setRelease(this.availableBuffer, i, -1);
+        }
+    }
+
+    public int getBufferSize() {
+        return this.entries.length;
+    }
+
+    /**
+     * @return the highest sequence claimed so far, which may not be published yet
+     */
+    public long getCursor() {
+        return this.cursor.get();
+    }
+
+    /**
+     * Sets the sequences of the final stages, which producers must never lap.
+     *
+     * @param sequences the sequences to gate on
+     */
+    public void setGatingSequences(Sequence... sequences) {
+        this.gatingSequences = sequences.clone();
+    }
+
+    /**
+     * Retrieves the event in the slot for a sequence.
+     *
+     * @param sequence the sequence of the event
+     * @return the reusable event
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) this.entries[(int) sequence & this.mask];
+    }
+
+    /**
+     * Claims the next slot, waiting for the slowest stage to free one up if the ring is full.
+     *
+     * @return the claimed sequence
+     */
+    public long next() {
+        long sequence;
+        while ((sequence = tryNext()) < 0) {
+            LockSupport.parkNanos(1);
+        }
+        return sequence;
+    }
+
+    /**
+     * Claims the next slot if one is free.
+     *
+     * @return the claimed sequence, or -1 if the ring is full
+     */
+    public long tryNext() {
+        while (true) {
+            long current = this.cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - this.entries.length;
+            long cachedGatingSequence = this.gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence) {
+                long gatingSequence = Sequence.minimumOf(this.gatingSequences, current);
+                this.gatingSequenceCache.set(gatingSequence);
+                if (wrapPoint > gatingSequence) {
+                    return -1;
+                }
+            }
+
+            if (this.cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Publishes a claimed slot, making its event visible to the first stage.
+     *
+     * @param sequence the claimed sequence
+     */
+    public void publish(long sequence) {
+        AVAILABLE.setRelease(this.availableBuffer, (int) sequence & this.mask, (int) (sequence >>> this.indexShift));
+    }
+
+    /**
+     * @param sequence the sequence to check
+     * @return true if the event at the sequence has been published
+     */
+    public boolean isAvailable(long sequence) {
+        int flag = (int) AVAILABLE.getAcquire(this.availableBuffer, (int) sequence & this.mask);
+        return flag == (int) (sequence >>> this.indexShift);
+    }
+
+    /**
+     * Finds the end of the contiguous run of published events. Producers may publish out of order,
+     * so a claimed but unpublished slot stops the run.
+     *
+     * @param lowerBound       the first sequence to check
+     * @param highestCandidate the highest sequence that may have been published
+     * @return the highest contiguously published sequence, or {@code lowerBound - 1} if there is none
+     */
+    public long getHighestPublishedSequence(long lowerBound, long highestCandidate) {
+        for (long sequence = lowerBound; sequence <= highestCandidate; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return highestCandidate;
+    }
+}
@@ -0,0 +1,49 @@
+package za.co.rmb.global.markets.book.replication;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+
+import java.util.function.Consumer;
+
+/**
+ * Computes a 64-bit checksum of an engine's state: every resting order in priority order, the waiting stop orders,
+ * the last price and whether the engine is in auction. Two engines that applied the same commands have the same
+ * checksum whatever their book implementation, and a replica whose checksum differs from its primary's has
+ * diverged.
+ * <p>
+ * A checksum walks the whole book, so it is taken every few thousand commands rather than after each one. An
+ * instance reuses itself as the visitor and allocates nothing; it is not thread-safe.
+ */
+public final class BookChecksum implements Consumer<Order> {
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long hash;
+
+    /**
+     * Computes the checksum of an engine. It must be called on the engine's writer thread.
+     *
+     * @param engine the engine
+     * @return the checksum
+     */
+    public long compute(MatchingEngine engine) {
+        this.hash = 1;
+        engine.getOrderBook().forEachOrder(this);
+        mix(-1);
+        engine.forEachStopOrder(this);
+        mix(engine.getLastPrice());
+        mix(engine.isAuction() ? 1 : 0);
+        return this.hash;
+    }
+
+    @Override
+    public void accept(Order order) {
+        mix(order.getOrderId());
+        mix(order.getPrice());
+        mix(((long) order.getQuantity() << 32) | order.getHiddenQuantity());
+        mix(order.getStopPrice() << 1 | order.getSide().ordinal());
+    }
+
+    private void mix(long value) {
+        this.hash = Long.rotateLeft(this.hash ^ (value * MULTIPLIER), 31) * MULTIPLIER;
+    }
+}
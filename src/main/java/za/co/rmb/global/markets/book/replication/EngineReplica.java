@@ -0,0 +1,196 @@
+package za.co.rmb.global.markets.book.replication;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.replication.ReplicationFormat.*;
+
+/**
+ * A hot standby for a primary engine. It applies the commands a {@link ReplicationPrimary} sends, in sequence, to
+ * its own engine, which must start from the same state as the primary's and have the same risk limits. Commands the
+ * primary's engine refused, such as cancels of orders that had already traded, are refused the same way here and
+ * skipped.
+ * <p>
+ * The thread that calls {@link #poll()} is the replica engine's single writer. Each checksum the primary sends is
+ * compared with the replica's own state at the same sequence number; on a mismatch the replica stops applying
+ * commands and reports itself diverged, as it no longer holds the primary's book.
+ * <p>
+ * On failover, {@link #promote()} applies whatever commands have already arrived and hands over the engine. The
+ * replica has kept up all along, so promotion costs no more than those last few commands.
+ */
+public class EngineReplica implements ReplicationTransport.MessageHandler {
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final MatchingEngine engine;
+
+    private final ReplicationTransport transport;
+
+    private final BookChecksum checksum = new BookChecksum();
+
+    private long appliedSequence;
+
+    private long verifiedSequence;
+
+    private long divergedSequence;
+
+    private boolean promoted;
+
+    /**
+     * Creates a replica.
+     *
+     * @param engine    the engine to apply commands to
+     * @param transport the transport from the primary
+     */
+    public EngineReplica(MatchingEngine engine, ReplicationTransport transport) {
+        this.engine = engine;
+        this.transport = transport;
+    }
+
+    /**
+     * Applies every command that has arrived, without waiting for more.
+     *
+     * @return the number of messages received
+     * @throws IllegalStateException if the replica has been promoted, or a message is missing
+     */
+    public int poll() {
+        if (this.promoted) {
+            throw new IllegalStateException("Replica has been promoted.");
+        }
+        return this.transport.poll(this);
+    }
+
+    /**
+     * Applies every command that has already arrived and stops replicating, so the engine can take over from the
+     * primary, e.g. with its own {@link ReplicationPrimary} continuing from {@link #getAppliedSequence()}.
+     *
+     * @return the engine, up to date with every command received
+     * @throws IllegalStateException if the replica has diverged from the primary
+     */
+    public MatchingEngine promote() {
+        poll();
+        if (isDiverged()) {
+            throw new IllegalStateException("Replica diverged from the primary at sequence " + this.divergedSequence + ".");
+        }
+        this.promoted = true;
+        this.transport.close();
+        return this.engine;
+    }
+
+    /**
+     * @return the sequence number of the last command applied, or 0 if none was applied
+     */
+    public long getAppliedSequence() {
+        return this.appliedSequence;
+    }
+
+    /**
+     * @return the sequence number of the last checksum that matched the primary's, or 0 if none has been checked
+     */
+    public long getVerifiedSequence() {
+        return this.verifiedSequence;
+    }
+
+    /**
+     * @return whether a checksum has differed from the primary's
+     */
+    public boolean isDiverged() {
+        return this.divergedSequence != 0;
+    }
+
+    /**
+     * @return the sequence number of the first checksum that differed from the primary's, or 0 if none has
+     */
+    public long getDivergedSequence() {
+        return this.divergedSequence;
+    }
+
+    public boolean isPromoted() {
+        return this.promoted;
+    }
+
+    @Override
+    public void onMessage(ByteBuffer buffer, int offset, int length) {
+        if (isDiverged()) {
+            return;
+        }
+        byte type = buffer.get(offset + TYPE_OFFSET);
+        long sequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+        if (type == CHECKSUM) {
+            verify(sequence, buffer.getLong(offset + CHECKSUM_OFFSET));
+            return;
+        }
+        if (sequence != this.appliedSequence + 1) {
+            throw new IllegalStateException("Expected sequence " + (this.appliedSequence + 1) + " but received "
+                    + sequence + ".");
+        }
+        apply(type, buffer, offset);
+        this.appliedSequence = sequence;
+    }
+
+    private void verify(long sequence, long expected) {
+        if (sequence != this.appliedSequence) {
+            throw new IllegalStateException("Checksum for sequence " + sequence + " received after sequence "
+                    + this.appliedSequence + ".");
+        }
+        if (this.checksum.compute(this.engine) == expected) {
+            this.verifiedSequence = sequence;
+        } else {
+            this.divergedSequence = sequence;
+        }
+    }
+
+    private void apply(byte type, ByteBuffer buffer, int offset) {
+        long orderId = buffer.getLong(offset + ORDER_ID_OFFSET);
+        int quantity = buffer.getInt(offset + QUANTITY_OFFSET);
+        try {
+            switch (type) {
+                case NEW_ORDER:
+                    Side side = buffer.get(offset + SIDE_OFFSET) == 0 ? Side.BUY : Side.SELL;
+                    Order order = new Order(orderId, quantity, buffer.getLong(offset + PRICE_OFFSET), side);
+                    order.setClientOrderId(readClientOrderId(buffer, offset));
+                    order.setOrderType(ORDER_TYPES[buffer.get(offset + ORDER_TYPE_OFFSET)]);
+                    order.setTimeInForce(TIMES_IN_FORCE[buffer.get(offset + TIME_IN_FORCE_OFFSET)]);
+                    order.setPostOnly((buffer.get(offset + FLAGS_OFFSET) & POST_ONLY_FLAG) != 0);
+                    order.setAccountId(buffer.getInt(offset + ACCOUNT_ID_OFFSET));
+                    order.setDisplayQuantity(buffer.getInt(offset + DISPLAY_QUANTITY_OFFSET));
+                    order.setStopPrice(buffer.getLong(offset + STOP_PRICE_OFFSET));
+                    this.engine.execute(order);
+                    break;
+                case CANCEL:
+                    this.engine.cancel(orderId);
+                    break;
+                case AMEND:
+                    this.engine.amend(orderId, quantity);
+                    break;
+                case START_AUCTION:
+                    this.engine.startAuction();
+                    break;
+                case UNCROSS:
+                    this.engine.uncross();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown message type " + type + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            // The primary's engine refused the command the same way
+        }
+    }
+
+    private static String readClientOrderId(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset + CLIENT_ORDER_ID_LENGTH_OFFSET) & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buffer.get(offset + MESSAGE_HEADER_LENGTH + i);
+        }
+        return new String(chars);
+    }
+}
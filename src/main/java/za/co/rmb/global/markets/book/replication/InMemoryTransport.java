@@ -0,0 +1,112 @@
+package za.co.rmb.global.markets.book.replication;
+
+import za.co.rmb.global.markets.book.pipeline.Sequence;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A transport between two threads of one process, e.g. for tests or for a replica kept in the same process as a
+ * standby. Messages are copied into a single-producer single-consumer ring of bytes and read in place, so neither
+ * side allocates.
+ * <p>
+ * Each message is framed by its padded frame length and its own length, and never wraps around the end of the ring;
+ * a message that does not fit in the rest of the ring is preceded by a padding marker and written at its start.
+ */
+public final class InMemoryTransport implements ReplicationTransport {
+    private static final int FRAME_HEADER_LENGTH = 8;
+    private static final int ALIGNMENT = 8;
+    private static final int PADDING = -1;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * A view of the ring that messages are copied in through.
+     */
+    private final ByteBuffer writeView;
+
+    private final int capacity;
+
+    private final int mask;
+
+    /**
+     * The number of bytes written, published after each message.
+     */
+    private final Sequence tail = new Sequence(0);
+
+    /**
+     * The number of bytes read, published after each message so the sender can reuse them.
+     */
+    private final Sequence head = new Sequence(0);
+
+    private long cachedHead;
+
+    /**
+     * Creates a transport.
+     *
+     * @param capacity the size of the ring in bytes, a power of two
+     */
+    public InMemoryTransport(int capacity) {
+        if (capacity < 64 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 64.");
+        }
+        this.buffer = ReplicationFormat.order(ByteBuffer.allocateDirect(capacity));
+        this.writeView = this.buffer.duplicate();
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void send(ByteBuffer message) {
+        int length = message.remaining();
+        int frameLength = (FRAME_HEADER_LENGTH + length + ALIGNMENT - 1) & -ALIGNMENT;
+        if (frameLength > this.capacity) {
+            throw new IllegalArgumentException("Message of " + length + " bytes does not fit the transport.");
+        }
+        long tail = this.tail.get();
+        int index = (int) (tail & this.mask);
+        int toEnd = this.capacity - index;
+        int needed = frameLength <= toEnd ? frameLength : toEnd + frameLength;
+        while (tail + needed - this.cachedHead > this.capacity) {
+            Thread.onSpinWait();
+            this.cachedHead = this.head.get();
+        }
+
+        if (frameLength > toEnd) {
+            this.buffer.putInt(index, PADDING);
+            tail += toEnd;
+            index = 0;
+        }
+        this.buffer.putInt(index + 4, length);
+        int position = message.position();
+        this.writeView.clear().position(index + FRAME_HEADER_LENGTH);
+        this.writeView.put(message);
+        message.position(position);
+        this.buffer.putInt(index, frameLength);
+        this.tail.set(tail + frameLength);
+    }
+
+    @Override
+    public int poll(MessageHandler handler) {
+        long head = this.head.get();
+        long available = this.tail.get();
+        int count = 0;
+        while (head < available) {
+            int index = (int) (head & this.mask);
+            int frameLength = this.buffer.getInt(index);
+            if (frameLength == PADDING) {
+                head += this.capacity - index;
+                continue;
+            }
+            handler.onMessage(this.buffer, index + FRAME_HEADER_LENGTH, this.buffer.getInt(index + 4));
+            head += frameLength;
+            this.head.set(head);
+            count++;
+        }
+        this.head.set(head);
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,67 @@
+package za.co.rmb.global.markets.book.replication;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of the messages a {@link ReplicationPrimary} sends to an {@link EngineReplica}.
+ * <p>
+ * Commands are laid out like journal records, so a replica decodes exactly the fields a journal replay would:
+ * <pre>
+ *  offset  size  field
+ *       0     4  message length
+ *       4     1  message type
+ *       5     1  side (0 = BUY, 1 = SELL)
+ *       6     2  client order ID length in bytes
+ *       8     8  sequence number
+ *      16     8  order ID, or the book checksum of a checksum message
+ *      24     8  price in ticks
+ *      32     4  quantity (new quantity for amendments)
+ *      36     1  order type (0 = LIMIT, 1 = MARKET)
+ *      37     1  time in force (0 = GTC, 1 = IOC, 2 = FOK)
+ *      38     1  flags (bit 0 = post-only)
+ *      39     1  reserved
+ *      40     4  account ID
+ *      44     4  display quantity of an iceberg order (0 = not an iceberg)
+ *      48     8  stop price in ticks (0 = not a stop order)
+ *      56     n  client order ID, US-ASCII
+ * </pre>
+ * A checksum message carries the sequence number of the last command applied when the checksum was taken. It is
+ * not a command and does not advance the sequence.
+ */
+final class ReplicationFormat {
+    static final int LENGTH_OFFSET = 0;
+    static final int TYPE_OFFSET = 4;
+    static final int SIDE_OFFSET = 5;
+    static final int CLIENT_ORDER_ID_LENGTH_OFFSET = 6;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int ORDER_ID_OFFSET = 16;
+    static final int CHECKSUM_OFFSET = 16;
+    static final int PRICE_OFFSET = 24;
+    static final int QUANTITY_OFFSET = 32;
+    static final int ORDER_TYPE_OFFSET = 36;
+    static final int TIME_IN_FORCE_OFFSET = 37;
+    static final int FLAGS_OFFSET = 38;
+    static final int ACCOUNT_ID_OFFSET = 40;
+    static final int DISPLAY_QUANTITY_OFFSET = 44;
+    static final int STOP_PRICE_OFFSET = 48;
+    static final int MESSAGE_HEADER_LENGTH = 56;
+
+    static final int MAX_MESSAGE_LENGTH = MESSAGE_HEADER_LENGTH + 0xFFFF;
+
+    static final byte NEW_ORDER = 1;
+    static final byte CANCEL = 2;
+    static final byte AMEND = 3;
+    static final byte START_AUCTION = 4;
+    static final byte UNCROSS = 5;
+    static final byte CHECKSUM = 6;
+
+    static final byte POST_ONLY_FLAG = 1;
+
+    private ReplicationFormat() {
+    }
+
+    static ByteBuffer order(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
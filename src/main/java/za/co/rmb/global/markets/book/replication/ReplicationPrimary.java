@@ -0,0 +1,197 @@
+package za.co.rmb.global.markets.book.replication;
+
+import za.co.rmb.global.markets.book.engine.CommandJournal;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.replication.ReplicationFormat.*;
+
+/**
+ * Ships the sequenced inbound command stream of a primary engine to a hot replica. Attach it to the engine with
+ * {@link MatchingEngine#setCommandJournal}: every command is numbered and sent before the engine applies it, and an
+ * {@link EngineReplica} applies the same commands in the same order to its own book. Matching is deterministic, so
+ * the replica holds the same book as the primary and can take over at once.
+ * <p>
+ * Every {@code checksumInterval} commands, before sending the next command, the primary also sends a
+ * {@link BookChecksum} of its state, which the replica compares with its own to detect divergence.
+ * <p>
+ * An engine takes a single journal, so a primary can pass every command on to another journal, e.g. a
+ * {@link za.co.rmb.global.markets.book.journal.Journal} on local disk, before sending it.
+ */
+public class ReplicationPrimary implements CommandJournal {
+    private final MatchingEngine engine;
+
+    private final ReplicationTransport transport;
+
+    private final int checksumInterval;
+
+    private final CommandJournal journal;
+
+    private final BookChecksum checksum = new BookChecksum();
+
+    private final ByteBuffer message = order(ByteBuffer.allocateDirect(MAX_MESSAGE_LENGTH));
+
+    private long sequence;
+
+    private long checksumSequence;
+
+    /**
+     * Creates a primary.
+     *
+     * @param engine           the engine whose commands are replicated
+     * @param transport        the transport to the replica
+     * @param checksumInterval the number of commands between checksums, or 0 to only send them on
+     *                         {@link #sendChecksum()}
+     */
+    public ReplicationPrimary(MatchingEngine engine, ReplicationTransport transport, int checksumInterval) {
+        this(engine, transport, checksumInterval, null);
+    }
+
+    /**
+     * Creates a primary that passes every command on to another journal before sending it.
+     *
+     * @param engine           the engine whose commands are replicated
+     * @param transport        the transport to the replica
+     * @param checksumInterval the number of commands between checksums, or 0 to only send them on
+     *                         {@link #sendChecksum()}
+     * @param journal          the journal to pass commands on to, or null
+     */
+    public ReplicationPrimary(MatchingEngine engine, ReplicationTransport transport, int checksumInterval,
+                              CommandJournal journal) {
+        if (checksumInterval < 0) {
+            throw new IllegalArgumentException("The checksum interval must not be negative.");
+        }
+        this.engine = engine;
+        this.transport = transport;
+        this.checksumInterval = checksumInterval;
+        this.journal = journal;
+    }
+
+    /**
+     * Continues the sequence of a previous primary, e.g. when a promoted replica starts replicating to a new one.
+     *
+     * @param sequence the sequence number of the last command the engine applied
+     */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+        this.checksumSequence = sequence;
+    }
+
+    /**
+     * @return the sequence number of the last command sent, or 0 if none was sent
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    @Override
+    public void onNewOrder(Order order) {
+        if (this.journal != null) {
+            this.journal.onNewOrder(order);
+        }
+        String clientOrderId = order.getClientOrderId();
+        int clientOrderIdLength = clientOrderId == null ? 0 : clientOrderId.length();
+        if (clientOrderIdLength > 0xFFFF) {
+            throw new IllegalArgumentException("Client order ID " + clientOrderId + " is too long to replicate.");
+        }
+        encode(NEW_ORDER, order.getSide(), order.getOrderId(), order.getPrice(), order.getQuantity());
+        ByteBuffer buffer = this.message;
+        buffer.put(ORDER_TYPE_OFFSET, (byte) order.getOrderType().ordinal());
+        buffer.put(TIME_IN_FORCE_OFFSET, (byte) order.getTimeInForce().ordinal());
+        buffer.put(FLAGS_OFFSET, order.isPostOnly() ? POST_ONLY_FLAG : 0);
+        buffer.putInt(ACCOUNT_ID_OFFSET, order.getAccountId());
+        buffer.putInt(DISPLAY_QUANTITY_OFFSET, order.getDisplayQuantity());
+        buffer.putLong(STOP_PRICE_OFFSET, order.getStopPrice());
+        buffer.putShort(CLIENT_ORDER_ID_LENGTH_OFFSET, (short) clientOrderIdLength);
+        for (int i = 0; i < clientOrderIdLength; i++) {
+            buffer.put(MESSAGE_HEADER_LENGTH + i, (byte) clientOrderId.charAt(i));
+        }
+        send(MESSAGE_HEADER_LENGTH + clientOrderIdLength);
+    }
+
+    @Override
+    public void onCancel(long orderId) {
+        if (this.journal != null) {
+            this.journal.onCancel(orderId);
+        }
+        encode(CANCEL, Side.BUY, orderId, 0, 0);
+        send(MESSAGE_HEADER_LENGTH);
+    }
+
+    @Override
+    public void onAmend(long orderId, int newQuantity) {
+        if (this.journal != null) {
+            this.journal.onAmend(orderId, newQuantity);
+        }
+        encode(AMEND, Side.BUY, orderId, 0, newQuantity);
+        send(MESSAGE_HEADER_LENGTH);
+    }
+
+    @Override
+    public void onStartAuction() {
+        if (this.journal != null) {
+            this.journal.onStartAuction();
+        }
+        encode(START_AUCTION, Side.BUY, 0, 0, 0);
+        send(MESSAGE_HEADER_LENGTH);
+    }
+
+    @Override
+    public void onUncross() {
+        if (this.journal != null) {
+            this.journal.onUncross();
+        }
+        encode(UNCROSS, Side.BUY, 0, 0, 0);
+        send(MESSAGE_HEADER_LENGTH);
+    }
+
+    /**
+     * Sends a checksum of the engine's current state, e.g. when the flow goes quiet, so the replica can verify
+     * the commands sent since the last one. It must be called on the engine's writer thread, between commands.
+     */
+    public void sendChecksum() {
+        long value = this.checksum.compute(this.engine);
+        ByteBuffer buffer = this.message;
+        buffer.clear();
+        buffer.putInt(LENGTH_OFFSET, MESSAGE_HEADER_LENGTH);
+        buffer.put(TYPE_OFFSET, CHECKSUM);
+        buffer.put(SIDE_OFFSET, (byte) 0);
+        buffer.putShort(CLIENT_ORDER_ID_LENGTH_OFFSET, (short) 0);
+        buffer.putLong(SEQUENCE_OFFSET, this.sequence);
+        buffer.putLong(CHECKSUM_OFFSET, value);
+        buffer.limit(MESSAGE_HEADER_LENGTH);
+        this.transport.send(buffer);
+        this.checksumSequence = this.sequence;
+    }
+
+    /**
+     * Writes the fields every command has, sending a checksum first if one is due. The engine has applied every
+     * command sent so far, so the checksum covers exactly those.
+     */
+    private void encode(byte type, Side side, long orderId, long price, int quantity) {
+        if (this.checksumInterval > 0 && this.sequence - this.checksumSequence >= this.checksumInterval) {
+            sendChecksum();
+        }
+        ByteBuffer buffer = this.message;
+        buffer.clear();
+        buffer.put(TYPE_OFFSET, type);
+        buffer.put(SIDE_OFFSET, (byte) side.ordinal());
+        buffer.putShort(CLIENT_ORDER_ID_LENGTH_OFFSET, (short) 0);
+        buffer.putLong(SEQUENCE_OFFSET, ++this.sequence);
+        buffer.putLong(ORDER_ID_OFFSET, orderId);
+        buffer.putLong(PRICE_OFFSET, price);
+        buffer.putInt(QUANTITY_OFFSET, quantity);
+        buffer.putInt(ORDER_TYPE_OFFSET, 0); // Order type, time in force and flags default to LIMIT, GTC and none
+        buffer.putLong(ACCOUNT_ID_OFFSET, 0);
+        buffer.putLong(STOP_PRICE_OFFSET, 0);
+    }
+
+    private void send(int length) {
+        this.message.putInt(LENGTH_OFFSET, length);
+        this.message.limit(length);
+        this.transport.send(this.message);
+    }
+}
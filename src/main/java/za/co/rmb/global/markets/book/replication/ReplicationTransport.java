@@ -0,0 +1,45 @@
+package za.co.rmb.global.markets.book.replication;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Carries replication messages from a {@link ReplicationPrimary} to an {@link EngineReplica}, in order and without
+ * loss. One thread sends and one thread polls.
+ */
+public interface ReplicationTransport extends AutoCloseable {
+
+    /**
+     * Sends one message, waiting while the transport has no room for it.
+     *
+     * @param message the message, between the buffer's position and limit; the transport copies or writes it before
+     *                returning, so the buffer can be reused
+     */
+    void send(ByteBuffer message);
+
+    /**
+     * Hands every message that has arrived to a handler, in the order they were sent, without waiting for more.
+     *
+     * @param handler receives each message
+     * @return the number of messages handled
+     */
+    int poll(MessageHandler handler);
+
+    @Override
+    void close();
+
+    /**
+     * Receives messages from {@link #poll}.
+     */
+    @FunctionalInterface
+    interface MessageHandler {
+
+        /**
+         * Handles one message. The buffer is only valid until this method returns.
+         *
+         * @param buffer the buffer holding the message, in little-endian byte order
+         * @param offset the offset of the message in the buffer
+         * @param length the length of the message
+         */
+        void onMessage(ByteBuffer buffer, int offset, int length);
+    }
+}
@@ -0,0 +1,116 @@
+package za.co.rmb.global.markets.book.replication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A transport over a TCP connection, e.g. to a replica on another host, or on the loopback interface for tests.
+ * Each message is preceded by its length. The connection is non-blocking: sending spins until the whole message is
+ * written, and polling decodes every complete message already received straight from a direct input buffer.
+ * <p>
+ * When the other end closes the connection, polling closes this end too and hands over no further messages.
+ */
+public final class SocketTransport implements ReplicationTransport {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final SocketChannel channel;
+
+    private final ByteBuffer input = ReplicationFormat.order(ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final ByteBuffer lengthPrefix = ReplicationFormat.order(ByteBuffer.allocateDirect(Integer.BYTES));
+
+    private final ByteBuffer[] frame = new ByteBuffer[2];
+
+    private SocketTransport(SocketChannel channel) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        this.channel = channel;
+        this.frame[0] = this.lengthPrefix;
+    }
+
+    /**
+     * Connects to the other end of a transport, normally from the primary.
+     *
+     * @param address the address the other end accepts connections on
+     * @return the transport
+     * @throws IOException if the connection cannot be made
+     */
+    public static SocketTransport connect(InetSocketAddress address) throws IOException {
+        return new SocketTransport(SocketChannel.open(address));
+    }
+
+    /**
+     * Waits for the other end of a transport to connect, normally on the replica.
+     *
+     * @param serverChannel a bound, blocking server channel
+     * @return the transport
+     * @throws IOException if no connection can be accepted
+     */
+    public static SocketTransport accept(ServerSocketChannel serverChannel) throws IOException {
+        return new SocketTransport(serverChannel.accept());
+    }
+
+    @Override
+    public void send(ByteBuffer message) {
+        int position = message.position();
+        this.lengthPrefix.clear();
+        this.lengthPrefix.putInt(0, message.remaining());
+        this.frame[1] = message;
+        try {
+            while (this.lengthPrefix.hasRemaining() || message.hasRemaining()) {
+                this.channel.write(this.frame);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.frame[1] = null;
+            message.position(position);
+        }
+    }
+
+    @Override
+    public int poll(MessageHandler handler) {
+        if (!this.channel.isOpen()) {
+            return 0;
+        }
+        try {
+            if (this.channel.read(this.input) < 0) {
+                this.channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.input.flip();
+        int count = 0;
+        while (this.input.remaining() >= Integer.BYTES) {
+            int position = this.input.position();
+            int length = this.input.getInt(position);
+            if (length > BUFFER_SIZE - Integer.BYTES) {
+                throw new IllegalStateException("Message of " + length + " bytes does not fit the input buffer.");
+            }
+            if (this.input.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            handler.onMessage(this.input, position + Integer.BYTES, length);
+            this.input.position(position + Integer.BYTES + length);
+            count++;
+        }
+        this.input.compact();
+        return count;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package za.co.rmb.global.markets.book.risk;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Pre-trade risk checks that the matching engine runs on every new order before it touches the book:
+ * <ul>
+ *     <li>a price band, which rejects a limit order priced too far from the best opposite price (or, with the
+ *     opposite side empty, the best price on its own side);</li>
+ *     <li>per-account limits on the open quantity and open notional of resting orders, which reject an order that
+ *     could take its account over either limit;</li>
+ *     <li>self-trade prevention, which rejects an order that would trade against a resting order of its own
+ *     account.</li>
+ * </ul>
+ * Exposure is kept in primitive arrays indexed by account ID and updated by the engine as orders rest, fill, are
+ * cancelled and are amended, so the limit checks are a few array reads. The self-trade check only walks the
+ * crossing orders when the account has resting orders on the opposite side at all.
+ * Orders with account ID 0 are not tagged with an account and are only subject to the price band.
+ * Like the book, a risk check must only be used by the engine's writer thread.
+ */
+public class RiskCheck {
+    private static final long BASIS_POINTS = 10_000;
+
+    private static final int INITIAL_ACCOUNTS = 64;
+
+    private final long priceBandBasisPoints;
+
+    private final boolean selfTradePrevention;
+
+    private long[] maxOpenQuantity = new long[0];
+    private long[] maxOpenNotional = new long[0];
+    private long[] openQuantity = new long[0];
+    private long[] openNotional = new long[0];
+    private int[] restingBuyOrders = new int[0];
+    private int[] restingSellOrders = new int[0];
+
+    /**
+     * Reused to look for crossing orders of the same account without allocating.
+     */
+    private final SelfTradeCheck selfTradeCheck = new SelfTradeCheck();
+
+    /**
+     * @param priceBandBasisPoints how far a limit price may be from the reference price, in hundredths of a
+     *                             percent of the reference price, or 0 for no price band
+     * @param selfTradePrevention  true to reject orders that would trade against their own account
+     */
+    public RiskCheck(long priceBandBasisPoints, boolean selfTradePrevention) {
+        if (priceBandBasisPoints < 0) {
+            throw new IllegalArgumentException("Price band " + priceBandBasisPoints + " must not be negative.");
+        }
+        this.priceBandBasisPoints = priceBandBasisPoints;
+        this.selfTradePrevention = selfTradePrevention;
+    }
+
+    /**
+     * Sets the limits of an account. Accounts without limits may hold any open quantity and notional.
+     *
+     * @param accountId       the account
+     * @param maxOpenQuantity the most quantity the account may have resting in the book
+     * @param maxOpenNotional the most notional, quantity times price in ticks, the account may have resting
+     * @throws IllegalArgumentException if the account ID is not positive
+     */
+    public void setLimits(int accountId, long maxOpenQuantity, long maxOpenNotional) {
+        if (accountId <= 0) {
+            throw new IllegalArgumentException("Account ID " + accountId + " must be positive.");
+        }
+        ensureCapacity(accountId);
+        this.maxOpenQuantity[accountId] = maxOpenQuantity;
+        this.maxOpenNotional[accountId] = maxOpenNotional;
+    }
+
+    /**
+     * @return the quantity the account has resting in the book
+     */
+    public long getOpenQuantity(int accountId) {
+        return accountId > 0 && accountId < this.openQuantity.length ? this.openQuantity[accountId] : 0;
+    }
+
+    /**
+     * @return the notional, quantity times price in ticks, the account has resting in the book
+     */
+    public long getOpenNotional(int accountId) {
+        return accountId > 0 && accountId < this.openNotional.length ? this.openNotional[accountId] : 0;
+    }
+
+    /**
+     * Checks a new order against the book it is about to enter. The order's whole quantity counts towards its
+     * account's limits, whatever its time in force; a market order's notional is taken at the best opposite price.
+     *
+     * @param order the new order
+     * @param book  the book the order is for
+     * @return why the order must be rejected, or null if it passes
+     */
+    public RejectReason check(Order order, OrderBook book) {
+        boolean buy = order.getSide() == Side.BUY;
+        boolean market = order.getOrderType() == OrderType.MARKET;
+        Order oppositeBest = book.bestOrder(buy ? Side.SELL : Side.BUY);
+
+        if (this.priceBandBasisPoints > 0 && !market) {
+            Order reference = oppositeBest != null ? oppositeBest : book.bestOrder(order.getSide());
+            if (reference != null && outsideBand(order.getPrice(), reference.getPrice())) {
+                return RejectReason.PRICE_BAND;
+            }
+        }
+
+        int accountId = order.getAccountId();
+        if (accountId <= 0 || accountId >= this.openQuantity.length) {
+            return null; // Not tagged, or an account with no limits and nothing resting
+        }
+        long quantity = order.getQuantity();
+        if (this.openQuantity[accountId] + quantity > this.maxOpenQuantity[accountId]) {
+            return RejectReason.OPEN_QUANTITY_LIMIT;
+        }
+        long price = market ? (oppositeBest == null ? 0 : oppositeBest.getPrice()) : order.getPrice();
+        if (this.openNotional[accountId] + quantity * price > this.maxOpenNotional[accountId]) {
+            return RejectReason.NOTIONAL_LIMIT;
+        }
+        if (this.selfTradePrevention && (buy ? this.restingSellOrders : this.restingBuyOrders)[accountId] > 0
+                && this.selfTradeCheck.wouldSelfTrade(order, book)) {
+            return RejectReason.SELF_TRADE;
+        }
+        return null;
+    }
+
+    /**
+     * Checks an amendment of a resting order. Only an increase in quantity can breach a limit.
+     *
+     * @param order       the resting order
+     * @param newQuantity its new quantity, including any hidden quantity
+     * @return why the amendment must be rejected, or null if it passes
+     */
+    public RejectReason checkAmend(Order order, int newQuantity) {
+        int accountId = order.getAccountId();
+        long increase = newQuantity - openQuantity(order);
+        if (accountId <= 0 || accountId >= this.openQuantity.length || increase <= 0) {
+            return null;
+        }
+        if (this.openQuantity[accountId] + increase > this.maxOpenQuantity[accountId]) {
+            return RejectReason.OPEN_QUANTITY_LIMIT;
+        }
+        if (this.openNotional[accountId] + increase * order.getPrice() > this.maxOpenNotional[accountId]) {
+            return RejectReason.NOTIONAL_LIMIT;
+        }
+        return null;
+    }
+
+    /**
+     * Adds an order that rested in the book to its account's exposure.
+     *
+     * @param order    the order
+     * @param quantity the quantity that rested
+     */
+    public void onRested(Order order, int quantity) {
+        int accountId = order.getAccountId();
+        if (accountId <= 0) {
+            return;
+        }
+        ensureCapacity(accountId);
+        this.openQuantity[accountId] += quantity;
+        this.openNotional[accountId] += quantity * order.getPrice();
+        if (order.getSide() == Side.BUY) {
+            this.restingBuyOrders[accountId]++;
+        } else {
+            this.restingSellOrders[accountId]++;
+        }
+    }
+
+    /**
+     * Removes the traded quantity of a resting order from its account's exposure.
+     *
+     * @param order    the resting order, with its quantity already reduced by the fill
+     * @param quantity the traded quantity
+     */
+    public void onFilled(Order order, int quantity) {
+        release(order, quantity, order.getQuantity() == 0);
+    }
+
+    /**
+     * Removes a cancelled order from its account's exposure.
+     *
+     * @param order the order, with the quantity it had when it was cancelled
+     */
+    public void onCancelled(Order order) {
+        release(order, openQuantity(order), true);
+    }
+
+    /**
+     * Adjusts an account's exposure for an amended order.
+     *
+     * @param order            the order, with its new quantity
+     * @param previousQuantity its quantity before the amendment, including any hidden quantity
+     */
+    public void onAmended(Order order, int previousQuantity) {
+        int accountId = order.getAccountId();
+        if (accountId <= 0) {
+            return;
+        }
+        long delta = openQuantity(order) - previousQuantity;
+        this.openQuantity[accountId] += delta;
+        this.openNotional[accountId] += delta * order.getPrice();
+    }
+
+    /**
+     * Recomputes every account's exposure from the orders resting in a book, e.g. after it was loaded from a
+     * snapshot without going through the engine.
+     *
+     * @param book the book
+     */
+    public void rebuild(OrderBook book) {
+        Arrays.fill(this.openQuantity, 0);
+        Arrays.fill(this.openNotional, 0);
+        Arrays.fill(this.restingBuyOrders, 0);
+        Arrays.fill(this.restingSellOrders, 0);
+        book.forEachOrder(order -> onRested(order, openQuantity(order)));
+    }
+
+    private void release(Order order, int quantity, boolean removed) {
+        int accountId = order.getAccountId();
+        if (accountId <= 0) {
+            return;
+        }
+        this.openQuantity[accountId] -= quantity;
+        this.openNotional[accountId] -= (long) quantity * order.getPrice();
+        if (removed) {
+            if (order.getSide() == Side.BUY) {
+                this.restingBuyOrders[accountId]--;
+            } else {
+                this.restingSellOrders[accountId]--;
+            }
+        }
+    }
+
+    /**
+     * @return the quantity an order has open in the book, including the hidden quantity of an iceberg order
+     */
+    private static int openQuantity(Order order) {
+        return order.getQuantity() + order.getHiddenQuantity();
+    }
+
+    private boolean outsideBand(long price, long referencePrice) {
+        return Math.abs(price - referencePrice) * BASIS_POINTS > referencePrice * this.priceBandBasisPoints;
+    }
+
+    private void ensureCapacity(int accountId) {
+        if (accountId < this.openQuantity.length) {
+            return;
+        }
+        int previous = this.openQuantity.length;
+        int capacity = Math.max(accountId + 1, Math.max(INITIAL_ACCOUNTS, previous * 2));
+        this.maxOpenQuantity = Arrays.copyOf(this.maxOpenQuantity, capacity);
+        this.maxOpenNotional = Arrays.copyOf(this.maxOpenNotional, capacity);
+        this.openQuantity = Arrays.copyOf(this.openQuantity, capacity);
+        this.openNotional = Arrays.copyOf(this.openNotional, capacity);
+        this.restingBuyOrders = Arrays.copyOf(this.restingBuyOrders, capacity);
+        this.restingSellOrders = Arrays.copyOf(this.restingSellOrders, capacity);
+        Arrays.fill(this.maxOpenQuantity, previous, capacity, Long.MAX_VALUE);
+        Arrays.fill(this.maxOpenNotional, previous, capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Walks the opposite side of the book from the best price through the levels an order crosses, looking for
+     * an order of the same account.
+     */
+    private static final class SelfTradeCheck implements Predicate<Order> {
+        private Order order;
+        private boolean found;
+
+        boolean wouldSelfTrade(Order order, OrderBook book) {
+            this.order = order;
+            this.found = false;
+            book.forEachOrder(order.getSide() == Side.BUY ? Side.SELL : Side.BUY, this);
+            this.order = null;
+            return this.found;
+        }
+
+        @Override
+        public boolean test(Order resting) {
+            if (this.order.getOrderType() != OrderType.MARKET && (this.order.getSide() == Side.BUY
+                    ? resting.getPrice() > this.order.getPrice() : resting.getPrice() < this.order.getPrice())) {
+                return false; // Past the last crossing level
+            }
+            this.found = resting.getAccountId() == this.order.getAccountId();
+            return !this.found;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * Flyweight that reads a new order, cancel or amendment in place from a buffer. Wrapping a message only checks
+ * its header; each getter reads its field straight from the buffer, so decoding copies and allocates nothing.
+ * The decoder can be reused for any number of messages.
+ */
+public final class CommandDecoder {
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int templateId;
+
+    /**
+     * Points the decoder at a command.
+     *
+     * @param buffer the buffer holding the command
+     * @param offset the offset of the command's header
+     * @return this decoder
+     * @throws IllegalArgumentException if the message is not a well-formed command
+     */
+    public CommandDecoder wrap(ByteBuffer buffer, int offset) {
+        ByteBuffer view = littleEndian(buffer);
+        int templateId = checkHeader(view, offset, 0);
+        if (templateId == EXECUTION_REPORT) {
+            throw new IllegalArgumentException("Message with template ID " + templateId + " is not a command.");
+        }
+        if (templateId == NEW_ORDER) {
+            int body = offset + HEADER_LENGTH;
+            if (Byte.toUnsignedInt(view.get(body + SIDE_OFFSET)) > 1
+                    || Byte.toUnsignedInt(view.get(body + ORDER_TYPE_OFFSET)) >= ORDER_TYPES.length
+                    || Byte.toUnsignedInt(view.get(body + TIME_IN_FORCE_OFFSET)) >= TIMES_IN_FORCE.length) {
+                throw new IllegalArgumentException("Message with template ID " + templateId + " is malformed.");
+            }
+        }
+        this.buffer = view;
+        this.offset = offset;
+        this.templateId = templateId;
+        return this;
+    }
+
+    /**
+     * @return {@link WireFormat#NEW_ORDER}, {@link WireFormat#CANCEL} or {@link WireFormat#AMEND}
+     */
+    public int getTemplateId() {
+        return this.templateId;
+    }
+
+    /**
+     * @return the length of the command including its header
+     */
+    public int getEncodedLength() {
+        return HEADER_LENGTH + Short.toUnsignedInt(this.buffer.getShort(this.offset + BLOCK_LENGTH_OFFSET));
+    }
+
+    public long getOrderId() {
+        return this.buffer.getLong(this.offset + HEADER_LENGTH + ORDER_ID_OFFSET);
+    }
+
+    /**
+     * @return for a new order, its price in ticks
+     */
+    public long getPrice() {
+        return this.buffer.getLong(this.offset + HEADER_LENGTH + PRICE_OFFSET);
+    }
+
+    /**
+     * @return for a new order, its quantity; for an amendment, the new quantity
+     */
+    public int getQuantity() {
+        int fieldOffset = this.templateId == AMEND ? AMEND_QUANTITY_OFFSET : QUANTITY_OFFSET;
+        return this.buffer.getInt(this.offset + HEADER_LENGTH + fieldOffset);
+    }
+
+    public int getAccountId() {
+        return this.buffer.getInt(this.offset + HEADER_LENGTH + ACCOUNT_ID_OFFSET);
+    }
+
+    public Side getSide() {
+        return this.buffer.get(this.offset + HEADER_LENGTH + SIDE_OFFSET) == 0 ? Side.BUY : Side.SELL;
+    }
+
+    public OrderType getOrderType() {
+        return ORDER_TYPES[this.buffer.get(this.offset + HEADER_LENGTH + ORDER_TYPE_OFFSET)];
+    }
+
+    public TimeInForce getTimeInForce() {
+        return TIMES_IN_FORCE[this.buffer.get(this.offset + HEADER_LENGTH + TIME_IN_FORCE_OFFSET)];
+    }
+
+    public boolean isPostOnly() {
+        return (this.buffer.get(this.offset + HEADER_LENGTH + FLAGS_OFFSET) & POST_ONLY_FLAG) != 0;
+    }
+
+    public int getDisplayQuantity() {
+        return this.buffer.getInt(this.offset + HEADER_LENGTH + DISPLAY_QUANTITY_OFFSET);
+    }
+
+    public long getStopPrice() {
+        return this.buffer.getLong(this.offset + HEADER_LENGTH + STOP_PRICE_OFFSET);
+    }
+}
@@ -0,0 +1,89 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * Applies binary commands to a matching engine. Cancels and amendments go straight from the decoded fields to the
+ * engine. New orders are filled into orders taken from a pool rather than allocated: orders that do not rest go
+ * straight back to the pool, and the engine recycles resting orders once they are filled or cancelled. In the
+ * steady state, decoding and applying a command allocates nothing.
+ * Must only be used by the engine's writer thread.
+ */
+public class CommandDispatcher {
+    private final MatchingEngine engine;
+
+    private final OrderPool orderPool;
+
+    private final CommandDecoder decoder = new CommandDecoder();
+
+    /**
+     * @param engine    the engine to apply commands to; its order pool is set to {@code orderPool}
+     * @param orderPool the pool new orders are taken from
+     */
+    public CommandDispatcher(MatchingEngine engine, OrderPool orderPool) {
+        this.engine = engine;
+        this.orderPool = orderPool;
+        engine.setOrderPool(orderPool);
+    }
+
+    /**
+     * Decodes one command from a buffer and applies it.
+     *
+     * @param buffer the buffer holding the command
+     * @param offset the offset of the command's header
+     * @return the length of the command
+     * @throws IllegalArgumentException if the command is malformed or the engine refuses it
+     */
+    public int dispatch(ByteBuffer buffer, int offset) {
+        CommandDecoder command = this.decoder.wrap(buffer, offset);
+        dispatch(command);
+        return command.getEncodedLength();
+    }
+
+    /**
+     * Applies a command that has already been decoded.
+     *
+     * @param command the decoder wrapping the command
+     * @throws IllegalArgumentException if the engine refuses the command
+     */
+    public void dispatch(CommandDecoder command) {
+        switch (command.getTemplateId()) {
+            case NEW_ORDER:
+                executeNewOrder(command);
+                break;
+            case CANCEL:
+                this.engine.cancel(command.getOrderId());
+                break;
+            case AMEND:
+                this.engine.amend(command.getOrderId(), command.getQuantity());
+                break;
+            default:
+                throw new IllegalArgumentException("Message with template ID " + command.getTemplateId() + " is not a command.");
+        }
+    }
+
+    private void executeNewOrder(CommandDecoder command) {
+        Order order = this.orderPool.acquire(command.getOrderId(), command.getQuantity(), command.getPrice(), command.getSide());
+        order.setAccountId(command.getAccountId());
+        order.setOrderType(command.getOrderType());
+        order.setTimeInForce(command.getTimeInForce());
+        order.setPostOnly(command.isPostOnly());
+        order.setDisplayQuantity(command.getDisplayQuantity());
+        order.setStopPrice(command.getStopPrice());
+        try {
+            this.engine.execute(order);
+        } catch (IllegalArgumentException e) {
+            this.orderPool.release(order);
+            throw e;
+        }
+        if (order.getQuantity() == 0) {
+            this.orderPool.release(order); // Filled, cancelled or rejected, never rested
+        }
+    }
+}
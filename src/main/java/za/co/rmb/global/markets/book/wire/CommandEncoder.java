@@ -0,0 +1,93 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * Flyweight that writes new orders, cancels and amendments into a buffer, e.g. on the client side of a gateway.
+ * Fields are written in place at their fixed offsets and nothing is allocated.
+ */
+public final class CommandEncoder {
+    private ByteBuffer buffer;
+    private int offset;
+
+    /**
+     * Points the encoder at the position the next command is written to.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the offset to write the command's header at
+     * @return this encoder
+     */
+    public CommandEncoder wrap(ByteBuffer buffer, int offset) {
+        this.buffer = littleEndian(buffer);
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Writes a new order that is neither an iceberg nor a stop order.
+     *
+     * @return the length of the encoded command
+     */
+    public int encodeNewOrder(long orderId, Side side, long price, int quantity, int accountId,
+                              OrderType orderType, TimeInForce timeInForce, boolean postOnly) {
+        putHeader(this.buffer, this.offset, NEW_ORDER, NEW_ORDER_BLOCK_LENGTH);
+        int body = this.offset + HEADER_LENGTH;
+        this.buffer.putLong(body + ORDER_ID_OFFSET, orderId);
+        this.buffer.putLong(body + PRICE_OFFSET, price);
+        this.buffer.putInt(body + QUANTITY_OFFSET, quantity);
+        this.buffer.putInt(body + ACCOUNT_ID_OFFSET, accountId);
+        this.buffer.put(body + SIDE_OFFSET, (byte) side.ordinal());
+        this.buffer.put(body + ORDER_TYPE_OFFSET, (byte) orderType.ordinal());
+        this.buffer.put(body + TIME_IN_FORCE_OFFSET, (byte) timeInForce.ordinal());
+        this.buffer.put(body + FLAGS_OFFSET, postOnly ? POST_ONLY_FLAG : 0);
+        this.buffer.putInt(body + DISPLAY_QUANTITY_OFFSET, 0);
+        this.buffer.putLong(body + STOP_PRICE_OFFSET, 0);
+        return HEADER_LENGTH + NEW_ORDER_BLOCK_LENGTH;
+    }
+
+    /**
+     * Writes a new order with the fields of an order object, including its display quantity and stop price.
+     *
+     * @return the length of the encoded command
+     */
+    public int encodeNewOrder(Order order) {
+        int length = encodeNewOrder(order.getOrderId(), order.getSide(), order.getPrice(), order.getQuantity(),
+                order.getAccountId(), order.getOrderType(), order.getTimeInForce(), order.isPostOnly());
+        int body = this.offset + HEADER_LENGTH;
+        this.buffer.putInt(body + DISPLAY_QUANTITY_OFFSET, order.getDisplayQuantity());
+        this.buffer.putLong(body + STOP_PRICE_OFFSET, order.getStopPrice());
+        return length;
+    }
+
+    /**
+     * Writes a cancel.
+     *
+     * @return the length of the encoded command
+     */
+    public int encodeCancel(long orderId) {
+        putHeader(this.buffer, this.offset, CANCEL, CANCEL_BLOCK_LENGTH);
+        this.buffer.putLong(this.offset + HEADER_LENGTH + ORDER_ID_OFFSET, orderId);
+        return HEADER_LENGTH + CANCEL_BLOCK_LENGTH;
+    }
+
+    /**
+     * Writes a quantity amendment.
+     *
+     * @return the length of the encoded command
+     */
+    public int encodeAmend(long orderId, int newQuantity) {
+        putHeader(this.buffer, this.offset, AMEND, AMEND_BLOCK_LENGTH);
+        int body = this.offset + HEADER_LENGTH;
+        this.buffer.putLong(body + ORDER_ID_OFFSET, orderId);
+        this.buffer.putInt(body + AMEND_QUANTITY_OFFSET, newQuantity);
+        this.buffer.putInt(body + AMEND_QUANTITY_OFFSET + 4, 0);
+        return HEADER_LENGTH + AMEND_BLOCK_LENGTH;
+    }
+}
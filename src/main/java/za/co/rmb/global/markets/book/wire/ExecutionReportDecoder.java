@@ -0,0 +1,84 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * Flyweight that reads an execution report in place from a buffer. Each getter reads its field straight from
+ * the buffer, so decoding copies and allocates nothing. The decoder can be reused for any number of reports.
+ */
+public final class ExecutionReportDecoder {
+    private static final ExecutionEvent.Type[] TYPES = ExecutionEvent.Type.values();
+    private static final RejectReason[] REJECT_REASONS = RejectReason.values();
+
+    private ByteBuffer buffer;
+    private int body;
+
+    /**
+     * Points the decoder at a report.
+     *
+     * @param buffer the buffer holding the report
+     * @param offset the offset of the report's header
+     * @return this decoder
+     * @throws IllegalArgumentException if the message is not a well-formed execution report
+     */
+    public ExecutionReportDecoder wrap(ByteBuffer buffer, int offset) {
+        ByteBuffer view = littleEndian(buffer);
+        checkHeader(view, offset, EXECUTION_REPORT);
+        this.buffer = view;
+        this.body = offset + HEADER_LENGTH;
+        return this;
+    }
+
+    /**
+     * @return the engine's sequence number of the event, or 0 for a command refused before reaching the engine
+     */
+    public long getSequence() {
+        return this.buffer.getLong(this.body + REPORT_SEQUENCE_OFFSET);
+    }
+
+    public ExecutionEvent.Type getType() {
+        return TYPES[this.buffer.get(this.body + REPORT_TYPE_OFFSET)];
+    }
+
+    public long getOrderId() {
+        return this.buffer.getLong(this.body + REPORT_ORDER_ID_OFFSET);
+    }
+
+    public Side getSide() {
+        return this.buffer.get(this.body + REPORT_SIDE_OFFSET) == 0 ? Side.BUY : Side.SELL;
+    }
+
+    public long getPrice() {
+        return this.buffer.getLong(this.body + REPORT_PRICE_OFFSET);
+    }
+
+    public int getQuantity() {
+        return this.buffer.getInt(this.body + REPORT_QUANTITY_OFFSET);
+    }
+
+    public int getLeavesQuantity() {
+        return this.buffer.getInt(this.body + REPORT_LEAVES_QUANTITY_OFFSET);
+    }
+
+    public long getRestingOrderId() {
+        return this.buffer.getLong(this.body + REPORT_RESTING_ORDER_ID_OFFSET);
+    }
+
+    public int getRestingLeavesQuantity() {
+        return this.buffer.getInt(this.body + REPORT_RESTING_LEAVES_QUANTITY_OFFSET);
+    }
+
+    /**
+     * @return for a rejection, why the order was rejected, or null if no reason was given
+     */
+    public RejectReason getRejectReason() {
+        int reason = this.buffer.get(this.body + REPORT_REJECT_REASON_OFFSET);
+        return reason == 0 ? null : REJECT_REASONS[reason - 1];
+    }
+}
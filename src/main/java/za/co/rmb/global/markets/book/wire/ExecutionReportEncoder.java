@@ -0,0 +1,81 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.nio.ByteBuffer;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * Flyweight that writes execution reports into a buffer straight from the engine's {@link ExecutionEvent}s.
+ * Fields are written in place at their fixed offsets and nothing is allocated.
+ */
+public final class ExecutionReportEncoder {
+    private ByteBuffer buffer;
+    private int offset;
+
+    /**
+     * Points the encoder at the position the next report is written to.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the offset to write the report's header at
+     * @return this encoder
+     */
+    public ExecutionReportEncoder wrap(ByteBuffer buffer, int offset) {
+        this.buffer = littleEndian(buffer);
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Writes a report of an engine event.
+     *
+     * @param event the event, which is only read during the call
+     * @return the length of the encoded report
+     */
+    public int encode(ExecutionEvent event) {
+        int body = putReportHeader();
+        this.buffer.putLong(body + REPORT_SEQUENCE_OFFSET, event.getSequence());
+        this.buffer.putLong(body + REPORT_ORDER_ID_OFFSET, event.getOrderId());
+        this.buffer.putLong(body + REPORT_PRICE_OFFSET, event.getPrice());
+        this.buffer.putLong(body + REPORT_RESTING_ORDER_ID_OFFSET, event.getRestingOrderId());
+        this.buffer.putInt(body + REPORT_QUANTITY_OFFSET, event.getQuantity());
+        this.buffer.putInt(body + REPORT_LEAVES_QUANTITY_OFFSET, event.getLeavesQuantity());
+        this.buffer.putInt(body + REPORT_RESTING_LEAVES_QUANTITY_OFFSET, event.getRestingLeavesQuantity());
+        this.buffer.put(body + REPORT_TYPE_OFFSET, (byte) event.getType().ordinal());
+        this.buffer.put(body + REPORT_SIDE_OFFSET, (byte) event.getSide().ordinal());
+        RejectReason rejectReason = event.getRejectReason();
+        this.buffer.put(body + REPORT_REJECT_REASON_OFFSET, (byte) (rejectReason == null ? 0 : rejectReason.ordinal() + 1));
+        this.buffer.put(body + REPORT_REJECT_REASON_OFFSET + 1, (byte) 0);
+        return HEADER_LENGTH + EXECUTION_REPORT_BLOCK_LENGTH;
+    }
+
+    /**
+     * Writes a report that a command was refused before the engine emitted any event for it, e.g. a cancel of an
+     * unknown order. The report has type {@link ExecutionEvent.Type#REJECTED}, no sequence number and no reason.
+     *
+     * @param orderId the order ID the command was for
+     * @return the length of the encoded report
+     */
+    public int encodeRejection(long orderId) {
+        int body = putReportHeader();
+        this.buffer.putLong(body + REPORT_SEQUENCE_OFFSET, 0);
+        this.buffer.putLong(body + REPORT_ORDER_ID_OFFSET, orderId);
+        this.buffer.putLong(body + REPORT_PRICE_OFFSET, 0);
+        this.buffer.putLong(body + REPORT_RESTING_ORDER_ID_OFFSET, 0);
+        this.buffer.putInt(body + REPORT_QUANTITY_OFFSET, 0);
+        this.buffer.putInt(body + REPORT_LEAVES_QUANTITY_OFFSET, 0);
+        this.buffer.putInt(body + REPORT_RESTING_LEAVES_QUANTITY_OFFSET, 0);
+        this.buffer.put(body + REPORT_TYPE_OFFSET, (byte) ExecutionEvent.Type.REJECTED.ordinal());
+        this.buffer.put(body + REPORT_SIDE_OFFSET, (byte) Side.BUY.ordinal());
+        this.buffer.putShort(body + REPORT_REJECT_REASON_OFFSET, (short) 0);
+        return HEADER_LENGTH + EXECUTION_REPORT_BLOCK_LENGTH;
+    }
+
+    private int putReportHeader() {
+        putHeader(this.buffer, this.offset, EXECUTION_REPORT, EXECUTION_REPORT_BLOCK_LENGTH);
+        return this.offset + HEADER_LENGTH;
+    }
+}
@@ -0,0 +1,267 @@
+package za.co.rmb.global.markets.book.wire;
+
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import static za.co.rmb.global.markets.book.wire.WireFormat.*;
+
+/**
+ * A TCP gateway that accepts binary commands and answers with binary execution reports, e.g. on the loopback
+ * interface for tests.
+ * <p>
+ * A single thread runs a selector over every connection and applies commands to the engine, so the gateway thread
+ * is the engine's single writer. Commands are decoded in place from each connection's direct input buffer and
+ * applied by a {@link CommandDispatcher}; the reports for the events a command causes, trades included, are encoded
+ * straight into the output buffer of the connection that sent the command. A command the engine refuses with an
+ * exception, such as a cancel of an unknown order, and a message that cannot be decoded are answered with a rejection
+ * report. Commands are only applied while there is room for their reports, so a client that does not read its
+ * reports holds up its own commands and nobody else's.
+ */
+public class TcpGateway implements AutoCloseable {
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private static final int REPORT_LENGTH = HEADER_LENGTH + EXECUTION_REPORT_BLOCK_LENGTH;
+
+    /**
+     * Room left in a connection's output buffer below which no further command is applied until reports are written.
+     */
+    private static final int OUTPUT_HEADROOM = 32 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final CommandDispatcher dispatcher;
+
+    private final CommandDecoder decoder = new CommandDecoder();
+
+    private final ExecutionReportEncoder reportEncoder = new ExecutionReportEncoder();
+
+    private final Thread thread;
+
+    private volatile boolean running;
+
+    /**
+     * The connection whose command is being applied, which receives the reports of the events it causes.
+     */
+    private Session currentSession;
+
+    /**
+     * Opens a gateway in front of an engine. The gateway takes over the engine's execution listener and order
+     * pool, and from {@link #start()} the engine must only be used by the gateway.
+     *
+     * @param engine    the engine to apply commands to
+     * @param orderPool the pool new orders are taken from
+     * @param address   the address to listen on; port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public TcpGateway(MatchingEngine engine, OrderPool orderPool, InetSocketAddress address) throws IOException {
+        this.dispatcher = new CommandDispatcher(engine, orderPool);
+        engine.setExecutionListener(this::onExecutionEvent);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::run, "tcp-gateway");
+    }
+
+    /**
+     * @return the address the gateway listens on
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) this.serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Starts accepting connections and applying their commands.
+     */
+    public void start() {
+        this.running = true;
+        this.thread.start();
+    }
+
+    /**
+     * Wakes the selector so the gateway thread leaves its loop, waits for it to finish the commands it is applying,
+     * and then closes the listening socket, every client connection and the selector. Reports not yet written to a
+     * client are dropped. An interrupt cuts the wait short but not the closing, and is passed on to the caller.
+     */
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.selector.wakeup();
+        if (this.thread.isAlive()) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : this.selector.keys()) {
+            key.channel().close();
+        }
+        this.selector.close();
+    }
+
+    private void run() {
+        try {
+            while (this.running) {
+                this.selector.select();
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable() || key.isWritable()) {
+                            service(key);
+                        }
+                    } catch (IOException e) {
+                        key.channel().close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Gateway selector failed.", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = this.serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(this.selector, SelectionKey.OP_READ, new Session(channel));
+        }
+    }
+
+    /**
+     * Reads whatever has arrived on a connection, applies the whole commands received so far and writes the reports.
+     * Commands are only applied while the output buffer has room to spare, so a client that sends faster than it
+     * reads is slowed down rather than dropped; the rest are applied once the reports have been written.
+     */
+    private void service(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Session session = (Session) key.attachment();
+        if (key.isReadable() && channel.read(session.input) < 0) {
+            channel.close();
+            return;
+        }
+
+        do {
+            applyCommands(session);
+            if (session.overflowed) {
+                channel.close(); // The client stopped reading while a command's reports were being written
+                return;
+            }
+            write(session);
+        } while (session.output.remaining() >= OUTPUT_HEADROOM
+                && frameLength(session.input, 0, session.input.position()) > 0);
+
+        int interestOps = 0;
+        if (session.input.hasRemaining()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        if (session.output.position() > 0) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(interestOps);
+    }
+
+    /**
+     * Applies the whole commands in a session's input buffer while its output buffer has room to spare.
+     */
+    private void applyCommands(Session session) {
+        ByteBuffer input = session.input.flip();
+        this.currentSession = session;
+        try {
+            int length;
+            while (session.output.remaining() >= OUTPUT_HEADROOM
+                    && (length = frameLength(input, input.position(), input.remaining())) > 0) {
+                apply(session, input.position());
+                input.position(input.position() + length);
+            }
+        } finally {
+            this.currentSession = null;
+            input.compact();
+        }
+    }
+
+    private void apply(Session session, int offset) {
+        CommandDecoder command;
+        try {
+            command = this.decoder.wrap(session.input, offset);
+        } catch (IllegalArgumentException e) {
+            writeRejection(session, 0);
+            return;
+        }
+        try {
+            this.dispatcher.dispatch(command);
+        } catch (IllegalArgumentException e) {
+            writeRejection(session, command.getOrderId());
+        }
+    }
+
+    private void onExecutionEvent(ExecutionEvent event) {
+        Session session = this.currentSession;
+        if (session != null && reserveReport(session)) {
+            ByteBuffer output = session.output;
+            output.position(output.position() + this.reportEncoder.wrap(output, output.position()).encode(event));
+        }
+    }
+
+    private void writeRejection(Session session, long orderId) {
+        if (reserveReport(session)) {
+            ByteBuffer output = session.output;
+            output.position(output.position() + this.reportEncoder.wrap(output, output.position()).encodeRejection(orderId));
+        }
+    }
+
+    /**
+     * Makes room for another report in a session's output buffer, writing out what it holds if it is full.
+     *
+     * @return true if there is room for another report
+     */
+    private boolean reserveReport(Session session) {
+        if (!session.overflowed && session.output.remaining() < REPORT_LENGTH) {
+            try {
+                write(session);
+            } catch (IOException e) {
+                session.overflowed = true;
+            }
+            session.overflowed |= session.output.remaining() < REPORT_LENGTH;
+        }
+        return !session.overflowed;
+    }
+
+    private static void write(Session session) throws IOException {
+        ByteBuffer output = session.output.flip();
+        session.channel.write(output);
+        output.compact();
+    }
+
+    /**
+     * The channel and buffers of one connection. Both buffers stay in write mode between calls.
+     */
+    private static final class Session {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private boolean overflowed;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package za.co.rmb.global.markets.book.wire;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of the wire protocol, shared by its encoders and decoders.
+ * <p>
+ * Messages use a fixed layout in the style of Simple Binary Encoding: an {@value #HEADER_LENGTH}-byte header
+ * followed by a fixed-length block of little-endian fields at fixed offsets, so every field is read or written
+ * in place without parsing. The header carries the block length, so a message's length is known from its header
+ * and messages can be framed on a byte stream. Decoders accept longer blocks than they know, so fields can be
+ * appended to a message later.
+ * <pre>
+ * header           offset  size  field
+ *                       0     2  block length
+ *                       2     2  template ID
+ *                       4     2  schema ID
+ *                       6     2  schema version
+ *
+ * new order (1)         0     8  order ID
+ *                       8     8  price in ticks
+ *                      16     4  quantity
+ *                      20     4  account ID
+ *                      24     1  side (0 = BUY, 1 = SELL)
+ *                      25     1  order type (0 = LIMIT, 1 = MARKET)
+ *                      26     1  time in force (0 = GTC, 1 = IOC, 2 = FOK)
+ *                      27     1  flags (bit 0 = post-only)
+ *                      28     4  display quantity of an iceberg order (0 = not an iceberg)
+ *                      32     8  stop price in ticks (0 = not a stop order)
+ *
+ * cancel (2)            0     8  order ID
+ *
+ * amend (3)             0     8  order ID
+ *                       8     4  new quantity
+ *                      12     4  reserved
+ *
+ * execution report (4)  0     8  event sequence number
+ *                       8     8  order ID
+ *                      16     8  price in ticks
+ *                      24     8  resting order ID
+ *                      32     4  quantity
+ *                      36     4  leaves quantity
+ *                      40     4  resting leaves quantity
+ *                      44     1  event type (ordinal of ExecutionEvent.Type)
+ *                      45     1  side (0 = BUY, 1 = SELL)
+ *                      46     1  reject reason (0 = none, otherwise ordinal of RejectReason + 1)
+ *                      47     1  reserved
+ * </pre>
+ */
+public final class WireFormat {
+    static final int SCHEMA_ID = 1;
+    static final int SCHEMA_VERSION = 2;
+
+    static final int BLOCK_LENGTH_OFFSET = 0;
+    static final int TEMPLATE_ID_OFFSET = 2;
+    static final int SCHEMA_ID_OFFSET = 4;
+    static final int SCHEMA_VERSION_OFFSET = 6;
+    public static final int HEADER_LENGTH = 8;
+
+    public static final int NEW_ORDER = 1;
+    public static final int CANCEL = 2;
+    public static final int AMEND = 3;
+    public static final int EXECUTION_REPORT = 4;
+
+    static final int ORDER_ID_OFFSET = 0;
+    static final int PRICE_OFFSET = 8;
+    static final int QUANTITY_OFFSET = 16;
+    static final int ACCOUNT_ID_OFFSET = 20;
+    static final int SIDE_OFFSET = 24;
+    static final int ORDER_TYPE_OFFSET = 25;
+    static final int TIME_IN_FORCE_OFFSET = 26;
+    static final int FLAGS_OFFSET = 27;
+    static final int DISPLAY_QUANTITY_OFFSET = 28;
+    static final int STOP_PRICE_OFFSET = 32;
+    static final int NEW_ORDER_BLOCK_LENGTH = 40;
+
+    static final int CANCEL_BLOCK_LENGTH = 8;
+
+    static final int AMEND_QUANTITY_OFFSET = 8;
+    static final int AMEND_BLOCK_LENGTH = 16;
+
+    static final int REPORT_SEQUENCE_OFFSET = 0;
+    static final int REPORT_ORDER_ID_OFFSET = 8;
+    static final int REPORT_PRICE_OFFSET = 16;
+    static final int REPORT_RESTING_ORDER_ID_OFFSET = 24;
+    static final int REPORT_QUANTITY_OFFSET = 32;
+    static final int REPORT_LEAVES_QUANTITY_OFFSET = 36;
+    static final int REPORT_RESTING_LEAVES_QUANTITY_OFFSET = 40;
+    static final int REPORT_TYPE_OFFSET = 44;
+    static final int REPORT_SIDE_OFFSET = 45;
+    static final int REPORT_REJECT_REASON_OFFSET = 46;
+    static final int EXECUTION_REPORT_BLOCK_LENGTH = 48;
+
+    static final byte POST_ONLY_FLAG = 1;
+
+    private WireFormat() {
+    }
+
+    /**
+     * Works out whether a whole message is available at an offset, e.g. to frame messages read from a stream.
+     *
+     * @param buffer    the buffer holding the message, in little-endian byte order
+     * @param offset    the offset of the message header
+     * @param available the number of bytes available from the offset
+     * @return the length of the message including its header, or 0 if not all of it is available yet
+     */
+    public static int frameLength(ByteBuffer buffer, int offset, int available) {
+        if (available < HEADER_LENGTH) {
+            return 0;
+        }
+        int length = HEADER_LENGTH + Short.toUnsignedInt(buffer.getShort(offset + BLOCK_LENGTH_OFFSET));
+        return length <= available ? length : 0;
+    }
+
+    /**
+     * Returns a little-endian view of a buffer, which is the buffer itself unless it uses another byte order.
+     */
+    static ByteBuffer littleEndian(ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void putHeader(ByteBuffer buffer, int offset, int templateId, int blockLength) {
+        buffer.putShort(offset + BLOCK_LENGTH_OFFSET, (short) blockLength);
+        buffer.putShort(offset + TEMPLATE_ID_OFFSET, (short) templateId);
+        buffer.putShort(offset + SCHEMA_ID_OFFSET, (short) SCHEMA_ID);
+        buffer.putShort(offset + SCHEMA_VERSION_OFFSET, (short) SCHEMA_VERSION);
+    }
+
+    /**
+     * Checks the header of a message and returns its template ID.
+     *
+     * @throws IllegalArgumentException if the message is not of this schema or its block is too short for its template
+     */
+    static int checkHeader(ByteBuffer buffer, int offset, int expectedTemplateId) {
+        if (Short.toUnsignedInt(buffer.getShort(offset + SCHEMA_ID_OFFSET)) != SCHEMA_ID) {
+            throw new IllegalArgumentException("Message at offset " + offset + " is not of schema " + SCHEMA_ID + ".");
+        }
+        int templateId = Short.toUnsignedInt(buffer.getShort(offset + TEMPLATE_ID_OFFSET));
+        int blockLength = Short.toUnsignedInt(buffer.getShort(offset + BLOCK_LENGTH_OFFSET));
+        int requiredLength;
+        switch (templateId) {
+            case NEW_ORDER:
+                requiredLength = NEW_ORDER_BLOCK_LENGTH;
+                break;
+            case CANCEL:
+                requiredLength = CANCEL_BLOCK_LENGTH;
+                break;
+            case AMEND:
+                requiredLength = AMEND_BLOCK_LENGTH;
+                break;
+            case EXECUTION_REPORT:
+                requiredLength = EXECUTION_REPORT_BLOCK_LENGTH;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown template ID " + templateId + ".");
+        }
+        if ((expectedTemplateId != 0 && templateId != expectedTemplateId) || blockLength < requiredLength) {
+            throw new IllegalArgumentException("Message with template ID " + templateId + " is malformed.");
+        }
+        return templateId;
+    }
+}
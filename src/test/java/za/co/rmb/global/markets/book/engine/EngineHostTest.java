@@ -0,0 +1,123 @@
+package za.co.rmb.global.markets.book.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class EngineHostTest {
+
+    private static final String[] SYMBOLS = {"AAA", "BBB", "CCC", "DDD"};
+
+    // Assert that concurrent producers can hammer every instrument and each book ends up consistent
+    @Test
+    public void testConcurrentProducersAcrossInstruments() throws Exception {
+        List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+        EngineHost host = new EngineHost(2, errors::add);
+        Map<String, OrderBook> books = new ConcurrentHashMap<>();
+        for (String symbol : SYMBOLS) {
+            OrderBook book = new LimitOrderBook();
+            books.put(symbol, book);
+            host.addInstrument(symbol, book);
+        }
+        host.start();
+
+        // Every buy and sell is at the same price, so whatever the interleaving they all cross
+        List<Thread> producers = new ArrayList<>();
+        for (Side side : Side.values()) {
+            for (int p = 0; p < 2; p++) {
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        Order order = new Order(1, 100, side);
+                        order.setSymbol(SYMBOLS[i % SYMBOLS.length]);
+                        host.submit(order);
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        host.close();
+
+        Assertions.assertTrue(errors.isEmpty());
+        for (String symbol : SYMBOLS) {
+            Assertions.assertTrue(books.get(symbol).retrieveAllOrders().isEmpty(), "All orders for " + symbol + " should have crossed");
+        }
+    }
+
+    // Assert that cancels and amends are routed to the owning worker, and failures reach the error handler
+    @Test
+    public void testCancelAndAmendRouting() throws Exception {
+        List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+        EngineHost host = new EngineHost(2, errors::add);
+        OrderBook book = new LimitOrderBook();
+        host.addInstrument("AAA", book);
+        host.start();
+
+        Order cancelled = new Order(10, 100, Side.BUY);
+        cancelled.setSymbol("AAA");
+        Order amended = new Order(10, 101, Side.BUY);
+        amended.setSymbol("AAA");
+        host.submit(cancelled);
+        host.submit(amended);
+        host.cancel("AAA", cancelled.getOrderId());
+        host.amend("AAA", amended.getOrderId(), 4);
+        host.cancel("AAA", -1);
+        host.close();
+
+        Assertions.assertNull(book.retrieveOrderById(cancelled.getOrderId()));
+        Assertions.assertEquals(4, book.retrieveOrderById(amended.getOrderId()).getQuantity());
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertEquals("Order with ID -1 not found.", errors.get(0).getMessage());
+    }
+
+    // Test that orders for unknown instruments and late registrations are rejected
+    @Test
+    public void testRoutingErrors() throws Exception {
+        EngineHost host = new EngineHost(1, e -> { });
+        host.addInstrument("AAA", new LimitOrderBook());
+        host.start();
+
+        Order order = new Order(10, 100, Side.SELL);
+        order.setSymbol("ZZZ");
+        Exception unknown = Assertions.assertThrows(IllegalArgumentException.class, () -> host.submit(order));
+        Assertions.assertEquals("Instrument ZZZ is not registered.", unknown.getMessage());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> host.addInstrument("BBB", new LimitOrderBook()));
+        host.close();
+    }
+
+    // Assert that closing from an interrupted thread still stops every worker and leaves the interrupt set
+    @Test
+    public void testCloseWhenInterrupted() throws Exception {
+        EngineHost host = new EngineHost(3, e -> { });
+        host.addInstrument("AAA", new LimitOrderBook());
+        host.start();
+        List<Thread> workers = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("engine-worker-") && thread.isAlive()) {
+                workers.add(thread);
+            }
+        }
+        Assertions.assertEquals(3, workers.size());
+
+        Thread.currentThread().interrupt();
+        host.close();
+        Assertions.assertTrue(Thread.interrupted(), "The interrupt is restored");
+        for (Thread worker : workers) {
+            worker.join(5_000);
+            Assertions.assertFalse(worker.isAlive(), worker.getName() + " should have stopped");
+        }
+    }
+}
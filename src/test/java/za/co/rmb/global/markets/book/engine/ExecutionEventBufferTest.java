@@ -0,0 +1,44 @@
+package za.co.rmb.global.markets.book.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+
+public class ExecutionEventBufferTest {
+
+    // Assert that a consumer thread can batch-drain every event in order while the engine keeps matching
+    @Test
+    public void testDrainAcrossThreads() throws Exception {
+        ExecutionEventBuffer buffer = new ExecutionEventBuffer(64);
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        engine.setExecutionListener(buffer);
+
+        Thread engineThread = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                engine.execute(new Order(1, 100, i % 2 == 0 ? Side.BUY : Side.SELL));
+            }
+        });
+        engineThread.start();
+
+        // Each buy rests and each sell trades against it: ACCEPTED + RESTED, then ACCEPTED + TRADE
+        long[] counts = new long[ExecutionEvent.Type.values().length];
+        long[] lastSequence = {0};
+        boolean[] inOrder = {true};
+        while (engineThread.isAlive() || lastSequence[0] < 20_000) {
+            buffer.drain(event -> {
+                inOrder[0] &= event.getSequence() == lastSequence[0] + 1;
+                lastSequence[0] = event.getSequence();
+                counts[event.getType().ordinal()]++;
+            });
+        }
+        engineThread.join();
+
+        Assertions.assertTrue(inOrder[0], "Events should be drained in sequence order");
+        Assertions.assertEquals(10_000, counts[ExecutionEvent.Type.ACCEPTED.ordinal()]);
+        Assertions.assertEquals(5_000, counts[ExecutionEvent.Type.RESTED.ordinal()]);
+        Assertions.assertEquals(5_000, counts[ExecutionEvent.Type.TRADE.ordinal()]);
+        Assertions.assertEquals(0, buffer.drain(event -> { }));
+    }
+}
@@ -0,0 +1,45 @@
+package za.co.rmb.global.markets.book.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs every MatchingEngine scenario against the array-indexed ladder as well.
+public class LadderMatchingEngineTest extends MatchingEngineTest {
+
+    @Override
+    protected OrderBook createOrderBook() {
+        return new LadderOrderBook(0, 200);
+    }
+
+    // Assert that an order that could rest outside the ladder is rejected before it trades, while one that cannot rest still trades
+    @Test
+    public void testPriceOutsideLadderRejectedBeforeTrading() {
+        LadderOrderBook book = new LadderOrderBook(0, 200);
+        MatchingEngine engine = new MatchingEngine(book);
+        List<String> events = new ArrayList<>();
+        engine.setExecutionListener(event -> events.add(event.getType() + " " + event.getOrderId()
+                + (event.getRejectReason() == null ? "" : " " + event.getRejectReason())));
+        engine.execute(new Order(1, 10, 150, Side.SELL));
+
+        engine.execute(new Order(2, 30, 300, Side.BUY));
+        Assertions.assertEquals(10, book.bestOrder(Side.SELL).getQuantity());
+        Assertions.assertNull(book.retrieveOrderById(2));
+
+        Order immediate = new Order(3, 4, 300, Side.BUY);
+        immediate.setTimeInForce(TimeInForce.IOC);
+        engine.execute(immediate);
+        Assertions.assertEquals(6, book.bestOrder(Side.SELL).getQuantity());
+
+        Assertions.assertEquals(List.of("ACCEPTED 1", "RESTED 1", "REJECTED 2 " + RejectReason.PRICE_RANGE,
+                "ACCEPTED 3", "TRADE 3"), events);
+    }
+}
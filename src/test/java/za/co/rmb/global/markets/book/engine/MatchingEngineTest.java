@@ -4,20 +4,27 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
 import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
 import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+import za.co.rmb.global.markets.book.limit.PriceLevel;
+import za.co.rmb.global.markets.book.metrics.EngineMetrics;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class MatchingEngineTest {
 
-    private LimitOrderBook limitOrderBook;
+    private OrderBook limitOrderBook;
 
     private MatchingEngine matchingEngine;
 
     @BeforeEach
     void setUp() {
-        this.limitOrderBook = new LimitOrderBook();
+        this.limitOrderBook = createOrderBook();
         addBids();
         addAsks();
 
@@ -27,24 +34,24 @@ public class MatchingEngineTest {
     @Test
     public void testSellMatchDoesntExist() {
 
-        this.matchingEngine.execute(new Order(40, 35.0, Side.SELL));
+        this.matchingEngine.execute(new Order(40, 35, Side.SELL));
 
-        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(35.0);
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(35);
         Assertions.assertFalse(asksByPrice.isEmpty()); // Shouldn't exist since it only exists in the bids
 
-        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(35.0);
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(35);
         Assertions.assertTrue(bidsByPrice.isEmpty()); // Newly added bid
     }
 
     @Test
     public void testSellWhenBidExistsWithMoreBuys() {
-        this.matchingEngine.execute(new Order(90, 9.0, Side.SELL));
+        this.matchingEngine.execute(new Order(90, 9, Side.SELL));
 
-        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9.0);
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9);
 
         Assertions.assertEquals(0, bidsByPrice.size(), "There should be no more bids at price 9");
 
-        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(9.0);
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(9);
 
         Assertions.assertEquals(1, asksByPrice.size(), "There should be one ask at price 9");
 
@@ -54,9 +61,9 @@ public class MatchingEngineTest {
 
     @Test
     public void testSellWhenBidExistsWithLessBuys() {
-        this.matchingEngine.execute(new Order(35, 9.0, Side.SELL));
+        this.matchingEngine.execute(new Order(35, 9, Side.SELL));
 
-        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9.0);
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9);
 
         Assertions.assertEquals(2, bidsByPrice.size());
 
@@ -68,9 +75,9 @@ public class MatchingEngineTest {
 
     @Test
     public void testSellWhenBidExistsWithBuysMatchingNewSell() {
-        this.matchingEngine.execute(new Order(60, 9.0, Side.SELL));
+        this.matchingEngine.execute(new Order(60, 9, Side.SELL));
 
-        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9.0);
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(9);
 
         Assertions.assertEquals(0, bidsByPrice.size(), "All orders should be filled");
     }
@@ -79,66 +86,453 @@ public class MatchingEngineTest {
     @Test
     public void testBuyMatchDoesntExist() {
 
-        this.matchingEngine.execute(new Order(40, 35.0, Side.BUY));
+        this.matchingEngine.execute(new Order(40, 5, Side.BUY));
 
-        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(35.0);
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(5);
         Assertions.assertTrue(asksByPrice.isEmpty()); // Shouldn't exist since it only exists in the bids
 
-        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(35.0);
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(5);
         Assertions.assertFalse(bidsByPrice.isEmpty()); // Newly added bid
     }
 
     @Test
     public void testBuyWhenMoreSellExists() {
-        this.matchingEngine.execute(new Order(90, 10.0, Side.BUY));
+        this.matchingEngine.execute(new Order(90, 10, Side.BUY));
 
-        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(10.0);
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(10);
 
-        Assertions.assertEquals(1, asksByPrice.size(), "There should be one ask at price 10.0");
+        Assertions.assertEquals(1, asksByPrice.size(), "There should be one ask at price 10");
 
         // This validates that the bid with 105-90 was filled 90-60 = 30 remaining
         Assertions.assertEquals(15, asksByPrice.get(0).getQuantity(), "This new order should be added to the asks with a quantity of 15");
 
-        List<Order>  bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(10.0);
+        List<Order>  bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(10);
 
-        Assertions.assertEquals(0, bidsByPrice.size(), "There should be no more bids at price 10.0");
+        Assertions.assertEquals(0, bidsByPrice.size(), "There should be no more bids at price 10");
       }
 
     @Test
     public void testBuyWhenLessSellsExists() {
-        this.matchingEngine.execute(new Order(150, 10.0, Side.BUY));
+        this.matchingEngine.execute(new Order(150, 10, Side.BUY));
 
-        List<Order> asksByPrice = this.limitOrderBook.retrieveBidsByPrice(10.0);
+        List<Order> asksByPrice = this.limitOrderBook.retrieveBidsByPrice(10);
         Assertions.assertEquals(1, asksByPrice.size());
         Assertions.assertEquals(45, asksByPrice.get(0).getQuantity(), "Second order should still have 20");
     }
 
     @Test
     public void testBuyWhenSellExistsWithBuysMatchingNewSell() {
-        this.matchingEngine.execute(new Order(105, 10.0, Side.BUY));
-        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(10.0);
+        this.matchingEngine.execute(new Order(105, 10, Side.BUY));
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(10);
         Assertions.assertEquals(0, asksByPrice.size(), "All orders should be filled");
     }
 
+    // SWEEPS
+    @Test
+    public void testBuyAboveBestAskFillsAtRestingLevel() {
+        this.matchingEngine.execute(new Order(5, 11, Side.BUY));
 
-    private void addBids() {
-        this.limitOrderBook.addNewOrder(new Order(40, 9.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(30, 8.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(50, 7.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(60, 6.0, Side.BUY));
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(10);
+        Assertions.assertEquals(1, asksByPrice.size(), "The first ask at 10 should be filled");
+        Assertions.assertEquals(100, asksByPrice.get(0).getQuantity());
+
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(11).isEmpty(), "Fully filled buy should not rest");
+    }
+
+    @Test
+    public void testBuySweepsMultipleAskLevels() {
+        this.matchingEngine.execute(new Order(160, 11, Side.BUY));
+
+        Assertions.assertTrue(this.limitOrderBook.retrieveAsksByPrice(10).isEmpty(), "Level 10 should be swept");
+
+        // 105 filled at 10, then 40 and 15 of the 50 at 11
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(11);
+        Assertions.assertEquals(1, asksByPrice.size());
+        Assertions.assertEquals(35, asksByPrice.get(0).getQuantity());
+
+        Assertions.assertEquals(2, this.limitOrderBook.retrieveAsksByPrice(12).size(), "Level 12 is beyond the limit");
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(11).isEmpty());
+    }
+
+    @Test
+    public void testSellSweepsMultipleBidLevels() {
+        this.matchingEngine.execute(new Order(100, 7, Side.SELL));
+
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(9).isEmpty(), "Level 9 should be swept");
+
+        // 60 filled at 9, then 30 and 10 of the 20 at 8
+        List<Order> bidsByPrice = this.limitOrderBook.retrieveBidsByPrice(8);
+        Assertions.assertEquals(1, bidsByPrice.size());
+        Assertions.assertEquals(10, bidsByPrice.get(0).getQuantity());
+
+        Assertions.assertEquals(2, this.limitOrderBook.retrieveBidsByPrice(7).size(), "Level 7 should not be touched");
+    }
+
+    @Test
+    public void testSellSweepsAllCrossingLevelsAndRestsRemainder() {
+        this.matchingEngine.execute(new Order(300, 8, Side.SELL));
+
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(9).isEmpty());
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(8).isEmpty());
+        Assertions.assertEquals(2, this.limitOrderBook.retrieveBidsByPrice(7).size());
+
+        // 300 - 60 - 50 = 190 rests at the limit price
+        List<Order> asksByPrice = this.limitOrderBook.retrieveAsksByPrice(8);
+        Assertions.assertEquals(1, asksByPrice.size());
+        Assertions.assertEquals(190, asksByPrice.get(0).getQuantity());
+    }
+
+    protected OrderBook createOrderBook() {
+        return new LimitOrderBook();
+    }
+
+    // Assert that fully filled orders are evicted from the index while partially filled ones stay live
+    @Test
+    public void testFilledOrdersAreEvictedFromIndex() {
+        List<Order> asksAt10 = this.limitOrderBook.retrieveAsksByPrice(10);
+        Order filled = asksAt10.get(0);
+        Order partiallyFilled = asksAt10.get(1);
+
+        Order buy = new Order(50, 10, Side.BUY);
+        this.matchingEngine.execute(buy);
+
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderById(filled.getOrderId()), "Filled order should be evicted");
+        Order live = this.limitOrderBook.retrieveOrderById(partiallyFilled.getOrderId());
+        Assertions.assertNotNull(live);
+        Assertions.assertEquals(55, live.getQuantity());
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderById(buy.getOrderId()), "Filled aggressor should never rest");
+        Assertions.assertEquals(12, this.limitOrderBook.retrieveAllOrders().size());
+    }
+
+    // Assert that the engine reports acceptance, each fill, the resting remainder, cancels and amends
+    @Test
+    public void testExecutionEvents() {
+        List<String> events = new ArrayList<>();
+        this.matchingEngine.setExecutionListener(event -> events.add(event.getSequence() + " " + event.getType() + " "
+                + event.getSide() + " " + event.getQuantity() + "@" + event.getPrice() + " leaves " + event.getLeavesQuantity()
+                + (event.getType() == ExecutionEvent.Type.TRADE ? " resting leaves " + event.getRestingLeavesQuantity() : "")));
+
+        List<Order> asksAt10 = this.limitOrderBook.retrieveAsksByPrice(10);
+        Order buy = new Order(110, 10, Side.BUY);
+        this.matchingEngine.execute(buy);
+        this.matchingEngine.cancel(buy.getOrderId());
+
+        Order askAt11 = this.limitOrderBook.retrieveAsksByPrice(11).get(0);
+        this.matchingEngine.amend(askAt11.getOrderId(), 10);
+
+        Assertions.assertEquals(List.of(
+                "1 ACCEPTED BUY 110@10 leaves 110",
+                "2 TRADE BUY 5@10 leaves 105 resting leaves 0",
+                "3 TRADE BUY 100@10 leaves 5 resting leaves 0",
+                "4 RESTED BUY 5@10 leaves 5",
+                "5 CANCELLED BUY 5@10 leaves 0",
+                "6 AMENDED SELL 40@11 leaves 10"), events);
+        Assertions.assertEquals(2, asksAt10.size());
+    }
 
-        this.limitOrderBook.addNewOrder(new Order(20, 9.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(20, 8.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(50, 7.0, Side.BUY));
+    // Assert that a batch leaves the same book as executing its orders one by one, including levels emptied and refilled
+    @Test
+    public void testExecuteBatch() {
+        OrderBook individualBook = createOrderBook();
+        MatchingEngine individualEngine = new MatchingEngine(individualBook);
+        for (Order order : this.limitOrderBook.retrieveAllOrders()) {
+            individualBook.addNewOrder(new Order(order.getOrderId(), order.getQuantity(), order.getPrice(), order.getSide()));
+        }
+
+        long[][] burst = {
+                {120, 11, 0},  // Clears the asks at 10 and part of 11
+                {30, 10, 1},   // Refills the ask level at 10
+                {5, 10, 0},    // Trades at the refilled level
+                {500, 5, 1},   // Sweeps every bid level
+                {15, 8, 0},    // Rests in a bid level emptied earlier in the batch
+                {40, 12, 0},
+        };
+        Order[] orders = new Order[burst.length + 1];
+        for (int i = 0; i < burst.length; i++) {
+            Side side = burst[i][2] == 0 ? Side.BUY : Side.SELL;
+            orders[i + 1] = new Order(1000 + i, (int) burst[i][0], burst[i][1], side);
+            individualEngine.execute(new Order(1000 + i, (int) burst[i][0], burst[i][1], side));
+        }
+        this.matchingEngine.executeBatch(orders, 1, burst.length);
+
+        Assertions.assertEquals(individualBook.retrieveAllOrders(), this.limitOrderBook.retrieveAllOrders());
+        Assertions.assertEquals(individualBook.bestOrder(Side.BUY), this.limitOrderBook.bestOrder(Side.BUY));
+        Assertions.assertEquals(individualBook.bestOrder(Side.SELL), this.limitOrderBook.bestOrder(Side.SELL));
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(9).isEmpty());
+        if (this.limitOrderBook instanceof LimitOrderBook) {
+            // Levels left empty during the batch are removed at its end
+            LimitOrderBook book = (LimitOrderBook) this.limitOrderBook;
+            Assertions.assertTrue(book.getBids().values().stream().noneMatch(PriceLevel::isEmpty));
+            Assertions.assertTrue(book.getAsks().values().stream().noneMatch(PriceLevel::isEmpty));
+        }
+    }
+
+    // Assert that IOC and market orders never rest and cancel their unfilled quantity
+    @Test
+    public void testImmediateOrCancelAndMarketOrders() {
+        List<ExecutionEvent.Type> events = new ArrayList<>();
+        this.matchingEngine.setExecutionListener(event -> events.add(event.getType()));
+
+        Order immediateOrCancel = new Order(110, 10, Side.BUY);
+        immediateOrCancel.setTimeInForce(TimeInForce.IOC);
+        this.matchingEngine.execute(immediateOrCancel);
+        Assertions.assertEquals(0, immediateOrCancel.getQuantity());
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(10).isEmpty());
+        Assertions.assertEquals(List.of(ExecutionEvent.Type.ACCEPTED, ExecutionEvent.Type.TRADE, ExecutionEvent.Type.TRADE,
+                ExecutionEvent.Type.CANCELLED), events);
+
+        Order market = new Order(100, 0, Side.SELL);
+        market.setOrderType(OrderType.MARKET);
+        this.matchingEngine.execute(market);
+        Assertions.assertEquals(0, market.getQuantity());
+        Assertions.assertTrue(this.limitOrderBook.retrieveBidsByPrice(9).isEmpty());
+        Assertions.assertEquals(10, this.limitOrderBook.bestOrder(Side.BUY).getQuantity()); // 40 of 50 taken at 8
+        Assertions.assertTrue(this.limitOrderBook.retrieveAsksByPrice(0).isEmpty());
+    }
+
+    // Assert that a FOK order that cannot fill completely is killed without touching the book
+    @Test
+    public void testFillOrKill() {
+        Order tooLarge = new Order(106, 10, Side.BUY); // Only 105 is offered at 10
+        tooLarge.setTimeInForce(TimeInForce.FOK);
+        this.matchingEngine.execute(tooLarge);
+        Assertions.assertEquals(0, tooLarge.getQuantity());
+        Assertions.assertEquals(2, this.limitOrderBook.retrieveAsksByPrice(10).size());
+
+        Order fillable = new Order(130, 11, Side.BUY);
+        fillable.setTimeInForce(TimeInForce.FOK);
+        this.matchingEngine.execute(fillable);
+        Assertions.assertEquals(0, fillable.getQuantity());
+        Assertions.assertTrue(this.limitOrderBook.retrieveAsksByPrice(10).isEmpty());
+        Assertions.assertEquals(65, this.limitOrderBook.retrieveAsksByPrice(11).stream().mapToInt(Order::getQuantity).sum());
+    }
+
+    // Assert that a FOK order counts the hidden quantity of an iceberg it can replenish from in the same sweep
+    @Test
+    public void testFillOrKillAgainstIceberg() {
+        OrderBook book = createOrderBook();
+        MatchingEngine engine = new MatchingEngine(book);
+        Order iceberg = new Order(100, 20, Side.SELL);
+        iceberg.setDisplayQuantity(10);
+        engine.execute(iceberg);
+
+        Order tooLarge = new Order(101, 20, Side.BUY);
+        tooLarge.setTimeInForce(TimeInForce.FOK);
+        engine.execute(tooLarge);
+        Assertions.assertEquals(0, tooLarge.getQuantity());
+        Assertions.assertEquals(10, book.retrieveOrderById(iceberg.getOrderId()).getQuantity(), "Killed without trading");
+        Assertions.assertEquals(90, book.retrieveOrderById(iceberg.getOrderId()).getHiddenQuantity());
+
+        Order fillable = new Order(95, 20, Side.BUY); // Only 10 is displayed, the reserve covers the rest
+        fillable.setTimeInForce(TimeInForce.FOK);
+        engine.execute(fillable);
+        Assertions.assertEquals(0, fillable.getQuantity());
+        Assertions.assertEquals(5, book.retrieveOrderById(iceberg.getOrderId()).getQuantity());
+        Assertions.assertEquals(0, book.retrieveOrderById(iceberg.getOrderId()).getHiddenQuantity());
+    }
+
+    // Assert that a post-only order is rejected if it would trade, and rests otherwise
+    @Test
+    public void testPostOnly() {
+        List<ExecutionEvent.Type> events = new ArrayList<>();
+        this.matchingEngine.setExecutionListener(event -> events.add(event.getType()));
+
+        Order crossing = new Order(10, 10, Side.BUY);
+        crossing.setPostOnly(true);
+        this.matchingEngine.execute(crossing);
+        Assertions.assertEquals(List.of(ExecutionEvent.Type.REJECTED), events);
+        Assertions.assertEquals(2, this.limitOrderBook.retrieveAsksByPrice(10).size());
+
+        Order passive = new Order(10, 9, Side.BUY);
+        passive.setPostOnly(true);
+        this.matchingEngine.execute(passive);
+        Assertions.assertEquals(passive, this.limitOrderBook.retrieveOrderById(passive.getOrderId()));
+    }
+
+    // Assert that orders accumulate during an auction and uncross at the price that maximises volume
+    @Test
+    public void testAuctionUncross() {
+        List<String> trades = new ArrayList<>();
+        this.matchingEngine.setExecutionListener(event -> {
+            if (event.getType() == ExecutionEvent.Type.TRADE) {
+                trades.add(event.getQuantity() + "@" + event.getPrice());
+            }
+        });
+
+        this.matchingEngine.startAuction();
+        this.matchingEngine.execute(new Order(150, 11, Side.BUY));
+        this.matchingEngine.execute(new Order(50, 8, Side.SELL));
+        Order immediateOrCancel = new Order(10, 12, Side.BUY);
+        immediateOrCancel.setTimeInForce(TimeInForce.IOC);
+        this.matchingEngine.execute(immediateOrCancel); // Rejected during the call phase
+        Assertions.assertTrue(trades.isEmpty());
+        Assertions.assertEquals(11, this.limitOrderBook.bestOrder(Side.BUY).getPrice());
+        Assertions.assertEquals(8, this.limitOrderBook.bestOrder(Side.SELL).getPrice());
+
+        // 150 can trade at both 10 and 11, but at 10 only 5 is left over against 95 at 11
+        AuctionResult indicative = this.matchingEngine.indicativeUncross();
+        Assertions.assertEquals(10, indicative.getPrice());
+        Assertions.assertEquals(150, indicative.getVolume());
+        Assertions.assertEquals(-5, indicative.getSurplus());
+
+        AuctionResult result = this.matchingEngine.uncross();
+        Assertions.assertEquals(indicative.toString(), result.toString());
+        Assertions.assertFalse(this.matchingEngine.isAuction());
+        Assertions.assertEquals(List.of("50@10", "5@10", "95@10"), trades);
+        Assertions.assertEquals(9, this.limitOrderBook.bestOrder(Side.BUY).getPrice());
+        Assertions.assertEquals(5, this.limitOrderBook.bestOrder(Side.SELL).getQuantity());
+        Assertions.assertFalse(this.matchingEngine.uncross().isCrossed());
+    }
+
+    // Assert that the uncross counts an iceberg's hidden quantity, which it trades as the iceberg refills
+    @Test
+    public void testAuctionUncrossWithIceberg() {
+        OrderBook book = createOrderBook();
+        MatchingEngine engine = new MatchingEngine(book);
+        long[] traded = new long[1];
+        engine.setExecutionListener(event -> {
+            if (event.getType() == ExecutionEvent.Type.TRADE) {
+                Assertions.assertEquals(10, event.getPrice());
+                traded[0] += event.getQuantity();
+            }
+        });
+
+        engine.startAuction();
+        engine.execute(new Order(100, 11, Side.BUY));
+        engine.execute(new Order(50, 10, Side.BUY));
+        Order iceberg = new Order(120, 10, Side.SELL);
+        iceberg.setDisplayQuantity(20);
+        engine.execute(iceberg);
+        engine.execute(new Order(40, 12, Side.SELL)); // Above every bid, so never walked
+
+        // Counting only the displayed 20 would pick 11; with the reserve, 120 trades at 10
+        AuctionResult indicative = engine.indicativeUncross();
+        Assertions.assertEquals(10, indicative.getPrice());
+        Assertions.assertEquals(120, indicative.getVolume());
+        Assertions.assertEquals(30, indicative.getSurplus());
+
+        AuctionResult result = engine.uncross();
+        Assertions.assertEquals(indicative.toString(), result.toString());
+        Assertions.assertEquals(120, traded[0]);
+        Assertions.assertNull(book.retrieveOrderById(iceberg.getOrderId()));
+        Assertions.assertEquals(30, book.bestOrder(Side.BUY).getQuantity());
+        Assertions.assertEquals(12, book.bestOrder(Side.SELL).getPrice());
+    }
+
+    // Assert that stop orders wait until a trade reaches their stop price and are then matched in trigger order
+    @Test
+    public void testStopOrders() {
+        List<String> events = new ArrayList<>();
+        this.matchingEngine.setExecutionListener(event -> events.add(event.getType() + " " + event.getOrderId()));
+
+        Order buyStop = new Order(30, 12, Side.BUY);
+        buyStop.setStopPrice(11);
+        this.matchingEngine.execute(buyStop);
+        Order sellStop = new Order(10, 7, Side.SELL);
+        sellStop.setStopPrice(7);
+        this.matchingEngine.execute(sellStop);
+        Assertions.assertEquals(30, buyStop.getQuantity());
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderById(buyStop.getOrderId()));
+
+        this.matchingEngine.execute(new Order(105, 10, Side.BUY)); // Trades at 10, below the buy stop
+        Assertions.assertEquals(10, this.matchingEngine.getLastPrice());
+        Assertions.assertEquals(30, buyStop.getQuantity());
+
+        events.clear();
+        Order trigger = new Order(10, 11, Side.BUY);
+        this.matchingEngine.execute(trigger); // Trades at 11 and releases the buy stop, which takes 30 more at 11
+        Assertions.assertEquals(List.of("ACCEPTED " + trigger.getOrderId(), "TRADE " + trigger.getOrderId(),
+                "TRIGGERED " + buyStop.getOrderId(), "TRADE " + buyStop.getOrderId()), events);
+        Assertions.assertEquals(0, buyStop.getQuantity());
+        Assertions.assertEquals(List.of(50), this.limitOrderBook.retrieveAsksByPrice(11).stream().map(Order::getQuantity).collect(Collectors.toList()));
+
+        Order reachedStop = new Order(5, 9, Side.SELL);
+        reachedStop.setStopPrice(12); // The last price of 11 is already at or below it
+        this.matchingEngine.execute(reachedStop);
+        Assertions.assertEquals(0, reachedStop.getQuantity());
+        Assertions.assertEquals(35, this.limitOrderBook.bestOrder(Side.BUY).getQuantity());
+
+        events.clear();
+        this.matchingEngine.amend(sellStop.getOrderId(), 8);
+        this.matchingEngine.cancel(sellStop.getOrderId());
+        Assertions.assertEquals(List.of("AMENDED " + sellStop.getOrderId(), "CANCELLED " + sellStop.getOrderId()), events);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.matchingEngine.cancel(sellStop.getOrderId()));
+    }
+
+    // Assert that an iceberg order shows only its display quantity and refills at the back of its level
+    @Test
+    public void testIcebergReplenishes() {
+        OrderBook book = createOrderBook();
+        MatchingEngine engine = new MatchingEngine(book);
+        List<Integer> restingLeaves = new ArrayList<>();
+        engine.setExecutionListener(event -> {
+            if (event.getType() == ExecutionEvent.Type.TRADE) {
+                restingLeaves.add(event.getRestingLeavesQuantity());
+            }
+        });
+
+        Order iceberg = new Order(50, 20, Side.SELL);
+        iceberg.setDisplayQuantity(20);
+        engine.execute(iceberg);
+        Order plain = new Order(10, 20, Side.SELL);
+        engine.execute(plain);
+        Assertions.assertEquals(20, iceberg.getQuantity());
+        Assertions.assertEquals(30, iceberg.getHiddenQuantity());
+        Assertions.assertEquals(30, book.retrieveAsksByPrice(20).stream().mapToInt(Order::getQuantity).sum());
+
+        engine.execute(new Order(25, 20, Side.BUY)); // Takes the whole tip, then 5 of the plain order ahead of the refill
+        Assertions.assertEquals(List.of(30, 5), restingLeaves);
+        List<Order> queue = book.retrieveAsksByPrice(20);
+        Assertions.assertEquals(List.of(plain.getOrderId(), iceberg.getOrderId()), List.of(queue.get(0).getOrderId(), queue.get(1).getOrderId()));
+        Assertions.assertEquals(20, queue.get(1).getQuantity());
+        Assertions.assertEquals(10, queue.get(1).getHiddenQuantity());
+
+        engine.amend(iceberg.getOrderId(), 15);
+        Assertions.assertEquals(15, book.retrieveOrderById(iceberg.getOrderId()).getQuantity());
+        Assertions.assertEquals(0, book.retrieveOrderById(iceberg.getOrderId()).getHiddenQuantity());
+        engine.execute(new Order(20, 20, Side.BUY));
+        Assertions.assertNull(book.retrieveOrderById(iceberg.getOrderId()));
+    }
+
+    // Assert that metrics count fills, levels touched and rests, and record a latency for every command
+    @Test
+    public void testMetrics() {
+        EngineMetrics metrics = new EngineMetrics();
+        this.matchingEngine.setMetrics(metrics);
+
+        Order buy = new Order(200, 11, Side.BUY); // Takes both orders at 10 and at 11, then rests 5
+        this.matchingEngine.execute(buy);
+        this.matchingEngine.amend(buy.getOrderId(), 4);
+        this.matchingEngine.cancel(buy.getOrderId());
+
+        Assertions.assertEquals(4, metrics.getFills());
+        Assertions.assertEquals(2, metrics.getLevelsTouched());
+        Assertions.assertEquals(1, metrics.getRests());
+        Assertions.assertEquals(1, metrics.getNewOrders());
+        Assertions.assertEquals(1, metrics.getAmends());
+        Assertions.assertEquals(1, metrics.getCancels());
+        Assertions.assertEquals(metrics.getLatency(EngineMetrics.Operation.NEW_ORDER).getMax(),
+                metrics.getLatencies().get("NEW_ORDER.max"));
+    }
+
+    private void addBids() {
+        this.limitOrderBook.addNewOrder(new Order(40, 9, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(30, 8, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(50, 7, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(60, 6, Side.BUY));
+
+        this.limitOrderBook.addNewOrder(new Order(20, 9, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(20, 8, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(50, 7, Side.BUY));
     }
 
     private void addAsks() {
-        this.limitOrderBook.addNewOrder(new Order(5, 10.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(40, 11.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(20, 12.0, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(5, 10, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(40, 11, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(20, 12, Side.SELL));
 
-        this.limitOrderBook.addNewOrder(new Order(100, 10.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(50, 11.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(10, 12.0, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(100, 10, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(50, 11, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(10, 12, Side.SELL));
     }
 }
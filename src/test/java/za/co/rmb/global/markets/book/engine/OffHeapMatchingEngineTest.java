@@ -0,0 +1,13 @@
+package za.co.rmb.global.markets.book.engine;
+
+import za.co.rmb.global.markets.book.limit.OffHeapOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+// Runs every MatchingEngine scenario against the off-heap book as well.
+public class OffHeapMatchingEngineTest extends MatchingEngineTest {
+
+    @Override
+    protected OrderBook createOrderBook() {
+        return new OffHeapOrderBook(4);
+    }
+}
@@ -0,0 +1,30 @@
+package za.co.rmb.global.markets.book.entities;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InstrumentTest {
+
+    // Assert that prices that differ only by floating point error land on the same tick
+    @Test
+    public void testToTicksIsExact() {
+        Instrument instrument = new Instrument("ABC", 0.01);
+
+        Assertions.assertEquals(30, instrument.toTicks(0.1 + 0.2));
+        Assertions.assertEquals(instrument.toTicks(0.3), instrument.toTicks(0.1 + 0.2));
+        Assertions.assertEquals(12345, instrument.toTicks(123.45));
+        Assertions.assertEquals(123.45, instrument.toPrice(12345), 1e-9);
+    }
+
+    // Test that a price between two ticks is rejected
+    @Test
+    public void testOffTickPrice() {
+        Instrument instrument = new Instrument("ABC", 0.05);
+
+        Exception exception = Assertions.assertThrows(
+                IllegalArgumentException.class, () -> instrument.toTicks(10.02)
+        );
+
+        Assertions.assertEquals("Price 10.02 is not a multiple of the tick size 0.05.", exception.getMessage());
+    }
+}
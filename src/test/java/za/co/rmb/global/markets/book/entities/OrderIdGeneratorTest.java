@@ -0,0 +1,42 @@
+package za.co.rmb.global.markets.book.entities;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OrderIdGeneratorTest {
+
+    // Assert that sequential IDs continue after the last issued ID
+    @Test
+    public void testSequentialIds() {
+        OrderIdGenerator generator = new SequentialOrderIdGenerator(41);
+
+        Assertions.assertEquals(42, generator.nextId());
+        Assertions.assertEquals(43, generator.nextId());
+        Assertions.assertEquals(44, new Order(generator, 10, 9, Side.BUY).getOrderId());
+    }
+
+    // Assert that IDs from different shards never collide and carry their shard number
+    @Test
+    public void testShardedIds() {
+        OrderIdGenerator shard1 = new ShardedOrderIdGenerator(1);
+        OrderIdGenerator shard2 = new ShardedOrderIdGenerator(2);
+
+        long first = shard1.nextId();
+        long second = shard2.nextId();
+
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertEquals(1, ShardedOrderIdGenerator.shardOf(first));
+        Assertions.assertEquals(2, ShardedOrderIdGenerator.shardOf(second));
+        Assertions.assertTrue(first > 0 && second > 0);
+    }
+
+    // Test that a shard number outside the supported range is rejected
+    @Test
+    public void testShardOutOfRange() {
+        Exception exception = Assertions.assertThrows(
+                IllegalArgumentException.class, () -> new ShardedOrderIdGenerator(ShardedOrderIdGenerator.MAX_SHARD + 1)
+        );
+
+        Assertions.assertEquals("Shard 32768 is out of range.", exception.getMessage());
+    }
+}
@@ -0,0 +1,98 @@
+package za.co.rmb.global.markets.book.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+
+import java.nio.file.Path;
+
+public class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    // Assert that replaying the journal rebuilds the same book, queue priority and client order IDs included
+    @Test
+    public void testReplayRebuildsBook() throws Exception {
+        Path path = this.directory.resolve("engine.journal");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (Journal journal = new Journal(path)) {
+            engine.setCommandJournal(journal);
+            Order first = new Order(1, 10, 100, Side.BUY);
+            first.setClientOrderId("client-1");
+            engine.execute(first);
+            engine.execute(new Order(2, 20, 100, Side.BUY));
+            engine.execute(new Order(3, 15, 101, Side.SELL));
+            engine.execute(new Order(4, 5, 99, Side.SELL)); // Trades against order 1
+            engine.amend(1, 50); // Moves order 1 behind order 2
+            engine.execute(new Order(5, 7, 102, Side.SELL));
+            engine.cancel(5);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> engine.cancel(42));
+            Order immediateOrCancel = new Order(6, 30, 101, Side.BUY); // Takes order 3 and cancels the rest
+            immediateOrCancel.setTimeInForce(TimeInForce.IOC);
+            engine.execute(immediateOrCancel);
+            Order postOnly = new Order(7, 5, 100, Side.SELL); // Would trade, so it is rejected
+            postOnly.setPostOnly(true);
+            engine.execute(postOnly);
+            Assertions.assertEquals(10, journal.getLastSequence());
+        }
+
+        MatchingEngine recovered = new MatchingEngine(new LimitOrderBook());
+        try (JournalReader reader = new JournalReader(path)) {
+            Assertions.assertEquals(10, reader.replay(recovered));
+            Assertions.assertEquals(7, reader.getLastOrderId());
+        }
+
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+        Assertions.assertEquals(2, recovered.getOrderBook().bestOrder(Side.BUY).getOrderId());
+        Assertions.assertEquals(1, recovered.getOrderBook().retrieveOrderByClientOrderId("client-1").getOrderId());
+    }
+
+    // Assert that a reopened journal continues after its last record, across many small segments
+    @Test
+    public void testReopenAppendsAcrossSegments() throws Exception {
+        Path path = this.directory.resolve("segments.journal");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (Journal journal = new Journal(path, 4096, 64)) {
+            engine.setCommandJournal(journal);
+            for (int i = 1; i <= 500; i++) {
+                engine.execute(new Order(i, 1, 100 + i % 7, Side.BUY));
+            }
+        }
+        try (Journal journal = new Journal(path, 4096, 64)) {
+            Assertions.assertEquals(500, journal.getLastSequence());
+            engine.setCommandJournal(journal);
+            for (int i = 501; i <= 1000; i++) {
+                engine.execute(new Order(i, 1, 100 + i % 7, Side.SELL));
+            }
+        }
+
+        MatchingEngine recovered = new MatchingEngine(new LimitOrderBook());
+        try (JournalReader reader = new JournalReader(path)) {
+            Assertions.assertEquals(1000, reader.replay(recovered));
+        }
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+    }
+
+    // Assert that with no sync batch size every full segment is forced at roll-over, not just the last one on close
+    @Test
+    public void testRollOverForcesFullSegment() throws Exception {
+        Path path = this.directory.resolve("unsynced.journal");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (Journal journal = new Journal(path, 4096, 0)) {
+            engine.setCommandJournal(journal);
+            int i = 0;
+            while (journal.getSyncedPosition() == 0) {
+                i++;
+                engine.execute(new Order(i, 1, 100 + i % 7, Side.BUY));
+            }
+            Assertions.assertEquals(4096, journal.getSyncedPosition(), "The first segment is forced as it rolls");
+            Assertions.assertTrue(i > 50, "Nothing is forced before the segment is full");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package za.co.rmb.global.markets.book.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.risk.RiskCheck;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    // Assert that recovery loads the latest snapshot and replays only the journal tail after it
+    @Test
+    public void testRecoverFromSnapshotAndJournalTail() throws Exception {
+        Path journalPath = this.directory.resolve("engine.journal");
+        Path snapshots = this.directory.resolve("snapshots");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        engine.setRiskCheck(new RiskCheck(0, false));
+
+        try (Journal journal = new Journal(journalPath); SnapshotWriter snapshotWriter = new SnapshotWriter(snapshots)) {
+            engine.setCommandJournal(journal);
+            for (int i = 1; i <= 100; i++) {
+                Order order = new Order(i, i, 100 + i % 10, i % 2 == 0 ? Side.BUY : Side.SELL);
+                order.setClientOrderId("client-" + i);
+                order.setAccountId(i % 3 + 1);
+                order.setDisplayQuantity(i % 10 == 0 ? 5 : 0);
+                order.setStopPrice(i == 50 ? 1000 : 0);
+                engine.execute(order);
+            }
+            snapshotWriter.snapshot(engine.getOrderBook(), 50).get(); // An older snapshot
+            Path latest = snapshotWriter.snapshot(engine, journal.getLastSequence()).get();
+            Assertions.assertEquals(latest, Recovery.findLatestSnapshot(snapshots));
+
+            Order tail = engine.getOrderBook().bestOrder(Side.BUY);
+            engine.cancel(tail.getOrderId());
+            engine.execute(new Order(101, 500, 200, Side.BUY));
+        }
+
+        MatchingEngine recovered = new MatchingEngine(new LadderOrderBook(0, 1000));
+        recovered.setRiskCheck(new RiskCheck(0, false));
+        Recovery recovery = new Recovery(snapshots, journalPath);
+        Assertions.assertEquals(102, recovery.recover(recovered));
+        Assertions.assertEquals(101, recovery.getLastOrderId());
+
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+        Assertions.assertEquals(engine.getLastPrice(), recovered.getLastPrice());
+        List<Order> stopOrders = new ArrayList<>();
+        recovered.forEachStopOrder(stopOrders::add);
+        Assertions.assertEquals(1, stopOrders.size());
+        Assertions.assertEquals(50, stopOrders.get(0).getOrderId());
+        Assertions.assertEquals(1000, stopOrders.get(0).getStopPrice());
+        Assertions.assertEquals(engine.getOrderBook().retrieveOrderByClientOrderId("client-7"),
+                recovered.getOrderBook().retrieveOrderByClientOrderId("client-7"));
+        for (int account = 1; account <= 3; account++) {
+            Assertions.assertEquals(engine.getRiskCheck().getOpenQuantity(account), recovered.getRiskCheck().getOpenQuantity(account));
+            Assertions.assertEquals(engine.getRiskCheck().getOpenNotional(account), recovered.getRiskCheck().getOpenNotional(account));
+        }
+    }
+
+    // Assert that a snapshot is exactly its header plus one fixed-length record per order and its client order ID
+    @Test
+    public void testSnapshotLength() throws Exception {
+        LimitOrderBook book = new LimitOrderBook();
+        book.addNewOrder(new Order(1, 10, 100, Side.BUY));
+        Order withClientOrderId = new Order(2, 10, 101, Side.SELL);
+        withClientOrderId.setClientOrderId("C-2");
+        book.addNewOrder(withClientOrderId);
+
+        try (SnapshotWriter snapshotWriter = new SnapshotWriter(this.directory)) {
+            Path snapshot = snapshotWriter.snapshot(book, 1).get();
+            Assertions.assertEquals(SnapshotWriter.HEADER_LENGTH + 2 * SnapshotWriter.ORDER_LENGTH + 3, Files.size(snapshot));
+        }
+    }
+
+    // Assert that without a snapshot the whole journal is replayed
+    @Test
+    public void testRecoverFromJournalOnly() throws Exception {
+        Path journalPath = this.directory.resolve("engine.journal");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (Journal journal = new Journal(journalPath)) {
+            engine.setCommandJournal(journal);
+            engine.execute(new Order(1, 10, 100, Side.BUY));
+            engine.execute(new Order(2, 4, 100, Side.SELL));
+        }
+
+        MatchingEngine recovered = new MatchingEngine(new LimitOrderBook());
+        Assertions.assertEquals(2, new Recovery(this.directory.resolve("snapshots"), journalPath).recover(recovered));
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+    }
+
+    // Assert that a snapshot taken during the call phase recovers a crossed book still in auction, so the tail queues
+    @Test
+    public void testRecoverMidAuction() throws Exception {
+        Path journalPath = this.directory.resolve("auction.journal");
+        Path snapshots = this.directory.resolve("snapshots");
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (Journal journal = new Journal(journalPath); SnapshotWriter snapshotWriter = new SnapshotWriter(snapshots)) {
+            engine.setCommandJournal(journal);
+            engine.startAuction();
+            engine.execute(new Order(1, 10, 102, Side.BUY));
+            engine.execute(new Order(2, 6, 100, Side.SELL));
+            snapshotWriter.snapshot(engine, journal.getLastSequence()).get();
+            engine.execute(new Order(3, 8, 99, Side.SELL)); // Crosses order 1, but only queues
+        }
+
+        MatchingEngine recovered = new MatchingEngine(new LimitOrderBook());
+        Assertions.assertEquals(4, new Recovery(snapshots, journalPath).recover(recovered));
+        Assertions.assertTrue(recovered.isAuction());
+        Assertions.assertEquals(3, recovered.getOrderBook().retrieveAllOrders().size());
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+
+        Assertions.assertEquals(engine.uncross().getVolume(), recovered.uncross().getVolume());
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), recovered.getOrderBook().retrieveAllOrders());
+    }
+}
@@ -0,0 +1,80 @@
+package za.co.rmb.global.markets.book.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+public class BookAnalyticsTest {
+
+    // Assert that fill estimates sweep the opposite side level by level, counting only displayed quantity
+    @Test
+    public void testVwapAndSlippage() {
+        for (OrderBook book : createBooks()) {
+            BookAnalytics analytics = new BookAnalytics(populate(book));
+
+            Assertions.assertEquals(101.6, analytics.vwapToFill(Side.BUY, 25), 1e-9);
+            Assertions.assertEquals(0.6, analytics.slippage(Side.BUY, 25), 1e-9);
+            Assertions.assertEquals(25, analytics.fillableQuantity(Side.BUY, 25));
+
+            Assertions.assertEquals(4490.0 / 45, analytics.vwapToFill(Side.SELL, 45), 1e-9);
+            Assertions.assertEquals(100 - 4490.0 / 45, analytics.slippage(Side.SELL, 45), 1e-9);
+
+            Assertions.assertEquals(70, analytics.fillableQuantity(Side.BUY, 100), "The iceberg only shows its tip");
+            Assertions.assertEquals(7230.0 / 70, analytics.vwapToFill(Side.BUY, 100), 1e-9);
+            Assertions.assertEquals(0, analytics.slippage(Side.BUY, 5), 1e-9);
+        }
+    }
+
+    // Assert that cumulative depth and imbalance total the right levels
+    @Test
+    public void testDepthAndImbalance() {
+        for (OrderBook book : createBooks()) {
+            BookAnalytics analytics = new BookAnalytics(populate(book));
+
+            Assertions.assertEquals(30, analytics.cumulativeDepth(Side.SELL, 102));
+            Assertions.assertEquals(0, analytics.cumulativeDepth(Side.SELL, 100));
+            Assertions.assertEquals(40, analytics.cumulativeDepth(Side.BUY, 99));
+            Assertions.assertEquals(50, analytics.cumulativeDepth(Side.BUY, 0));
+
+            Assertions.assertEquals(0.6, analytics.imbalance(1), 1e-9);
+            Assertions.assertEquals(-20.0 / 120, analytics.imbalance(10), 1e-9);
+        }
+    }
+
+    // Assert that an empty book gives no estimates rather than zeros
+    @Test
+    public void testEmptyBook() {
+        for (OrderBook book : createBooks()) {
+            BookAnalytics analytics = new BookAnalytics(book);
+            Assertions.assertTrue(Double.isNaN(analytics.vwapToFill(Side.BUY, 10)));
+            Assertions.assertTrue(Double.isNaN(analytics.slippage(Side.SELL, 10)));
+            Assertions.assertEquals(0, analytics.fillableQuantity(Side.BUY, 10));
+            Assertions.assertEquals(0, analytics.cumulativeDepth(Side.BUY, 0));
+            Assertions.assertTrue(Double.isNaN(analytics.imbalance(5)));
+        }
+    }
+
+    private static OrderBook[] createBooks() {
+        return new OrderBook[]{new LimitOrderBook(), new LadderOrderBook(0, 1000), new OffHeapOrderBook(4)};
+    }
+
+    /**
+     * Builds asks of 10 at 101, 20 at 102 in two orders, a 10 tip of an iceberg at 103 and 30 at 105, and bids of
+     * 40 at 100 and 10 at 98.
+     */
+    private static OrderBook populate(OrderBook book) {
+        MatchingEngine engine = new MatchingEngine(book);
+        engine.execute(new Order(1, 10, 101, Side.SELL));
+        engine.execute(new Order(2, 5, 102, Side.SELL));
+        engine.execute(new Order(3, 15, 102, Side.SELL));
+        Order iceberg = new Order(4, 50, 103, Side.SELL);
+        iceberg.setDisplayQuantity(10);
+        engine.execute(iceberg);
+        engine.execute(new Order(5, 30, 105, Side.SELL));
+        engine.execute(new Order(6, 40, 100, Side.BUY));
+        engine.execute(new Order(7, 10, 98, Side.BUY));
+        return book;
+    }
+}
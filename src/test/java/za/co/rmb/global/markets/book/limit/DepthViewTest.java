@@ -0,0 +1,66 @@
+package za.co.rmb.global.markets.book.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DepthViewTest {
+
+    // Assert that a reader only ever sees consistent, uncrossed views while the engine keeps matching
+    @Test
+    public void testConcurrentReadsAreConsistent() throws Exception {
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        DepthView view = new DepthView(5);
+        engine.setDepthView(view);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            DepthSnapshot snapshot = new DepthSnapshot(5);
+            long lastVersion = 0;
+            while (running.get() && failure.get() == null) {
+                view.read(snapshot);
+                if (snapshot.getVersion() < lastVersion) {
+                    failure.set("Version went backwards");
+                }
+                lastVersion = snapshot.getVersion();
+                for (Side side : Side.values()) {
+                    for (int level = 0; level < snapshot.getLevelCount(side); level++) {
+                        // Every order is for 10, so a level's quantity always matches its order count
+                        if (snapshot.getQuantity(side, level) != 10L * snapshot.getOrderCount(side, level)) {
+                            failure.set("Torn level " + level + " on the " + side + " side");
+                        }
+                    }
+                }
+                if (snapshot.getLevelCount(Side.BUY) > 0 && snapshot.getLevelCount(Side.SELL) > 0
+                        && snapshot.getPrice(Side.BUY, 0) >= snapshot.getPrice(Side.SELL, 0)) {
+                    failure.set("Crossed book");
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Buys rest at 90..99 and sells at 100..109; every tenth order crosses and takes a whole order
+            boolean crossing = i % 10 == 9;
+            if (i % 2 == 0) {
+                engine.execute(new Order(10, crossing ? 109 : 90 + i % 10, Side.BUY));
+            } else {
+                engine.execute(new Order(10, crossing ? 90 : 100 + i % 10, Side.SELL));
+            }
+        }
+        running.set(false);
+        reader.join();
+
+        Assertions.assertNull(failure.get());
+        DepthSnapshot snapshot = new DepthSnapshot(5);
+        view.read(snapshot);
+        Assertions.assertEquals(200_000, snapshot.getVersion());
+        Assertions.assertEquals(engine.getOrderBook().bestOrder(Side.BUY).getPrice(), snapshot.getPrice(Side.BUY, 0));
+    }
+}
@@ -0,0 +1,56 @@
+package za.co.rmb.global.markets.book.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+// Runs every LimitOrderBook scenario against the array-indexed ladder as well.
+public class LadderOrderBookTest extends LimitOrderBookTest {
+
+    @Override
+    protected OrderBook createOrderBook() {
+        return new LadderOrderBook(0, 200);
+    }
+
+    // Assert that the best order moves to the next occupied level once the best level empties
+    @Test
+    public void testBestOrderSkipsEmptiedLevels() {
+        LadderOrderBook book = new LadderOrderBook(0, 200);
+        Order bid9 = new Order(10, 9, Side.BUY);
+        Order bid7 = new Order(20, 7, Side.BUY);
+        Order ask10 = new Order(30, 10, Side.SELL);
+        Order ask12 = new Order(40, 12, Side.SELL);
+        book.addNewOrder(bid7);
+        book.addNewOrder(bid9);
+        book.addNewOrder(ask12);
+        book.addNewOrder(ask10);
+
+        Assertions.assertEquals(bid9, book.bestOrder(Side.BUY));
+        Assertions.assertEquals(ask10, book.bestOrder(Side.SELL));
+
+        book.deleteOrderById(bid9.getOrderId());
+        book.deleteOrderById(ask10.getOrderId());
+
+        Assertions.assertEquals(bid7, book.bestOrder(Side.BUY));
+        Assertions.assertEquals(ask12, book.bestOrder(Side.SELL));
+
+        book.deleteOrderById(bid7.getOrderId());
+        book.deleteOrderById(ask12.getOrderId());
+
+        Assertions.assertNull(book.bestOrder(Side.BUY));
+        Assertions.assertNull(book.bestOrder(Side.SELL));
+    }
+
+    // Assert that prices outside the ladder are rejected
+    @Test
+    public void testAddOrderOutsideLadder() {
+        LadderOrderBook book = new LadderOrderBook(0, 200);
+        Exception exception = Assertions.assertThrows(
+                IllegalArgumentException.class, () -> book.addNewOrder(new Order(10, 300, Side.BUY))
+        );
+
+        Assertions.assertEquals("Price 300 is outside the range of the ladder.", exception.getMessage());
+        Assertions.assertTrue(book.retrieveBidsByPrice(300).isEmpty());
+    }
+}
@@ -6,15 +6,16 @@ import org.junit.jupiter.api.Test;
 import za.co.rmb.global.markets.book.entities.Order;
 import za.co.rmb.global.markets.book.entities.Side;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class LimitOrderBookTest {
 
-    private LimitOrderBook limitOrderBook;
+    private OrderBook limitOrderBook;
 
     @BeforeEach
     void setUp() {
-        this.limitOrderBook = new LimitOrderBook();
+        this.limitOrderBook = createOrderBook();
         addBids();
         addAsks();
     }
@@ -29,29 +30,29 @@ public class LimitOrderBookTest {
     // Assert that asks are stored correctly by price
     @Test
     public void testRetrieveAsksByPrice() {
-        List<Order> price10 = this.limitOrderBook.retrieveAsksByPrice(10.0);
+        List<Order> price10 = this.limitOrderBook.retrieveAsksByPrice(10);
         Assertions.assertEquals(2, price10.size());
 
-        List<Order> price11 = this.limitOrderBook.retrieveAsksByPrice(11.0);
+        List<Order> price11 = this.limitOrderBook.retrieveAsksByPrice(11);
         Assertions.assertEquals(2, price11.size());
 
-        List<Order> price12 = this.limitOrderBook.retrieveAsksByPrice(12.0);
+        List<Order> price12 = this.limitOrderBook.retrieveAsksByPrice(12);
         Assertions.assertEquals(2, price12.size());
     }
 
     // Assert that bids are stored correctly by price
     @Test
     public void testRetrieveBidsByPrice() {
-        List<Order> price9 = this.limitOrderBook.retrieveBidsByPrice(9.0);
+        List<Order> price9 = this.limitOrderBook.retrieveBidsByPrice(9);
         Assertions.assertEquals(2, price9.size());
 
-        List<Order> price8 = this.limitOrderBook.retrieveBidsByPrice(8.0);
+        List<Order> price8 = this.limitOrderBook.retrieveBidsByPrice(8);
         Assertions.assertEquals(2, price8.size());
 
-        List<Order> price7 = this.limitOrderBook.retrieveBidsByPrice(7.0);
+        List<Order> price7 = this.limitOrderBook.retrieveBidsByPrice(7);
         Assertions.assertEquals(2, price7.size());
 
-        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6.0);
+        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6);
         Assertions.assertEquals(1, price6.size());
     }
 
@@ -59,7 +60,7 @@ public class LimitOrderBookTest {
     @Test
     public void testRetrieveOrderById() {
 
-        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6.0);
+        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6);
 
         Assertions.assertEquals(1, price6.size());
 
@@ -70,7 +71,7 @@ public class LimitOrderBookTest {
         Assertions.assertEquals(order, orderById);
 
         // Test deep equality
-        List<Order> price7 = this.limitOrderBook.retrieveBidsByPrice(7.0);
+        List<Order> price7 = this.limitOrderBook.retrieveBidsByPrice(7);
         Assertions.assertFalse(price7.isEmpty());
         Assertions.assertNotEquals(order, price7.get(0));
     }
@@ -79,7 +80,7 @@ public class LimitOrderBookTest {
     @Test
     public void testDeleteOrderById() {
 
-        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6.0);
+        List<Order> price6 = this.limitOrderBook.retrieveBidsByPrice(6);
 
         Assertions.assertEquals(1, price6.size());
 
@@ -87,12 +88,29 @@ public class LimitOrderBookTest {
 
         this.limitOrderBook.deleteOrderById(order.getOrderId());
 
-        List<Order> orders = this.limitOrderBook.retrieveBidsByPrice(6.0);
+        List<Order> orders = this.limitOrderBook.retrieveBidsByPrice(6);
 
         Assertions.assertEquals(0, orders.size());
 
     }
 
+    // Assert that an order submitted with a client order ID can be found, amended and deleted through it
+    @Test
+    public void testClientOrderIdLookup() {
+        Order order = new Order(25, 12, Side.SELL);
+        order.setClientOrderId("CLIENT-1");
+        this.limitOrderBook.addNewOrder(order);
+
+        Assertions.assertEquals(order, this.limitOrderBook.retrieveOrderByClientOrderId("CLIENT-1"));
+
+        this.limitOrderBook.updateOrderQuantity("CLIENT-1", 15);
+        Assertions.assertEquals(15, this.limitOrderBook.retrieveOrderById(order.getOrderId()).getQuantity());
+
+        this.limitOrderBook.deleteOrderById("CLIENT-1");
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderByClientOrderId("CLIENT-1"));
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderById(order.getOrderId()));
+    }
+
     // Test that if an order doesn't exist, an exception is thrown
     @Test
     public void testDeleteNonExistentOrderById() {
@@ -107,7 +125,7 @@ public class LimitOrderBookTest {
     @Test
     public void testUpdateOrderQuantity() {
 
-        List<Order> price6Quantity60 = this.limitOrderBook.retrieveBidsByPrice(6.0);
+        List<Order> price6Quantity60 = this.limitOrderBook.retrieveBidsByPrice(6);
 
         Assertions.assertEquals(1, price6Quantity60.size());
 
@@ -117,13 +135,60 @@ public class LimitOrderBookTest {
 
         this.limitOrderBook.updateOrderQuantity(quantity60.getOrderId(), 200);
 
-        List<Order> price6Quantity200 = this.limitOrderBook.retrieveBidsByPrice(6.0);
-        Order quantity200 = price6Quantity60.get(0);
+        List<Order> price6Quantity200 = this.limitOrderBook.retrieveBidsByPrice(6);
+        Order quantity200 = price6Quantity200.get(0);
 
         Assertions.assertEquals(1, price6Quantity200.size());
         Assertions.assertEquals(200, quantity200.getQuantity());
     }
 
+    // Assert that decreasing the quantity of an order keeps its place in the queue
+    @Test
+    public void testDecreaseOrderQuantityKeepsPriority() {
+        List<Order> price9 = this.limitOrderBook.retrieveBidsByPrice(9);
+        Order first = price9.get(0);
+
+        this.limitOrderBook.updateOrderQuantity(first.getOrderId(), 10);
+
+        List<Order> updated = this.limitOrderBook.retrieveBidsByPrice(9);
+        Assertions.assertEquals(first.getOrderId(), updated.get(0).getOrderId(), "A decreased order should stay at the front of the queue");
+        Assertions.assertEquals(10, updated.get(0).getQuantity());
+    }
+
+    // Assert that increasing the quantity of an order moves it to the back of the queue
+    @Test
+    public void testIncreaseOrderQuantityLosesPriority() {
+        List<Order> price9 = this.limitOrderBook.retrieveBidsByPrice(9);
+        Order first = price9.get(0);
+
+        this.limitOrderBook.updateOrderQuantity(first.getOrderId(), 100);
+
+        List<Order> updated = this.limitOrderBook.retrieveBidsByPrice(9);
+        Assertions.assertEquals(2, updated.size());
+        Assertions.assertEquals(price9.get(1), updated.get(0));
+        Assertions.assertEquals(first.getOrderId(), updated.get(1).getOrderId(), "An increased order should move to the back of the queue");
+        Assertions.assertEquals(100, updated.get(1).getQuantity());
+    }
+
+    // Assert that an order in the middle of a queue can be deleted without disturbing the others
+    @Test
+    public void testDeleteOrderFromMiddleOfQueue() {
+        Order first = new Order(1, 11, Side.SELL);
+        Order middle = new Order(2, 11, Side.SELL);
+        Order last = new Order(3, 11, Side.SELL);
+        this.limitOrderBook.addNewOrder(first);
+        this.limitOrderBook.addNewOrder(middle);
+        this.limitOrderBook.addNewOrder(last);
+
+        this.limitOrderBook.deleteOrderById(middle.getOrderId());
+
+        List<Order> price11 = this.limitOrderBook.retrieveAsksByPrice(11);
+        Assertions.assertEquals(4, price11.size());
+        Assertions.assertEquals(first, price11.get(2));
+        Assertions.assertEquals(last, price11.get(3));
+        Assertions.assertNull(this.limitOrderBook.retrieveOrderById(middle.getOrderId()));
+    }
+
     // Test that if an order doesn't exist, an exception is thrown when modification is attempted.
     @Test
     public void testUpdateNonExistentOrderById() {
@@ -134,24 +199,111 @@ public class LimitOrderBookTest {
         Assertions.assertEquals("Order with ID SOME_RANDOM_ID not found.", exception.getMessage());
     }
 
-    private void addBids() {
-        this.limitOrderBook.addNewOrder(new Order(40, 9.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(30, 8.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(50, 7.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(60, 6.0, Side.BUY));
+    // Assert that level totals follow fills, amendments and deletes, and that depth reads the top levels
+    @Test
+    public void testDepth() {
+        long[] prices = new long[3];
+        long[] quantities = new long[3];
+        int[] orderCounts = new int[3];
+
+        Assertions.assertEquals(3, this.limitOrderBook.depth(Side.BUY, prices, quantities, orderCounts));
+        Assertions.assertArrayEquals(new long[]{9, 8, 7}, prices);
+        Assertions.assertArrayEquals(new long[]{60, 50, 100}, quantities);
+        Assertions.assertArrayEquals(new int[]{2, 2, 2}, orderCounts);
+
+        Order bestBid = this.limitOrderBook.bestOrder(Side.BUY);
+        this.limitOrderBook.fillOrder(bestBid, 15);
+        this.limitOrderBook.updateOrderQuantity(this.limitOrderBook.bestOrder(Side.SELL).getOrderId(), 8);
+        this.limitOrderBook.deleteOrderById(this.limitOrderBook.retrieveBidsByPrice(8).get(0).getOrderId());
+
+        this.limitOrderBook.depth(Side.BUY, prices, quantities, orderCounts);
+        Assertions.assertArrayEquals(new long[]{45, 20, 100}, quantities);
+        Assertions.assertArrayEquals(new int[]{2, 1, 2}, orderCounts);
+
+        Assertions.assertEquals(3, this.limitOrderBook.depth(Side.SELL, prices, quantities, orderCounts));
+        Assertions.assertArrayEquals(new long[]{10, 11, 12}, prices);
+        Assertions.assertArrayEquals(new long[]{108, 90, 30}, quantities);
+    }
 
-        this.limitOrderBook.addNewOrder(new Order(20, 9.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(20, 8.0, Side.BUY));
-        this.limitOrderBook.addNewOrder(new Order(50, 7.0, Side.BUY));
+    // Assert that level walks stay in price order as levels are added and removed between, ahead of and behind others
+    @Test
+    public void testLevelWalkAfterLevelsComeAndGo() {
+        long[] prices = new long[6];
+        long[] quantities = new long[6];
+        int[] orderCounts = new int[6];
+        Order between = new Order(5, 11, Side.BUY);
+        this.limitOrderBook.addNewOrder(new Order(5, 10, Side.BUY)); // Ahead of the best bid
+        this.limitOrderBook.addNewOrder(between);
+        this.limitOrderBook.addNewOrder(new Order(5, 5, Side.BUY)); // Behind the worst bid
+        this.limitOrderBook.deleteOrderById(between.getOrderId());
+        for (Order order : this.limitOrderBook.retrieveBidsByPrice(8)) {
+            this.limitOrderBook.deleteOrderById(order.getOrderId());
+        }
+        this.limitOrderBook.addNewOrder(new Order(5, 13, Side.SELL));
+        for (Order order : this.limitOrderBook.retrieveAsksByPrice(10)) {
+            this.limitOrderBook.deleteOrderById(order.getOrderId());
+        }
+
+        Assertions.assertEquals(5, this.limitOrderBook.depth(Side.BUY, prices, quantities, orderCounts));
+        Assertions.assertArrayEquals(new long[]{10, 9, 7, 6, 5, 0}, prices);
+        Assertions.assertEquals(3, this.limitOrderBook.depth(Side.SELL, prices, quantities, orderCounts));
+        Assertions.assertArrayEquals(new long[]{11, 12, 13}, Arrays.copyOf(prices, 3));
+
+        StringBuilder walked = new StringBuilder();
+        this.limitOrderBook.forEachLevel(Side.BUY, (side, price, quantity, orders) -> {
+            walked.append(price).append(';');
+            return true;
+        });
+        this.limitOrderBook.forEachOrder(Side.SELL, order -> {
+            walked.append(order.getPrice()).append(';');
+            return true;
+        });
+        Assertions.assertEquals("10;9;7;6;5;11;11;12;12;13;", walked.toString());
+    }
+
+    // Assert that each changed level is reported once with its latest state, including emptied levels
+    @Test
+    public void testDrainChangedLevels() {
+        this.limitOrderBook.setLevelChangeTracking(true);
+        Order bestBid = this.limitOrderBook.bestOrder(Side.BUY);
+        this.limitOrderBook.fillOrder(bestBid, 10);
+        this.limitOrderBook.fillOrder(bestBid, 30); // Fully fills the order
+        this.limitOrderBook.deleteOrderById(this.limitOrderBook.retrieveBidsByPrice(6).get(0).getOrderId());
+        this.limitOrderBook.addNewOrder(new Order(7, 13, Side.SELL));
+
+        StringBuilder changes = new StringBuilder();
+        int count = this.limitOrderBook.drainChangedLevels((side, price, quantity, orders) -> {
+            changes.append(side).append(' ').append(price).append(' ').append(quantity).append(' ').append(orders).append(';');
+            return true;
+        });
+
+        Assertions.assertEquals(3, count);
+        Assertions.assertEquals("BUY 9 20 1;BUY 6 0 0;SELL 13 7 1;", changes.toString());
+        Assertions.assertEquals(0, this.limitOrderBook.drainChangedLevels((side, price, quantity, orders) -> true));
+    }
+
+    protected OrderBook createOrderBook() {
+        return new LimitOrderBook();
+    }
+
+    private void addBids() {
+        this.limitOrderBook.addNewOrder(new Order(40, 9, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(30, 8, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(50, 7, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(60, 6, Side.BUY));
+
+        this.limitOrderBook.addNewOrder(new Order(20, 9, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(20, 8, Side.BUY));
+        this.limitOrderBook.addNewOrder(new Order(50, 7, Side.BUY));
     }
 
     private void addAsks() {
-        this.limitOrderBook.addNewOrder(new Order(5, 10.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(40, 11.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(20, 12.0, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(5, 10, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(40, 11, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(20, 12, Side.SELL));
 
-        this.limitOrderBook.addNewOrder(new Order(100, 10.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(50, 11.0, Side.SELL));
-        this.limitOrderBook.addNewOrder(new Order(10, 12.0, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(100, 10, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(50, 11, Side.SELL));
+        this.limitOrderBook.addNewOrder(new Order(10, 12, Side.SELL));
     }
 }
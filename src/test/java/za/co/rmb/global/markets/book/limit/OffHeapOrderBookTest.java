@@ -0,0 +1,77 @@
+package za.co.rmb.global.markets.book.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs every LimitOrderBook scenario against the off-heap book as well.
+public class OffHeapOrderBookTest extends LimitOrderBookTest {
+
+    @Override
+    protected OrderBook createOrderBook() {
+        return new OffHeapOrderBook(4);
+    }
+
+    // Assert that freed slots are reused before the book grows, and that growing keeps every order intact
+    @Test
+    public void testSlotsAreReusedAndGrown() {
+        OffHeapOrderBook book = new OffHeapOrderBook(4);
+        for (int i = 1; i <= 100; i++) {
+            Order order = new Order(i, i, 10 + i % 3, Side.SELL);
+            order.setClientOrderId("client-" + i);
+            book.addNewOrder(order);
+            book.deleteOrderById(i);
+        }
+        Assertions.assertEquals(4, book.getCapacity(), "Deleted orders free their slots for the next ones");
+
+        for (int i = 1; i <= 100; i++) {
+            Order order = new Order(i, i, 10 + i % 3, Side.SELL);
+            order.setClientOrderId("client-" + i);
+            book.addNewOrder(order);
+        }
+        Assertions.assertEquals(128, book.getCapacity());
+        Assertions.assertEquals(100, book.size());
+        Assertions.assertEquals(42, book.retrieveOrderByClientOrderId("client-42").getQuantity());
+        Assertions.assertEquals(3, book.bestOrder(Side.SELL).getOrderId(), "The first order at the lowest price");
+
+        Order copy = book.retrieveOrderById(7);
+        copy.setQuantity(1);
+        Assertions.assertEquals(7, book.retrieveOrderById(7).getQuantity(), "Returned orders are copies");
+    }
+
+    // Assert that the best order and visited orders are reused views, and that the engine pools only the orders it was given
+    @Test
+    public void testHotPathsReuseViews() {
+        OffHeapOrderBook book = new OffHeapOrderBook(4);
+        MatchingEngine engine = new MatchingEngine(book);
+        OrderPool pool = new OrderPool(0);
+        engine.setOrderPool(pool);
+        engine.execute(new Order(1, 10, 101, Side.SELL));
+        engine.execute(new Order(2, 10, 102, Side.SELL));
+        engine.execute(new Order(3, 5, 99, Side.BUY));
+        Assertions.assertEquals(3, pool.available(), "The book keeps copies, so resting orders go straight back");
+
+        Order bestAsk = book.bestOrder(Side.SELL);
+        Assertions.assertEquals(1, bestAsk.getOrderId());
+        Assertions.assertSame(bestAsk, book.bestOrder(Side.SELL));
+        Assertions.assertNotSame(bestAsk, book.bestOrder(Side.BUY));
+
+        List<Order> visited = new ArrayList<>();
+        book.forEachOrder(visited::add);
+        Assertions.assertEquals(3, visited.size());
+        Assertions.assertSame(visited.get(0), visited.get(2));
+        List<Order> allOrders = book.retrieveAllOrders();
+        Assertions.assertNotSame(allOrders.get(0), allOrders.get(1), "Lists hold copies");
+        Assertions.assertEquals(2, allOrders.get(2).getOrderId());
+
+        engine.execute(new Order(4, 15, 102, Side.BUY)); // Fills order 1 and half of order 2
+        Assertions.assertEquals(5, book.retrieveOrderById(2).getQuantity());
+        Assertions.assertEquals(3, pool.available(), "The view of a filled order is not pooled");
+    }
+}
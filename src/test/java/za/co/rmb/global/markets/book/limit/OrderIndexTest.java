@@ -0,0 +1,61 @@
+package za.co.rmb.global.markets.book.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.Side;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class OrderIndexTest {
+
+    // Assert that the index agrees with a HashMap across a random mix of inserts and removals
+    @Test
+    public void testMatchesHashMapUnderRandomChurn() {
+        OrderIndex index = new OrderIndex();
+        Map<Long, OrderNode> expected = new HashMap<>();
+        List<Long> liveIds = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            if (liveIds.isEmpty() || random.nextInt(3) > 0) {
+                OrderNode node = new OrderNode();
+                node.order = new Order(1, 10, Side.BUY);
+                index.put(node);
+                expected.put(node.order.getOrderId(), node);
+                liveIds.add(node.order.getOrderId());
+            } else {
+                long orderId = liveIds.remove(random.nextInt(liveIds.size()));
+                Assertions.assertEquals(expected.remove(orderId), index.remove(orderId));
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), index.size());
+        expected.forEach((orderId, node) -> Assertions.assertEquals(node, index.get(orderId)));
+    }
+
+    // Assert that the index releases its capacity as orders leave
+    @Test
+    public void testShrinksAsOrdersAreRemoved() {
+        OrderIndex index = new OrderIndex();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            OrderNode node = new OrderNode();
+            node.order = new Order(1, 10, Side.SELL);
+            index.put(node);
+            orderIds.add(node.order.getOrderId());
+        }
+
+        for (long orderId : orderIds) {
+            Assertions.assertNotNull(index.remove(orderId));
+            Assertions.assertNull(index.get(orderId));
+        }
+
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertNull(index.remove(-1L));
+    }
+}
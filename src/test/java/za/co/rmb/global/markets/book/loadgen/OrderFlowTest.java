@@ -0,0 +1,120 @@
+package za.co.rmb.global.markets.book.loadgen;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OffHeapOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+public class OrderFlowTest {
+
+    @TempDir
+    Path directory;
+
+    // Assert that the same seed always gives the same flow, spread over every instrument
+    @Test
+    public void testGenerationIsDeterministic() {
+        OrderFlow first = new OrderFlowGenerator(7, 3, 0.3, 0.1, 0.1, 5.0).generate(1_000, 10_000);
+        OrderFlow second = new OrderFlowGenerator(7, 3, 0.3, 0.1, 0.1, 5.0).generate(1_000, 10_000);
+        Assertions.assertEquals(10_000, first.length());
+        int[] counts = new int[3];
+        int cancels = 0;
+        for (int i = 0; i < first.length(); i++) {
+            Assertions.assertEquals(first.getType(i), second.getType(i));
+            Assertions.assertEquals(first.getInstrument(i), second.getInstrument(i));
+            Assertions.assertEquals(first.getOrderId(i), second.getOrderId(i));
+            Assertions.assertEquals(first.getQuantity(i), second.getQuantity(i));
+            counts[first.getInstrument(i)]++;
+            cancels += first.getType(i) == OrderFlow.CANCEL ? 1 : 0;
+        }
+        for (int count : counts) {
+            Assertions.assertTrue(count > 3_000, "Instruments are picked uniformly");
+        }
+        Assertions.assertTrue(cancels > 2_000, "About 30% of the mixed flow is cancels");
+    }
+
+    // Assert that every book implementation ends in the same books after a flow is written, read back and applied
+    @Test
+    public void testReplayIsIdenticalAcrossBooks() throws Exception {
+        OrderFlow generated = new OrderFlowGenerator(11, 2, 0.4, 0.05, 0.1, 5.0).generate(2_000, 20_000);
+        Path path = this.directory.resolve("flow.bin");
+        generated.write(path);
+        OrderFlow flow = OrderFlow.read(path);
+        Assertions.assertEquals(generated.length(), flow.length());
+
+        MatchingEngine[] limit = replay(flow, LimitOrderBook::new);
+        MatchingEngine[] ladder = replay(flow, () -> new LadderOrderBook(0, OrderFlowGenerator.PRICE_RANGE));
+        MatchingEngine[] offHeap = replay(flow, () -> new OffHeapOrderBook(1024));
+        for (int instrument = 0; instrument < 2; instrument++) {
+            Assertions.assertFalse(limit[instrument].getOrderBook().retrieveAllOrders().isEmpty());
+            Assertions.assertEquals(limit[instrument].getOrderBook().retrieveAllOrders(),
+                    ladder[instrument].getOrderBook().retrieveAllOrders());
+            Assertions.assertEquals(limit[instrument].getOrderBook().retrieveAllOrders(),
+                    offHeap[instrument].getOrderBook().retrieveAllOrders());
+            Assertions.assertEquals(limit[instrument].getLastPrice(), offHeap[instrument].getLastPrice());
+        }
+    }
+
+    // Assert that flow recorded from a live engine, rejected commands included, replays into the same book
+    @Test
+    public void testRecordedFlowReplays() {
+        OrderFlow flow = new OrderFlow(4);
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        engine.setCommandJournal(flow.recorder(0));
+        Order iceberg = new Order(1, 50, 100, Side.SELL);
+        iceberg.setDisplayQuantity(10);
+        engine.execute(iceberg);
+        engine.execute(new Order(2, 20, 101, Side.SELL));
+        engine.execute(new Order(3, 25, 100, Side.BUY));
+        engine.amend(1, 30);
+        engine.cancel(2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> engine.cancel(3), "Order 3 has filled");
+        Assertions.assertEquals(6, flow.length(), "Rejected commands are recorded and skipped on replay");
+        Assertions.assertEquals(OrderFlow.AMEND, flow.getType(3));
+
+        MatchingEngine[] replayed = replay(flow, LimitOrderBook::new);
+        Assertions.assertEquals(engine.getOrderBook().retrieveAllOrders(), replayed[0].getOrderBook().retrieveAllOrders());
+        Assertions.assertEquals(engine.getOrderBook().retrieveOrderById(1).getHiddenQuantity(),
+                replayed[0].getOrderBook().retrieveOrderById(1).getHiddenQuantity());
+    }
+
+    // Assert that the driver measures every command and paces the flow at the target rate
+    @Test
+    public void testDriverPacesAndMeasures() {
+        OrderFlow flow = new OrderFlowGenerator(3, 1, 0.4, 0.05, 0.1, 5.0).generate(1_000, 6_000);
+        OrderPool pool = new OrderPool(1_000);
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        engine.setOrderPool(pool);
+        LoadDriver driver = new LoadDriver(new MatchingEngine[]{engine}, pool);
+        driver.apply(flow, 0, 1_000);
+
+        LoadResult result = driver.run(flow, 1_000, 6_000, 100_000);
+        Assertions.assertEquals(5_000, result.getCommands());
+        Assertions.assertEquals(5_000, result.getResponseTimes().getTotalCount());
+        Assertions.assertEquals(5_000, result.getServiceTimes().getTotalCount());
+        Assertions.assertTrue(result.getElapsedNanos() >= 49_990_000L, "5,000 commands at 100,000/s take 50 ms");
+        Assertions.assertTrue(result.getThroughput() <= 100_100);
+        Assertions.assertTrue(result.getResponseTimes().getMax() >= result.getServiceTimes().getValueAtPercentile(50));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> driver.run(flow, 0, 0, -1));
+    }
+
+    private static MatchingEngine[] replay(OrderFlow flow, Supplier<OrderBook> books) {
+        OrderPool pool = new OrderPool(16);
+        MatchingEngine[] engines = new MatchingEngine[2];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = new MatchingEngine(books.get());
+            engines[i].setOrderPool(pool);
+        }
+        new LoadDriver(engines, pool).apply(flow, 0, flow.length());
+        return engines;
+    }
+}
@@ -0,0 +1,40 @@
+package za.co.rmb.global.markets.book.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    // Assert that percentiles are within 1% of the exact values across a wide range
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 10);
+        }
+
+        Assertions.assertEquals(100_000, histogram.getTotalCount());
+        Assertions.assertEquals(1_000_000, histogram.getMax());
+        Assertions.assertEquals(500_000, histogram.getValueAtPercentile(50), 5_000);
+        Assertions.assertEquals(990_000, histogram.getValueAtPercentile(99), 9_900);
+        Assertions.assertEquals(999_000, histogram.getValueAtPercentile(99.9), 9_990);
+        Assertions.assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        Assertions.assertEquals(10, histogram.getValueAtPercentile(0));
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    // Assert that every bucket reports a value that maps back into the same bucket
+    @Test
+    public void testBucketBoundaries() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            Assertions.assertTrue(highest >= value);
+            Assertions.assertEquals(index, LatencyHistogram.bucketIndex(highest));
+        }
+        Assertions.assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_VALUE,
+                LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(LatencyHistogram.HIGHEST_TRACKABLE_VALUE)));
+    }
+}
@@ -0,0 +1,163 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.SequentialOrderIdGenerator;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+import za.co.rmb.global.markets.book.risk.RiskCheck;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+public class OrderPipelineTest {
+
+    private final List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+
+    // Assert that orders from several producers pass through every stage and are matched
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        OrderBook book = new LimitOrderBook();
+        List<String> published = new ArrayList<>();
+        long[] filled = new long[1];
+        OrderPipeline pipeline = new OrderPipeline(64, new MatchingEngine(book), new SequentialOrderIdGenerator(),
+                (event, sequence, endOfBatch) -> { },
+                (event, sequence, endOfBatch) -> { },
+                (event, sequence, endOfBatch) -> {
+                    filled[0] += event.getFilledQuantity();
+                    if (event.isRejected()) {
+                        published.add(event.getRejectReason());
+                    }
+                },
+                errors::add);
+        pipeline.start();
+
+        // Every buy and sell is at the same price, so whatever the interleaving they all cross
+        List<Thread> producers = new ArrayList<>();
+        for (Side side : Side.values()) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    pipeline.submitNewOrder(side, 100, 1);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        pipeline.close();
+
+        Assertions.assertTrue(errors.isEmpty());
+        Assertions.assertTrue(published.isEmpty());
+        Assertions.assertEquals(10_000, filled[0], "Every buy should have traded against a sell");
+        Assertions.assertTrue(book.retrieveAllOrders().isEmpty());
+    }
+
+    // Assert that raw messages are decoded, risk-checked and applied in order
+    @Test
+    public void testDecodeRiskMatchPublish() throws Exception {
+        OrderBook book = new LimitOrderBook();
+        SequentialOrderIdGenerator idGenerator = new SequentialOrderIdGenerator(100);
+        List<String> published = new ArrayList<>();
+        OrderPipeline pipeline = new OrderPipeline(8, new MatchingEngine(book), idGenerator,
+                (event, sequence, endOfBatch) -> {
+                    if (event.isRaw()) {
+                        ByteBuffer message = event.getRawMessage();
+                        Side side = message.get() == 'B' ? Side.BUY : Side.SELL;
+                        event.setNewOrder(message.getLong(), side, message.getLong(), message.getInt());
+                    }
+                },
+                (event, sequence, endOfBatch) -> {
+                    if (event.getType() == OrderEvent.Type.NEW && event.getQuantity() > 1_000) {
+                        event.reject("Quantity exceeds the fat-finger limit.");
+                    }
+                },
+                (event, sequence, endOfBatch) -> published.add(event.getType() + ":" + event.getOrderId() + ":"
+                        + (event.isRejected() ? event.getRejectReason() : event.getFilledQuantity() + "/" + event.getLeavesQuantity())),
+                errors::add);
+        pipeline.start();
+
+        pipeline.submitRawMessage(ByteBuffer.allocate(21).put((byte) 'S').putLong(500).putLong(100).putInt(30).flip());
+        long buyId = pipeline.submitNewOrder(Side.BUY, 100, 50);
+        pipeline.submitNewOrder(Side.BUY, 100, 5_000);
+        pipeline.submitCancel(buyId);
+        pipeline.submitCancel(buyId);
+        pipeline.close();
+
+        Assertions.assertTrue(errors.isEmpty());
+        Assertions.assertEquals(List.of(
+                "NEW:500:0/30",
+                "NEW:101:30/20",
+                "NEW:102:Quantity exceeds the fat-finger limit.",
+                "CANCEL:101:0/0",
+                "CANCEL:101:Order with ID 101 not found."), published);
+        Assertions.assertTrue(book.retrieveAllOrders().isEmpty());
+    }
+
+    // Assert that closing from an interrupted thread halts every stage, still drains a slow stage's backlog, and restores the interrupt
+    @Test
+    public void testCloseWhenInterrupted() throws Exception {
+        List<Long> published = new CopyOnWriteArrayList<>();
+        OrderPipeline pipeline = new OrderPipeline(64, new MatchingEngine(new LimitOrderBook()),
+                new SequentialOrderIdGenerator(),
+                (event, sequence, endOfBatch) -> LockSupport.parkNanos(1_000_000), // A slow decode stage
+                (event, sequence, endOfBatch) -> { },
+                (event, sequence, endOfBatch) -> published.add(event.getOrderId()),
+                errors::add);
+        pipeline.start();
+        List<Thread> stages = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("pipeline-") && thread.isAlive()) {
+                stages.add(thread);
+            }
+        }
+        Assertions.assertEquals(4, stages.size());
+        for (int i = 0; i < 50; i++) {
+            pipeline.submitNewOrder(Side.BUY, 100 - i, 1);
+        }
+
+        Thread.currentThread().interrupt();
+        pipeline.close();
+        Assertions.assertTrue(Thread.interrupted(), "The interrupt is restored");
+        for (Thread stage : stages) {
+            stage.join(5_000);
+            Assertions.assertFalse(stage.isAlive(), stage.getName() + " should have stopped");
+        }
+        Assertions.assertEquals(50, published.size(), "Every event submitted before closing is published");
+        Assertions.assertTrue(errors.isEmpty());
+    }
+
+    // Assert that an order the engine's risk check rejects is published as rejected rather than filled, and the engine's own listener still hears every event
+    @Test
+    public void testEngineRejectIsNotReportedAsFill() throws Exception {
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        engine.setRiskCheck(new RiskCheck(1_000, false)); // 10% price band
+        List<ExecutionEvent.Type> engineEvents = new ArrayList<>();
+        engine.setExecutionListener(event -> engineEvents.add(event.getType()));
+        List<String> published = new ArrayList<>();
+        OrderPipeline pipeline = new OrderPipeline(8, engine, new SequentialOrderIdGenerator(),
+                (event, sequence, endOfBatch) -> { },
+                (event, sequence, endOfBatch) -> { },
+                (event, sequence, endOfBatch) -> published.add(event.getOrderId() + ":"
+                        + (event.isRejected() ? event.getRejectReason() : event.getFilledQuantity() + "/" + event.getLeavesQuantity())),
+                errors::add);
+        pipeline.start();
+
+        pipeline.submitNewOrder(Side.SELL, 100, 10);
+        pipeline.submitNewOrder(Side.BUY, 150, 10); // Outside the price band
+        pipeline.submitNewOrder(Side.BUY, 100, 4);
+        pipeline.close();
+
+        Assertions.assertTrue(errors.isEmpty());
+        Assertions.assertEquals(List.of("1:0/10", "2:Rejected by the engine: PRICE_BAND.", "3:4/0"), published);
+        Assertions.assertEquals(List.of(ExecutionEvent.Type.ACCEPTED, ExecutionEvent.Type.RESTED,
+                ExecutionEvent.Type.REJECTED, ExecutionEvent.Type.ACCEPTED, ExecutionEvent.Type.TRADE), engineEvents);
+    }
+}
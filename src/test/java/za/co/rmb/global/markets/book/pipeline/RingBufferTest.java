@@ -0,0 +1,55 @@
+package za.co.rmb.global.markets.book.pipeline;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RingBufferTest {
+
+    // Assert that producers cannot lap the slowest gating stage
+    @Test
+    public void testBackPressure() {
+        RingBuffer<long[]> ringBuffer = new RingBuffer<>(4, () -> new long[1]);
+        Sequence consumer = new Sequence();
+        ringBuffer.setGatingSequences(consumer);
+
+        for (int i = 0; i < 4; i++) {
+            long sequence = ringBuffer.tryNext();
+            Assertions.assertEquals(i, sequence);
+            ringBuffer.get(sequence)[0] = i;
+            ringBuffer.publish(sequence);
+        }
+        Assertions.assertEquals(-1, ringBuffer.tryNext(), "Ring is full until the consumer moves on");
+
+        consumer.set(0);
+        long sequence = ringBuffer.tryNext();
+        Assertions.assertEquals(4, sequence);
+        Assertions.assertSame(ringBuffer.get(0), ringBuffer.get(sequence), "Slots are reused, not reallocated");
+    }
+
+    // Assert that a claimed but unpublished slot hides every later slot from consumers
+    @Test
+    public void testHighestPublishedSequenceStopsAtGap() {
+        RingBuffer<long[]> ringBuffer = new RingBuffer<>(8, () -> new long[1]);
+
+        long first = ringBuffer.next();
+        long second = ringBuffer.next();
+        long third = ringBuffer.next();
+        ringBuffer.publish(first);
+        ringBuffer.publish(third);
+
+        Assertions.assertEquals(first, ringBuffer.getHighestPublishedSequence(0, ringBuffer.getCursor()));
+
+        ringBuffer.publish(second);
+        Assertions.assertEquals(third, ringBuffer.getHighestPublishedSequence(0, ringBuffer.getCursor()));
+    }
+
+    // Test that the buffer size must be a power of two
+    @Test
+    public void testInvalidBufferSize() {
+        Exception exception = Assertions.assertThrows(
+                IllegalArgumentException.class, () -> new RingBuffer<>(6, Object::new)
+        );
+
+        Assertions.assertEquals("Buffer size must be a power of two.", exception.getMessage());
+    }
+}
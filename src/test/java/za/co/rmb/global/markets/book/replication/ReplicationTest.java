@@ -0,0 +1,126 @@
+package za.co.rmb.global.markets.book.replication;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.limit.LadderOrderBook;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.loadgen.LoadDriver;
+import za.co.rmb.global.markets.book.loadgen.OrderFlow;
+import za.co.rmb.global.markets.book.loadgen.OrderFlowGenerator;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+public class ReplicationTest {
+
+    // Assert that a replica fed over an in-memory transport holds the primary's book and verifies every checksum
+    @Test
+    public void testReplicaFollowsPrimary() {
+        OrderFlow flow = new OrderFlowGenerator(5, 1, 0.4, 0.05, 0.1, 5.0).generate(1_000, 20_000);
+        MatchingEngine primaryEngine = new MatchingEngine(new LimitOrderBook());
+        MatchingEngine replicaEngine = new MatchingEngine(new LadderOrderBook(0, OrderFlowGenerator.PRICE_RANGE));
+        try (InMemoryTransport transport = new InMemoryTransport(1 << 16)) {
+            ReplicationPrimary primary = new ReplicationPrimary(primaryEngine, transport, 1_000);
+            EngineReplica replica = new EngineReplica(replicaEngine, transport);
+            primaryEngine.setCommandJournal(primary);
+
+            Order named = new Order(1_000_000, 10, 1, Side.BUY);
+            named.setClientOrderId("client-1");
+            primaryEngine.execute(named);
+            replicate(flow, 0, flow.length(), primaryEngine, replica);
+            primaryEngine.startAuction();
+            primaryEngine.uncross();
+            primary.sendChecksum();
+            replica.poll();
+
+            Assertions.assertEquals(primary.getSequence(), replica.getAppliedSequence());
+            Assertions.assertEquals(primary.getSequence(), replica.getVerifiedSequence());
+            Assertions.assertFalse(replica.isDiverged());
+            Assertions.assertEquals(primaryEngine.getOrderBook().retrieveAllOrders(),
+                    replicaEngine.getOrderBook().retrieveAllOrders());
+            Assertions.assertEquals(primaryEngine.getLastPrice(), replicaEngine.getLastPrice());
+            Assertions.assertEquals(1_000_000, replicaEngine.getOrderBook().retrieveOrderByClientOrderId("client-1").getOrderId());
+        }
+    }
+
+    // Assert that a replica whose book is changed behind the primary's back detects the divergence and refuses to take over
+    @Test
+    public void testDivergenceIsDetected() {
+        MatchingEngine primaryEngine = new MatchingEngine(new LimitOrderBook());
+        MatchingEngine replicaEngine = new MatchingEngine(new LimitOrderBook());
+        InMemoryTransport transport = new InMemoryTransport(1 << 12);
+        ReplicationPrimary primary = new ReplicationPrimary(primaryEngine, transport, 2);
+        EngineReplica replica = new EngineReplica(replicaEngine, transport);
+        primaryEngine.setCommandJournal(primary);
+
+        primaryEngine.execute(new Order(1, 10, 100, Side.BUY));
+        primaryEngine.execute(new Order(2, 10, 101, Side.SELL));
+        primaryEngine.execute(new Order(3, 4, 101, Side.BUY)); // Sends the checksum after order 2 first
+        replica.poll();
+        Assertions.assertEquals(2, replica.getVerifiedSequence());
+
+        replicaEngine.amend(1, 5);
+        primaryEngine.execute(new Order(4, 10, 99, Side.BUY));
+        primaryEngine.execute(new Order(5, 10, 98, Side.BUY));
+        replica.poll();
+        Assertions.assertTrue(replica.isDiverged());
+        Assertions.assertEquals(4, replica.getDivergedSequence());
+        Assertions.assertEquals(4, replica.getAppliedSequence(), "A diverged replica stops applying commands");
+        Assertions.assertThrows(IllegalStateException.class, replica::promote);
+    }
+
+    // Assert that a replica on the loopback interface takes over from the primary where it left off
+    @Test
+    public void testFailoverOverLoopback() throws Exception {
+        OrderFlow flow = new OrderFlowGenerator(9, 1, 0.4, 0.05, 0.1, 5.0).generate(500, 5_000);
+        MatchingEngine reference = new MatchingEngine(new LimitOrderBook());
+        OrderPool referencePool = new OrderPool(16);
+        reference.setOrderPool(referencePool);
+        new LoadDriver(new MatchingEngine[]{reference}, referencePool).apply(flow, 0, flow.length());
+
+        MatchingEngine primaryEngine = new MatchingEngine(new LimitOrderBook());
+        MatchingEngine replicaEngine = new MatchingEngine(new LimitOrderBook());
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketTransport primaryTransport = SocketTransport.connect((InetSocketAddress) server.getLocalAddress());
+            SocketTransport replicaTransport = SocketTransport.accept(server);
+            ReplicationPrimary primary = new ReplicationPrimary(primaryEngine, primaryTransport, 500);
+            EngineReplica replica = new EngineReplica(replicaEngine, replicaTransport);
+            primaryEngine.setCommandJournal(primary);
+
+            replicate(flow, 0, 3_000, primaryEngine, replica);
+            primaryTransport.close(); // The primary fails
+            while (replica.getAppliedSequence() < primary.getSequence()) {
+                replica.poll();
+            }
+            Assertions.assertTrue(replica.getVerifiedSequence() > 0);
+
+            MatchingEngine promoted = replica.promote();
+            Assertions.assertTrue(replica.isPromoted());
+            Assertions.assertThrows(IllegalStateException.class, replica::poll);
+            OrderPool pool = new OrderPool(16);
+            promoted.setOrderPool(pool);
+            new LoadDriver(new MatchingEngine[]{promoted}, pool).apply(flow, 3_000, flow.length());
+            Assertions.assertEquals(reference.getOrderBook().retrieveAllOrders(), promoted.getOrderBook().retrieveAllOrders());
+        }
+    }
+
+    /**
+     * Applies part of a flow to the primary engine, letting the replica catch up every hundred commands so the
+     * transport never fills on this single test thread.
+     */
+    private static void replicate(OrderFlow flow, int from, int to, MatchingEngine primaryEngine, EngineReplica replica) {
+        OrderPool pool = new OrderPool(16);
+        primaryEngine.setOrderPool(pool);
+        LoadDriver driver = new LoadDriver(new MatchingEngine[]{primaryEngine}, pool);
+        for (int i = from; i < to; i += 100) {
+            driver.apply(flow, i, Math.min(i + 100, to));
+            replica.poll();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package za.co.rmb.global.markets.book.risk;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+import za.co.rmb.global.markets.book.limit.OrderBook;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RiskCheckTest {
+
+    private OrderBook book;
+
+    private RiskCheck riskCheck;
+
+    private MatchingEngine engine;
+
+    private final List<RejectReason> rejections = new ArrayList<>();
+
+    private int trades;
+
+    @BeforeEach
+    void setUp() {
+        this.book = new LimitOrderBook();
+        this.riskCheck = new RiskCheck(1_000, true); // 10% price band
+        this.engine = new MatchingEngine(this.book);
+        this.engine.setRiskCheck(this.riskCheck);
+        this.engine.setExecutionListener(event -> {
+            if (event.getType() == ExecutionEvent.Type.REJECTED) {
+                this.rejections.add(event.getRejectReason());
+            } else if (event.getType() == ExecutionEvent.Type.TRADE) {
+                this.trades++;
+            }
+        });
+    }
+
+    // Assert that limit orders priced too far from the best opposite price are rejected, and market orders are not
+    @Test
+    public void testPriceBand() {
+        execute(9, 10, 100, Side.SELL);
+        execute(9, 10, 95, Side.BUY);
+
+        execute(1, 5, 111, Side.BUY);
+        execute(1, 5, 85, Side.SELL);
+        Assertions.assertEquals(List.of(RejectReason.PRICE_BAND, RejectReason.PRICE_BAND), this.rejections);
+        Assertions.assertEquals(95, this.book.bestOrder(Side.BUY).getPrice());
+
+        execute(1, 5, 110, Side.BUY);
+        Order market = new Order(5, 0, Side.BUY);
+        market.setOrderType(OrderType.MARKET);
+        this.engine.execute(market);
+        Assertions.assertEquals(2, this.rejections.size());
+        Assertions.assertEquals(2, this.trades);
+        Assertions.assertNull(this.book.bestOrder(Side.SELL));
+    }
+
+    // Assert that open quantity and notional limits count resting orders and are released by fills and cancels
+    @Test
+    public void testOpenQuantityAndNotionalLimits() {
+        this.riskCheck.setLimits(1, 100, 1_000);
+
+        Order resting = execute(1, 60, 10, Side.BUY);
+        Assertions.assertEquals(60, this.riskCheck.getOpenQuantity(1));
+        Assertions.assertEquals(600, this.riskCheck.getOpenNotional(1));
+
+        execute(1, 50, 10, Side.BUY);
+        execute(1, 40, 11, Side.BUY);
+        Assertions.assertEquals(List.of(RejectReason.OPEN_QUANTITY_LIMIT, RejectReason.NOTIONAL_LIMIT), this.rejections);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.engine.amend(resting.getOrderId(), 110));
+
+        execute(2, 30, 10, Side.SELL);
+        Assertions.assertEquals(30, this.riskCheck.getOpenQuantity(1));
+        Assertions.assertEquals(300, this.riskCheck.getOpenNotional(1));
+
+        this.engine.amend(resting.getOrderId(), 50);
+        Assertions.assertEquals(500, this.riskCheck.getOpenNotional(1));
+        this.engine.cancel(resting.getOrderId());
+        Assertions.assertEquals(0, this.riskCheck.getOpenQuantity(1));
+        Assertions.assertEquals(0, this.riskCheck.getOpenNotional(1));
+    }
+
+    // Assert that an order that would trade against its own account is rejected before anything trades
+    @Test
+    public void testSelfTradePrevention() {
+        execute(2, 5, 100, Side.SELL);
+        execute(1, 10, 101, Side.SELL);
+
+        Order fillOrKill = new Order(15, 101, Side.BUY);
+        fillOrKill.setAccountId(1);
+        fillOrKill.setTimeInForce(TimeInForce.FOK);
+        this.engine.execute(fillOrKill);
+        Assertions.assertEquals(List.of(RejectReason.SELF_TRADE), this.rejections);
+        Assertions.assertEquals(0, this.trades);
+        Assertions.assertEquals(5, this.book.bestOrder(Side.SELL).getQuantity());
+
+        // Only the other account's order at 100 is crossed
+        execute(1, 5, 100, Side.BUY);
+        Assertions.assertEquals(1, this.trades);
+        Assertions.assertEquals(1, this.rejections.size());
+        Assertions.assertEquals(101, this.book.bestOrder(Side.SELL).getPrice());
+    }
+
+    private Order execute(int accountId, int quantity, long price, Side side) {
+        Order order = new Order(quantity, price, side);
+        order.setAccountId(accountId);
+        this.engine.execute(order);
+        return order;
+    }
+}
@@ -0,0 +1,128 @@
+package za.co.rmb.global.markets.book.wire;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.Order;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.RejectReason;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandDispatcherTest {
+
+    // Assert that every field of a command survives encoding and is read back in place
+    @Test
+    public void testCommandRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256).order(ByteOrder.LITTLE_ENDIAN);
+        CommandEncoder encoder = new CommandEncoder();
+        int newOrderLength = encoder.wrap(buffer, 0).encodeNewOrder(7, Side.SELL, 105, 30, 4, OrderType.LIMIT, TimeInForce.IOC, true);
+        int amendLength = encoder.wrap(buffer, newOrderLength).encodeAmend(7, 12);
+
+        CommandDecoder decoder = new CommandDecoder().wrap(buffer, 0);
+        Assertions.assertEquals(WireFormat.NEW_ORDER, decoder.getTemplateId());
+        Assertions.assertEquals(newOrderLength, decoder.getEncodedLength());
+        Assertions.assertEquals(newOrderLength, WireFormat.frameLength(buffer, 0, newOrderLength + amendLength));
+        Assertions.assertEquals(7, decoder.getOrderId());
+        Assertions.assertEquals(Side.SELL, decoder.getSide());
+        Assertions.assertEquals(105, decoder.getPrice());
+        Assertions.assertEquals(30, decoder.getQuantity());
+        Assertions.assertEquals(4, decoder.getAccountId());
+        Assertions.assertEquals(TimeInForce.IOC, decoder.getTimeInForce());
+        Assertions.assertTrue(decoder.isPostOnly());
+
+        decoder.wrap(buffer, newOrderLength);
+        Assertions.assertEquals(WireFormat.AMEND, decoder.getTemplateId());
+        Assertions.assertEquals(12, decoder.getQuantity());
+        Assertions.assertEquals(0, WireFormat.frameLength(buffer, newOrderLength, amendLength - 1));
+
+        buffer.putShort(2, (short) 99);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.wrap(buffer, 0));
+    }
+
+    // Assert that dispatched commands drive the engine and their events encode into execution reports
+    @Test
+    public void testDispatchIntoEngine() {
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        OrderPool orderPool = new OrderPool(4);
+        CommandDispatcher dispatcher = new CommandDispatcher(engine, orderPool);
+
+        ByteBuffer reports = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        ExecutionReportEncoder reportEncoder = new ExecutionReportEncoder();
+        engine.setExecutionListener(event -> reports.position(reports.position() + reportEncoder.wrap(reports, reports.position()).encode(event)));
+
+        ByteBuffer commands = ByteBuffer.allocate(256);
+        CommandEncoder encoder = new CommandEncoder();
+        int offset = encoder.wrap(commands, 0).encodeNewOrder(new Order(1, 40, 100, Side.BUY));
+        offset += encoder.wrap(commands, offset).encodeNewOrder(2, Side.SELL, 100, 25, 0, OrderType.LIMIT, TimeInForce.GTC, false);
+        int end = offset + encoder.wrap(commands, offset).encodeNewOrder(3, Side.SELL, 100, 10, 0, OrderType.LIMIT, TimeInForce.GTC, true);
+        for (int position = 0; position < end; ) {
+            position += dispatcher.dispatch(commands, position);
+        }
+
+        Order resting = engine.getOrderBook().retrieveOrderById(1);
+        Assertions.assertEquals(15, resting.getQuantity());
+        Assertions.assertEquals(3, orderPool.available(), "Orders that did not rest go back to the pool");
+        encoder.wrap(commands, 0).encodeCancel(99);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+
+        List<ExecutionEvent.Type> types = new ArrayList<>();
+        ExecutionReportDecoder decoder = new ExecutionReportDecoder();
+        for (int position = 0; position < reports.position(); position += WireFormat.frameLength(reports, position, reports.position() - position)) {
+            decoder.wrap(reports, position);
+            types.add(decoder.getType());
+            if (decoder.getType() == ExecutionEvent.Type.TRADE) {
+                Assertions.assertEquals(2, decoder.getOrderId());
+                Assertions.assertEquals(1, decoder.getRestingOrderId());
+                Assertions.assertEquals(25, decoder.getQuantity());
+                Assertions.assertEquals(15, decoder.getRestingLeavesQuantity());
+            } else if (decoder.getType() == ExecutionEvent.Type.REJECTED) {
+                Assertions.assertEquals(RejectReason.POST_ONLY, decoder.getRejectReason());
+            }
+        }
+        Assertions.assertEquals(List.of(ExecutionEvent.Type.ACCEPTED, ExecutionEvent.Type.RESTED,
+                ExecutionEvent.Type.ACCEPTED, ExecutionEvent.Type.TRADE, ExecutionEvent.Type.REJECTED), types);
+    }
+
+    // Assert that amends to a non-positive quantity, orders with a non-positive quantity and orders reusing a live ID are refused without touching the book
+    @Test
+    public void testDispatchRejectsInvalidCommands() {
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        OrderPool orderPool = new OrderPool(4);
+        CommandDispatcher dispatcher = new CommandDispatcher(engine, orderPool);
+        ByteBuffer commands = ByteBuffer.allocate(256);
+        CommandEncoder encoder = new CommandEncoder();
+        encoder.wrap(commands, 0).encodeNewOrder(1, Side.BUY, 100, 40, 0, OrderType.LIMIT, TimeInForce.GTC, false);
+        dispatcher.dispatch(commands, 0);
+
+        encoder.wrap(commands, 0).encodeAmend(1, 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+        encoder.wrap(commands, 0).encodeAmend(1, -5);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+        Assertions.assertEquals(40, engine.getOrderBook().retrieveOrderById(1).getQuantity());
+
+        encoder.wrap(commands, 0).encodeNewOrder(2, Side.SELL, 100, 0, 0, OrderType.LIMIT, TimeInForce.GTC, false);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+        encoder.wrap(commands, 0).encodeNewOrder(3, Side.SELL, 100, -10, 0, OrderType.LIMIT, TimeInForce.GTC, false);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+        Assertions.assertEquals(40, engine.getOrderBook().retrieveOrderById(1).getQuantity(), "Nothing traded");
+
+        encoder.wrap(commands, 0).encodeNewOrder(1, Side.BUY, 99, 10, 0, OrderType.LIMIT, TimeInForce.GTC, false);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dispatcher.dispatch(commands, 0));
+        Assertions.assertEquals(100, engine.getOrderBook().retrieveOrderById(1).getPrice(), "The live order keeps its ID");
+        Assertions.assertTrue(engine.getOrderBook().retrieveBidsByPrice(99).isEmpty());
+        Assertions.assertEquals(3, orderPool.available(), "Refused orders go back to the pool");
+
+        encoder.wrap(commands, 0).encodeCancel(1);
+        dispatcher.dispatch(commands, 0);
+        Assertions.assertNull(engine.getOrderBook().bestOrder(Side.BUY));
+    }
+}
@@ -0,0 +1,73 @@
+package za.co.rmb.global.markets.book.wire;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import za.co.rmb.global.markets.book.engine.ExecutionEvent;
+import za.co.rmb.global.markets.book.engine.MatchingEngine;
+import za.co.rmb.global.markets.book.entities.OrderPool;
+import za.co.rmb.global.markets.book.entities.OrderType;
+import za.co.rmb.global.markets.book.entities.Side;
+import za.co.rmb.global.markets.book.entities.TimeInForce;
+import za.co.rmb.global.markets.book.limit.LimitOrderBook;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+public class TcpGatewayTest {
+
+    // Assert that commands sent over loopback TCP are applied in order and answered with one report per event
+    @Test
+    public void testLoopbackRoundTrip() throws Exception {
+        MatchingEngine engine = new MatchingEngine(new LimitOrderBook());
+        try (TcpGateway gateway = new TcpGateway(engine, new OrderPool(1024), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            gateway.start();
+            try (SocketChannel client = SocketChannel.open(gateway.getLocalAddress())) {
+                // Each buy rests and each sell trades against it: ACCEPTED + RESTED, then ACCEPTED + TRADE
+                ByteBuffer commands = ByteBuffer.allocate(200_000).order(ByteOrder.LITTLE_ENDIAN);
+                CommandEncoder encoder = new CommandEncoder();
+                int orders = 4_000;
+                for (int i = 1; i <= orders; i++) {
+                    Side side = i % 2 == 1 ? Side.BUY : Side.SELL;
+                    commands.position(commands.position() + encoder.wrap(commands, commands.position())
+                            .encodeNewOrder(i, side, 100, 1, 0, OrderType.LIMIT, TimeInForce.GTC, false));
+                }
+                commands.position(commands.position() + encoder.wrap(commands, commands.position()).encodeCancel(99_999));
+                commands.flip();
+                while (commands.hasRemaining()) {
+                    client.write(commands);
+                }
+
+                ByteBuffer reports = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+                ExecutionReportDecoder decoder = new ExecutionReportDecoder();
+                int expected = orders * 2 + 1;
+                int received = 0;
+                int trades = 0;
+                long lastSequence = 0;
+                while (received < expected) {
+                    client.read(reports);
+                    reports.flip();
+                    int length;
+                    while ((length = WireFormat.frameLength(reports, reports.position(), reports.remaining())) > 0) {
+                        decoder.wrap(reports, reports.position());
+                        received++;
+                        if (received < expected) {
+                            Assertions.assertEquals(lastSequence + 1, decoder.getSequence());
+                            lastSequence = decoder.getSequence();
+                            trades += decoder.getType() == ExecutionEvent.Type.TRADE ? 1 : 0;
+                        } else {
+                            Assertions.assertEquals(ExecutionEvent.Type.REJECTED, decoder.getType());
+                            Assertions.assertEquals(99_999, decoder.getOrderId());
+                        }
+                        reports.position(reports.position() + length);
+                    }
+                    reports.compact();
+                }
+                Assertions.assertEquals(orders / 2, trades);
+            }
+        }
+        Assertions.assertNull(engine.getOrderBook().bestOrder(Side.BUY));
+    }
+}